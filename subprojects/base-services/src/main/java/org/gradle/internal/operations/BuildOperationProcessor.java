@@ -31,4 +31,15 @@ public interface BuildOperationProcessor {
      * @return A queue to add operations to and wait for their completion.
      */
     <T extends BuildOperation> BuildOperationQueue<T> newQueue(BuildOperationWorker<T> worker, @Nullable String logLocation);
+
+    /**
+     * Creates a new queue for holding operations to be executed, with the given priority. The processor shares its threads fairly between queues
+     * of the same priority, and starts the operations of higher priority queues first.
+     *
+     * @param worker The action to be executed for each operation.
+     * @param priority The priority of the operations of the queue.
+     * @param <T> The type of operations the worker uses.
+     * @return A queue to add operations to and wait for their completion.
+     */
+    <T extends BuildOperation> BuildOperationQueue<T> newQueue(BuildOperationWorker<T> worker, @Nullable String logLocation, BuildOperationPriority priority);
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.operations;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.Executor;
+
+/**
+ * Shares a pool of threads between the operations of several queues.
+ *
+ * <p>Each time a thread becomes free, it starts the next operation of the queue with the highest priority. Queues of the same priority share the
+ * threads fairly: the queue with the fewest running operations goes first, and the queue served least recently breaks ties. This way a queue with
+ * many operations does not hold up the queues that are added after it.</p>
+ */
+class BuildOperationScheduler {
+    private final Executor executor;
+    private final Object lock = new Object();
+    // Queues with operations waiting to start, least recently served first. Guarded by lock
+    private final LinkedList<DefaultBuildOperationQueue<?>> waitingQueues = new LinkedList<DefaultBuildOperationQueue<?>>();
+
+    BuildOperationScheduler(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Called after an operation has been added to the given queue.
+     */
+    void operationAdded(DefaultBuildOperationQueue<?> queue) {
+        synchronized (lock) {
+            if (!waitingQueues.contains(queue)) {
+                waitingQueues.addLast(queue);
+            }
+        }
+        // One task per operation. Each task runs whichever operation is next, not necessarily the one that was just added
+        executor.execute(new Runnable() {
+            public void run() {
+                runNextOperation();
+            }
+        });
+    }
+
+    private void runNextOperation() {
+        Runnable operation;
+        synchronized (lock) {
+            DefaultBuildOperationQueue<?> queue = selectQueue();
+            if (queue == null) {
+                return;
+            }
+            operation = queue.startNextOperation();
+            waitingQueues.remove(queue);
+            if (queue.hasWaitingOperations()) {
+                waitingQueues.addLast(queue);
+            }
+        }
+        operation.run();
+    }
+
+    private DefaultBuildOperationQueue<?> selectQueue() {
+        DefaultBuildOperationQueue<?> selected = null;
+        Iterator<DefaultBuildOperationQueue<?>> iterator = waitingQueues.iterator();
+        while (iterator.hasNext()) {
+            DefaultBuildOperationQueue<?> candidate = iterator.next();
+            if (!candidate.hasWaitingOperations()) {
+                iterator.remove();
+            } else if (selected == null || goesBefore(candidate, selected)) {
+                selected = candidate;
+            }
+        }
+        return selected;
+    }
+
+    private static boolean goesBefore(DefaultBuildOperationQueue<?> candidate, DefaultBuildOperationQueue<?> selected) {
+        int priorityComparison = candidate.getPriority().compareTo(selected.getPriority());
+        if (priorityComparison != 0) {
+            return priorityComparison > 0;
+        }
+        return candidate.getRunningOperations() < selected.getRunningOperations();
+    }
+}
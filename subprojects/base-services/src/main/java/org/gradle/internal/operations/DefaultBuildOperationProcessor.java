@@ -24,13 +24,19 @@ import org.gradle.internal.concurrent.StoppableExecutor;
 public class DefaultBuildOperationProcessor implements BuildOperationProcessor, Stoppable {
 
     private final StoppableExecutor fixedSizePool;
+    private final BuildOperationScheduler scheduler;
 
     public DefaultBuildOperationProcessor(ExecutorFactory executorFactory, int maxWorkerCount) {
         this.fixedSizePool = executorFactory.create("build operations", maxWorkerCount);
+        this.scheduler = new BuildOperationScheduler(fixedSizePool);
     }
 
     public <T extends BuildOperation> BuildOperationQueue<T> newQueue(BuildOperationWorker<T> worker, @Nullable String logLocation) {
-        return new DefaultBuildOperationQueue<T>(fixedSizePool, worker, logLocation);
+        return newQueue(worker, logLocation, BuildOperationPriority.NORMAL);
+    }
+
+    public <T extends BuildOperation> BuildOperationQueue<T> newQueue(BuildOperationWorker<T> worker, @Nullable String logLocation, BuildOperationPriority priority) {
+        return new DefaultBuildOperationQueue<T>(scheduler, worker, logLocation, priority);
     }
 
     public void stop() {
@@ -16,55 +16,80 @@
 
 package org.gradle.internal.operations;
 
-import com.google.common.collect.Lists;
-import com.google.common.collect.Queues;
-import com.google.common.util.concurrent.*;
 import org.gradle.internal.UncheckedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 class DefaultBuildOperationQueue<T extends BuildOperation> implements BuildOperationQueue<T> {
-    private final ListeningExecutorService executor;
-    private final BuildOperationWorker<T> worker;
+    private static final Logger LOGGER = LoggerFactory.getLogger(DefaultBuildOperationQueue.class);
 
-    private final List<ListenableFuture> operations;
+    private final BuildOperationScheduler scheduler;
+    private final BuildOperationWorker<T> worker;
     private final String logLocation;
+    private final BuildOperationPriority priority;
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition completed = lock.newCondition();
+    // The following are guarded by lock
+    private final LinkedList<WaitingOperation> waitingOperations = new LinkedList<WaitingOperation>();
+    private final List<Throwable> failures = new ArrayList<Throwable>();
+    private int runningOperations;
+    private int completedOperations;
+    private int addedOperations;
+    private long totalWaitTime;
+    private long maxWaitTime;
+    private long totalRunTime;
 
     private boolean waitingForCompletion;
 
-    DefaultBuildOperationQueue(ExecutorService executor, BuildOperationWorker<T> worker, String logLocation) {
+    DefaultBuildOperationQueue(BuildOperationScheduler scheduler, BuildOperationWorker<T> worker, String logLocation, BuildOperationPriority priority) {
+        this.scheduler = scheduler;
         this.logLocation = logLocation;
-        this.executor = MoreExecutors.listeningDecorator(executor);
         this.worker = worker;
-        this.operations = Lists.newLinkedList();
+        this.priority = priority;
     }
 
     public void add(final T operation) {
         if (waitingForCompletion) {
             throw new IllegalStateException("BuildOperationQueue cannot be reused once it has started completion.");
         }
-        ListenableFuture<?> future = executor.submit(new OperationHolder(operation));
-        operations.add(future);
+        lock.lock();
+        try {
+            waitingOperations.add(new WaitingOperation(operation, System.nanoTime()));
+            addedOperations++;
+        } finally {
+            lock.unlock();
+        }
+        scheduler.operationAdded(this);
     }
 
     public void waitForCompletion() throws MultipleBuildOperationFailures {
         waitingForCompletion = true;
 
-        CountDownLatch finished = new CountDownLatch(operations.size());
-        Queue<Throwable> failures = Queues.newConcurrentLinkedQueue();
-
-        for (ListenableFuture operation : operations) {
-            Futures.addCallback(operation, new CompletionCallback(finished, failures));
-        }
-
+        List<Throwable> failures;
+        lock.lock();
         try {
-            finished.await();
+            while (completedOperations < addedOperations) {
+                completed.await();
+            }
+            failures = new ArrayList<Throwable>(this.failures);
+            if (addedOperations > 0) {
+                LOGGER.debug("Completed {} operation(s) of {}: waited {} ms in total and {} ms at most to start, ran for {} ms in total.",
+                    addedOperations, worker.getDisplayName(), toMillis(totalWaitTime), toMillis(maxWaitTime), toMillis(totalRunTime));
+            }
         } catch (InterruptedException e) {
             throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            lock.unlock();
         }
 
         // all operations are complete, check for errors
@@ -73,41 +98,100 @@ class DefaultBuildOperationQueue<T extends BuildOperation> implements BuildOpera
         }
     }
 
-    private String getFailureMessage(Collection<Throwable> failures) {
-        if (failures.size() == 1) {
-            return "A build operation failed.";
+    BuildOperationPriority getPriority() {
+        return priority;
+    }
+
+    boolean hasWaitingOperations() {
+        lock.lock();
+        try {
+            return !waitingOperations.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getRunningOperations() {
+        lock.lock();
+        try {
+            return runningOperations;
+        } finally {
+            lock.unlock();
         }
-        return "Multiple build operations failed.";
     }
 
-    private static class CompletionCallback implements FutureCallback {
-        private final CountDownLatch finished;
-        private final Collection<Throwable> failures;
+    /**
+     * Takes the next waiting operation, and returns the action that runs it.
+     */
+    Runnable startNextOperation() {
+        lock.lock();
+        try {
+            final WaitingOperation next = waitingOperations.removeFirst();
+            runningOperations++;
+            final long startTime = System.nanoTime();
+            long waitTime = startTime - next.addedAt;
+            totalWaitTime += waitTime;
+            maxWaitTime = Math.max(maxWaitTime, waitTime);
+            return new OperationHolder(next.operation, startTime);
+        } finally {
+            lock.unlock();
+        }
+    }
 
-        private CompletionCallback(CountDownLatch finished, Collection<Throwable> failures) {
-            this.finished = finished;
-            this.failures = failures;
+    private void operationCompleted(long startTime, Throwable failure) {
+        lock.lock();
+        try {
+            totalRunTime += System.nanoTime() - startTime;
+            if (failure != null) {
+                failures.add(failure);
+            }
+            runningOperations--;
+            completedOperations++;
+            completed.signalAll();
+        } finally {
+            lock.unlock();
         }
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
 
-        public void onSuccess(Object result) {
-            finished.countDown();
+    private String getFailureMessage(Collection<Throwable> failures) {
+        if (failures.size() == 1) {
+            return "A build operation failed.";
         }
+        return "Multiple build operations failed.";
+    }
 
-        public void onFailure(Throwable t) {
-            failures.add(t);
-            finished.countDown();
+    private class WaitingOperation {
+        final T operation;
+        final long addedAt;
+
+        WaitingOperation(T operation, long addedAt) {
+            this.operation = operation;
+            this.addedAt = addedAt;
         }
     }
 
     private class OperationHolder implements Runnable {
         private final T operation;
+        private final long startTime;
 
-        OperationHolder(T operation) {
+        OperationHolder(T operation, long startTime) {
             this.operation = operation;
+            this.startTime = startTime;
         }
 
         public void run() {
-            worker.execute(operation);
+            Throwable failure = null;
+            try {
+                worker.execute(operation);
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                operationCompleted(startTime, failure);
+            }
         }
 
         public String toString() {
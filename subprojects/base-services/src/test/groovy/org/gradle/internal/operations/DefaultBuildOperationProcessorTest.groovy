@@ -157,4 +157,68 @@ class DefaultBuildOperationProcessorTest extends Specification {
         e instanceof MultipleBuildOperationFailures
         ((MultipleBuildOperationFailures) e).getCauses().size() == 4
     }
+
+    def "starts operations of higher priority queues first"() {
+        given:
+        def buildOperationProcessor = new DefaultBuildOperationProcessor(new DefaultExecutorFactory(), 1)
+        def worker = new DefaultBuildOperationQueueTest.SimpleWorker()
+        def started = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        def executed = Collections.synchronizedList([])
+        def blockingQueue = buildOperationProcessor.newQueue(worker, LOG_LOCATION)
+        def normalQueue = buildOperationProcessor.newQueue(worker, LOG_LOCATION)
+        def highQueue = buildOperationProcessor.newQueue(worker, LOG_LOCATION, BuildOperationPriority.HIGH)
+
+        when:
+        blockingQueue.add(operation { started.countDown(); release.await() })
+        started.await()
+        3.times { i -> normalQueue.add(operation { executed << "normal-$i".toString() }) }
+        highQueue.add(operation { executed << "high" })
+        release.countDown()
+
+        and:
+        [blockingQueue, normalQueue, highQueue]*.waitForCompletion()
+
+        then:
+        executed == ["high", "normal-0", "normal-1", "normal-2"]
+
+        cleanup:
+        buildOperationProcessor.stop()
+    }
+
+    def "shares threads fairly between queues of the same priority"() {
+        given:
+        def buildOperationProcessor = new DefaultBuildOperationProcessor(new DefaultExecutorFactory(), 1)
+        def worker = new DefaultBuildOperationQueueTest.SimpleWorker()
+        def started = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        def executed = Collections.synchronizedList([])
+        def blockingQueue = buildOperationProcessor.newQueue(worker, LOG_LOCATION)
+        def largeQueue = buildOperationProcessor.newQueue(worker, LOG_LOCATION)
+        def smallQueue = buildOperationProcessor.newQueue(worker, LOG_LOCATION)
+
+        when:
+        blockingQueue.add(operation { started.countDown(); release.await() })
+        started.await()
+        4.times { i -> largeQueue.add(operation { executed << "large-$i".toString() }) }
+        smallQueue.add(operation { executed << "small" })
+        release.countDown()
+
+        and:
+        [blockingQueue, largeQueue, smallQueue]*.waitForCompletion()
+
+        then:
+        executed == ["large-0", "small", "large-1", "large-2", "large-3"]
+
+        cleanup:
+        buildOperationProcessor.stop()
+    }
+
+    def operation(Closure action) {
+        return new DefaultBuildOperationQueueTest.TestBuildOperation() {
+            void run() {
+                action.call()
+            }
+        }
+    }
 }
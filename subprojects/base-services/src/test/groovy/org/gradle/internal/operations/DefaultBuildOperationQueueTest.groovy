@@ -16,8 +16,6 @@
 
 package org.gradle.internal.operations
 
-import com.google.common.util.concurrent.ListeningExecutorService
-import com.google.common.util.concurrent.MoreExecutors
 import org.gradle.api.GradleException
 import spock.lang.Specification
 import spock.lang.Unroll
@@ -57,8 +55,8 @@ class DefaultBuildOperationQueueTest extends Specification {
     BuildOperationQueue operationQueue
 
     void setupQueue(int threads) {
-        ListeningExecutorService sameThreadExecutor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(threads))
-        operationQueue = new DefaultBuildOperationQueue(sameThreadExecutor, new SimpleWorker(), LOG_LOCATION)
+        def scheduler = new BuildOperationScheduler(Executors.newFixedThreadPool(threads))
+        operationQueue = new DefaultBuildOperationQueue(scheduler, new SimpleWorker(), LOG_LOCATION, BuildOperationPriority.NORMAL)
     }
 
     @Unroll
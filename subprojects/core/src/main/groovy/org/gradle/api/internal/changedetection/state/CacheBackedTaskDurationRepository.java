@@ -0,0 +1,71 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.api.Task;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.Factory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.gradle.internal.serialize.BaseSerializerFactory.LONG_SERIALIZER;
+
+/**
+ * Stores task durations in the task history cache, keyed by task path. The expected duration of a task is a moving average
+ * of its recent durations, so that a single unusually slow or fast execution does not dominate.
+ */
+public class CacheBackedTaskDurationRepository implements TaskDurationRepository {
+    private final TaskArtifactStateCacheAccess cacheAccess;
+    private final PersistentIndexedCache<String, Long> taskDurationCache;
+
+    public CacheBackedTaskDurationRepository(TaskArtifactStateCacheAccess cacheAccess) {
+        this.cacheAccess = cacheAccess;
+        taskDurationCache = cacheAccess.createCache("taskDurations", String.class, LONG_SERIALIZER);
+    }
+
+    public Map<Task, Long> getExpectedDurations(final Collection<? extends Task> tasks) {
+        return cacheAccess.readCache("Load task durations", new Factory<Map<Task, Long>>() {
+            public Map<Task, Long> create() {
+                Map<Task, Long> durations = new HashMap<Task, Long>();
+                for (Task task : tasks) {
+                    Long duration = taskDurationCache.get(task.getPath());
+                    if (duration != null) {
+                        durations.put(task, duration);
+                    }
+                }
+                return durations;
+            }
+        });
+    }
+
+    public void recordDurations(final Map<? extends Task, Long> durations) {
+        if (durations.isEmpty()) {
+            return;
+        }
+        cacheAccess.useCache("Store task durations", new Runnable() {
+            public void run() {
+                for (Map.Entry<? extends Task, Long> entry : durations.entrySet()) {
+                    String path = entry.getKey().getPath();
+                    Long previous = taskDurationCache.get(path);
+                    long duration = previous == null ? entry.getValue() : (previous + entry.getValue()) / 2;
+                    taskDurationCache.put(path, duration);
+                }
+            }
+        });
+    }
+}
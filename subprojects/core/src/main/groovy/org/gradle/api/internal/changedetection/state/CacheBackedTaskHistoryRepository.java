@@ -18,6 +18,7 @@ package org.gradle.api.internal.changedetection.state;
 import org.gradle.api.internal.TaskInternal;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.internal.Factory;
+import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.serialize.Decoder;
 import org.gradle.internal.serialize.Encoder;
 import org.gradle.internal.serialize.Serializer;
@@ -25,18 +26,38 @@ import org.gradle.internal.serialize.Serializer;
 import java.io.File;
 import java.util.*;
 
-public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
+/**
+ * A {@link TaskHistoryRepository} that writes task history to the task artifact cache. Updates are queued in memory and written to the cache in batches,
+ * when enough updates have been queued and when this repository is stopped at the end of the build.
+ */
+public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository, Stoppable {
+    static final int MAX_PENDING_UPDATES = 100;
+
     private final TaskArtifactStateCacheAccess cacheAccess;
     private final FileSnapshotRepository snapshotRepository;
     private final PersistentIndexedCache<String, TaskHistory> taskHistoryCache;
     private final TaskHistorySerializer serializer = new TaskHistorySerializer();
+    private final int maxPendingUpdates;
+    // Guarded by itself. Keyed by task path
+    private final Map<String, PendingUpdate> pendingUpdates = new LinkedHashMap<String, PendingUpdate>();
+    // Guarded by pendingUpdates. The updates that are being written to the cache, keyed by task path
+    private final Map<String, PendingUpdate> updatesBeingWritten = new HashMap<String, PendingUpdate>();
 
     public CacheBackedTaskHistoryRepository(TaskArtifactStateCacheAccess cacheAccess, FileSnapshotRepository snapshotRepository) {
+        this(cacheAccess, snapshotRepository, MAX_PENDING_UPDATES);
+    }
+
+    CacheBackedTaskHistoryRepository(TaskArtifactStateCacheAccess cacheAccess, FileSnapshotRepository snapshotRepository, int maxPendingUpdates) {
         this.cacheAccess = cacheAccess;
         this.snapshotRepository = snapshotRepository;
+        this.maxPendingUpdates = maxPendingUpdates;
         taskHistoryCache = cacheAccess.createCache("taskArtifacts", String.class, serializer);
     }
 
+    public void stop() {
+        flush();
+    }
+
     public History getHistory(final TaskInternal task) {
         final TaskHistory history = loadHistory(task);
         final LazyTaskExecution currentExecution = new LazyTaskExecution();
@@ -59,34 +80,94 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
             }
 
             public void update() {
-                cacheAccess.useCache("Update task history", new Runnable() {
-                    public void run() {
-                        history.configurations.add(0, currentExecution);
-                        if (currentExecution.inputFilesSnapshotId == null && currentExecution.inputFilesSnapshot != null) {
-                            currentExecution.inputFilesSnapshotId = snapshotRepository.add(currentExecution.inputFilesSnapshot);
-                        }
-                        if (currentExecution.outputFilesSnapshotId == null && currentExecution.outputFilesSnapshot != null) {
-                            currentExecution.outputFilesSnapshotId = snapshotRepository.add(currentExecution.outputFilesSnapshot);
-                        }
-                        while (history.configurations.size() > TaskHistory.MAX_HISTORY_ENTRIES) {
-                            LazyTaskExecution execution = history.configurations.remove(history.configurations.size() - 1);
-                            if (execution.inputFilesSnapshotId != null) {
-                                snapshotRepository.remove(execution.inputFilesSnapshotId);
-                            }
-                            if (execution.outputFilesSnapshotId != null) {
-                                snapshotRepository.remove(execution.outputFilesSnapshotId);
-                            }
-                        }
-                        history.beforeSerialized();
-                        taskHistoryCache.put(task.getPath(), history);
+                boolean flush;
+                synchronized (pendingUpdates) {
+                    PendingUpdate update = pendingUpdates.get(task.getPath());
+                    if (update == null) {
+                        update = new PendingUpdate(history);
+                        pendingUpdates.put(task.getPath(), update);
                     }
-                });
+                    history.configurations.add(0, currentExecution);
+                    while (history.configurations.size() > TaskHistory.MAX_HISTORY_ENTRIES) {
+                        update.discarded.add(history.configurations.remove(history.configurations.size() - 1));
+                    }
+                    flush = pendingUpdates.size() >= maxPendingUpdates;
+                }
+                if (flush) {
+                    flush();
+                }
             }
         };
     }
 
+    /**
+     * Writes all pending updates to the cache.
+     */
+    public void flush() {
+        // Take the updates without holding the cache lock, and write them without holding the monitor, so that the two locks are never held in
+        // opposite orders
+        final Map<String, PendingUpdate> updates;
+        synchronized (pendingUpdates) {
+            if (pendingUpdates.isEmpty()) {
+                return;
+            }
+            updates = new LinkedHashMap<String, PendingUpdate>(pendingUpdates);
+            pendingUpdates.clear();
+            // Keep the updates visible to loadHistory() until they have been written
+            updatesBeingWritten.putAll(updates);
+        }
+        try {
+            cacheAccess.useCache("Update task history", new Runnable() {
+                public void run() {
+                    for (Map.Entry<String, PendingUpdate> entry : updates.entrySet()) {
+                        write(entry.getKey(), entry.getValue());
+                    }
+                }
+            });
+        } finally {
+            synchronized (pendingUpdates) {
+                for (Map.Entry<String, PendingUpdate> entry : updates.entrySet()) {
+                    if (updatesBeingWritten.get(entry.getKey()) == entry.getValue()) {
+                        updatesBeingWritten.remove(entry.getKey());
+                    }
+                }
+            }
+        }
+    }
+
+    private void write(String taskPath, PendingUpdate update) {
+        TaskHistory history = update.history;
+        for (LazyTaskExecution execution : history.configurations) {
+            if (execution.inputFilesSnapshotId == null && execution.inputFilesSnapshot != null) {
+                execution.inputFilesSnapshotId = snapshotRepository.add(execution.inputFilesSnapshot);
+            }
+            if (execution.outputFilesSnapshotId == null && execution.outputFilesSnapshot != null) {
+                execution.outputFilesSnapshotId = snapshotRepository.add(execution.outputFilesSnapshot);
+            }
+        }
+        for (LazyTaskExecution execution : update.discarded) {
+            if (execution.inputFilesSnapshotId != null) {
+                snapshotRepository.remove(execution.inputFilesSnapshotId);
+            }
+            if (execution.outputFilesSnapshotId != null) {
+                snapshotRepository.remove(execution.outputFilesSnapshotId);
+            }
+        }
+        history.beforeSerialized();
+        taskHistoryCache.put(taskPath, history);
+    }
+
     private TaskHistory loadHistory(final TaskInternal task) {
-        return cacheAccess.useCache("Load task history", new Factory<TaskHistory>() {
+        synchronized (pendingUpdates) {
+            PendingUpdate update = pendingUpdates.get(task.getPath());
+            if (update == null) {
+                update = updatesBeingWritten.get(task.getPath());
+            }
+            if (update != null) {
+                return update.history;
+            }
+        }
+        return cacheAccess.readCache("Load task history", new Factory<TaskHistory>() {
             public TaskHistory create() {
                 ClassLoader original = serializer.getClassLoader();
                 serializer.setClassLoader(task.getClass().getClassLoader());
@@ -135,12 +216,13 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
 
     private static class TaskHistorySerializer implements Serializer<TaskHistory> {
 
-        private ClassLoader classLoader;
+        // Several threads may load task history at the same time, each for a task from a different class loader
+        private final ThreadLocal<ClassLoader> classLoader = new ThreadLocal<ClassLoader>();
 
         public TaskHistory read(Decoder decoder) throws Exception {
             byte executions = decoder.readByte();
             TaskHistory history = new TaskHistory();
-            LazyTaskExecution.TaskHistorySerializer executionSerializer = new LazyTaskExecution.TaskHistorySerializer(classLoader);
+            LazyTaskExecution.TaskHistorySerializer executionSerializer = new LazyTaskExecution.TaskHistorySerializer(classLoader.get());
             for (int i = 0; i < executions; i++) {
                 LazyTaskExecution exec = executionSerializer.read(decoder);
                 history.configurations.add(exec);
@@ -151,28 +233,45 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
         public void write(Encoder encoder, TaskHistory value) throws Exception {
             int size = value.configurations.size();
             encoder.writeByte((byte) size);
-            LazyTaskExecution.TaskHistorySerializer executionSerializer = new LazyTaskExecution.TaskHistorySerializer(classLoader);
+            LazyTaskExecution.TaskHistorySerializer executionSerializer = new LazyTaskExecution.TaskHistorySerializer(classLoader.get());
             for (LazyTaskExecution execution : value.configurations) {
                 executionSerializer.write(encoder, execution);
             }
         }
 
         public ClassLoader getClassLoader() {
-            return classLoader;
+            return classLoader.get();
         }
 
         public void setClassLoader(ClassLoader classLoader) {
-            this.classLoader = classLoader;
+            this.classLoader.set(classLoader);
+        }
+    }
+
+    private static class PendingUpdate {
+        private final TaskHistory history;
+        private final List<LazyTaskExecution> discarded = new ArrayList<LazyTaskExecution>();
+
+        PendingUpdate(TaskHistory history) {
+            this.history = history;
         }
     }
 
-    private static class TaskHistory {
+    private static class TaskHistory implements HasEstimatedSize {
         private static final int MAX_HISTORY_ENTRIES = 3;
         private final List<LazyTaskExecution> configurations = new ArrayList<LazyTaskExecution>();
         public String toString() {
             return super.toString() + "[" + configurations.size() + "]";
         }
 
+        public long getEstimatedSize() {
+            long size = 64;
+            for (LazyTaskExecution configuration : configurations) {
+                size += configuration.getEstimatedSize();
+            }
+            return size;
+        }
+
         public void beforeSerialized() {
             //cleaning up the transient fields, so that any in-memory caching is happy
             for (LazyTaskExecution c : configurations) {
@@ -191,10 +290,29 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
         private transient FileCollectionSnapshot outputFilesSnapshot;
         private transient TaskArtifactStateCacheAccess cacheAccess;
 
+        /**
+         * Estimates the size of the execution, including the file snapshots that it has loaded.
+         */
+        long getEstimatedSize() {
+            // An input property or output file is a map or set entry with its name and value
+            long size = 200;
+            if (getInputProperties() != null) {
+                size += (long) getInputProperties().size() * 250;
+            }
+            if (getOutputFiles() != null) {
+                size += (long) getOutputFiles().size() * 250;
+            }
+            return size + estimatedSizeOf(inputFilesSnapshot) + estimatedSizeOf(outputFilesSnapshot);
+        }
+
+        private static long estimatedSizeOf(FileCollectionSnapshot snapshot) {
+            return snapshot instanceof HasEstimatedSize ? ((HasEstimatedSize) snapshot).getEstimatedSize() : 0;
+        }
+
         @Override
         public FileCollectionSnapshot getInputFilesSnapshot() {
             if (inputFilesSnapshot == null) {
-                inputFilesSnapshot = cacheAccess.useCache("fetch input files", new Factory<FileCollectionSnapshot>() {
+                inputFilesSnapshot = cacheAccess.readCache("fetch input files", new Factory<FileCollectionSnapshot>() {
                     public FileCollectionSnapshot create() {
                         return snapshotRepository.get(inputFilesSnapshotId);
                     }
@@ -212,7 +330,7 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
         @Override
         public FileCollectionSnapshot getOutputFilesSnapshot() {
             if (outputFilesSnapshot == null) {
-                outputFilesSnapshot = cacheAccess.useCache("fetch output files", new Factory<FileCollectionSnapshot>() {
+                outputFilesSnapshot = cacheAccess.readCache("fetch output files", new Factory<FileCollectionSnapshot>() {
                     public FileCollectionSnapshot create() {
                         return snapshotRepository.get(outputFilesSnapshotId);
                     }
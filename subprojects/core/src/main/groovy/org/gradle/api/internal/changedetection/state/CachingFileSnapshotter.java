@@ -24,38 +24,56 @@ import org.gradle.internal.serialize.Serializer;
 
 import java.io.File;
 
-public class CachingFileSnapshotter implements FileSnapshotter {
+public class CachingFileSnapshotter implements ConcurrentFileSnapshotter {
     private final PersistentIndexedCache<File, FileInfo> cache;
     private final Hasher hasher;
+    private final String algorithm;
     private final FileInfoSerializer serializer = new FileInfoSerializer();
 
     public CachingFileSnapshotter(Hasher hasher, PersistentStore store) {
         this.hasher = hasher;
+        this.algorithm = hasher.getAlgorithm();
         this.cache = store.createCache("fileHashes", File.class, serializer);
     }
 
     public FileInfo snapshot(File file) {
-        FileInfo info = cache.get(file);
-
         long length = file.length();
         long timestamp = file.lastModified();
-        if (info != null && length == info.length && timestamp == info.timestamp) {
+        FileInfo info = findUpToDateSnapshot(file, length, timestamp);
+        if (info != null) {
             return info;
         }
 
-        byte[] hash = hasher.hash(file);
-        info = new FileInfo(hash, length, timestamp);
+        info = hash(file, length, timestamp);
         cache.put(file, info);
         return info;
     }
 
+    public FileInfo findUpToDateSnapshot(File file, long length, long timestamp) {
+        FileInfo info = cache.get(file);
+        if (info != null && length == info.length && timestamp == info.timestamp && algorithm.equals(info.algorithm)) {
+            return info;
+        }
+        return null;
+    }
+
+    public FileInfo hash(File file, long length, long timestamp) {
+        return new FileInfo(hasher.hash(file), algorithm, length, timestamp);
+    }
+
+    public void store(File file, FileSnapshot snapshot) {
+        cache.put(file, (FileInfo) snapshot);
+    }
+
     public static class FileInfo implements FileSnapshot {
         private final byte[] hash;
+        private final String algorithm;
         private final long timestamp;
         private final long length;
 
-        public FileInfo(byte[] hash, long length, long timestamp) {
+        public FileInfo(byte[] hash, String algorithm, long length, long timestamp) {
             this.hash = hash;
+            this.algorithm = algorithm;
             this.length = length;
             this.timestamp = timestamp;
         }
@@ -63,18 +81,27 @@ public class CachingFileSnapshotter implements FileSnapshotter {
         public byte[] getHash() {
             return hash;
         }
+
+        /**
+         * Returns the name of the algorithm that produced the hash of this file.
+         */
+        public String getAlgorithm() {
+            return algorithm;
+        }
     }
 
     private static class FileInfoSerializer implements Serializer<FileInfo> {
         public FileInfo read(Decoder decoder) throws Exception {
             byte[] hash = decoder.readBinary();
+            String algorithm = decoder.readString();
             long timestamp = decoder.readLong();
             long length = decoder.readLong();
-            return new FileInfo(hash, length, timestamp);
+            return new FileInfo(hash, algorithm, length, timestamp);
         }
 
         public void write(Encoder encoder, FileInfo value) throws Exception {
             encoder.writeBinary(value.hash);
+            encoder.writeString(value.algorithm);
             encoder.writeLong(value.timestamp);
             encoder.writeLong(value.length);
         }
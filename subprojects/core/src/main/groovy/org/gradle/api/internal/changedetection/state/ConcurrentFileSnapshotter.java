@@ -0,0 +1,43 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.api.Nullable;
+
+import java.io.File;
+
+/**
+ * A {@link FileSnapshotter} which allows the expensive hashing of file content to be separated from the lookup and update of cached snapshots,
+ * so that many files can be hashed concurrently.
+ */
+public interface ConcurrentFileSnapshotter extends FileSnapshotter {
+    /**
+     * Returns the cached snapshot of the given file, if it is still up-to-date with respect to the given length and timestamp. Must be called while holding the cache lock.
+     */
+    @Nullable
+    FileSnapshot findUpToDateSnapshot(File file, long length, long timestamp);
+
+    /**
+     * Calculates a snapshot of the current content of the given file. Does not use the cache and is safe to call from any thread.
+     */
+    FileSnapshot hash(File file, long length, long timestamp);
+
+    /**
+     * Records a snapshot previously calculated using {@link #hash(File, long, long)}. Must be called while holding the cache lock.
+     */
+    void store(File file, FileSnapshot snapshot);
+}
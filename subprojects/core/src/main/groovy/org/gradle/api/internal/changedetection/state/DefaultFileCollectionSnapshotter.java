@@ -18,6 +18,11 @@ package org.gradle.api.internal.changedetection.state;
 
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.file.collections.SimpleFileCollection;
+import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
 import org.gradle.internal.serialize.SerializerRegistry;
 import org.gradle.util.ChangeListener;
 import org.gradle.util.NoOpChangeListener;
@@ -25,14 +30,45 @@ import org.gradle.util.NoOpChangeListener;
 import java.io.File;
 import java.math.BigInteger;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshotter, Stoppable {
+    /**
+     * The minimum number of files in a collection before the work is spread over multiple threads.
+     */
+    static final int MIN_FILES_FOR_PARALLEL_SNAPSHOT = 16;
 
-public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshotter {
     private final FileSnapshotter snapshotter;
+    private final ConcurrentFileSnapshotter concurrentSnapshotter;
+    private final StoppableExecutor executor;
+    private final int maxWorkerCount;
     private TaskArtifactStateCacheAccess cacheAccess;
 
     public DefaultFileCollectionSnapshotter(FileSnapshotter snapshotter, TaskArtifactStateCacheAccess cacheAccess) {
         this.snapshotter = snapshotter;
         this.cacheAccess = cacheAccess;
+        this.concurrentSnapshotter = null;
+        this.executor = null;
+        this.maxWorkerCount = 1;
+    }
+
+    /**
+     * Creates a snapshotter that stats and hashes the files of a collection using up to the given number of threads.
+     */
+    public DefaultFileCollectionSnapshotter(ConcurrentFileSnapshotter snapshotter, TaskArtifactStateCacheAccess cacheAccess, ExecutorFactory executorFactory, int maxWorkerCount) {
+        this.snapshotter = snapshotter;
+        this.cacheAccess = cacheAccess;
+        this.concurrentSnapshotter = maxWorkerCount > 1 ? snapshotter : null;
+        this.executor = maxWorkerCount > 1 ? executorFactory.create("file snapshotting", maxWorkerCount - 1) : null;
+        this.maxWorkerCount = maxWorkerCount;
+    }
+
+    public void stop() {
+        if (executor != null) {
+            executor.stop();
+        }
     }
 
     public void registerSerializers(SerializerRegistry<FileCollectionSnapshot> registry) {
@@ -48,6 +84,9 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
         if (files.isEmpty()) {
             return new FileCollectionSnapshotImpl(Collections.<String, IncrementalFileSnapshot>emptyMap());
         }
+        if (concurrentSnapshotter != null && files.size() >= MIN_FILES_FOR_PARALLEL_SNAPSHOT) {
+            return snapshotConcurrently(files);
+        }
         final Map<String, IncrementalFileSnapshot> snapshots = new HashMap<String, IncrementalFileSnapshot>();
         cacheAccess.useCache("Create file snapshot", new Runnable() {
             public void run() {
@@ -65,6 +104,148 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
         return new FileCollectionSnapshotImpl(snapshots);
     }
 
+    /**
+     * Snapshots the given files in several passes, so that only the cache lookups and updates happen while holding the cache lock:
+     * <ol>
+     *     <li>Stat each file, in parallel.</li>
+     *     <li>Look up each regular file in the cache, using the cache lock.</li>
+     *     <li>Hash each file whose cached snapshot is out-of-date, in parallel and without holding the cache lock.</li>
+     *     <li>Store the new hashes in the cache, using the cache lock.</li>
+     * </ol>
+     * Each pass hands out files to the worker threads one at a time, so that a few large files do not hold up the other workers.
+     * The result does not depend on the order in which the files are processed.
+     */
+    private FileCollectionSnapshot snapshotConcurrently(Set<File> files) {
+        final List<PendingFile> pendingFiles = new ArrayList<PendingFile>(files.size());
+        for (File file : files) {
+            pendingFiles.add(new PendingFile(file));
+        }
+        runConcurrently(pendingFiles, new PendingFileAction() {
+            public void execute(PendingFile pendingFile) {
+                pendingFile.stat();
+            }
+        });
+
+        final List<PendingFile> toHash = new ArrayList<PendingFile>();
+        cacheAccess.readCache("Find file snapshots", new Factory<Void>() {
+            public Void create() {
+                for (PendingFile pendingFile : pendingFiles) {
+                    if (pendingFile.isFile) {
+                        pendingFile.hash = concurrentSnapshotter.findUpToDateSnapshot(pendingFile.file, pendingFile.length, pendingFile.timestamp);
+                        if (pendingFile.hash == null) {
+                            toHash.add(pendingFile);
+                        }
+                    }
+                }
+                return null;
+            }
+        });
+
+        if (!toHash.isEmpty()) {
+            runConcurrently(toHash, new PendingFileAction() {
+                public void execute(PendingFile pendingFile) {
+                    pendingFile.hash = concurrentSnapshotter.hash(pendingFile.file, pendingFile.length, pendingFile.timestamp);
+                }
+            });
+            cacheAccess.useCache("Store file snapshots", new Runnable() {
+                public void run() {
+                    for (PendingFile pendingFile : toHash) {
+                        concurrentSnapshotter.store(pendingFile.file, pendingFile.hash);
+                    }
+                }
+            });
+        }
+
+        Map<String, IncrementalFileSnapshot> snapshots = new HashMap<String, IncrementalFileSnapshot>();
+        for (PendingFile pendingFile : pendingFiles) {
+            snapshots.put(pendingFile.path, pendingFile.toSnapshot());
+        }
+        return new FileCollectionSnapshotImpl(snapshots);
+    }
+
+    private void runConcurrently(final List<PendingFile> pendingFiles, final PendingFileAction action) {
+        final AtomicInteger nextFile = new AtomicInteger();
+        Runnable worker = new Runnable() {
+            public void run() {
+                try {
+                    for (int index = nextFile.getAndIncrement(); index < pendingFiles.size(); index = nextFile.getAndIncrement()) {
+                        action.execute(pendingFiles.get(index));
+                    }
+                } catch (RuntimeException e) {
+                    // Stop the other workers from picking up more files
+                    nextFile.set(pendingFiles.size());
+                    throw e;
+                }
+            }
+        };
+
+        int workerCount = Math.min(maxWorkerCount, pendingFiles.size());
+        List<Future<?>> workers = new ArrayList<Future<?>>(workerCount - 1);
+        for (int i = 1; i < workerCount; i++) {
+            workers.add(executor.submit(worker));
+        }
+        // The calling thread does its share of the work, too
+        Throwable failure = null;
+        try {
+            worker.run();
+        } catch (Throwable t) {
+            failure = t;
+        }
+        for (Future<?> future : workers) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+        if (failure != null) {
+            throw UncheckedException.throwAsUncheckedException(failure);
+        }
+    }
+
+    private interface PendingFileAction {
+        void execute(PendingFile pendingFile);
+    }
+
+    private static class PendingFile {
+        final File file;
+        String path;
+        boolean isFile;
+        boolean isDirectory;
+        long length;
+        long timestamp;
+        FileSnapshot hash;
+
+        PendingFile(File file) {
+            this.file = file;
+        }
+
+        void stat() {
+            path = file.getAbsolutePath();
+            isFile = file.isFile();
+            if (isFile) {
+                length = file.length();
+                timestamp = file.lastModified();
+            } else {
+                isDirectory = file.isDirectory();
+            }
+        }
+
+        IncrementalFileSnapshot toSnapshot() {
+            if (isFile) {
+                return new FileHashSnapshot(hash.getHash());
+            } else if (isDirectory) {
+                return new DirSnapshot();
+            } else {
+                return new MissingFileSnapshot();
+            }
+        }
+    }
+
     static interface IncrementalFileSnapshot {
         boolean isUpToDate(IncrementalFileSnapshot snapshot);
     }
@@ -107,13 +288,19 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
         }
     }
 
-    static class FileCollectionSnapshotImpl implements FileCollectionSnapshot {
+    static class FileCollectionSnapshotImpl implements FileCollectionSnapshot, HasEstimatedSize {
+        // A map entry with its path and file hash snapshot
+        private static final int ESTIMATED_ENTRY_SIZE = 300;
         final Map<String, IncrementalFileSnapshot> snapshots;
 
         public FileCollectionSnapshotImpl(Map<String, IncrementalFileSnapshot> snapshots) {
             this.snapshots = snapshots;
         }
 
+        public long getEstimatedSize() {
+            return 64 + (long) snapshots.size() * ESTIMATED_ENTRY_SIZE;
+        }
+
         public FileCollection getFiles() {
             List<File> files = new ArrayList<File>();
             for (Map.Entry<String, IncrementalFileSnapshot> entry : snapshots.entrySet()) {
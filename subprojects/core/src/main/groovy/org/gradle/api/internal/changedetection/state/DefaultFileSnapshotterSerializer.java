@@ -16,20 +16,28 @@
 
 package org.gradle.api.internal.changedetection.state;
 
+import com.google.common.collect.Maps;
 import org.gradle.internal.serialize.Decoder;
 import org.gradle.internal.serialize.Encoder;
 import org.gradle.internal.serialize.Serializer;
 
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Map;
 
+/**
+ * Writes the entries of a snapshot in path order, with each path encoded as the length of the prefix it shares with the previous path followed by
+ * the remaining characters. Paths in a snapshot are usually below a small number of directories, so this avoids repeatedly writing those directories.
+ */
 class DefaultFileSnapshotterSerializer implements Serializer<DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl> {
     public DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl read(Decoder decoder) throws Exception {
-        Map<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot> snapshots = new HashMap<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot>();
-        DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl snapshot = new DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl(snapshots);
         int snapshotsCount = decoder.readSmallInt();
+        Map<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot> snapshots = Maps.newHashMapWithExpectedSize(snapshotsCount);
+        DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl snapshot = new DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl(snapshots);
+        String previousKey = "";
         for (int i = 0; i < snapshotsCount; i++) {
-            String key = decoder.readString();
+            int commonPrefix = decoder.readSmallInt();
+            String key = previousKey.substring(0, commonPrefix).concat(decoder.readString());
+            previousKey = key;
             byte fileSnapshotKind = decoder.readByte();
             if (fileSnapshotKind == 1) {
                 snapshots.put(key, new DefaultFileCollectionSnapshotter.DirSnapshot());
@@ -48,9 +56,15 @@ class DefaultFileSnapshotterSerializer implements Serializer<DefaultFileCollecti
     }
 
     public void write(Encoder encoder, DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl value) throws Exception {
-        encoder.writeSmallInt(value.snapshots.size());
-        for (String key : value.snapshots.keySet()) {
-            encoder.writeString(key);
+        String[] keys = value.snapshots.keySet().toArray(new String[0]);
+        Arrays.sort(keys);
+        encoder.writeSmallInt(keys.length);
+        String previousKey = "";
+        for (String key : keys) {
+            int commonPrefix = commonPrefixLength(previousKey, key);
+            encoder.writeSmallInt(commonPrefix);
+            encoder.writeString(key.substring(commonPrefix));
+            previousKey = key;
             DefaultFileCollectionSnapshotter.IncrementalFileSnapshot incrementalFileSnapshot = value.snapshots.get(key);
             if (incrementalFileSnapshot instanceof DefaultFileCollectionSnapshotter.DirSnapshot) {
                 encoder.writeByte((byte) 1);
@@ -64,4 +78,17 @@ class DefaultFileSnapshotterSerializer implements Serializer<DefaultFileCollecti
             }
         }
     }
+
+    private static int commonPrefixLength(String previous, String current) {
+        int maxLength = Math.min(previous.length(), current.length());
+        int length = 0;
+        while (length < maxLength && previous.charAt(length) == current.charAt(length)) {
+            length++;
+        }
+        // Do not split a surrogate pair, as the remainder is written as a string of its own
+        if (length > 0 && Character.isHighSurrogate(current.charAt(length - 1))) {
+            length--;
+        }
+        return length;
+    }
 }
@@ -0,0 +1,28 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+/**
+ * A cached value that can estimate how much heap it retains, so that the in-memory caches can be bounded by memory rather than by number of
+ * entries. See {@link InMemoryTaskArtifactCache}.
+ */
+public interface HasEstimatedSize {
+    /**
+     * Returns a rough estimate of the number of bytes of heap retained by this value.
+     */
+    long getEstimatedSize();
+}
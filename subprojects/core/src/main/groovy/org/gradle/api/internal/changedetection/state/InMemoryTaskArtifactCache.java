@@ -18,42 +18,61 @@ package org.gradle.api.internal.changedetection.state;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.common.primitives.Ints;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.cache.internal.CacheDecorator;
 import org.gradle.cache.internal.FileLock;
 import org.gradle.cache.internal.MultiProcessSafePersistentIndexedCache;
+import org.gradle.profile.BuildProfile;
+import org.gradle.profile.ProfileStatisticsContributor;
 
 import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
 
-public class InMemoryTaskArtifactCache implements CacheDecorator {
+public class InMemoryTaskArtifactCache implements CacheDecorator, ProfileStatisticsContributor {
     private final static Logger LOG = Logging.getLogger(InMemoryTaskArtifactCache.class);
     private final static Object NULL = new Object();
 
-    private static final Map<String, Integer> CACHE_CAPS = new HashMap<String, Integer>();
+    /**
+     * The fraction of the max heap that the in-memory caches of a single build may use.
+     */
+    private static final double HEAP_FRACTION = 0.1;
+
+    private static final Map<String, CacheSpec> CACHE_SPECS = new HashMap<String, CacheSpec>();
 
     static {
-        //it's the simplest implementation, not very nice
-        //at very least, the max size should be provided at creation, by the creator of the cache
-        //however, max size is a bit awkward in general and we should look into other options,
-        //like using the Weighter and relate the cache size to the available heap, etc.
-        CACHE_CAPS.put("fileSnapshots", 10000);
-        CACHE_CAPS.put("taskArtifacts", 2000);
-        CACHE_CAPS.put("outputFileStates", 3000);
-        CACHE_CAPS.put("fileHashes", 140000);
-        CACHE_CAPS.put("compilationState", 1000);
+        // Each cache gets a share of the heap budget. Each entry is weighed using the size of its key plus the size of its value. The values
+        // that grow with the number of files are measured, see HasEstimatedSize. The others have a small fixed size.
+        CACHE_SPECS.put("fileSnapshots", new CacheSpec(0.3));
+        CACHE_SPECS.put("taskArtifacts", new CacheSpec(0.1));
+        CACHE_SPECS.put("outputFileStates", new CacheSpec(0.04, 16));
+        CACHE_SPECS.put("taskDurations", new CacheSpec(0.01, 16));
+        CACHE_SPECS.put("fileHashes", new CacheSpec(0.4, 80));
+        CACHE_SPECS.put("compilationState", new CacheSpec(0.15));
 
         //In general, the in-memory cache must be capped at some level, otherwise it is reduces performance in truly gigantic builds
     }
 
     private final Object lock = new Object();
+    private final long heapBudget;
     private final Cache<String, Cache<Object, Object>> cache = CacheBuilder.newBuilder()
-            .maximumSize(CACHE_CAPS.size() * 2) //X2 to factor in a child build (for example buildSrc)
+            .maximumSize(CACHE_SPECS.size() * 2) //X2 to factor in a child build (for example buildSrc)
             .build();
 
     private final Map<String, FileLock.State> states = new HashMap<String, FileLock.State>();
+    private final Map<String, CacheStats> reportedStats = new HashMap<String, CacheStats>();
+
+    public InMemoryTaskArtifactCache() {
+        this(Runtime.getRuntime().maxMemory());
+    }
+
+    InMemoryTaskArtifactCache(long maxHeap) {
+        this.heapBudget = (long) (maxHeap * HEAP_FRACTION);
+    }
 
     public <K, V> MultiProcessSafePersistentIndexedCache<K, V> decorate(final String cacheId, String cacheName, final MultiProcessSafePersistentIndexedCache<K, V> original) {
         final Cache<Object, Object> data = loadData(cacheId, cacheName);
@@ -115,12 +134,81 @@ public class InMemoryTaskArtifactCache implements CacheDecorator {
             if (theData != null) {
                 LOG.info("In-memory cache of {}: Size{{}}, {}", cacheId, theData.size() , theData.stats());
             } else {
-                Integer maxSize = CACHE_CAPS.get(cacheName);
-                assert maxSize != null : "Unknown cache.";
-                theData = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+                CacheSpec spec = CACHE_SPECS.get(cacheName);
+                assert spec != null : "Unknown cache.";
+                theData = CacheBuilder.newBuilder()
+                        .maximumWeight(spec.getMaxWeight(heapBudget))
+                        .weigher(spec)
+                        .recordStats()
+                        .build();
                 this.cache.put(cacheId, theData);
             }
         }
         return theData;
     }
+
+    public void contributeTo(BuildProfile buildProfile) {
+        synchronized (lock) {
+            for (Map.Entry<String, Cache<Object, Object>> entry : cache.asMap().entrySet()) {
+                String cacheId = entry.getKey();
+                Cache<Object, Object> data = entry.getValue();
+                CacheStats stats = data.stats();
+                CacheStats previous = reportedStats.get(cacheId);
+                reportedStats.put(cacheId, stats);
+                if (previous != null) {
+                    stats = stats.minus(previous);
+                }
+
+                String category = String.format("In-memory cache of %s", cacheId);
+                buildProfile.addStatistic(category, "Entries", String.valueOf(data.size()));
+                buildProfile.addStatistic(category, "Hits", String.valueOf(stats.hitCount()));
+                buildProfile.addStatistic(category, "Misses", String.valueOf(stats.missCount()));
+                buildProfile.addStatistic(category, "Hit rate", String.format("%.1f%%", stats.hitRate() * 100));
+                buildProfile.addStatistic(category, "Evictions", String.valueOf(stats.evictionCount()));
+            }
+        }
+    }
+
+    private static class CacheSpec implements Weigher<Object, Object> {
+        private final double heapShare;
+        private final int valueWeight;
+
+        CacheSpec(double heapShare) {
+            this(heapShare, 0);
+        }
+
+        CacheSpec(double heapShare, int valueWeight) {
+            this.heapShare = heapShare;
+            this.valueWeight = valueWeight;
+        }
+
+        long getMaxWeight(long heapBudget) {
+            return (long) (heapBudget * heapShare);
+        }
+
+        public int weigh(Object key, Object value) {
+            return Ints.saturatedCast(weighKey(key) + weighValue(value));
+        }
+
+        private long weighValue(Object value) {
+            if (value == NULL) {
+                return 0;
+            }
+            if (value instanceof HasEstimatedSize) {
+                return ((HasEstimatedSize) value).getEstimatedSize();
+            }
+            return valueWeight;
+        }
+
+        private static int weighKey(Object key) {
+            // Rough estimates of the retained size of the supported key types, including object headers
+            if (key instanceof String) {
+                return 40 + 2 * ((String) key).length();
+            }
+            if (key instanceof File) {
+                return 56 + 2 * ((File) key).getPath().length();
+            }
+            return 16;
+        }
+    }
 }
@@ -89,7 +89,9 @@ public class OutputFilesCollectionSnapshotter implements FileCollectionSnapshott
         return new OutputFilesSnapshot(snapshotDirIds, snapshotter.snapshot(files));
     }
 
-    static class OutputFilesSnapshot implements FileCollectionSnapshot {
+    static class OutputFilesSnapshot implements FileCollectionSnapshot, HasEstimatedSize {
+        // A map entry with its path and id
+        private static final int ESTIMATED_ROOT_FILE_SIZE = 250;
         final Map<String, Long> rootFileIds;
         final FileCollectionSnapshot filesSnapshot;
 
@@ -98,6 +100,11 @@ public class OutputFilesCollectionSnapshotter implements FileCollectionSnapshott
             this.filesSnapshot = filesSnapshot;
         }
 
+        public long getEstimatedSize() {
+            long filesSize = filesSnapshot instanceof HasEstimatedSize ? ((HasEstimatedSize) filesSnapshot).getEstimatedSize() : 0;
+            return 64 + (long) rootFileIds.size() * ESTIMATED_ROOT_FILE_SIZE + filesSize;
+        }
+
         public FileCollection getFiles() {
             return filesSnapshot.getFiles();
         }
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.api.Task;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Keeps track of how long tasks took to execute in previous builds.
+ */
+public interface TaskDurationRepository {
+    /**
+     * Returns the expected duration, in milliseconds, of each of the given tasks. Tasks that have not been executed before are not included.
+     */
+    Map<Task, Long> getExpectedDurations(Collection<? extends Task> tasks);
+
+    /**
+     * Records how long the given tasks took to execute, in milliseconds.
+     */
+    void recordDurations(Map<? extends Task, Long> durations);
+}
@@ -0,0 +1,644 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.file.archive;
+
+import org.apache.tools.zip.ZipEntry;
+import org.apache.tools.zip.ZipFile;
+import org.apache.tools.zip.ZipOutputStream;
+import org.gradle.api.Action;
+import org.gradle.api.GradleException;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.file.FileCopyDetails;
+import org.gradle.api.internal.DocumentationRegistry;
+import org.gradle.api.internal.file.CopyActionProcessingStreamAction;
+import org.gradle.api.internal.file.copy.CopyActionProcessingStream;
+import org.gradle.api.internal.file.copy.FileCopyDetailsInternal;
+import org.gradle.api.internal.file.copy.ZipCompressor;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.IoActions;
+import org.gradle.internal.operations.BuildOperation;
+import org.gradle.internal.operations.BuildOperationProcessor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.BuildOperationWorker;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+import static org.gradle.api.internal.file.archive.ZipCentralDirectory.*;
+
+/**
+ * Writes a ZIP archive, compressing its entries concurrently. The result is byte for byte the archive that {@link ZipCopyAction} writes.
+ *
+ * <p>Entries are compressed into several scatter archives, which are temporary ZIP archives written using the same compressor as the final
+ * archive. The local header and data of an entry do not depend on where the entry is in the archive, so the final archive is gathered by copying
+ * them from the scatter archives in the order of the entries, followed by the central directory headers with their offsets adjusted. When the
+ * archive needs the zip64 extension, the scatter archives are instead written out again one entry at a time.</p>
+ *
+ * <p>The content of an entry is read into memory so that it can be compressed on another thread. The content of a large entry is instead
+ * compressed into a scatter archive as it is read, on the thread processing the stream.</p>
+ *
+ * <p>When reusing previous entries, the file entries of the archive that an earlier build wrote are reused when the content and headers of an
+ * entry are unchanged, so that only the changed entries are compressed. See {@link PreviousZipArchive}. An entry with unchanged content is
+ * compressed into a scatter archive without its content, to check its headers. If they have changed, for example because the file was touched,
+ * the entry is compressed again using the content from the previous archive.</p>
+ */
+public class ParallelZipCopyAction extends ZipCopyAction {
+    public static final String PARALLEL_COMPRESSION_PROPERTY = "org.gradle.internal.parallelZipCompression";
+    public static final String REUSE_PREVIOUS_ENTRIES_PROPERTY = "org.gradle.internal.incrementalZip";
+    private static final Logger LOGGER = Logging.getLogger(ParallelZipCopyAction.class);
+
+    private static final int MAX_PENDING_BYTES = 64 * 1024 * 1024;
+    private static final byte[] NO_CONTENT = new byte[0];
+
+    private final File zipFile;
+    private final ZipCompressor compressor;
+    private final BuildOperationProcessor buildOperationProcessor;
+    private final boolean reusePreviousEntries;
+    // The uncompressed content waiting to be compressed is limited to this many bytes
+    private final int maxPendingBytes;
+    // Entries larger than this are compressed as they are read
+    private final long largeEntrySize;
+
+    public ParallelZipCopyAction(File zipFile, ZipCompressor compressor, DocumentationRegistry documentationRegistry, BuildOperationProcessor buildOperationProcessor) {
+        this(zipFile, compressor, documentationRegistry, buildOperationProcessor, false);
+    }
+
+    public ParallelZipCopyAction(File zipFile, ZipCompressor compressor, DocumentationRegistry documentationRegistry, BuildOperationProcessor buildOperationProcessor, boolean reusePreviousEntries) {
+        this(zipFile, compressor, documentationRegistry, buildOperationProcessor, reusePreviousEntries, MAX_PENDING_BYTES);
+    }
+
+    ParallelZipCopyAction(File zipFile, ZipCompressor compressor, DocumentationRegistry documentationRegistry, BuildOperationProcessor buildOperationProcessor, boolean reusePreviousEntries,
+                          int maxPendingBytes) {
+        super(zipFile, compressor, documentationRegistry);
+        this.zipFile = zipFile;
+        this.compressor = compressor;
+        this.buildOperationProcessor = buildOperationProcessor;
+        this.reusePreviousEntries = reusePreviousEntries;
+        this.maxPendingBytes = maxPendingBytes;
+        this.largeEntrySize = maxPendingBytes / 16;
+    }
+
+    @Override
+    protected void writeArchive(CopyActionProcessingStream stream) {
+        PreviousZipArchive previousArchive = reusePreviousEntries ? openPreviousArchive() : null;
+        ScatterArchives scatterArchives = new ScatterArchives();
+        try {
+            List<ArchiveEntry> entries = scatter(stream, scatterArchives, previousArchive);
+            boolean needsZip64 = scatterArchives.finish();
+            if (!needsZip64 && previousArchive != null) {
+                compressEntriesWithChangedHeaders(entries, scatterArchives);
+                needsZip64 = scatterArchives.finish();
+            }
+            if (needsZip64 || !gather(entries, scatterArchives)) {
+                writeSequentially(entries, scatterArchives);
+            }
+        } finally {
+            scatterArchives.delete();
+            if (previousArchive != null) {
+                previousArchive.delete();
+            }
+        }
+    }
+
+    /**
+     * Moves the archive of the previous build out of the way, so that its entries can be read while the new archive is written.
+     *
+     * @return the previous archive, or null when there is none that can be used.
+     */
+    private PreviousZipArchive openPreviousArchive() {
+        if (!zipFile.isFile()) {
+            return null;
+        }
+        File file;
+        try {
+            file = File.createTempFile(zipFile.getName(), ".previous", zipFile.getParentFile());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!file.delete() || !zipFile.renameTo(file)) {
+            file.delete();
+            return null;
+        }
+        try {
+            return new PreviousZipArchive(file);
+        } catch (Exception e) {
+            // The archive is written again from scratch, so carry on without the previous one, however it is damaged
+            LOGGER.debug("Could not read the previous ZIP '{}'.", zipFile, e);
+            file.delete();
+            return null;
+        }
+    }
+
+    private List<ArchiveEntry> scatter(CopyActionProcessingStream stream, final ScatterArchives scatterArchives, final PreviousZipArchive previousArchive) {
+        final List<ArchiveEntry> entries = new ArrayList<ArchiveEntry>();
+        final Semaphore pendingBytes = new Semaphore(maxPendingBytes);
+        final BuildOperationQueue<CompressEntry> queue = buildOperationProcessor.newQueue(new CompressEntryWorker(scatterArchives, pendingBytes), null);
+        try {
+            stream.process(new CopyActionProcessingStreamAction() {
+                public void processFile(FileCopyDetailsInternal details) {
+                    ArchiveEntry entry = new ArchiveEntry(details);
+                    if (!entry.directory && details.getSize() > largeEntrySize) {
+                        // Not reused, as checking the content against the previous archive needs all of the content in memory
+                        entries.add(entry);
+                        compressAsRead(entry, details, scatterArchives);
+                        return;
+                    }
+
+                    // Read the content while the details are still valid, then compress it on another thread
+                    byte[] content = entry.directory ? null : readContent(details);
+                    int permits = content == null ? 0 : Math.min(content.length, maxPendingBytes);
+                    pendingBytes.acquireUninterruptibly(permits);
+                    if (previousArchive != null && !entry.directory) {
+                        int previousIndex = previousArchive.take(entry.path);
+                        if (previousIndex >= 0) {
+                            entry.reuse(previousArchive, previousIndex);
+                        }
+                    }
+                    entries.add(entry);
+                    queue.add(new CompressEntry(entry, content, permits));
+                }
+            });
+        } catch (RuntimeException e) {
+            try {
+                queue.waitForCompletion();
+            } catch (RuntimeException ignored) {
+                // Report the failure to process the stream
+            }
+            throw e;
+        }
+        queue.waitForCompletion();
+        return entries;
+    }
+
+    private void compressAsRead(ArchiveEntry entry, FileCopyDetails details, ScatterArchives scatterArchives) {
+        try {
+            ScatterArchive scatterArchive = scatterArchives.take();
+            try {
+                scatterArchive.add(entry, details);
+            } finally {
+                scatterArchives.release(scatterArchive);
+            }
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not add %s to ZIP '%s'.", details, zipFile), e);
+        }
+    }
+
+    private byte[] readContent(FileCopyDetails details) {
+        try {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            details.copyTo(content);
+            return content.toByteArray();
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not add %s to ZIP '%s'.", details, zipFile), e);
+        }
+    }
+
+    /**
+     * Compresses again each reused entry whose headers would differ from those of the entry in the previous archive.
+     */
+    private void compressEntriesWithChangedHeaders(List<ArchiveEntry> entries, ScatterArchives scatterArchives) {
+        List<ArchiveEntry> changedEntries = new ArrayList<ArchiveEntry>();
+        int reused = 0;
+        try {
+            for (ArchiveEntry entry : entries) {
+                if (entry.previousArchive == null) {
+                    continue;
+                }
+                byte[] probeLocalHeader = entry.scatterArchive.readLocalHeader(entry.index);
+                byte[] probeCentralHeader = entry.scatterArchive.getCentralHeader(entry.index);
+                if (entry.previousArchive.hasHeaders(entry.previousIndex, probeLocalHeader, probeCentralHeader)) {
+                    reused++;
+                } else {
+                    changedEntries.add(entry);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        LOGGER.debug("Reusing {} of {} entries of the previous ZIP '{}'.", reused, entries.size(), zipFile);
+        if (changedEntries.isEmpty()) {
+            return;
+        }
+
+        Semaphore pendingBytes = new Semaphore(maxPendingBytes);
+        BuildOperationQueue<CompressEntry> queue = buildOperationProcessor.newQueue(new CompressEntryWorker(scatterArchives, pendingBytes), null);
+        try {
+            for (ArchiveEntry entry : changedEntries) {
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                entry.previousArchive.copyEntryContent(entry.previousIndex, content);
+                int permits = Math.min(content.size(), maxPendingBytes);
+                pendingBytes.acquireUninterruptibly(permits);
+                entry.reuse(null, 0);
+                queue.add(new CompressEntry(entry, content.toByteArray(), permits));
+            }
+        } catch (IOException e) {
+            try {
+                queue.waitForCompletion();
+            } catch (RuntimeException ignored) {
+                // Report the failure to read the previous archive
+            }
+            throw new UncheckedIOException(e);
+        }
+        queue.waitForCompletion();
+    }
+
+    /**
+     * Copies the entries from the scatter archives, and from the previous archive when reused, into the final archive.
+     *
+     * @return false when the final archive would need the zip64 extension, without having written anything.
+     */
+    private boolean gather(List<ArchiveEntry> entries, ScatterArchives scatterArchives) {
+        long centralDirectoryOffset = 0;
+        long centralDirectoryLength = 0;
+        for (ArchiveEntry entry : entries) {
+            centralDirectoryOffset += entry.getLocalLength();
+            centralDirectoryLength += entry.getCentralHeader().length;
+        }
+        if (entries.size() >= ZIP64_MAGIC_SHORT || centralDirectoryOffset >= ZIP64_MAGIC || centralDirectoryLength >= ZIP64_MAGIC) {
+            return false;
+        }
+
+        try {
+            FileOutputStream outputStream;
+            try {
+                outputStream = new FileOutputStream(zipFile);
+            } catch (FileNotFoundException e) {
+                throw new GradleException(String.format("Could not create ZIP '%s'.", zipFile), e);
+            }
+            try {
+                FileChannel output = outputStream.getChannel();
+                try {
+                    for (ArchiveEntry entry : entries) {
+                        if (entry.previousArchive != null) {
+                            entry.previousArchive.transferLocalEntry(entry.previousIndex, output);
+                        } else {
+                            entry.scatterArchive.transferLocalEntry(entry.index, output);
+                        }
+                    }
+                } finally {
+                    scatterArchives.close();
+                }
+                OutputStream centralDirectory = new BufferedOutputStream(outputStream);
+                long offset = 0;
+                for (ArchiveEntry entry : entries) {
+                    byte[] centralHeader = entry.getCentralHeader().clone();
+                    setLocalOffset(centralHeader, offset);
+                    centralDirectory.write(centralHeader);
+                    offset += entry.getLocalLength();
+                }
+                writeInt(centralDirectory, END_OF_CENTRAL_DIR_SIG);
+                // Number of this disk and of the disk where the central directory starts
+                writeShort(centralDirectory, 0);
+                writeShort(centralDirectory, 0);
+                writeShort(centralDirectory, entries.size());
+                writeShort(centralDirectory, entries.size());
+                writeInt(centralDirectory, centralDirectoryLength);
+                writeInt(centralDirectory, centralDirectoryOffset);
+                // Comment length
+                writeShort(centralDirectory, 0);
+                centralDirectory.flush();
+            } finally {
+                outputStream.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
+
+    /**
+     * Writes the final archive through a single archive output stream, compressing each entry again.
+     */
+    private void writeSequentially(final List<ArchiveEntry> entries, final ScatterArchives scatterArchives) {
+        ZipOutputStream zipOutStr = createArchiveOutputStream();
+        IoActions.withResource(zipOutStr, new Action<ZipOutputStream>() {
+            public void execute(ZipOutputStream outputStream) {
+                try {
+                    scatterArchives.open();
+                    try {
+                        for (ArchiveEntry entry : entries) {
+                            outputStream.putNextEntry(entry.toZipEntry());
+                            if (entry.previousArchive != null) {
+                                entry.previousArchive.copyEntryContent(entry.previousIndex, outputStream);
+                            } else if (!entry.directory) {
+                                entry.scatterArchive.copyEntryContent(entry.index, outputStream);
+                            }
+                            outputStream.closeEntry();
+                        }
+                    } finally {
+                        scatterArchives.close();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+
+    private static void writeInt(OutputStream output, long value) throws IOException {
+        byte[] buffer = new byte[4];
+        putInt(buffer, 0, value);
+        output.write(buffer);
+    }
+
+    private static void writeShort(OutputStream output, int value) throws IOException {
+        output.write(value & 0xFF);
+        output.write((value >> 8) & 0xFF);
+    }
+
+    /**
+     * An entry of the archive, in the order the entries are written.
+     */
+    private static class ArchiveEntry {
+        final String path;
+        final long lastModified;
+        final int mode;
+        final boolean directory;
+        final String displayName;
+        // The scatter archive holding this entry, and the position of the entry in it. Set once the entry is compressed
+        ScatterArchive scatterArchive;
+        int index;
+        // The previous archive holding this entry, and the position of the entry in it, when the entry is reused
+        PreviousZipArchive previousArchive;
+        int previousIndex;
+
+        ArchiveEntry(FileCopyDetails details) {
+            path = details.getRelativePath().getPathString();
+            lastModified = details.getLastModified();
+            mode = details.getMode();
+            directory = details.isDirectory();
+            displayName = details.toString();
+        }
+
+        void reuse(PreviousZipArchive previousArchive, int previousIndex) {
+            this.previousArchive = previousArchive;
+            this.previousIndex = previousIndex;
+        }
+
+        ZipEntry toZipEntry() {
+            return directory ? dirEntry(path, lastModified, mode) : fileEntry(path, lastModified, mode);
+        }
+
+        byte[] getCentralHeader() {
+            return previousArchive != null ? previousArchive.getCentralHeader(previousIndex) : scatterArchive.getCentralHeader(index);
+        }
+
+        long getLocalLength() {
+            return previousArchive != null ? previousArchive.getLocalLength(previousIndex) : scatterArchive.getLocalLength(index);
+        }
+    }
+
+    private static class CompressEntry implements BuildOperation {
+        final ArchiveEntry entry;
+        final byte[] content;
+        final int permits;
+
+        CompressEntry(ArchiveEntry entry, byte[] content, int permits) {
+            this.entry = entry;
+            this.content = content;
+            this.permits = permits;
+        }
+
+        public String getDescription() {
+            return "Compress " + entry.displayName;
+        }
+    }
+
+    private class CompressEntryWorker implements BuildOperationWorker<CompressEntry> {
+        private final ScatterArchives scatterArchives;
+        private final Semaphore pendingBytes;
+
+        CompressEntryWorker(ScatterArchives scatterArchives, Semaphore pendingBytes) {
+            this.scatterArchives = scatterArchives;
+            this.pendingBytes = pendingBytes;
+        }
+
+        public String getDisplayName() {
+            return "zip entry compressor";
+        }
+
+        public void execute(CompressEntry operation) {
+            ArchiveEntry entry = operation.entry;
+            try {
+                byte[] content = operation.content;
+                if (entry.previousArchive != null) {
+                    if (entry.previousArchive.hasContent(entry.previousIndex, content)) {
+                        content = NO_CONTENT;
+                    } else {
+                        entry.reuse(null, 0);
+                    }
+                }
+                ScatterArchive scatterArchive = scatterArchives.take();
+                try {
+                    scatterArchive.add(entry, content);
+                } finally {
+                    scatterArchives.release(scatterArchive);
+                }
+            } catch (Exception e) {
+                throw new GradleException(String.format("Could not add %s to ZIP '%s'.", entry.displayName, zipFile), e);
+            } finally {
+                pendingBytes.release(operation.permits);
+            }
+        }
+    }
+
+    /**
+     * The scatter archives, each used by one thread at a time. A new scatter archive is created whenever a thread needs one and all others are
+     * in use.
+     */
+    private class ScatterArchives {
+        // Guarded by this
+        private final List<ScatterArchive> archives = new ArrayList<ScatterArchive>();
+        // Guarded by this
+        private final LinkedList<ScatterArchive> idleArchives = new LinkedList<ScatterArchive>();
+
+        synchronized ScatterArchive take() throws IOException {
+            if (idleArchives.isEmpty()) {
+                File file = File.createTempFile(zipFile.getName(), ".scatter", zipFile.getParentFile());
+                ScatterArchive archive = new ScatterArchive(file);
+                archives.add(archive);
+                return archive;
+            }
+            return idleArchives.removeFirst();
+        }
+
+        synchronized void release(ScatterArchive archive) {
+            idleArchives.addFirst(archive);
+        }
+
+        /**
+         * Closes the scatter archives and reads their central directories. Entries added later go to new scatter archives.
+         *
+         * @return true if any scatter archive needs the zip64 extension.
+         */
+        synchronized boolean finish() {
+            idleArchives.clear();
+            boolean needsZip64 = false;
+            for (ScatterArchive archive : archives) {
+                archive.finish();
+                needsZip64 |= archive.needsZip64;
+            }
+            return needsZip64;
+        }
+
+        void open() throws IOException {
+            for (ScatterArchive archive : archives) {
+                archive.open();
+            }
+        }
+
+        void close() {
+            for (ScatterArchive archive : archives) {
+                archive.close();
+            }
+        }
+
+        void delete() {
+            for (ScatterArchive archive : archives) {
+                archive.delete();
+            }
+        }
+    }
+
+    private class ScatterArchive {
+        private final File file;
+        private final ZipOutputStream outputStream;
+        private int entryCount;
+        private boolean closed;
+        private ZipCentralDirectory centralDirectory;
+        private boolean needsZip64;
+        private RandomAccessFile input;
+        private ZipFile reader;
+        private List<ZipEntry> readerEntries;
+
+        ScatterArchive(File file) {
+            this.file = file;
+            this.outputStream = compressor.createArchiveOutputStream(file);
+        }
+
+        void add(ArchiveEntry entry, byte[] content) throws IOException {
+            outputStream.putNextEntry(entry.toZipEntry());
+            if (content != null) {
+                outputStream.write(content);
+            }
+            outputStream.closeEntry();
+            entry.scatterArchive = this;
+            entry.index = entryCount++;
+        }
+
+        void add(ArchiveEntry entry, FileCopyDetails details) throws IOException {
+            outputStream.putNextEntry(entry.toZipEntry());
+            details.copyTo(outputStream);
+            outputStream.closeEntry();
+            entry.scatterArchive = this;
+            entry.index = entryCount++;
+        }
+
+        void finish() {
+            if (closed) {
+                return;
+            }
+            try {
+                closed = true;
+                outputStream.close();
+                centralDirectory = ZipCentralDirectory.read(file);
+                needsZip64 = centralDirectory.usesZip64();
+                if (!needsZip64 && centralDirectory.size() != entryCount) {
+                    throw new IOException(String.format("Unexpected number of entries in scatter archive '%s'.", file));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        byte[] getCentralHeader(int index) {
+            return centralDirectory.getHeader(index);
+        }
+
+        long getLocalLength(int index) {
+            return centralDirectory.getLocalLength(index);
+        }
+
+        byte[] readLocalHeader(int index) throws IOException {
+            return ZipCentralDirectory.readLocalHeader(getInput(), centralDirectory.getLocalOffset(index));
+        }
+
+        void transferLocalEntry(int index, FileChannel output) throws IOException {
+            transferFully(getInput(), centralDirectory.getLocalOffset(index), getLocalLength(index), output);
+        }
+
+        private FileChannel getInput() throws IOException {
+            if (input == null) {
+                input = new RandomAccessFile(file, "r");
+            }
+            return input.getChannel();
+        }
+
+        void open() throws IOException {
+            reader = new ZipFile(file);
+            readerEntries = new ArrayList<ZipEntry>();
+            Enumeration<ZipEntry> zipEntries = reader.getEntriesInPhysicalOrder();
+            readerEntries.addAll(Collections.list(zipEntries));
+        }
+
+        void copyEntryContent(int index, OutputStream outputStream) throws IOException {
+            InputStream content = reader.getInputStream(readerEntries.get(index));
+            try {
+                byte[] buffer = new byte[8192];
+                int nread;
+                while ((nread = content.read(buffer)) > 0) {
+                    outputStream.write(buffer, 0, nread);
+                }
+            } finally {
+                content.close();
+            }
+        }
+
+        void close() {
+            ZipFile.closeQuietly(reader);
+            reader = null;
+            if (input != null) {
+                try {
+                    input.close();
+                } catch (IOException e) {
+                    // Ignore, the archive is only read
+                }
+                input = null;
+            }
+        }
+
+        void delete() {
+            if (!closed) {
+                try {
+                    outputStream.close();
+                } catch (IOException e) {
+                    // Ignore, the archive is discarded
+                }
+            }
+            close();
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.file.archive;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import static org.gradle.api.internal.file.archive.ZipCentralDirectory.*;
+
+/**
+ * The archive written by an earlier build, whose compressed file entries can be copied as they are into the new archive.
+ *
+ * <p>An entry of the previous archive is only reused for a new entry with the same content, checked by decompressing it, and with the same local
+ * and central headers, apart from the fields that depend on the content. The headers are checked against those of a probe, which is the new
+ * entry written without content by the same compressor. The new archive therefore has exactly the headers and content it would have if every
+ * entry were compressed again.</p>
+ */
+class PreviousZipArchive {
+    private static final int DEFLATED = 8;
+    private static final int ZIP64_EXTRA_FIELD_ID = 0x0001;
+
+    private final File file;
+    private final ZipCentralDirectory centralDirectory;
+    private final RandomAccessFile input;
+    // The entries that could be reused, by name, in the order of the archive. Only used by the thread processing the copy stream
+    private final Map<String, LinkedList<Integer>> entriesByName = new HashMap<String, LinkedList<Integer>>();
+
+    PreviousZipArchive(File file) throws IOException {
+        this.file = file;
+        this.centralDirectory = ZipCentralDirectory.read(file);
+        this.input = new RandomAccessFile(file, "r");
+        boolean indexed = false;
+        try {
+            if (!centralDirectory.usesZip64()) {
+                indexEntries();
+            }
+            indexed = true;
+        } finally {
+            if (!indexed) {
+                closeInput();
+            }
+        }
+    }
+
+    private void indexEntries() throws IOException {
+        for (int index = 0; index < centralDirectory.size(); index++) {
+            byte[] header = centralDirectory.getHeader(index);
+            if (getMethod(header) != DEFLATED) {
+                continue;
+            }
+            // The names are written using the platform encoding, as no encoding is set on the archive output stream
+            String name = new String(getName(header), Charset.defaultCharset().name());
+            LinkedList<Integer> entries = entriesByName.get(name);
+            if (entries == null) {
+                entries = new LinkedList<Integer>();
+                entriesByName.put(name, entries);
+            }
+            entries.add(index);
+        }
+    }
+
+    /**
+     * Takes the next entry with the given name, so that an archive with duplicate entries reuses each of them once.
+     *
+     * @return the index of the entry, or -1 when there is none.
+     */
+    int take(String name) {
+        LinkedList<Integer> entries = entriesByName.get(name);
+        if (entries == null || entries.isEmpty()) {
+            return -1;
+        }
+        return entries.removeFirst();
+    }
+
+    /**
+     * Returns true if the given entry holds exactly the given content. Can be called from several threads.
+     */
+    boolean hasContent(int index, byte[] content) throws IOException {
+        byte[] header = centralDirectory.getHeader(index);
+        if (getSize(header) != content.length) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        if (getCrc(header) != crc.getValue()) {
+            return false;
+        }
+        byte[] data = readData(index, 1);
+        Inflater inflater = new Inflater(true);
+        try {
+            // The inflater needs an extra byte of input when there is no zlib header
+            inflater.setInput(data);
+            byte[] inflated = new byte[content.length + 1];
+            int length = 0;
+            while (!inflater.finished() && length < inflated.length) {
+                int count = inflater.inflate(inflated, length, inflated.length - length);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    return false;
+                }
+                length += count;
+            }
+            if (!inflater.finished() || length != content.length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (inflated[i] != content[i]) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (DataFormatException e) {
+            return false;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Returns true if the given entry has the headers of the given probe, apart from the fields that depend on the content and position of
+     * the entry.
+     */
+    boolean hasHeaders(int index, byte[] probeLocalHeader, byte[] probeCentralHeader) throws IOException {
+        byte[] centralHeader = centralDirectory.getHeader(index);
+        // Skip the crc, sizes and local header offset
+        if (centralHeader.length != probeCentralHeader.length || !equalsRange(centralHeader, probeCentralHeader, 0, 16)
+            || !equalsRange(centralHeader, probeCentralHeader, 28, 42) || !equalsRange(centralHeader, probeCentralHeader, 46, centralHeader.length)) {
+            return false;
+        }
+        byte[] localHeader = readLocalHeader(input.getChannel(), centralDirectory.getLocalOffset(index));
+        if (centralDirectory.getLocalLength(index) != localHeader.length + getCompressedSize(centralHeader)) {
+            return false;
+        }
+        // The local header of an archive written to a file holds the same crc and sizes as the central header
+        for (int i = 0; i < 12; i++) {
+            if (localHeader[14 + i] != centralHeader[16 + i]) {
+                return false;
+            }
+        }
+        // Skip the crc and sizes, and the extra fields
+        int extraFieldsOffset = LOCAL_FILE_HEADER_LENGTH + getShort(localHeader, 26);
+        if (localHeader.length != probeLocalHeader.length || !equalsRange(localHeader, probeLocalHeader, 0, 14)
+            || !equalsRange(localHeader, probeLocalHeader, 26, extraFieldsOffset)) {
+            return false;
+        }
+        return hasExtraFields(localHeader, probeLocalHeader, extraFieldsOffset, getSize(centralHeader), getCompressedSize(centralHeader));
+    }
+
+    /**
+     * Compares the extra fields of the local headers, which have the same layout. The zip64 extra field holds the sizes of the entry.
+     */
+    private static boolean hasExtraFields(byte[] localHeader, byte[] probeLocalHeader, int extraFieldsOffset, long size, long compressedSize) {
+        int pos = extraFieldsOffset;
+        while (pos < localHeader.length) {
+            if (pos + 4 > localHeader.length) {
+                return false;
+            }
+            int id = getShort(localHeader, pos);
+            int length = getShort(localHeader, pos + 2);
+            int end = pos + 4 + length;
+            if (end > localHeader.length || !equalsRange(localHeader, probeLocalHeader, pos, pos + 4)) {
+                return false;
+            }
+            if (id == ZIP64_EXTRA_FIELD_ID) {
+                if (length < 16 || getLong(localHeader, pos + 4) != size || getLong(localHeader, pos + 12) != compressedSize
+                    || !equalsRange(localHeader, probeLocalHeader, pos + 20, end)) {
+                    return false;
+                }
+            } else if (!equalsRange(localHeader, probeLocalHeader, pos + 4, end)) {
+                return false;
+            }
+            pos = end;
+        }
+        return true;
+    }
+
+    byte[] getCentralHeader(int index) {
+        return centralDirectory.getHeader(index);
+    }
+
+    long getLocalLength(int index) {
+        return centralDirectory.getLocalLength(index);
+    }
+
+    void transferLocalEntry(int index, FileChannel output) throws IOException {
+        transferFully(input.getChannel(), centralDirectory.getLocalOffset(index), getLocalLength(index), output);
+    }
+
+    void copyEntryContent(int index, OutputStream outputStream) throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            InputStream content = new InflaterInputStream(new ByteArrayInputStream(readData(index, 1)), inflater);
+            byte[] buffer = new byte[8192];
+            int nread;
+            while ((nread = content.read(buffer)) > 0) {
+                outputStream.write(buffer, 0, nread);
+            }
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private byte[] readData(int index, int padding) throws IOException {
+        FileChannel channel = input.getChannel();
+        long localOffset = centralDirectory.getLocalOffset(index);
+        byte[] localHeader = readLocalHeader(channel, localOffset);
+        byte[] data = new byte[(int) getCompressedSize(centralDirectory.getHeader(index)) + padding];
+        byte[] compressed = readFully(channel, localOffset + localHeader.length, data.length - padding);
+        System.arraycopy(compressed, 0, data, 0, compressed.length);
+        return data;
+    }
+
+    void delete() {
+        closeInput();
+        file.delete();
+    }
+
+    private void closeInput() {
+        try {
+            input.close();
+        } catch (IOException e) {
+            // Ignore, the archive is only read
+        }
+    }
+
+    private static boolean equalsRange(byte[] left, byte[] right, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (left[i] != right[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long getLong(byte[] buffer, int offset) {
+        return getInt(buffer, offset) | getInt(buffer, offset + 4) << 32;
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.file.archive;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The central directory of a ZIP archive written to a file by {@link org.apache.tools.zip.ZipOutputStream}, which writes no data descriptors and
+ * no archive comment. Gives access to the raw central directory headers and to the position of the local header and data of each entry.
+ */
+class ZipCentralDirectory {
+    static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    static final int ZIP64_MAGIC_SHORT = 0xFFFF;
+    static final long LOCAL_FILE_HEADER_SIG = 0x04034b50L;
+    static final long CENTRAL_FILE_HEADER_SIG = 0x02014b50L;
+    static final long END_OF_CENTRAL_DIR_SIG = 0x06054b50L;
+    static final int LOCAL_FILE_HEADER_LENGTH = 30;
+    static final int CENTRAL_FILE_HEADER_LENGTH = 46;
+    static final int END_OF_CENTRAL_DIR_LENGTH = 22;
+    private static final long ZIP64_END_OF_CENTRAL_DIR_LOCATOR_SIG = 0x07064b50L;
+    private static final int ZIP64_END_OF_CENTRAL_DIR_LOCATOR_LENGTH = 20;
+
+    private final List<byte[]> headers;
+    private final List<Long> localOffsets;
+    private final long offset;
+    private final boolean zip64;
+
+    private ZipCentralDirectory(List<byte[]> headers, List<Long> localOffsets, long offset, boolean zip64) {
+        this.headers = headers;
+        this.localOffsets = localOffsets;
+        this.offset = offset;
+        this.zip64 = zip64;
+    }
+
+    /**
+     * Reads the central directory of the given archive. The headers are not read when the archive uses the zip64 extension.
+     */
+    static ZipCentralDirectory read(File file) throws IOException {
+        RandomAccessFile archive = new RandomAccessFile(file, "r");
+        try {
+            long length = archive.length();
+            if (length < END_OF_CENTRAL_DIR_LENGTH) {
+                throw new IOException(String.format("'%s' is not a ZIP archive.", file));
+            }
+            byte[] end = new byte[END_OF_CENTRAL_DIR_LENGTH];
+            archive.seek(length - END_OF_CENTRAL_DIR_LENGTH);
+            archive.readFully(end);
+            if (getInt(end, 0) != END_OF_CENTRAL_DIR_SIG) {
+                throw new IOException(String.format("Unexpected end of central directory in '%s'.", file));
+            }
+            int count = getShort(end, 10);
+            long centralDirectoryLength = getInt(end, 12);
+            long centralDirectoryOffset = getInt(end, 16);
+            List<byte[]> headers = new ArrayList<byte[]>();
+            List<Long> localOffsets = new ArrayList<Long>();
+            if (count == ZIP64_MAGIC_SHORT || centralDirectoryLength == ZIP64_MAGIC || centralDirectoryOffset == ZIP64_MAGIC || hasZip64Locator(archive)) {
+                return new ZipCentralDirectory(headers, localOffsets, centralDirectoryOffset, true);
+            }
+            if (centralDirectoryOffset + centralDirectoryLength != length - END_OF_CENTRAL_DIR_LENGTH) {
+                throw new IOException(String.format("Unexpected central directory location in '%s'.", file));
+            }
+
+            byte[] centralDirectory = new byte[(int) centralDirectoryLength];
+            archive.seek(centralDirectoryOffset);
+            archive.readFully(centralDirectory);
+            boolean zip64 = false;
+            int pos = 0;
+            for (int i = 0; i < count; i++) {
+                if (pos + CENTRAL_FILE_HEADER_LENGTH > centralDirectory.length || getInt(centralDirectory, pos) != CENTRAL_FILE_HEADER_SIG) {
+                    throw new IOException(String.format("Unexpected central directory header in '%s'.", file));
+                }
+                int headerLength = CENTRAL_FILE_HEADER_LENGTH + getShort(centralDirectory, pos + 28) + getShort(centralDirectory, pos + 30) + getShort(centralDirectory, pos + 32);
+                if (pos + headerLength > centralDirectory.length) {
+                    throw new IOException(String.format("Unexpected central directory header in '%s'.", file));
+                }
+                byte[] header = new byte[headerLength];
+                System.arraycopy(centralDirectory, pos, header, 0, headerLength);
+                if (getCompressedSize(header) == ZIP64_MAGIC || getSize(header) == ZIP64_MAGIC || getLocalOffset(header) == ZIP64_MAGIC) {
+                    zip64 = true;
+                }
+                headers.add(header);
+                localOffsets.add(getLocalOffset(header));
+                pos += headerLength;
+            }
+            return new ZipCentralDirectory(headers, localOffsets, centralDirectoryOffset, zip64);
+        } finally {
+            archive.close();
+        }
+    }
+
+    private static boolean hasZip64Locator(RandomAccessFile archive) throws IOException {
+        long locatorOffset = archive.length() - END_OF_CENTRAL_DIR_LENGTH - ZIP64_END_OF_CENTRAL_DIR_LOCATOR_LENGTH;
+        if (locatorOffset < 0) {
+            return false;
+        }
+        archive.seek(locatorOffset);
+        byte[] signature = new byte[4];
+        archive.readFully(signature);
+        return getInt(signature, 0) == ZIP64_END_OF_CENTRAL_DIR_LOCATOR_SIG;
+    }
+
+    /**
+     * Whether the archive uses the zip64 extension, in which case its entries cannot be copied to another archive as they are.
+     */
+    boolean usesZip64() {
+        return zip64;
+    }
+
+    int size() {
+        return headers.size();
+    }
+
+    long getOffset() {
+        return offset;
+    }
+
+    byte[] getHeader(int index) {
+        return headers.get(index);
+    }
+
+    long getLocalOffset(int index) {
+        return localOffsets.get(index);
+    }
+
+    /**
+     * Returns the length of the local header and data of the given entry, assuming the entries are stored in the order of the central directory.
+     */
+    long getLocalLength(int index) {
+        long end = index + 1 < localOffsets.size() ? localOffsets.get(index + 1) : offset;
+        return end - localOffsets.get(index);
+    }
+
+    /**
+     * Reads the local header, including the name and extra fields, at the given position.
+     */
+    static byte[] readLocalHeader(FileChannel channel, long position) throws IOException {
+        byte[] fixed = readFully(channel, position, LOCAL_FILE_HEADER_LENGTH);
+        if (getInt(fixed, 0) != LOCAL_FILE_HEADER_SIG) {
+            throw new IOException("Unexpected local header.");
+        }
+        byte[] header = new byte[LOCAL_FILE_HEADER_LENGTH + getShort(fixed, 26) + getShort(fixed, 28)];
+        System.arraycopy(fixed, 0, header, 0, LOCAL_FILE_HEADER_LENGTH);
+        byte[] variable = readFully(channel, position + LOCAL_FILE_HEADER_LENGTH, header.length - LOCAL_FILE_HEADER_LENGTH);
+        System.arraycopy(variable, 0, header, LOCAL_FILE_HEADER_LENGTH, variable.length);
+        return header;
+    }
+
+    /**
+     * Reads the given number of bytes at the given position, without moving the position of the channel. Can be called from several threads.
+     */
+    static byte[] readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of ZIP archive.");
+            }
+        }
+        return buffer.array();
+    }
+
+    static void transferFully(FileChannel channel, long position, long length, WritableByteChannel output) throws IOException {
+        long remaining = length;
+        while (remaining > 0) {
+            long transferred = channel.transferTo(position, remaining, output);
+            if (transferred <= 0) {
+                throw new IOException("Unexpected end of ZIP archive.");
+            }
+            position += transferred;
+            remaining -= transferred;
+        }
+    }
+
+    static int getMethod(byte[] header) {
+        return getShort(header, 10);
+    }
+
+    static long getCrc(byte[] header) {
+        return getInt(header, 16);
+    }
+
+    static long getCompressedSize(byte[] header) {
+        return getInt(header, 20);
+    }
+
+    static long getSize(byte[] header) {
+        return getInt(header, 24);
+    }
+
+    static long getLocalOffset(byte[] header) {
+        return getInt(header, 42);
+    }
+
+    static void setLocalOffset(byte[] header, long offset) {
+        putInt(header, 42, offset);
+    }
+
+    static byte[] getName(byte[] header) {
+        byte[] name = new byte[getShort(header, 28)];
+        System.arraycopy(header, CENTRAL_FILE_HEADER_LENGTH, name, 0, name.length);
+        return name;
+    }
+
+    static long getInt(byte[] buffer, int offset) {
+        return (buffer[offset] & 0xFFL)
+            | (buffer[offset + 1] & 0xFFL) << 8
+            | (buffer[offset + 2] & 0xFFL) << 16
+            | (buffer[offset + 3] & 0xFFL) << 24;
+    }
+
+    static int getShort(byte[] buffer, int offset) {
+        return (buffer[offset] & 0xFF) | (buffer[offset + 1] & 0xFF) << 8;
+    }
+
+    static void putInt(byte[] buffer, int offset, long value) {
+        buffer[offset] = (byte) value;
+        buffer[offset + 1] = (byte) (value >> 8);
+        buffer[offset + 2] = (byte) (value >> 16);
+        buffer[offset + 3] = (byte) (value >> 24);
+    }
+}
@@ -48,31 +48,55 @@ public class ZipCopyAction implements CopyAction {
     }
 
     public WorkResult execute(final CopyActionProcessingStream stream) {
-        final ZipOutputStream zipOutStr;
-
-        try {
-            zipOutStr = compressor.createArchiveOutputStream(zipFile);
-        } catch (Exception e) {
-            throw new GradleException(String.format("Could not create ZIP '%s'.", zipFile), e);
-        }
-
         try {
-            IoActions.withResource(zipOutStr, new Action<ZipOutputStream>() {
-                public void execute(ZipOutputStream outputStream) {
-                    stream.process(new StreamAction(outputStream));
-                }
-            });
+            writeArchive(stream);
         } catch (UncheckedIOException e) {
             if (e.getCause() instanceof Zip64RequiredException) {
                 throw new org.gradle.api.tasks.bundling.internal.Zip64RequiredException(
                         String.format("%s\n\nTo build this archive, please enable the zip64 extension.\nSee: %s", e.getCause().getMessage(), documentationRegistry.getDslRefForProperty(Zip.class, "zip64"))
                 );
             }
+            throw e;
         }
 
         return new SimpleWorkResult(true);
     }
 
+    /**
+     * Writes the archive. An {@link UncheckedIOException} caused by a {@link Zip64RequiredException} is reported as requiring the zip64 extension.
+     */
+    protected void writeArchive(final CopyActionProcessingStream stream) {
+        ZipOutputStream zipOutStr = createArchiveOutputStream();
+        IoActions.withResource(zipOutStr, new Action<ZipOutputStream>() {
+            public void execute(ZipOutputStream outputStream) {
+                stream.process(new StreamAction(outputStream));
+            }
+        });
+    }
+
+    protected ZipOutputStream createArchiveOutputStream() {
+        try {
+            return compressor.createArchiveOutputStream(zipFile);
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not create ZIP '%s'.", zipFile), e);
+        }
+    }
+
+    static ZipEntry fileEntry(String path, long lastModified, int mode) {
+        ZipEntry archiveEntry = new ZipEntry(path);
+        archiveEntry.setTime(lastModified);
+        archiveEntry.setUnixMode(UnixStat.FILE_FLAG | mode);
+        return archiveEntry;
+    }
+
+    static ZipEntry dirEntry(String path, long lastModified, int mode) {
+        // Trailing slash in name indicates that entry is a directory
+        ZipEntry archiveEntry = new ZipEntry(path + '/');
+        archiveEntry.setTime(lastModified);
+        archiveEntry.setUnixMode(UnixStat.DIR_FLAG | mode);
+        return archiveEntry;
+    }
+
     private class StreamAction implements CopyActionProcessingStreamAction {
         private final ZipOutputStream zipOutStr;
 
@@ -90,9 +114,7 @@ public class ZipCopyAction implements CopyAction {
 
         private void visitFile(FileCopyDetails fileDetails) {
             try {
-                ZipEntry archiveEntry = new ZipEntry(fileDetails.getRelativePath().getPathString());
-                archiveEntry.setTime(fileDetails.getLastModified());
-                archiveEntry.setUnixMode(UnixStat.FILE_FLAG | fileDetails.getMode());
+                ZipEntry archiveEntry = fileEntry(fileDetails.getRelativePath().getPathString(), fileDetails.getLastModified(), fileDetails.getMode());
                 zipOutStr.putNextEntry(archiveEntry);
                 fileDetails.copyTo(zipOutStr);
                 zipOutStr.closeEntry();
@@ -103,10 +125,7 @@ public class ZipCopyAction implements CopyAction {
 
         private void visitDir(FileCopyDetails dirDetails) {
             try {
-                // Trailing slash in name indicates that entry is a directory
-                ZipEntry archiveEntry = new ZipEntry(dirDetails.getRelativePath().getPathString() + '/');
-                archiveEntry.setTime(dirDetails.getLastModified());
-                archiveEntry.setUnixMode(UnixStat.DIR_FLAG | dirDetails.getMode());
+                ZipEntry archiveEntry = dirEntry(dirDetails.getRelativePath().getPathString(), dirDetails.getLastModified(), dirDetails.getMode());
                 zipOutStr.putNextEntry(archiveEntry);
                 zipOutStr.closeEntry();
             } catch (Exception e) {
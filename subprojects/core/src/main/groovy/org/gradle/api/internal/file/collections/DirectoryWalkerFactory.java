@@ -0,0 +1,65 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.file.collections;
+
+import org.gradle.api.JavaVersion;
+import org.gradle.internal.Cast;
+import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.nativeintegration.services.FileSystems;
+import org.gradle.internal.reflect.DirectInstantiator;
+
+/**
+ * Provides the {@link DirectoryWalker} to use in this JVM. On Java 7 and later, directories are walked using NIO, which reads the attributes of
+ * each file only once. Sibling directories are also listed in parallel when the {@value #PARALLEL_WALK_PROPERTY} system property is set to true.
+ */
+public class DirectoryWalkerFactory implements Factory<DirectoryWalker> {
+    public static final String PARALLEL_WALK_PROPERTY = "org.gradle.internal.parallelDirectoryWalk";
+
+    private final JavaVersion javaVersion;
+    private final ClassLoader classLoader;
+    private DirectoryWalker walker;
+
+    public DirectoryWalkerFactory() {
+        this(JavaVersion.current(), DirectoryWalkerFactory.class.getClassLoader());
+    }
+
+    DirectoryWalkerFactory(JavaVersion javaVersion, ClassLoader classLoader) {
+        this.javaVersion = javaVersion;
+        this.classLoader = classLoader;
+    }
+
+    public synchronized DirectoryWalker create() {
+        if (walker == null) {
+            walker = createWalker();
+        }
+        return walker;
+    }
+
+    private DirectoryWalker createWalker() {
+        if (javaVersion.isJava7Compatible()) {
+            try {
+                Class clazz = classLoader.loadClass("org.gradle.api.internal.file.collections.jdk7.Jdk7DirectoryWalker");
+                return Cast.uncheckedCast(DirectInstantiator.instantiate(clazz, FileSystems.getDefault(), Boolean.getBoolean(PARALLEL_WALK_PROPERTY)));
+            } catch (ClassNotFoundException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+        return new DefaultDirectoryWalker(FileSystems.getDefault());
+    }
+}
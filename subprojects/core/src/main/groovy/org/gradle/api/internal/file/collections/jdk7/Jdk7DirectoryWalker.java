@@ -0,0 +1,215 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.file.collections.jdk7;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.file.FileVisitor;
+import org.gradle.api.file.RelativePath;
+import org.gradle.api.internal.file.DefaultFileVisitDetails;
+import org.gradle.api.internal.file.collections.DirectoryWalker;
+import org.gradle.api.specs.Spec;
+import org.gradle.internal.nativeintegration.filesystem.FileSystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Walks a directory using NIO. The attributes of each file are read once, while listing its directory, and the resulting {@link FileVisitDetails}
+ * answer {@link FileVisitDetails#isDirectory()}, {@link FileVisitDetails#getSize()} and {@link FileVisitDetails#getLastModified()} from them.
+ *
+ * <p>When walking in parallel, the child directories of a directory are listed on a fork-join pool while the visitor works through the earlier
+ * ones. The visitor is still called from the walking thread and in the same order as a sequential walk, but it should not change the contents
+ * of the directories being walked.</p>
+ */
+public class Jdk7DirectoryWalker implements DirectoryWalker {
+    private final FileSystem fileSystem;
+    private final ForkJoinPool pool;
+
+    public Jdk7DirectoryWalker(FileSystem fileSystem, boolean walkInParallel) {
+        this.fileSystem = fileSystem;
+        this.pool = walkInParallel ? new ForkJoinPool() : null;
+    }
+
+    public void walkDir(File file, RelativePath path, FileVisitor visitor, Spec<FileTreeElement> spec, AtomicBoolean stopFlag, boolean postfix) {
+        walkDir(new ListDirectory(file), path, visitor, spec, stopFlag, postfix);
+    }
+
+    private void walkDir(ListDirectory listing, RelativePath path, FileVisitor visitor, Spec<FileTreeElement> spec, AtomicBoolean stopFlag, boolean postfix) {
+        List<Entry> children = listing.getChildren();
+        List<FileVisitDetails> dirs = new ArrayList<FileVisitDetails>();
+        for (int i = 0; !stopFlag.get() && i < children.size(); i++) {
+            Entry child = children.get(i);
+            boolean isFile = child.isFile();
+            RelativePath childPath = path.append(isFile, child.file.getName());
+            FileVisitDetails details = child.attributes == null
+                ? new DefaultFileVisitDetails(child.file, childPath, stopFlag, fileSystem, fileSystem)
+                : new AttributeBasedFileVisitDetails(child.file, childPath, stopFlag, fileSystem, child.attributes);
+            if (spec.isSatisfiedBy(details)) {
+                if (isFile) {
+                    visitor.visitFile(details);
+                } else {
+                    dirs.add(details);
+                }
+            }
+        }
+
+        List<ListDirectory> listings = new ArrayList<ListDirectory>(dirs.size());
+        for (FileVisitDetails dir : dirs) {
+            ListDirectory dirListing = new ListDirectory(dir.getFile());
+            if (pool != null && !stopFlag.get()) {
+                dirListing.forked = true;
+                pool.execute(dirListing);
+            }
+            listings.add(dirListing);
+        }
+        try {
+            for (int i = 0; !stopFlag.get() && i < dirs.size(); i++) {
+                FileVisitDetails dir = dirs.get(i);
+                if (postfix) {
+                    walkDir(listings.get(i), dir.getRelativePath(), visitor, spec, stopFlag, postfix);
+                    visitor.visitDir(dir);
+                } else {
+                    visitor.visitDir(dir);
+                    walkDir(listings.get(i), dir.getRelativePath(), visitor, spec, stopFlag, postfix);
+                }
+            }
+        } finally {
+            if (pool != null) {
+                for (ListDirectory dirListing : listings) {
+                    dirListing.cancel(false);
+                }
+            }
+        }
+    }
+
+    private static List<Entry> listDir(File dir) {
+        List<Entry> children = new ArrayList<Entry>();
+        try {
+            DirectoryStream<Path> stream = Files.newDirectoryStream(dir.toPath());
+            try {
+                for (Path child : stream) {
+                    children.add(new Entry(child.toFile(), readAttributes(child)));
+                }
+            } finally {
+                stream.close();
+            }
+        } catch (AccessDeniedException e) {
+            throw new GradleException(String.format("Could not list contents of directory '%s' as it is not readable.", dir), e);
+        } catch (IOException e) {
+            // might be a link which points to nothing, or has been removed while we're visiting, or ...
+            throw new GradleException(String.format("Could not list contents of '%s'.", dir), e);
+        }
+        return children;
+    }
+
+    private static BasicFileAttributes readAttributes(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            // Broken link or removed while we're visiting. Fall back to querying the file
+            return null;
+        }
+    }
+
+    /**
+     * Lists a directory, either when forked on the pool or when the walking thread first asks for the children.
+     */
+    private static class ListDirectory extends RecursiveAction {
+        private final File dir;
+        // Only set by the walking thread
+        private boolean forked;
+        private List<Entry> children;
+        private RuntimeException failure;
+
+        ListDirectory(File dir) {
+            this.dir = dir;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                children = listDir(dir);
+            } catch (RuntimeException e) {
+                // Rethrown as is by the walking thread, rather than wrapped by the pool
+                failure = e;
+            }
+        }
+
+        List<Entry> getChildren() {
+            if (forked) {
+                join();
+            } else {
+                invoke();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return children;
+        }
+    }
+
+    private static class Entry {
+        final File file;
+        final BasicFileAttributes attributes;
+
+        Entry(File file, BasicFileAttributes attributes) {
+            this.file = file;
+            this.attributes = attributes;
+        }
+
+        boolean isFile() {
+            return attributes == null ? file.isFile() : attributes.isRegularFile();
+        }
+    }
+
+    private static class AttributeBasedFileVisitDetails extends DefaultFileVisitDetails {
+        private final BasicFileAttributes attributes;
+
+        AttributeBasedFileVisitDetails(File file, RelativePath relativePath, AtomicBoolean stop, FileSystem fileSystem, BasicFileAttributes attributes) {
+            super(file, relativePath, stop, fileSystem, fileSystem);
+            this.attributes = attributes;
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return attributes.isDirectory();
+        }
+
+        @Override
+        public long getSize() {
+            return attributes.size();
+        }
+
+        @Override
+        public long getLastModified() {
+            return attributes.lastModifiedTime().toMillis();
+        }
+    }
+}
@@ -20,7 +20,13 @@ import org.gradle.internal.hash.HashUtil;
 import java.io.File;
 
 public class DefaultHasher implements Hasher {
+    public static final String ALGORITHM = "MD5";
+
     public byte[] hash(File file) {
-        return HashUtil.createHash(file, "MD5").asByteArray();
+        return HashUtil.createHash(file, ALGORITHM).asByteArray();
+    }
+
+    public String getAlgorithm() {
+        return ALGORITHM;
     }
-}
\ No newline at end of file
+}
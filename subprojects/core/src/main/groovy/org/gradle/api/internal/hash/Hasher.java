@@ -19,4 +19,9 @@ import java.io.File;
 
 public interface Hasher {
     byte[] hash(File file);
+
+    /**
+     * Returns the name of the algorithm used to calculate hashes. Hashes calculated by hashers with different algorithms are not comparable.
+     */
+    String getAlgorithm();
 }
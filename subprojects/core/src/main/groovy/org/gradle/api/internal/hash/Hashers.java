@@ -0,0 +1,43 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.hash;
+
+public abstract class Hashers {
+    /**
+     * The system property used to select the algorithm used to hash the content of task input and output files.
+     */
+    public static final String FILE_HASH_ALGORITHM_PROPERTY = "org.gradle.internal.filehash.algorithm";
+
+    /**
+     * Creates the hasher to use for task input and output files, as selected by the {@link #FILE_HASH_ALGORITHM_PROPERTY} system property.
+     */
+    public static Hasher createFileHasher() {
+        return forAlgorithm(System.getProperty(FILE_HASH_ALGORITHM_PROPERTY, DefaultHasher.ALGORITHM));
+    }
+
+    /**
+     * Creates a hasher for the given algorithm. Supports {@value Murmur3Hasher#ALGORITHM} and any {@link java.security.MessageDigest} algorithm.
+     */
+    public static Hasher forAlgorithm(String algorithm) {
+        if (algorithm.equalsIgnoreCase(DefaultHasher.ALGORITHM)) {
+            return new DefaultHasher();
+        }
+        if (algorithm.equalsIgnoreCase(Murmur3Hasher.ALGORITHM)) {
+            return new Murmur3Hasher();
+        }
+        return new MessageDigestHasher(algorithm.toUpperCase());
+    }
+}
@@ -18,8 +18,10 @@ package org.gradle.api.tasks.bundling;
 import org.apache.tools.zip.ZipOutputStream;
 import org.gradle.api.Incubating;
 import org.gradle.api.internal.DocumentationRegistry;
+import org.gradle.api.internal.file.archive.ParallelZipCopyAction;
 import org.gradle.api.internal.file.archive.ZipCopyAction;
 import org.gradle.api.internal.file.copy.*;
+import org.gradle.internal.operations.BuildOperationProcessor;
 
 /**
  * Assembles a ZIP archive.
@@ -50,6 +52,11 @@ public class Zip extends AbstractArchiveTask {
     @Override
     protected CopyAction createCopyAction() {
         DocumentationRegistry documentationRegistry = getServices().get(DocumentationRegistry.class);
+        boolean reusePreviousEntries = Boolean.getBoolean(ParallelZipCopyAction.REUSE_PREVIOUS_ENTRIES_PROPERTY);
+        if (entryCompression == ZipEntryCompression.DEFLATED && (reusePreviousEntries || Boolean.getBoolean(ParallelZipCopyAction.PARALLEL_COMPRESSION_PROPERTY))) {
+            BuildOperationProcessor buildOperationProcessor = getServices().get(BuildOperationProcessor.class);
+            return new ParallelZipCopyAction(getArchivePath(), getCompressor(), documentationRegistry, buildOperationProcessor, reusePreviousEntries);
+        }
         return new ZipCopyAction(getArchivePath(), getCompressor(), documentationRegistry);
     }
 
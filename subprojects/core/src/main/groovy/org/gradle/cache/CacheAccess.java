@@ -37,6 +37,19 @@ public interface CacheAccess {
      */
     void useCache(String operationDisplayName, Runnable action);
 
+    /**
+     * Performs some work that only reads from the cache. Acquires the same cross-process locks as {@link #useCache(String, org.gradle.internal.Factory)}, but
+     * allows other read-only actions in this process to run at the same time. Actions that update the cache wait until all readers have finished, and readers
+     * wait for any such action to finish.
+     *
+     * <p>This method is re-entrant, so that an action can call back into this method. An action run by this method must not call
+     * {@link #useCache(String, org.gradle.internal.Factory)}. An action run by {@link #useCache(String, org.gradle.internal.Factory)} can call this method.</p>
+     *
+     * <p>The action must not have side effects. An indexed cache can only be opened, or recovered from corruption, by an action that updates the cache.
+     * When the action needs to do this, it is abandoned and run again as if by {@link #useCache(String, org.gradle.internal.Factory)}.</p>
+     */
+    <T> T readCache(String operationDisplayName, Factory<? extends T> action);
+
     /**
      * Performs some long running operation within an action invoked by {@link #useCache(String, org.gradle.internal.Factory)}. Releases all
      * locks while the operation is running, and reacquires the locks at the end of the long running operation.
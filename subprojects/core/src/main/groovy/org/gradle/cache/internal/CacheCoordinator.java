@@ -32,4 +32,9 @@ public interface CacheCoordinator extends CacheAccess, Closeable {
     void close();
 
     <K, V> PersistentIndexedCache<K, V> newCache(PersistentIndexedCacheParameters<K, V> parameters);
+
+    /**
+     * Returns the total time, in nanoseconds, that threads in this process have spent waiting for other threads to finish using this cache.
+     */
+    long getLockWaitTime();
 }
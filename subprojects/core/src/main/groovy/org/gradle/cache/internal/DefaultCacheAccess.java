@@ -15,6 +15,8 @@
  */
 package org.gradle.cache.internal;
 
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
 import net.jcip.annotations.ThreadSafe;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
@@ -44,6 +46,12 @@ public class DefaultCacheAccess implements CacheCoordinator {
 
     private final static Logger LOG = Logging.getLogger(DefaultCacheAccess.class);
 
+    /**
+     * The number of updates an indexed cache batches up before writing them to its file. All pending updates are written when the caches are closed,
+     * which happens before the file lock is released.
+     */
+    private static final int MAX_PENDING_CACHE_UPDATES = 256;
+
     private final String cacheDisplayName;
     private final File lockTarget;
     private final File baseDir;
@@ -54,6 +62,9 @@ public class DefaultCacheAccess implements CacheCoordinator {
     private final Lock lock = new ReentrantLock();
     private final Condition condition = lock.newCondition();
     private Thread owner;
+    private final Multiset<Thread> readers = HashMultiset.create();
+    private int waitingWriters;
+    private long lockWaitTime;
     private LockOptions lockOptions;
     private FileLock fileLock;
     private FileLock.State stateAtOpen;
@@ -158,6 +169,9 @@ public class DefaultCacheAccess implements CacheCoordinator {
                 // TODO:ADAM - The check for shared mode is a work around. Owner should release the lock
                 throw new IllegalStateException(String.format("Cannot close %s as it is currently being used by another thread.", cacheDisplayName));
             }
+            if (!readers.isEmpty()) {
+                throw new IllegalStateException(String.format("Cannot close %s as it is currently being read by another thread.", cacheDisplayName));
+            }
             if (fileLock != null) {
                 closeFileLock();
             }
@@ -206,23 +220,135 @@ public class DefaultCacheAccess implements CacheCoordinator {
         }
     }
 
-    private void takeOwnership(String operationDisplayName) {
+    public <T> T readCache(String operationDisplayName, Factory<? extends T> action) {
+        if (lockOptions != null && lockOptions.getMode() == FileLockManager.LockMode.Shared) {
+            throw new UnsupportedOperationException("Not implemented yet.");
+        }
+
+        boolean reading = false;
+        boolean outermostRead = false;
         lock.lock();
         try {
-            while (owner != null && owner != Thread.currentThread()) {
+            if (owner != Thread.currentThread()) {
+                outermostRead = !readers.contains(Thread.currentThread());
+                startReading(operationDisplayName);
+                reading = true;
+                onStartWork();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (!reading) {
+            // This thread is already updating the cache
+            return useCache(operationDisplayName, action);
+        }
+        try {
+            return action.create();
+        } catch (UpdateRequiredException e) {
+            if (!outermostRead) {
+                throw e;
+            }
+        } finally {
+            lock.lock();
+            try {
+                finishReading();
+            } finally {
+                lock.unlock();
+            }
+        }
+        // The action needs to open or recover a cache, which can only be done with exclusive access
+        return useCache(operationDisplayName, action);
+    }
+
+    private void startReading(String operationDisplayName) {
+        Thread currentThread = Thread.currentThread();
+        if (!readers.contains(currentThread)) {
+            // Let any waiting writer go first, so that a steady stream of readers cannot hold off writers forever
+            long start = 0;
+            while (owner != null || waitingWriters > 0) {
+                if (start == 0) {
+                    start = System.nanoTime();
+                }
+                awaitCondition();
+            }
+            if (start != 0) {
+                lockWaitTime += System.nanoTime() - start;
+            }
+        }
+        readers.add(currentThread);
+        operations.pushCacheAction(operationDisplayName);
+    }
+
+    private void finishReading() {
+        try {
+            operations.popCacheAction();
+            readers.remove(Thread.currentThread());
+            if (readers.isEmpty() && owner == null) {
+                // Last one out, so release the file lock if another process wants it. The caches write to their files when closed, so do this as
+                // the owner
+                owner = Thread.currentThread();
                 try {
-                    condition.await();
-                } catch (InterruptedException e) {
-                    throw UncheckedException.throwAsUncheckedException(e);
+                    onEndWork();
+                } finally {
+                    owner = null;
                 }
             }
-            owner = Thread.currentThread();
+        } finally {
+            if (readers.isEmpty()) {
+                condition.signalAll();
+            }
+        }
+    }
+
+    private void takeOwnership(String operationDisplayName) {
+        lock.lock();
+        try {
+            Thread currentThread = Thread.currentThread();
+            if (readers.contains(currentThread)) {
+                throw new IllegalStateException(String.format("Cannot update %s while reading from it.", cacheDisplayName));
+            }
+            awaitExclusiveAccess(currentThread);
+            owner = currentThread;
             operations.pushCacheAction(operationDisplayName);
         } finally {
             lock.unlock();
         }
     }
 
+    private void awaitExclusiveAccess(Thread currentThread) {
+        if ((owner == null || owner == currentThread) && readers.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        waitingWriters++;
+        try {
+            while ((owner != null && owner != currentThread) || !readers.isEmpty()) {
+                awaitCondition();
+            }
+        } finally {
+            waitingWriters--;
+            lockWaitTime += System.nanoTime() - start;
+            condition.signalAll();
+        }
+    }
+
+    private void awaitCondition() {
+        try {
+            condition.await();
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    public long getLockWaitTime() {
+        lock.lock();
+        try {
+            return lockWaitTime;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     private void releaseOwnership() {
         lock.lock();
         try {
@@ -296,13 +422,7 @@ public class DefaultCacheAccess implements CacheCoordinator {
     private void restoreOwner() {
         lock.lock();
         try {
-            while (owner != null) {
-                try {
-                    condition.await();
-                } catch (InterruptedException e) {
-                    throw UncheckedException.throwAsUncheckedException(e);
-                }
-            }
+            awaitExclusiveAccess(null);
             owner = Thread.currentThread();
         } finally {
             lock.unlock();
@@ -339,7 +459,7 @@ public class DefaultCacheAccess implements CacheCoordinator {
     }
 
     <K, V> BTreePersistentIndexedCache<K, V> doCreateCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
-        return new BTreePersistentIndexedCache<K, V>(cacheFile, keySerializer, valueSerializer);
+        return new BTreePersistentIndexedCache<K, V>(cacheFile, keySerializer, valueSerializer, MAX_PENDING_CACHE_UPDATES);
     }
 
     private boolean onStartWork() {
@@ -377,7 +497,7 @@ public class DefaultCacheAccess implements CacheCoordinator {
     private FileLock getLock() {
         lock.lock();
         try {
-            if (Thread.currentThread() != owner) {
+            if (Thread.currentThread() != owner && !readers.contains(Thread.currentThread())) {
                 throw new IllegalStateException(String.format("The %s has not been locked for this thread. File lock: %s, owner: %s", cacheDisplayName, fileLock != null, owner));
             }
         } finally {
@@ -386,6 +506,19 @@ public class DefaultCacheAccess implements CacheCoordinator {
         return fileLock;
     }
 
+    private FileLock getLockForUpdate() {
+        lock.lock();
+        try {
+            if (Thread.currentThread() != owner && readers.contains(Thread.currentThread())) {
+                // Readers only read the files of the caches, as other threads may be reading the same files
+                throw new UpdateRequiredException(String.format("Cannot update %s while reading from it.", cacheDisplayName));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return getLock();
+    }
+
     private class UnitOfWorkFileAccess extends AbstractFileAccess {
         @Override
         public String toString() {
@@ -397,11 +530,21 @@ public class DefaultCacheAccess implements CacheCoordinator {
         }
 
         public void updateFile(Runnable action) throws LockTimeoutException {
-            getLock().updateFile(action);
+            getLockForUpdate().updateFile(action);
         }
 
         public void writeFile(Runnable action) throws LockTimeoutException {
-            getLock().writeFile(action);
+            getLockForUpdate().writeFile(action);
+        }
+    }
+
+    /**
+     * Thrown when a read action attempts to change a file of the cache, for example to open or recover an indexed cache. The read action is then
+     * run again as an update.
+     */
+    private static class UpdateRequiredException extends IllegalStateException {
+        UpdateRequiredException(String message) {
+            super(message);
         }
     }
 
@@ -415,7 +558,7 @@ public class DefaultCacheAccess implements CacheCoordinator {
                         //the lock may have been closed
                         return;
                     }
-                    if (owner != null) {
+                    if (owner != null || !readers.isEmpty()) {
                         contended = true;
                         return;
                     }
@@ -21,16 +21,22 @@ import org.gradle.cache.internal.filelock.LockOptions;
 import org.gradle.internal.Factory;
 import org.gradle.internal.concurrent.CompositeStoppable;
 import org.gradle.internal.serialize.Serializer;
+import org.gradle.profile.BuildProfile;
+import org.gradle.profile.ProfileStatisticsContributor;
+import org.gradle.util.Clock;
 import org.gradle.util.GFileUtils;
 
 import java.io.Closeable;
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
-public class DefaultCacheFactory implements CacheFactory, Closeable {
+public class DefaultCacheFactory implements CacheFactory, Closeable, ProfileStatisticsContributor {
     private final Map<File, DirCacheReference> dirCaches = new HashMap<File, DirCacheReference>();
+    // Lock wait time that has not been reported yet, for caches that have been closed
+    private final Map<String, Long> unreportedLockWaitTimes = new TreeMap<String, Long>();
     private final FileLockManager lockManager;
     private final Lock lock = new ReentrantLock();
 
@@ -72,6 +78,30 @@ public class DefaultCacheFactory implements CacheFactory, Closeable {
         }
     }
 
+    public void contributeTo(BuildProfile buildProfile) {
+        Map<String, Long> lockWaitTimes;
+        lock.lock();
+        try {
+            lockWaitTimes = new TreeMap<String, Long>(unreportedLockWaitTimes);
+            unreportedLockWaitTimes.clear();
+            for (DirCacheReference reference : dirCaches.values()) {
+                addLockWaitTime(lockWaitTimes, reference.cache.toString(), reference.takeUnreportedLockWaitTime());
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (Map.Entry<String, Long> entry : lockWaitTimes.entrySet()) {
+            if (entry.getValue() > 0) {
+                buildProfile.addStatistic("Cache lock wait time", entry.getKey(), Clock.prettyTime(TimeUnit.NANOSECONDS.toMillis(entry.getValue())));
+            }
+        }
+    }
+
+    private static void addLockWaitTime(Map<String, Long> lockWaitTimes, String displayName, long waitTime) {
+        Long previous = lockWaitTimes.get(displayName);
+        lockWaitTimes.put(displayName, previous == null ? waitTime : previous + waitTime);
+    }
+
     private PersistentCache doOpen(File cacheDir, String displayName, CacheValidator validator, Map<String, ?> properties, LockOptions lockOptions, Action<? super PersistentCache> action) {
         File canonicalDir = GFileUtils.canonicalise(cacheDir);
         DirCacheReference dirCacheReference = dirCaches.get(canonicalDir);
@@ -111,6 +141,7 @@ public class DefaultCacheFactory implements CacheFactory, Closeable {
         private final LockOptions lockOptions;
         private final ReferencablePersistentCache cache;
         private final Set<ReferenceTrackingCache> references = new HashSet<ReferenceTrackingCache>();
+        private long reportedLockWaitTime;
 
         public DirCacheReference(ReferencablePersistentCache cache, Map<String, ?> properties, LockOptions lockOptions) {
             this.cache = cache;
@@ -134,10 +165,18 @@ public class DefaultCacheFactory implements CacheFactory, Closeable {
             }
         }
 
+        public long takeUnreportedLockWaitTime() {
+            long lockWaitTime = cache.getLockWaitTime();
+            long unreported = lockWaitTime - reportedLockWaitTime;
+            reportedLockWaitTime = lockWaitTime;
+            return unreported;
+        }
+
         public void close() {
             onClose(cache);
             dirCaches.values().remove(this);
             references.clear();
+            addLockWaitTime(unreportedLockWaitTimes, cache.toString(), takeUnreportedLockWaitTime());
             cache.close();
         }
     }
@@ -186,5 +225,9 @@ public class DefaultCacheFactory implements CacheFactory, Closeable {
         public void useCache(String operationDisplayName, Runnable action) {
             reference.cache.useCache(operationDisplayName, action);
         }
+
+        public <T> T readCache(String operationDisplayName, Factory<? extends T> action) {
+            return reference.cache.readCache(operationDisplayName, action);
+        }
     }
 }
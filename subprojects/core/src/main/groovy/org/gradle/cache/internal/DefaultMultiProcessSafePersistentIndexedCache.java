@@ -15,10 +15,14 @@
  */
 package org.gradle.cache.internal;
 
-import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
+import org.gradle.cache.internal.btree.CorruptedCacheException;
 import org.gradle.internal.Factory;
 
+/**
+ * The methods of this class are synchronized, as several threads may read from the cache at the same time. See {@link org.gradle.cache.CacheAccess#readCache}.
+ * Looking up an entry only reads the file. Opening the cache and discarding a corrupt file write to it, which is only allowed while the cache is being updated.
+ */
 public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements MultiProcessSafePersistentIndexedCache<K, V> {
     private final FileAccess fileAccess;
     private final Factory<BTreePersistentIndexedCache<K, V>> factory;
@@ -29,21 +33,29 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
         this.fileAccess = fileAccess;
     }
 
-    public V get(final K key) {
-        final PersistentIndexedCache<K, V> cache = getCache();
+    public synchronized V get(final K key) {
+        final BTreePersistentIndexedCache<K, V> cache = getCache();
         try {
             return fileAccess.readFile(new Factory<V>() {
                 public V create() {
-                    return cache.get(key);
+                    return cache.getWithoutRecovery(key);
                 }
             });
         } catch (FileIntegrityViolationException e) {
             return null;
+        } catch (CorruptedCacheException e) {
+            // get() discards the file when it is corrupt
+            fileAccess.writeFile(new Runnable() {
+                public void run() {
+                    cache.get(key);
+                }
+            });
+            return null;
         }
     }
 
-    public void put(final K key, final V value) {
-        final PersistentIndexedCache<K, V> cache = getCache();
+    public synchronized void put(final K key, final V value) {
+        final BTreePersistentIndexedCache<K, V> cache = getCache();
         // Use writeFile because the cache can internally recover from datafile
         // corruption, so we don't care at this level if it's corrupt
         fileAccess.writeFile(new Runnable() {
@@ -53,8 +65,8 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
         });
     }
 
-    public void remove(final K key) {
-        final PersistentIndexedCache<K, V> cache = getCache();
+    public synchronized void remove(final K key) {
+        final BTreePersistentIndexedCache<K, V> cache = getCache();
         // Use writeFile because the cache can internally recover from datafile
         // corruption, so we don't care at this level if it's corrupt
         fileAccess.writeFile(new Runnable() {
@@ -70,7 +82,7 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
     public void onEndWork(FileLock.State currentCacheState) {
     }
 
-    public void close() {
+    public synchronized void close() {
         if (cache != null) {
             try {
                 fileAccess.writeFile(new Runnable() {
@@ -84,7 +96,7 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
         }
     }
 
-    private PersistentIndexedCache<K, V> getCache() {
+    private BTreePersistentIndexedCache<K, V> getCache() {
         if (cache == null) {
             // Use writeFile because the cache can internally recover from datafile
             // corruption, so we don't care at this level if it's corrupt
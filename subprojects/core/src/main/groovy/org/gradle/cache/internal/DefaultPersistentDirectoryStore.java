@@ -81,6 +81,10 @@ public class DefaultPersistentDirectoryStore implements ReferencablePersistentCa
         }
     }
 
+    public long getLockWaitTime() {
+        return cacheAccess == null ? 0 : cacheAccess.getLockWaitTime();
+    }
+
     public File getBaseDir() {
         return dir;
     }
@@ -106,6 +110,10 @@ public class DefaultPersistentDirectoryStore implements ReferencablePersistentCa
         cacheAccess.useCache(operationDisplayName, action);
     }
 
+    public <T> T readCache(String operationDisplayName, Factory<? extends T> action) {
+        return cacheAccess.readCache(operationDisplayName, action);
+    }
+
     public <T> T longRunningOperation(String operationDisplayName, Factory<? extends T> action) {
         return cacheAccess.longRunningOperation(operationDisplayName, action);
     }
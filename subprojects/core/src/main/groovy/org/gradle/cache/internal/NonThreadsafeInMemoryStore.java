@@ -41,6 +41,11 @@ public class NonThreadsafeInMemoryStore implements PersistentStore {
         action.run();
     }
 
+    @Override
+    public <T> T readCache(String operationDisplayName, Factory<? extends T> action) {
+        return action.create();
+    }
+
     @Override
     public <T> T longRunningOperation(String operationDisplayName, Factory<? extends T> action) {
         return action.create();
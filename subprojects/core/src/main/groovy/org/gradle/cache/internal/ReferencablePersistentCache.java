@@ -25,4 +25,9 @@ public interface ReferencablePersistentCache extends PersistentCache, Closeable
     void close();
 
     ReferencablePersistentCache open();
+
+    /**
+     * Returns the total time, in nanoseconds, that threads in this process have spent waiting for other threads to finish using this cache.
+     */
+    long getLockWaitTime();
 }
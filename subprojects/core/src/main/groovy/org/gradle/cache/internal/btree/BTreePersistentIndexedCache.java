@@ -48,20 +48,36 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
     private final Serializer<V> serializer;
     private final short maxChildIndexEntries;
     private final int minIndexChildNodes;
+    private final int maxPendingUpdates;
     private final StateCheckBlockStore store;
     private HeaderBlock header;
+    private int pendingUpdates;
 
     public BTreePersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
-        this(cacheFile, keySerializer, valueSerializer, (short) 512, 512);
+        this(cacheFile, keySerializer, valueSerializer, 1);
+    }
+
+    /**
+     * Creates a cache that writes its changes to the file in batches. Changes are written once the given number of updates are pending, or when the
+     * cache is closed. Pending changes are visible to readers of this cache, but not to other readers of the file.
+     */
+    public BTreePersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer, int maxPendingUpdates) {
+        this(cacheFile, keySerializer, valueSerializer, (short) 512, 512, maxPendingUpdates);
     }
 
     public BTreePersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer,
                                        short maxChildIndexEntries, int maxFreeListEntries) {
+        this(cacheFile, keySerializer, valueSerializer, maxChildIndexEntries, maxFreeListEntries, 1);
+    }
+
+    public BTreePersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer,
+                                       short maxChildIndexEntries, int maxFreeListEntries, int maxPendingUpdates) {
         this.cacheFile = cacheFile;
         this.keySerializer = keySerializer;
         this.serializer = valueSerializer;
         this.maxChildIndexEntries = maxChildIndexEntries;
         this.minIndexChildNodes = maxChildIndexEntries / 2;
+        this.maxPendingUpdates = maxPendingUpdates;
         BlockStore cachingStore = new CachingBlockStore(new FileBackedBlockStore(cacheFile), IndexBlock.class, FreeListBlockStore.FreeListBlock.class);
         store = new StateCheckBlockStore(new FreeListBlockStore(cachingStore, maxFreeListEntries));
         try {
@@ -116,11 +132,7 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
     public V get(K key) {
         try {
             try {
-                DataBlock block = header.getRoot().get(key);
-                if (block != null) {
-                    return block.getValue();
-                }
-                return null;
+                return doGet(key);
             } catch (CorruptedCacheException e) {
                 rebuild();
                 return null;
@@ -130,6 +142,29 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         }
     }
 
+    /**
+     * Same as {@link #get(Object)}, except that it does not discard the file when it is corrupt, so that it only reads from the file.
+     *
+     * @throws CorruptedCacheException when the file is corrupt.
+     */
+    public V getWithoutRecovery(K key) throws CorruptedCacheException {
+        try {
+            return doGet(key);
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not read entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    private V doGet(K key) throws Exception {
+        DataBlock block = header.getRoot().get(key);
+        if (block != null) {
+            return block.getValue();
+        }
+        return null;
+    }
+
     public void put(K key, V value) {
         try {
             MessageDigestStream digestStream = new MessageDigestStream();
@@ -151,7 +186,7 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
                 store.write(block);
                 lookup.indexBlock.put(hashCode, block.getPos());
             }
-            store.flush();
+            updated();
         } catch (Exception e) {
             throw new UncheckedIOException(String.format("Could not add entry '%s' to %s.", key, this), e);
         }
@@ -166,12 +201,20 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
             lookup.indexBlock.remove(lookup.entry);
             DataBlock block = store.read(lookup.entry.dataBlock, DataBlock.class);
             store.remove(block);
-            store.flush();
+            updated();
         } catch (Exception e) {
             throw new UncheckedIOException(String.format("Could not remove entry '%s' from %s.", key, this), e);
         }
     }
 
+    private void updated() {
+        pendingUpdates++;
+        if (pendingUpdates >= maxPendingUpdates) {
+            store.flush();
+            pendingUpdates = 0;
+        }
+    }
+
     private IndexBlock load(BlockPointer pos, IndexRoot root, IndexBlock parent, int index) {
         IndexBlock block = store.read(pos, IndexBlock.class);
         block.root = root;
@@ -191,6 +234,7 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
 
     public void close() {
         LOGGER.debug("Closing {}", this);
+        pendingUpdates = 0;
         try {
             store.close();
         } catch (Exception e) {
@@ -15,7 +15,7 @@
  */
 package org.gradle.cache.internal.btree;
 
-class CorruptedCacheException extends RuntimeException {
+public class CorruptedCacheException extends RuntimeException {
     CorruptedCacheException(String message) {
         super(message);
     }
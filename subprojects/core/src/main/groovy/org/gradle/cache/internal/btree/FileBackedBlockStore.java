@@ -16,15 +16,27 @@
 package org.gradle.cache.internal.btree;
 
 import org.gradle.api.UncheckedIOException;
-import org.gradle.internal.io.RandomAccessFileInputStream;
 import org.gradle.internal.io.RandomAccessFileOutputStream;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.zip.CRC32;
 
+/**
+ * Stores blocks in a file. Blocks are read through a bounded cache of fixed size pages of the file, which are read using positional reads.
+ * This means that reading a block does not change the position of the file, so blocks can be read concurrently, and neighbouring blocks
+ * can be read without going back to the file. Writes go straight to the file and discard any cached pages that they overlap.
+ */
 public class FileBackedBlockStore implements BlockStore {
+    static final int PAGE_SIZE = 8192;
+    private static final int MAX_CACHED_PAGES = 64;
+
     private RandomAccessFile file;
     private final File cacheFile;
+    private final PageCache pageCache = new PageCache();
     private long nextBlock;
     private Factory factory;
 
@@ -52,6 +64,7 @@ public class FileBackedBlockStore implements BlockStore {
     }
 
     public void close() {
+        pageCache.clear();
         try {
             file.close();
         } catch (IOException e) {
@@ -60,6 +73,7 @@ public class FileBackedBlockStore implements BlockStore {
     }
 
     public void clear() {
+        pageCache.clear();
         try {
             file.setLength(0);
         } catch (IOException e) {
@@ -171,6 +185,7 @@ public class FileBackedBlockStore implements BlockStore {
 
         public void write() throws Exception {
             long pos = getPos().getPos();
+            long lengthBefore = file.length();
             file.seek(pos);
 
             Crc32OutputStream checkSumOutputStream = new Crc32OutputStream(new BufferedOutputStream(
@@ -196,18 +211,20 @@ public class FileBackedBlockStore implements BlockStore {
             if (file.length() < finalSize) {
                 file.setLength(finalSize);
             }
+
+            // Discard the pages that have changed, including the last page of the file when the file has grown
+            pageCache.discard(Math.min(pos, lengthBefore), finalSize);
         }
 
         public void read() throws Exception {
             long pos = getPos().getPos();
             assert pos >= 0;
-            if (pos + HEADER_SIZE >= file.length()) {
+            long fileLength = file.length();
+            if (pos + HEADER_SIZE >= fileLength) {
                 throw blockCorruptedException();
             }
-            file.seek(pos);
 
-            Crc32InputStream checkSumInputStream = new Crc32InputStream(new BufferedInputStream(
-                    new RandomAccessFileInputStream(file)));
+            Crc32InputStream checkSumInputStream = new Crc32InputStream(new PageCacheInputStream(pos, fileLength));
             DataInputStream inputStream = new DataInputStream(checkSumInputStream);
 
             BlockPayload payload = getPayload();
@@ -224,7 +241,7 @@ public class FileBackedBlockStore implements BlockStore {
 
             // Read body
             payloadSize = inputStream.readInt();
-            if (pos + HEADER_SIZE + TAIL_SIZE + payloadSize > file.length()) {
+            if (pos + HEADER_SIZE + TAIL_SIZE + payloadSize > fileLength) {
                 throw blockCorruptedException();
             }
             payload.read(inputStream);
@@ -244,6 +261,99 @@ public class FileBackedBlockStore implements BlockStore {
         }
     }
 
+    private static class Page {
+        private final byte[] data;
+        private final int length;
+
+        private Page(byte[] data, int length) {
+            this.data = data;
+            this.length = length;
+        }
+    }
+
+    private class PageCache {
+        private final Map<Long, Page> pages = new LinkedHashMap<Long, Page>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Page> eldest) {
+                return size() > MAX_CACHED_PAGES;
+            }
+        };
+
+        public Page get(long pageIndex) throws IOException {
+            synchronized (pages) {
+                Page page = pages.get(pageIndex);
+                if (page != null) {
+                    return page;
+                }
+            }
+            Page page = load(pageIndex);
+            synchronized (pages) {
+                pages.put(pageIndex, page);
+            }
+            return page;
+        }
+
+        private Page load(long pageIndex) throws IOException {
+            FileChannel channel = file.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
+            long position = pageIndex * PAGE_SIZE;
+            while (buffer.hasRemaining()) {
+                int count = channel.read(buffer, position + buffer.position());
+                if (count < 0) {
+                    break;
+                }
+            }
+            return new Page(buffer.array(), buffer.position());
+        }
+
+        public void discard(long start, long end) {
+            synchronized (pages) {
+                for (long pageIndex = start / PAGE_SIZE; pageIndex * PAGE_SIZE < end; pageIndex++) {
+                    pages.remove(pageIndex);
+                }
+            }
+        }
+
+        public void clear() {
+            synchronized (pages) {
+                pages.clear();
+            }
+        }
+    }
+
+    private class PageCacheInputStream extends InputStream {
+        private final long limit;
+        private long position;
+
+        private PageCacheInputStream(long position, long limit) {
+            this.position = position;
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] buffer = new byte[1];
+            int count = read(buffer, 0, 1);
+            return count < 0 ? -1 : buffer[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int max) throws IOException {
+            if (position >= limit) {
+                return -1;
+            }
+            Page page = pageCache.get(position / PAGE_SIZE);
+            int pageOffset = (int) (position % PAGE_SIZE);
+            int count = (int) Math.min(Math.min(max, page.length - pageOffset), limit - position);
+            if (count <= 0) {
+                return -1;
+            }
+            System.arraycopy(page.data, pageOffset, bytes, offset, count);
+            position += count;
+            return count;
+        }
+    }
+
     private static class Crc32InputStream extends FilterInputStream {
         private final CRC32 checksum;
 
@@ -18,7 +18,6 @@ package org.gradle.execution.taskgraph;
 
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
-import com.google.common.base.StandardSystemProperty;
 import com.google.common.collect.*;
 import org.gradle.api.*;
 import org.gradle.api.internal.TaskInternal;
@@ -40,13 +39,16 @@ import org.gradle.internal.graph.DirectedGraph;
 import org.gradle.internal.graph.DirectedGraphRenderer;
 import org.gradle.internal.graph.GraphNodeRenderer;
 import org.gradle.logging.StyledTextOutput;
+import org.gradle.profile.BuildProfile;
+import org.gradle.profile.ProfileStatisticsContributor;
+import org.gradle.util.Clock;
 import org.gradle.util.CollectionUtils;
-import org.gradle.util.TextUtil;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -54,20 +56,24 @@ import java.util.concurrent.locks.ReentrantLock;
 /**
  * A reusable implementation of TaskExecutionPlan. The {@link #addToTaskGraph(java.util.Collection)} and {@link #clear()} methods are NOT threadsafe, and callers must synchronize access to these
  * methods.
+ * <p>
+ * During execution, a {@link ReadyTaskQueue} keeps track of the tasks whose dependencies are complete, so that handing out the next task does not
+ * require scanning the whole plan. Workers are woken up only when there are tasks for them to execute.
  */
-public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
+public class DefaultTaskExecutionPlan implements TaskExecutionPlan, ProfileStatisticsContributor {
 
     public static final String INTRA_PROJECT_TOGGLE = "org.gradle.parallel.intra";
 
     private final static Logger LOGGER = Logging.getLogger(DefaultTaskExecutionPlan.class);
 
     private final Lock lock = new ReentrantLock();
-    private final Condition condition = lock.newCondition();
+    private final Condition taskAvailable = lock.newCondition();
+    private final Condition allTasksCompleted = lock.newCondition();
     private final Set<TaskInfo> tasksInUnknownState = new LinkedHashSet<TaskInfo>();
     private final Set<TaskInfo> entryTasks = new LinkedHashSet<TaskInfo>();
     private final TaskDependencyGraph graph = new TaskDependencyGraph();
     private final LinkedHashMap<Task, TaskInfo> executionPlan = new LinkedHashMap<Task, TaskInfo>();
-    private final List<TaskInfo> executionQueue = new LinkedList<TaskInfo>();
+    private final ReadyTaskQueue readyQueue = new ReadyTaskQueue();
     private final List<Throwable> failures = new ArrayList<Throwable>();
     private Spec<? super Task> filter = Specs.satisfyAll();
 
@@ -75,10 +81,17 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     private final BuildCancellationToken cancellationToken;
     private final Multiset<String> projectsWithRunningTasks = HashMultiset.create();
     private final Multiset<String> projectsWithRunningNonParallelizableTasks = HashMultiset.create();
-    private final Set<TaskInternal> runningTasks = Sets.newIdentityHashSet();
     private final Map<Task, Set<String>> canonicalizedOutputCache = Maps.newIdentityHashMap();
+    private final Set<TaskInternal> tasksWithOutputsBeingResolved = Sets.newIdentityHashSet();
+    private final OutputPathIndex runningTaskOutputs = new OutputPathIndex();
     private final Map<Task, Boolean> isParallelSafeCache = Maps.newIdentityHashMap();
     private boolean tasksCancelled;
+    private int waitingWorkers;
+
+    private long lockAcquisitions;
+    private long contendedLockAcquisitions;
+    private long lockWaitTime;
+    private long taskWaitTime;
 
     private final boolean intraProjectParallelization;
 
@@ -313,8 +326,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
                 }
             }
         }
-        executionQueue.clear();
-        executionQueue.addAll(executionPlan.values());
+        readyQueue.initialize(executionPlan.values());
     }
 
     private void maybeRemoveProcessedShouldRunAfterEdge(Stack<GraphEdge> walkedShouldRunAfterEdges, TaskInfo taskNode) {
@@ -435,13 +447,14 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             graph.clear();
             entryTasks.clear();
             executionPlan.clear();
-            executionQueue.clear();
+            readyQueue.clear();
             failures.clear();
             projectsWithRunningTasks.clear();
             projectsWithRunningNonParallelizableTasks.clear();
             canonicalizedOutputCache.clear();
+            tasksWithOutputsBeingResolved.clear();
             isParallelSafeCache.clear();
-            runningTasks.clear();
+            runningTaskOutputs.clear();
         } finally {
             lock.unlock();
         }
@@ -451,6 +464,15 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         return new ArrayList<Task>(executionPlan.keySet());
     }
 
+    public void prioritiseCriticalPath(Map<Task, Long> expectedDurations) {
+        lock.lock();
+        try {
+            readyQueue.prioritise(expectedDurations);
+        } finally {
+            lock.unlock();
+        }
+    }
+
     public void useFilter(Spec<? super Task> filter) {
         this.filter = filter;
     }
@@ -460,7 +482,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     }
 
     public TaskInfo getTaskToExecute() {
-        lock.lock();
+        acquireLock();
         try {
             while (true) {
                 if (cancellationToken.isCancellationRequested()) {
@@ -468,35 +490,24 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
                         tasksCancelled = true;
                     }
                 }
-                TaskInfo nextMatching = null;
-                boolean allTasksComplete = true;
-                Iterator<TaskInfo> iterator = executionQueue.iterator();
-                while (iterator.hasNext()) {
-                    TaskInfo taskInfo = iterator.next();
-                    allTasksComplete = allTasksComplete && taskInfo.isComplete();
-                    if (taskInfo.isReady() && taskInfo.allDependenciesComplete() && canRunWithWithCurrentlyExecutedTasks(taskInfo)) {
-                        nextMatching = taskInfo;
-                        iterator.remove();
-                        break;
-                    }
-                }
-                if (allTasksComplete) {
+                if (readyQueue.allTasksComplete()) {
                     return null;
                 }
+                TaskInfo nextMatching = findTaskThatCanRun();
                 if (nextMatching == null) {
-                    try {
-                        condition.await();
-                    } catch (InterruptedException e) {
-                        throw new RuntimeException(e);
-                    }
+                    // The running tasks may make more tasks ready when they complete, for example their dependants or their finalizers
+                    awaitTaskAvailable();
                 } else {
+                    boolean wasComplete = nextMatching.isComplete();
+                    boolean wasReady = nextMatching.isReady();
                     if (nextMatching.allDependenciesSuccessful()) {
                         nextMatching.startExecution();
+                        taskStateChanged(nextMatching, wasComplete, wasReady);
                         recordTaskStarted(nextMatching);
                         return nextMatching;
                     } else {
                         nextMatching.skipExecution();
-                        condition.signalAll();
+                        taskStateChanged(nextMatching, wasComplete, wasReady);
                     }
                 }
             }
@@ -505,86 +516,137 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
     }
 
-    private boolean canRunWithWithCurrentlyExecutedTasks(TaskInfo taskInfo) {
-        TaskInternal task = taskInfo.getTask();
-        String projectPath = task.getProject().getPath();
+    private void acquireLock() {
+        if (!lock.tryLock()) {
+            long start = System.nanoTime();
+            lock.lock();
+            contendedLockAcquisitions++;
+            lockWaitTime += System.nanoTime() - start;
+        }
+        lockAcquisitions++;
+    }
 
-        if (isParallelizable(task)) {
-            if (projectsWithRunningNonParallelizableTasks.contains(projectPath)) {
-                return false;
-            }
-        } else {
-            if (projectsWithRunningTasks.contains(projectPath)) {
-                return false;
-            }
+    private void awaitTaskAvailable() {
+        long start = System.nanoTime();
+        waitingWorkers++;
+        try {
+            taskAvailable.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } finally {
+            waitingWorkers--;
+            taskWaitTime += System.nanoTime() - start;
         }
+    }
 
-        Pair<TaskInternal, String> overlap = firstTaskWithOverlappingOutput(task);
-        if (overlap == null) {
-            return true;
+    /**
+     * Must be called after each change to the state of a task in the plan, to keep the ready queue up-to-date and wake up any workers that have something to do.
+     */
+    private void taskStateChanged(TaskInfo taskInfo, boolean wasComplete, boolean wasReady) {
+        int newlyReady = readyQueue.stateChanged(taskInfo, wasComplete, wasReady);
+        if (readyQueue.allTasksComplete()) {
+            // Let the waiting workers finish
+            taskAvailable.signalAll();
+            allTasksCompleted.signalAll();
         } else {
-            LOGGER.info("Cannot execute task " + task.getPath() + " in parallel with task " + overlap.left.getPath() + " due to overlapping output: " + overlap.right);
+            signalWorkers(newlyReady);
         }
-
-        return false;
     }
 
-    private Set<String> canonicalizedOutputPaths(TaskInternal task) {
-        Set<String> paths = canonicalizedOutputCache.get(task);
-        if (paths == null) {
-            paths = Sets.newHashSet(Iterables.transform(task.getOutputs().getFiles(), new Function<File, String>() {
-                @Override
-                public String apply(File file) {
-                    String path;
-                    try {
-                        path = file.getCanonicalPath();
-                    } catch (IOException e) {
-                        throw new UncheckedIOException(e);
-                    }
-                    return path;
-                }
-            }));
-            canonicalizedOutputCache.put(task, paths);
+    private void signalWorkers(int count) {
+        for (int i = Math.min(count, waitingWorkers); i > 0; i--) {
+            taskAvailable.signal();
         }
-
-        return paths;
     }
 
+    /**
+     * Finds the first ready task that can run alongside the currently executing tasks. The output paths of a task are resolved the first time it is considered.
+     * This can be expensive, so it happens without holding the lock, and the ready tasks are scanned again afterwards.
+     */
     @Nullable
-    private Pair<TaskInternal, String> firstTaskWithOverlappingOutput(TaskInternal candidateTask) {
-        if (runningTasks.isEmpty()) {
-            return null;
-        }
-
-        for (String candidateTaskOutputPath : canonicalizedOutputPaths(candidateTask)) {
-            for (TaskInternal runningTask : runningTasks) {
-                for (String runningTaskOutputPath : canonicalizedOutputPaths(runningTask)) {
-                    if (pathsOverlap(candidateTaskOutputPath, runningTaskOutputPath)) {
-                        return Pair.of(runningTask, TextUtil.shorterOf(candidateTaskOutputPath, runningTaskOutputPath));
+    private TaskInfo findTaskThatCanRun() {
+        while (true) {
+            TaskInternal taskToResolve = null;
+            for (TaskInfo taskInfo : readyQueue.getReadyTasks()) {
+                TaskInternal task = taskInfo.getTask();
+                if (!canRunWithTasksOfSameProject(task)) {
+                    continue;
+                }
+                Set<String> outputPaths = canonicalizedOutputCache.get(task);
+                if (outputPaths == null) {
+                    if (tasksWithOutputsBeingResolved.add(task)) {
+                        taskToResolve = task;
+                        break;
                     }
+                    // Another worker is resolving the outputs of this task
+                    continue;
                 }
+                if (!hasOverlappingOutputWithRunningTask(task, outputPaths)) {
+                    return taskInfo;
+                }
+            }
+            if (taskToResolve == null) {
+                return null;
             }
+            resolveOutputPaths(taskToResolve);
         }
+    }
 
-        return null;
+    private void resolveOutputPaths(TaskInternal task) {
+        Set<String> outputPaths = null;
+        lock.unlock();
+        try {
+            outputPaths = canonicalizedOutputPaths(task);
+        } finally {
+            acquireLock();
+            tasksWithOutputsBeingResolved.remove(task);
+            if (outputPaths != null) {
+                canonicalizedOutputCache.put(task, outputPaths);
+            }
+            // Another worker may have skipped this task while its outputs were being resolved
+            signalWorkers(1);
+        }
     }
 
+    private boolean canRunWithTasksOfSameProject(TaskInternal task) {
+        String projectPath = task.getProject().getPath();
 
-    private boolean pathsOverlap(String firstPath, String secondPath) {
-        if (firstPath.equals(secondPath)) {
-            return true;
+        if (isParallelizable(task)) {
+            if (projectsWithRunningNonParallelizableTasks.contains(projectPath)) {
+                return false;
+            }
+        } else {
+            if (projectsWithRunningTasks.contains(projectPath)) {
+                return false;
+            }
         }
+        return true;
+    }
 
-        String shorter;
-        String longer;
-        if (firstPath.length() > secondPath.length()) {
-            shorter = secondPath;
-            longer = firstPath;
-        } else {
-            shorter = firstPath;
-            longer = secondPath;
+    private boolean hasOverlappingOutputWithRunningTask(TaskInternal task, Set<String> outputPaths) {
+        for (String outputPath : outputPaths) {
+            Pair<TaskInternal, String> overlap = runningTaskOutputs.findOverlap(outputPath);
+            if (overlap != null) {
+                LOGGER.info("Cannot execute task " + task.getPath() + " in parallel with task " + overlap.left.getPath() + " due to overlapping output: " + overlap.right);
+                return true;
+            }
         }
-        return longer.startsWith(shorter + StandardSystemProperty.FILE_SEPARATOR.value());
+        return false;
+    }
+
+    private static Set<String> canonicalizedOutputPaths(TaskInternal task) {
+        return Sets.newHashSet(Iterables.transform(task.getOutputs().getFiles(), new Function<File, String>() {
+            @Override
+            public String apply(File file) {
+                String path;
+                try {
+                    path = file.getCanonicalPath();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return path;
+            }
+        }));
     }
 
     boolean isParallelizable(TaskInternal task) {
@@ -620,7 +682,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             projectsWithRunningNonParallelizableTasks.add(projectPath);
         }
         projectsWithRunningTasks.add(projectPath);
-        runningTasks.add(task);
+        runningTaskOutputs.add(task, canonicalizedOutputCache.get(task));
     }
 
     private void recordTaskCompleted(TaskInfo taskInfo) {
@@ -630,22 +692,25 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             projectsWithRunningNonParallelizableTasks.remove(projectPath);
         }
         projectsWithRunningTasks.remove(projectPath);
-        canonicalizedOutputCache.remove(task);
+        runningTaskOutputs.remove(task, canonicalizedOutputCache.remove(task));
         isParallelSafeCache.remove(task);
-        runningTasks.remove(task);
     }
 
     public void taskComplete(TaskInfo taskInfo) {
-        lock.lock();
+        acquireLock();
         try {
             enforceFinalizerTasks(taskInfo);
             if (taskInfo.isFailed()) {
                 handleFailure(taskInfo);
             }
 
+            boolean wasComplete = taskInfo.isComplete();
+            boolean wasReady = taskInfo.isReady();
             taskInfo.finishExecution();
             recordTaskCompleted(taskInfo);
-            condition.signalAll();
+            taskStateChanged(taskInfo, wasComplete, wasReady);
+            // Tasks that were held back by this task, for example because they are in the same project, may now be able to run
+            signalWorkers(readyQueue.getReadyTaskCount());
         } finally {
             lock.unlock();
         }
@@ -664,7 +729,10 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             enforceWithDependencies(dependencyNode);
         }
         if (node.isMustNotRun() || node.isRequired()) {
+            boolean wasComplete = node.isComplete();
+            boolean wasReady = node.isReady();
             node.enforceRun();
+            taskStateChanged(node, wasComplete, wasReady);
         }
     }
 
@@ -693,7 +761,10 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         boolean aborted = false;
         for (TaskInfo taskInfo : executionPlan.values()) {
             if (taskInfo.isRequired()) {
+                boolean wasComplete = taskInfo.isComplete();
+                boolean wasReady = taskInfo.isReady();
                 taskInfo.skipExecution();
+                taskStateChanged(taskInfo, wasComplete, wasReady);
                 aborted = true;
             }
         }
@@ -703,9 +774,9 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     public void awaitCompletion() {
         lock.lock();
         try {
-            while (!allTasksComplete()) {
+            while (!readyQueue.allTasksComplete()) {
                 try {
-                    condition.await();
+                    allTasksCompleted.await();
                 } catch (InterruptedException e) {
                     throw new RuntimeException(e);
                 }
@@ -731,13 +802,17 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         throw UncheckedException.throwAsUncheckedException(failures.get(0));
     }
 
-    private boolean allTasksComplete() {
-        for (TaskInfo taskInfo : executionPlan.values()) {
-            if (!taskInfo.isComplete()) {
-                return false;
-            }
+    public void contributeTo(BuildProfile buildProfile) {
+        lock.lock();
+        try {
+            String category = "Task execution plan";
+            buildProfile.addStatistic(category, "Lock acquisitions", String.valueOf(lockAcquisitions));
+            buildProfile.addStatistic(category, "Contended lock acquisitions", String.valueOf(contendedLockAcquisitions));
+            buildProfile.addStatistic(category, "Time waiting for lock", Clock.prettyTime(TimeUnit.NANOSECONDS.toMillis(lockWaitTime)));
+            buildProfile.addStatistic(category, "Time workers waited for a task", Clock.prettyTime(TimeUnit.NANOSECONDS.toMillis(taskWaitTime)));
+        } finally {
+            lock.unlock();
         }
-        return true;
     }
 
     private static class GraphEdge {
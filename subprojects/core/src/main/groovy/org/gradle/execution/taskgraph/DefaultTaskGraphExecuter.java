@@ -59,6 +59,7 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
         taskListeners = listenerManager.createAnonymousBroadcaster(TaskExecutionListener.class);
         internalTaskListeners = listenerManager.createAnonymousBroadcaster(InternalTaskExecutionListener.class);
         taskExecutionPlan = new DefaultTaskExecutionPlan(cancellationToken);
+        listenerManager.addListener(taskExecutionPlan);
     }
 
     public void useFailureHandler(TaskFailureHandler handler) {
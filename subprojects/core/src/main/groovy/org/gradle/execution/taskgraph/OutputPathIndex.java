@@ -0,0 +1,138 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.execution.taskgraph;
+
+import com.google.common.base.Splitter;
+import org.gradle.api.Nullable;
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.internal.Pair;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Indexes the output paths of tasks in a trie keyed by path segment. Two paths overlap when one is the same as, or an ancestor of, the other.
+ * Finding the overlap for a path only visits the nodes on that path, rather than comparing it with every path in the index.
+ *
+ * <p>This class is not thread-safe. The caller must synchronize access to it.</p>
+ */
+class OutputPathIndex {
+    private static final Splitter PATH_SPLITTER = Splitter.on(File.separatorChar).omitEmptyStrings();
+
+    private final Node root = new Node(null, null);
+
+    public void add(TaskInternal task, Iterable<String> paths) {
+        for (String path : paths) {
+            Node node = root;
+            node.pathsBelow++;
+            for (String segment : PATH_SPLITTER.split(path)) {
+                Node child = node.children.get(segment);
+                if (child == null) {
+                    child = new Node(node, segment);
+                    node.children.put(segment, child);
+                }
+                node = child;
+                node.pathsBelow++;
+            }
+            node.owners.put(task, path);
+        }
+    }
+
+    public void remove(TaskInternal task, Iterable<String> paths) {
+        for (String path : paths) {
+            Node node = root;
+            for (String segment : PATH_SPLITTER.split(path)) {
+                node = node.children.get(segment);
+                if (node == null) {
+                    break;
+                }
+            }
+            if (node == null || node.owners.remove(task) == null) {
+                continue;
+            }
+            for (; node != null; node = node.parent) {
+                node.pathsBelow--;
+                if (node.pathsBelow == 0 && node.parent != null) {
+                    node.parent.children.remove(node.segment);
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        root.children.clear();
+        root.owners.clear();
+        root.pathsBelow = 0;
+    }
+
+    /**
+     * Returns a task with an output path that overlaps the given path, together with the shorter of the two overlapping paths.
+     */
+    @Nullable
+    public Pair<TaskInternal, String> findOverlap(String path) {
+        if (root.pathsBelow == 0) {
+            return null;
+        }
+        Node node = root;
+        Iterator<String> segments = PATH_SPLITTER.split(path).iterator();
+        while (true) {
+            if (!node.owners.isEmpty()) {
+                // The same path or an ancestor
+                Map.Entry<TaskInternal, String> owner = node.owners.entrySet().iterator().next();
+                return Pair.of(owner.getKey(), owner.getValue());
+            }
+            if (!segments.hasNext()) {
+                break;
+            }
+            node = node.children.get(segments.next());
+            if (node == null) {
+                return null;
+            }
+        }
+        if (node.pathsBelow == 0) {
+            return null;
+        }
+        // A descendant
+        while (node.owners.isEmpty()) {
+            node = firstNonEmptyChild(node);
+        }
+        return Pair.of(node.owners.keySet().iterator().next(), path);
+    }
+
+    private static Node firstNonEmptyChild(Node node) {
+        for (Node child : node.children.values()) {
+            if (child.pathsBelow > 0) {
+                return child;
+            }
+        }
+        throw new IllegalStateException("Output path index is inconsistent.");
+    }
+
+    private static class Node {
+        private final Node parent;
+        private final String segment;
+        private final Map<String, Node> children = new HashMap<String, Node>();
+        private final Map<TaskInternal, String> owners = new HashMap<TaskInternal, String>(1);
+        private int pathsBelow;
+
+        private Node(Node parent, String segment) {
+            this.parent = parent;
+            this.segment = segment;
+        }
+    }
+}
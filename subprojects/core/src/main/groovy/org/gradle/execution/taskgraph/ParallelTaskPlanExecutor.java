@@ -16,21 +16,31 @@
 
 package org.gradle.execution.taskgraph;
 
+import org.gradle.api.Task;
 import org.gradle.api.execution.internal.InternalTaskExecutionListener;
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.changedetection.state.TaskDurationRepository;
+import org.gradle.api.internal.tasks.TaskStateInternal;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.internal.Factory;
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.concurrent.StoppableExecutor;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executor;
 
 class ParallelTaskPlanExecutor extends AbstractTaskPlanExecutor {
     private static final Logger LOGGER = Logging.getLogger(ParallelTaskPlanExecutor.class);
     private final int executorCount;
     private final ExecutorFactory executorFactory;
+    private final Factory<? extends TaskDurationRepository> taskDurationRepositoryFactory;
 
-    public ParallelTaskPlanExecutor(int numberOfParallelExecutors, ExecutorFactory executorFactory) {
+    public ParallelTaskPlanExecutor(int numberOfParallelExecutors, ExecutorFactory executorFactory, Factory<? extends TaskDurationRepository> taskDurationRepositoryFactory) {
         this.executorFactory = executorFactory;
+        this.taskDurationRepositoryFactory = taskDurationRepositoryFactory;
         if (numberOfParallelExecutors < 1) {
             throw new IllegalArgumentException("Not a valid number of parallel executors: " + numberOfParallelExecutors);
         }
@@ -39,6 +49,10 @@ class ParallelTaskPlanExecutor extends AbstractTaskPlanExecutor {
     }
 
     public void process(final TaskExecutionPlan taskExecutionPlan, final InternalTaskExecutionListener taskListener) {
+        TaskDurationRepository taskDurationRepository = taskDurationRepositoryFactory.create();
+        List<Task> tasks = taskExecutionPlan.getTasks();
+        taskExecutionPlan.prioritiseCriticalPath(taskDurationRepository.getExpectedDurations(tasks));
+
         StoppableExecutor executor = executorFactory.create("Task worker");
         try {
             startAdditionalWorkers(taskExecutionPlan, taskListener, executor);
@@ -46,7 +60,23 @@ class ParallelTaskPlanExecutor extends AbstractTaskPlanExecutor {
             taskExecutionPlan.awaitCompletion();
         } finally {
             executor.stop();
+            taskDurationRepository.recordDurations(executedTaskDurations(tasks));
+        }
+    }
+
+    /**
+     * Returns the durations of the tasks that ran their actions successfully. The start and end times are also set for tasks that were skipped,
+     * for example because they were up-to-date, but their short durations say nothing about how long their actions take.
+     */
+    private Map<Task, Long> executedTaskDurations(List<Task> tasks) {
+        Map<Task, Long> durations = new HashMap<Task, Long>();
+        for (Task task : tasks) {
+            TaskStateInternal state = ((TaskInternal) task).getState();
+            if (state.getEndTime() > 0 && state.getDidWork() && !state.getSkipped() && state.getFailure() == null) {
+                durations.put(task, state.getEndTime() - state.getStartTime());
+            }
         }
+        return durations;
     }
 
     private void startAdditionalWorkers(TaskExecutionPlan taskExecutionPlan, InternalTaskExecutionListener taskListener, Executor executor) {
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.gradle.api.Task;
+
+import java.util.*;
+
+/**
+ * Keeps track of which tasks of an execution plan are ready to execute, so that finding the next task to execute does not
+ * require checking every task in the plan.
+ *
+ * <p>For each task, counts the number of its dependencies and must-run-after successors that are not yet complete.
+ * Every change to the state of a task in the plan must be reported using {@link #stateChanged(TaskInfo, boolean, boolean)},
+ * so that the counts of the tasks that depend on it can be updated. A task whose count reaches zero while it waits to execute
+ * is added to the ready queue. The ready tasks are kept in execution plan order, unless the queue has been prioritised using
+ * {@link #prioritise(Map)}.</p>
+ *
+ * <p>This class is not thread-safe. The caller must synchronize access to it.</p>
+ */
+class ReadyTaskQueue {
+    private final Map<TaskInfo, Entry> entries = Maps.newIdentityHashMap();
+    private final List<Entry> orderedEntries = new ArrayList<Entry>();
+    private final SortedSet<Entry> readyTasks = new TreeSet<Entry>();
+    private int incompleteTasks;
+    private int waitingTasks;
+
+    /**
+     * Starts tracking the given tasks, in execution plan order. Discards any previously tracked tasks.
+     */
+    public void initialize(Collection<TaskInfo> executionPlan) {
+        clear();
+        for (TaskInfo taskInfo : executionPlan) {
+            Entry entry = new Entry(taskInfo, entries.size());
+            entries.put(taskInfo, entry);
+            orderedEntries.add(entry);
+        }
+        for (Entry entry : orderedEntries) {
+            Set<TaskInfo> successors = new HashSet<TaskInfo>();
+            Iterables.addAll(successors, Iterables.concat(entry.taskInfo.getMustSuccessors(), entry.taskInfo.getDependencySuccessors()));
+            for (TaskInfo successor : successors) {
+                Entry successorEntry = entries.get(successor);
+                if (successorEntry == null) {
+                    // Not part of the plan, so will not change state
+                    continue;
+                }
+                successorEntry.dependents.add(entry);
+                if (!successor.isComplete()) {
+                    entry.incompleteSuccessors++;
+                }
+            }
+        }
+        for (Entry entry : orderedEntries) {
+            if (!entry.taskInfo.isComplete()) {
+                incompleteTasks++;
+            }
+            if (entry.taskInfo.isReady()) {
+                waitingTasks++;
+            }
+            updateReadiness(entry);
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+        orderedEntries.clear();
+        readyTasks.clear();
+        incompleteTasks = 0;
+        waitingTasks = 0;
+    }
+
+    /**
+     * Orders the ready tasks so that the tasks with the longest remaining path through the plan come first. The remaining path of a task
+     * is its expected duration plus the longest remaining path of the tasks that wait for it. Tasks with the same remaining path are kept in
+     * execution plan order.
+     *
+     * @param expectedDurations the expected duration of tasks, in milliseconds. Tasks without an expected duration are assumed to take the average
+     * of the known durations.
+     */
+    public void prioritise(Map<Task, Long> expectedDurations) {
+        long knownDurations = 0;
+        int knownCount = 0;
+        for (Entry entry : orderedEntries) {
+            Long duration = expectedDurations.get(entry.taskInfo.getTask());
+            if (duration != null) {
+                knownDurations += duration;
+                knownCount++;
+            }
+        }
+        long defaultDuration = knownCount == 0 ? 0 : knownDurations / knownCount;
+
+        // The priority of an entry is part of the sort order, so take the entries out of the ready set while it changes
+        List<Entry> ready = new ArrayList<Entry>(readyTasks);
+        readyTasks.clear();
+        // Tasks that wait for a task always come later in the plan, so visit the plan backwards
+        for (Entry entry : Lists.reverse(orderedEntries)) {
+            Long duration = expectedDurations.get(entry.taskInfo.getTask());
+            long longestDependentPath = 0;
+            for (Entry dependent : entry.dependents) {
+                longestDependentPath = Math.max(longestDependentPath, dependent.remainingPath);
+            }
+            entry.remainingPath = (duration == null ? defaultDuration : duration) + longestDependentPath;
+        }
+        readyTasks.addAll(ready);
+    }
+
+    /**
+     * Notifies this queue that the state of the given task has changed.
+     *
+     * @param wasComplete whether the task was complete before the change.
+     * @param wasReady whether the task was waiting to execute before the change.
+     * @return the number of tasks that became ready to execute as a result of the change.
+     */
+    public int stateChanged(TaskInfo taskInfo, boolean wasComplete, boolean wasReady) {
+        Entry entry = entries.get(taskInfo);
+        if (entry == null) {
+            return 0;
+        }
+        int readyBefore = readyTasks.size();
+        boolean complete = taskInfo.isComplete();
+        if (wasComplete != complete) {
+            int delta = complete ? -1 : 1;
+            incompleteTasks += delta;
+            for (Entry dependent : entry.dependents) {
+                dependent.incompleteSuccessors += delta;
+                updateReadiness(dependent);
+            }
+        }
+        boolean ready = taskInfo.isReady();
+        if (wasReady != ready) {
+            waitingTasks += ready ? 1 : -1;
+        }
+        updateReadiness(entry);
+        return Math.max(0, readyTasks.size() - readyBefore);
+    }
+
+    /**
+     * Returns the tasks whose dependencies are all complete and which are waiting to execute, most important first.
+     */
+    public Iterable<TaskInfo> getReadyTasks() {
+        return Iterables.transform(readyTasks, new Function<Entry, TaskInfo>() {
+            public TaskInfo apply(Entry entry) {
+                return entry.taskInfo;
+            }
+        });
+    }
+
+    public int getReadyTaskCount() {
+        return readyTasks.size();
+    }
+
+    /**
+     * Returns true when no task is waiting to execute. Some tasks may still be executing.
+     */
+    public boolean isEmpty() {
+        return waitingTasks == 0;
+    }
+
+    /**
+     * Returns true when every task in the plan is complete.
+     */
+    public boolean allTasksComplete() {
+        return incompleteTasks == 0;
+    }
+
+    private void updateReadiness(Entry entry) {
+        if (entry.incompleteSuccessors == 0 && entry.taskInfo.isReady()) {
+            readyTasks.add(entry);
+        } else {
+            readyTasks.remove(entry);
+        }
+    }
+
+    private static class Entry implements Comparable<Entry> {
+        private final TaskInfo taskInfo;
+        private final int index;
+        private final List<Entry> dependents = new ArrayList<Entry>();
+        private int incompleteSuccessors;
+        private long remainingPath;
+
+        private Entry(TaskInfo taskInfo, int index) {
+            this.taskInfo = taskInfo;
+            this.index = index;
+        }
+
+        public int compareTo(Entry other) {
+            if (remainingPath != other.remainingPath) {
+                return remainingPath > other.remainingPath ? -1 : 1;
+            }
+            return index < other.index ? -1 : (index == other.index ? 0 : 1);
+        }
+    }
+}
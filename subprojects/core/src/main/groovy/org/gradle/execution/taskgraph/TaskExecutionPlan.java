@@ -19,6 +19,7 @@ package org.gradle.execution.taskgraph;
 import org.gradle.api.Task;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Represents a graph of dependent tasks, returned in execution order.
@@ -40,6 +41,13 @@ public interface TaskExecutionPlan {
      */
     List<Task> getTasks();
 
+    /**
+     * Changes the order in which ready-to-execute tasks are provided, so that tasks on the longest remaining path through the plan are started first.
+     * Tasks that are equally critical are provided in plan order.
+     * @param expectedDurations The expected duration of tasks in milliseconds. Tasks without an expected duration are assumed to take an average amount of time.
+     */
+    void prioritiseCriticalPath(Map<Task, Long> expectedDurations);
+
     /**
      * Provides a ready-to-execute task. A task is ready-to-execute if all of its dependencies have been completed successfully.
      * This method blocks until the at least one task is ready-to-execute.
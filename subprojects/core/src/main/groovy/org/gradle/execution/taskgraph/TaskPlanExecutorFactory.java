@@ -16,21 +16,24 @@
 
 package org.gradle.execution.taskgraph;
 
+import org.gradle.api.internal.changedetection.state.TaskDurationRepository;
 import org.gradle.internal.Factory;
 import org.gradle.internal.concurrent.ExecutorFactory;
 
 public class TaskPlanExecutorFactory implements Factory<TaskPlanExecutor> {
     private final int parallelThreads;
     private final ExecutorFactory executorFactory;
+    private final Factory<? extends TaskDurationRepository> taskDurationRepositoryFactory;
 
-    public TaskPlanExecutorFactory(int parallelThreads, ExecutorFactory executorFactory) {
+    public TaskPlanExecutorFactory(int parallelThreads, ExecutorFactory executorFactory, Factory<? extends TaskDurationRepository> taskDurationRepositoryFactory) {
         this.parallelThreads = parallelThreads;
         this.executorFactory = executorFactory;
+        this.taskDurationRepositoryFactory = taskDurationRepositoryFactory;
     }
 
     public TaskPlanExecutor create() {
         if (executeProjectsInParallel()) {
-            return new ParallelTaskPlanExecutor(numberOfParallelThreads(), executorFactory);
+            return new ParallelTaskPlanExecutor(numberOfParallelThreads(), executorFactory, taskDurationRepositoryFactory);
         }
         return new DefaultTaskPlanExecutor();
     }
@@ -83,6 +83,7 @@ import org.gradle.process.internal.WorkerProcessBuilder;
 import org.gradle.process.internal.child.WorkerProcessClassPathProvider;
 import org.gradle.profile.ProfileEventAdapter;
 import org.gradle.profile.ProfileListener;
+import org.gradle.profile.ProfileStatisticsContributor;
 import org.gradle.util.GradleVersion;
 
 /**
@@ -290,7 +291,8 @@ public class BuildScopeServices extends DefaultServiceRegistry {
     }
 
     protected ProfileEventAdapter createProfileEventAdapter() {
-        return new ProfileEventAdapter(get(BuildRequestMetaData.class), get(TimeProvider.class), get(ListenerManager.class).getBroadcaster(ProfileListener.class));
+        ListenerManager listenerManager = get(ListenerManager.class);
+        return new ProfileEventAdapter(get(BuildRequestMetaData.class), get(TimeProvider.class), listenerManager.getBroadcaster(ProfileListener.class), listenerManager.getBroadcaster(ProfileStatisticsContributor.class));
     }
 
     protected PluginRegistry createPluginRegistry(ClassLoaderScopeRegistry scopeRegistry, PluginInspector pluginInspector) {
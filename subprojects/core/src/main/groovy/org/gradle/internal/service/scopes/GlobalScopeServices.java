@@ -128,8 +128,10 @@ public class GlobalScopeServices {
         return new DefaultPluginModuleRegistry(moduleRegistry);
     }
 
-    protected CacheFactory createCacheFactory(FileLockManager fileLockManager) {
-        return new DefaultCacheFactory(fileLockManager);
+    protected CacheFactory createCacheFactory(FileLockManager fileLockManager, ListenerManager listenerManager) {
+        DefaultCacheFactory cacheFactory = new DefaultCacheFactory(fileLockManager);
+        listenerManager.addListener(cacheFactory);
+        return cacheFactory;
     }
 
     DefaultClassLoaderRegistry createClassLoaderRegistry(ClassPathRegistry classPathRegistry, ClassLoaderFactory classLoaderFactory) {
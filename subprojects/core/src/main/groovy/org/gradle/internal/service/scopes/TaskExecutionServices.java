@@ -22,7 +22,7 @@ import org.gradle.api.internal.changedetection.TaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.changes.DefaultTaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.changes.ShortCircuitTaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.state.*;
-import org.gradle.api.internal.hash.DefaultHasher;
+import org.gradle.api.internal.hash.Hashers;
 import org.gradle.api.internal.tasks.TaskExecuter;
 import org.gradle.api.internal.tasks.execution.*;
 import org.gradle.api.invocation.Gradle;
@@ -30,6 +30,7 @@ import org.gradle.cache.CacheRepository;
 import org.gradle.cache.internal.CacheDecorator;
 import org.gradle.execution.taskgraph.TaskPlanExecutor;
 import org.gradle.execution.taskgraph.TaskPlanExecutorFactory;
+import org.gradle.internal.Factory;
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.environment.GradleBuildEnvironment;
 import org.gradle.internal.event.ListenerManager;
@@ -39,6 +40,7 @@ import org.gradle.internal.operations.DefaultBuildOperationProcessor;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.internal.serialize.DefaultSerializerRegistry;
 import org.gradle.internal.serialize.SerializerRegistry;
+import org.gradle.internal.service.ServiceRegistry;
 
 public class TaskExecutionServices {
 
@@ -70,34 +72,43 @@ public class TaskExecutionServices {
         );
     }
 
-    TaskArtifactStateCacheAccess createCacheAccess(Gradle gradle, CacheRepository cacheRepository, InMemoryTaskArtifactCache inMemoryTaskArtifactCache, GradleBuildEnvironment environment) {
+    TaskArtifactStateCacheAccess createCacheAccess(Gradle gradle, CacheRepository cacheRepository, InMemoryTaskArtifactCache inMemoryTaskArtifactCache, GradleBuildEnvironment environment, ListenerManager listenerManager) {
         CacheDecorator decorator;
         if (environment.isLongLivingProcess()) {
             decorator = inMemoryTaskArtifactCache;
+            listenerManager.addListener(inMemoryTaskArtifactCache);
         } else {
             decorator = new NoOpDecorator();
         }
         return new DefaultTaskArtifactStateCacheAccess(gradle, cacheRepository, decorator);
     }
 
-    FileSnapshotter createFileSnapshotter(TaskArtifactStateCacheAccess cacheAccess) {
-        return new CachingFileSnapshotter(new DefaultHasher(), cacheAccess);
+    ConcurrentFileSnapshotter createFileSnapshotter(TaskArtifactStateCacheAccess cacheAccess) {
+        return new CachingFileSnapshotter(Hashers.createFileHasher(), cacheAccess);
     }
 
-    TaskArtifactStateRepository createTaskArtifactStateRepository(Instantiator instantiator, TaskArtifactStateCacheAccess cacheAccess, StartParameter startParameter, FileSnapshotter fileSnapshotter) {
-        FileCollectionSnapshotter fileCollectionSnapshotter = new DefaultFileCollectionSnapshotter(fileSnapshotter, cacheAccess);
+    DefaultFileCollectionSnapshotter createFileCollectionSnapshotter(ConcurrentFileSnapshotter fileSnapshotter, TaskArtifactStateCacheAccess cacheAccess, ExecutorFactory executorFactory, StartParameter startParameter) {
+        return new DefaultFileCollectionSnapshotter(fileSnapshotter, cacheAccess, executorFactory, startParameter.getMaxWorkerCount());
+    }
 
-        FileCollectionSnapshotter outputFilesSnapshotter = new OutputFilesCollectionSnapshotter(fileCollectionSnapshotter, new RandomLongIdGenerator(), cacheAccess);
+    OutputFilesCollectionSnapshotter createOutputFilesSnapshotter(TaskArtifactStateCacheAccess cacheAccess, DefaultFileCollectionSnapshotter fileCollectionSnapshotter) {
+        return new OutputFilesCollectionSnapshotter(fileCollectionSnapshotter, new RandomLongIdGenerator(), cacheAccess);
+    }
 
+    TaskHistoryRepository createTaskHistoryRepository(TaskArtifactStateCacheAccess cacheAccess, DefaultFileCollectionSnapshotter fileCollectionSnapshotter, OutputFilesCollectionSnapshotter outputFilesSnapshotter) {
         SerializerRegistry<FileCollectionSnapshot> serializerRegistry = new DefaultSerializerRegistry<FileCollectionSnapshot>();
         fileCollectionSnapshotter.registerSerializers(serializerRegistry);
         outputFilesSnapshotter.registerSerializers(serializerRegistry);
 
-        TaskHistoryRepository taskHistoryRepository = new CacheBackedTaskHistoryRepository(cacheAccess,
+        // The repository is stopped before the cache is closed, which writes any pending task history
+        return new CacheBackedTaskHistoryRepository(cacheAccess,
             new CacheBackedFileSnapshotRepository(cacheAccess,
                 serializerRegistry.build(),
                 new RandomLongIdGenerator()));
+    }
 
+    TaskArtifactStateRepository createTaskArtifactStateRepository(Instantiator instantiator, StartParameter startParameter, TaskHistoryRepository taskHistoryRepository,
+                                                                  DefaultFileCollectionSnapshotter fileCollectionSnapshotter, OutputFilesCollectionSnapshotter outputFilesSnapshotter) {
         return new ShortCircuitTaskArtifactStateRepository(
             startParameter,
             instantiator,
@@ -110,8 +121,18 @@ public class TaskExecutionServices {
         );
     }
 
-    TaskPlanExecutor createTaskExecutorFactory(StartParameter startParameter, ExecutorFactory executorFactory) {
-        return new TaskPlanExecutorFactory(startParameter.getParallelThreadCount(), executorFactory).create();
+    TaskDurationRepository createTaskDurationRepository(TaskArtifactStateCacheAccess cacheAccess) {
+        return new CacheBackedTaskDurationRepository(cacheAccess);
+    }
+
+    TaskPlanExecutor createTaskExecutorFactory(StartParameter startParameter, ExecutorFactory executorFactory, final ServiceRegistry services) {
+        // The task history cache can only be opened once the root project is known, so look up the repository when the tasks are executed
+        Factory<TaskDurationRepository> taskDurationRepositoryFactory = new Factory<TaskDurationRepository>() {
+            public TaskDurationRepository create() {
+                return services.get(TaskDurationRepository.class);
+            }
+        };
+        return new TaskPlanExecutorFactory(startParameter.getParallelThreadCount(), executorFactory, taskDurationRepositoryFactory).create();
     }
 
     BuildOperationProcessor createBuildOperationProcessor(StartParameter startParameter, ExecutorFactory executorFactory) {
@@ -46,6 +46,7 @@ public class BuildProfile {
 
     private final Map<String, ProjectProfile> projects = new LinkedHashMap<String, ProjectProfile>();
     private final Map<String, ContinuousOperation> dependencySets = new LinkedHashMap<String, ContinuousOperation>();
+    private final Map<String, Map<String, String>> statistics = new LinkedHashMap<String, Map<String, String>>();
     private long profilingStarted;
     private long buildStarted;
     private long settingsEvaluated;
@@ -136,6 +137,25 @@ public class BuildProfile {
         return new CompositeOperation<ContinuousOperation>(profiles);
     }
 
+    /**
+     * Records a statistic to include in the report, grouped with the other statistics of the given category.
+     */
+    public void addStatistic(String category, String name, String value) {
+        Map<String, String> values = statistics.get(category);
+        if (values == null) {
+            values = new LinkedHashMap<String, String>();
+            statistics.put(category, values);
+        }
+        values.put(name, value);
+    }
+
+    /**
+     * Get the statistics recorded for this build, grouped by category.
+     */
+    public Map<String, Map<String, String>> getStatistics() {
+        return statistics;
+    }
+
     /**
      * Should be set with a time as soon as possible after startup.
      * @param profilingStarted
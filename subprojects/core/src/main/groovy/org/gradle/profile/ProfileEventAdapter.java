@@ -38,12 +38,14 @@ public class ProfileEventAdapter implements BuildListener, ProjectEvaluationList
     private final BuildRequestMetaData buildMetaData;
     private final TimeProvider timeProvider;
     private final ProfileListener listener;
+    private final ProfileStatisticsContributor statisticsContributor;
     private BuildProfile buildProfile;
 
-    public ProfileEventAdapter(BuildRequestMetaData buildMetaData, TimeProvider timeProvider, ProfileListener listener) {
+    public ProfileEventAdapter(BuildRequestMetaData buildMetaData, TimeProvider timeProvider, ProfileListener listener, ProfileStatisticsContributor statisticsContributor) {
         this.buildMetaData = buildMetaData;
         this.timeProvider = timeProvider;
         this.listener = listener;
+        this.statisticsContributor = statisticsContributor;
     }
 
     // BuildListener
@@ -73,6 +75,7 @@ public class ProfileEventAdapter implements BuildListener, ProjectEvaluationList
     public void completed() {
         buildProfile.setBuildFinished(timeProvider.getCurrentTime());
         try {
+            statisticsContributor.contributeTo(buildProfile);
             listener.buildFinished(buildProfile);
         } finally {
             buildProfile = null;
@@ -24,6 +24,7 @@ import org.gradle.reporting.TabbedPageRenderer;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.Map;
 
 public class ProfileReportRenderer {
     private static final DurationFormatter DURATION_FORMAT = new DurationFormatter();
@@ -71,8 +72,11 @@ public class ProfileReportRenderer {
                             .startElement("li").startElement("a").attribute("href", "#tab0").characters("Summary").endElement().endElement()
                             .startElement("li").startElement("a").attribute("href", "#tab1").characters("Configuration").endElement().endElement()
                             .startElement("li").startElement("a").attribute("href", "#tab2").characters("Dependency Resolution").endElement().endElement()
-                            .startElement("li").startElement("a").attribute("href", "#tab3").characters("Task Execution").endElement().endElement()
-                        .endElement();
+                            .startElement("li").startElement("a").attribute("href", "#tab3").characters("Task Execution").endElement().endElement();
+                            if (!model.getStatistics().isEmpty()) {
+                                htmlWriter.startElement("li").startElement("a").attribute("href", "#tab4").characters("Statistics").endElement().endElement();
+                            }
+                        htmlWriter.endElement();
                         htmlWriter.startElement("div").attribute("class", "tab").attribute("id", "tab0");
                             htmlWriter.startElement("h2").characters("Summary").endElement();
                             htmlWriter.startElement("table");
@@ -176,8 +180,30 @@ public class ProfileReportRenderer {
                                     }
                                 }
                             htmlWriter.endElement()
-                        .endElement()
-                    .endElement();
+                        .endElement();
+                        if (!model.getStatistics().isEmpty()) {
+                            htmlWriter.startElement("div").attribute("class", "tab").attribute("id", "tab4");
+                                htmlWriter.startElement("h2").characters("Statistics").endElement();
+                                for (Map.Entry<String, Map<String, String>> category : model.getStatistics().entrySet()) {
+                                    htmlWriter.startElement("h3").characters(category.getKey()).endElement();
+                                    htmlWriter.startElement("table");
+                                        htmlWriter.startElement("thead");
+                                            htmlWriter.startElement("tr");
+                                                htmlWriter.startElement("th").characters("Statistic").endElement();
+                                                htmlWriter.startElement("th").attribute("class", "numeric").characters("Value").endElement();
+                                            htmlWriter.endElement();
+                                        htmlWriter.endElement();
+                                        for (Map.Entry<String, String> statistic : category.getValue().entrySet()) {
+                                            htmlWriter.startElement("tr");
+                                                htmlWriter.startElement("td").characters(statistic.getKey()).endElement();
+                                                htmlWriter.startElement("td").attribute("class", "numeric").characters(statistic.getValue()).endElement();
+                                            htmlWriter.endElement();
+                                        }
+                                    htmlWriter.endElement();
+                                }
+                            htmlWriter.endElement();
+                        }
+                    htmlWriter.endElement();
                 }
             };
         }
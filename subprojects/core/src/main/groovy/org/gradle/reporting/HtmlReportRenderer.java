@@ -33,7 +33,8 @@ import java.util.Map;
 
 public class HtmlReportRenderer {
     /**
-     * Renders a multi-page HTML report from the given model, into the given directory.
+     * Renders a multi-page HTML report from the given model, into the given directory. The renderer may render the pages of the report from multiple
+     * threads.
      */
     public <T> void render(T model, ReportRenderer<T, HtmlReportBuilder> renderer, File outputDirectory) {
         try {
@@ -93,7 +94,7 @@ public class HtmlReportRenderer {
             this.outputDirectory = outputDirectory;
         }
 
-        Resource addResource(URL source) {
+        synchronized Resource addResource(URL source) {
             String name = StringUtils.substringAfterLast(source.getPath(), "/");
             String type = StringUtils.substringAfterLast(source.getPath(), ".");
             if (type.equalsIgnoreCase("png") || type.equalsIgnoreCase("gif")) {
@@ -37,7 +37,7 @@ public class TestGlobalScopeServices extends GlobalScopeServices {
     }
 
     @Override
-    protected CacheFactory createCacheFactory(FileLockManager fileLockManager) {
+    protected CacheFactory createCacheFactory(FileLockManager fileLockManager, ListenerManager listenerManager) {
         return new InMemoryCacheFactory();
     }
 
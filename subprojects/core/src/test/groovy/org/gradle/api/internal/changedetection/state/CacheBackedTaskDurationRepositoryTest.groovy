@@ -0,0 +1,67 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.api.Task
+import org.gradle.cache.PersistentIndexedCache
+import org.gradle.internal.Factory
+import spock.lang.Specification
+
+class CacheBackedTaskDurationRepositoryTest extends Specification {
+    final TaskArtifactStateCacheAccess cacheAccess = Mock()
+    final PersistentIndexedCache<Object, Object> indexedCache = Mock()
+    final Task a = Stub(Task) { getPath() >> ":a" }
+    final Task b = Stub(Task) { getPath() >> ":b" }
+    TaskDurationRepository repository
+
+    def setup() {
+        1 * cacheAccess.createCache("taskDurations", String, _) >> indexedCache
+        repository = new CacheBackedTaskDurationRepository(cacheAccess)
+    }
+
+    def "returns durations of tasks that have executed before"() {
+        when:
+        def durations = repository.getExpectedDurations([a, b])
+
+        then:
+        durations == [(a): 120L]
+        1 * cacheAccess.readCache(_, _) >> { String name, Factory action -> action.create() }
+        1 * indexedCache.get(":a") >> 120L
+        1 * indexedCache.get(":b") >> null
+        0 * _._
+    }
+
+    def "averages recorded duration with previous duration"() {
+        when:
+        repository.recordDurations([(a): 100L, (b): 50L])
+
+        then:
+        1 * cacheAccess.useCache(_, _ as Runnable) >> { String name, Runnable action -> action.run() }
+        1 * indexedCache.get(":a") >> 300L
+        1 * indexedCache.put(":a", 200L)
+        1 * indexedCache.get(":b") >> null
+        1 * indexedCache.put(":b", 50L)
+        0 * _._
+    }
+
+    def "does not use the cache when there are no durations to record"() {
+        when:
+        repository.recordDurations([:])
+
+        then:
+        0 * _._
+    }
+}
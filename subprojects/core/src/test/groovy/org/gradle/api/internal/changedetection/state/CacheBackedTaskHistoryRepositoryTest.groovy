@@ -0,0 +1,169 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.api.internal.TaskInternal
+import org.gradle.api.internal.TaskOutputsInternal
+import org.gradle.api.internal.file.collections.SimpleFileCollection
+import org.gradle.cache.PersistentIndexedCache
+import org.gradle.internal.Factory
+import spock.lang.Specification
+
+class CacheBackedTaskHistoryRepositoryTest extends Specification {
+    final TaskArtifactStateCacheAccess cacheAccess = Mock()
+    final FileSnapshotRepository snapshotRepository = Mock()
+    final PersistentIndexedCache<Object, Object> indexedCache = Mock()
+    final TaskInternal a = task(":a")
+    final TaskInternal b = task(":b")
+    CacheBackedTaskHistoryRepository repository
+
+    def setup() {
+        1 * cacheAccess.createCache("taskArtifacts", String, _) >> indexedCache
+        repository = new CacheBackedTaskHistoryRepository(cacheAccess, snapshotRepository, 2)
+    }
+
+    def "queues update of task history until stopped"() {
+        def snapshot = Stub(FileCollectionSnapshot)
+
+        when:
+        def history = repository.getHistory(a)
+        history.currentExecution.inputFilesSnapshot = snapshot
+        history.update()
+
+        then:
+        1 * cacheAccess.readCache(_, _) >> { String name, Factory action -> action.create() }
+        1 * indexedCache.get(":a") >> null
+        0 * _._
+
+        when:
+        repository.stop()
+
+        then:
+        1 * cacheAccess.useCache("Update task history", _ as Runnable) >> { String name, Runnable action -> action.run() }
+        1 * snapshotRepository.add(snapshot) >> 12L
+        1 * indexedCache.put(":a", _)
+        0 * _._
+
+        when:
+        repository.stop()
+
+        then:
+        0 * _._
+    }
+
+    def "writes queued updates when limit is reached"() {
+        given:
+        cacheAccess.readCache(_, _) >> { String name, Factory action -> action.create() }
+
+        when:
+        repository.getHistory(a).update()
+
+        then:
+        0 * cacheAccess.useCache(_, _ as Runnable)
+
+        when:
+        repository.getHistory(b).update()
+
+        then:
+        1 * cacheAccess.useCache("Update task history", _ as Runnable) >> { String name, Runnable action -> action.run() }
+        1 * indexedCache.put(":a", _)
+        1 * indexedCache.put(":b", _)
+    }
+
+    def "uses queued task history as previous execution"() {
+        when:
+        def history = repository.getHistory(a)
+        history.update()
+        def nextHistory = repository.getHistory(a)
+
+        then:
+        1 * cacheAccess.readCache(_, _) >> { String name, Factory action -> action.create() }
+        1 * indexedCache.get(":a") >> null
+        0 * _._
+
+        and:
+        nextHistory.previousExecution.is(history.currentExecution)
+    }
+
+    def "uses task history that is being written as previous execution"() {
+        def nextHistory = null
+
+        given:
+        cacheAccess.readCache(_, _) >> { String name, Factory action -> action.create() }
+        def history = repository.getHistory(a)
+        history.update()
+
+        when:
+        repository.flush()
+
+        then:
+        1 * cacheAccess.useCache("Update task history", _ as Runnable) >> { String name, Runnable action ->
+            nextHistory = repository.getHistory(a)
+            action.run()
+        }
+        1 * indexedCache.put(":a", _)
+        0 * indexedCache.get(_)
+
+        and:
+        nextHistory.previousExecution.is(history.currentExecution)
+    }
+
+    def "does not hold the monitor of the pending updates while writing them"() {
+        given:
+        cacheAccess.readCache(_, _) >> { String name, Factory action -> action.create() }
+        repository.getHistory(a).update()
+
+        when:
+        repository.flush()
+
+        then:
+        1 * cacheAccess.useCache("Update task history", _ as Runnable) >> { String name, Runnable action ->
+            assert !Thread.holdsLock(repository.pendingUpdates)
+            action.run()
+        }
+    }
+
+    def "removes snapshots of discarded executions when written"() {
+        given:
+        def stored = null
+        cacheAccess.readCache(_, _) >> { String name, Factory action -> action.create() }
+        cacheAccess.useCache(_, _ as Runnable) >> { String name, Runnable action -> action.run() }
+        indexedCache.get(":a") >> { stored }
+        indexedCache.put(":a", _) >> { String key, Object value -> stored = value }
+        snapshotRepository.add(_) >>> [1L, 2L, 3L, 4L]
+
+        when:
+        4.times {
+            def history = repository.getHistory(a)
+            history.currentExecution.inputFilesSnapshot = Stub(FileCollectionSnapshot)
+            history.update()
+            repository.flush()
+        }
+
+        then:
+        1 * snapshotRepository.remove(1L)
+        0 * snapshotRepository.remove(_)
+    }
+
+    private TaskInternal task(String path) {
+        return Stub(TaskInternal) {
+            getPath() >> path
+            getOutputs() >> Stub(TaskOutputsInternal) {
+                getFiles() >> new SimpleFileCollection()
+            }
+        }
+    }
+}
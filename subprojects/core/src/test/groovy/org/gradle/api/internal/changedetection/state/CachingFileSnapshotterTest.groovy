@@ -35,6 +35,7 @@ class CachingFileSnapshotterTest extends Specification {
     def setup() {
         file.write("some-content")
         1 * cacheAccess.createCache("fileHashes", _, _) >> cache
+        _ * target.algorithm >> "ALGORITHM"
         hasher = new CachingFileSnapshotter(target, cacheAccess);
     }
 
@@ -50,6 +51,7 @@ class CachingFileSnapshotterTest extends Specification {
         1 * target.hash(file) >> hash
         1 * cache.put(file, _) >> { File key, CachingFileSnapshotter.FileInfo fileInfo ->
             fileInfo.hash == hash
+            fileInfo.algorithm == "ALGORITHM"
             fileInfo.length == file.length()
             fileInfo.timestamp == file.lastModified()
         }
@@ -64,10 +66,11 @@ class CachingFileSnapshotterTest extends Specification {
         result.hash == hash
 
         and:
-        1 * cache.get(file) >> new CachingFileSnapshotter.FileInfo(hash, 1024, file.lastModified())
+        1 * cache.get(file) >> new CachingFileSnapshotter.FileInfo(hash, "ALGORITHM", 1024, file.lastModified())
         1 * target.hash(file) >> hash
         1 * cache.put(file, _) >> { File key, CachingFileSnapshotter.FileInfo fileInfo ->
             fileInfo.hash == hash
+            fileInfo.algorithm == "ALGORITHM"
             fileInfo.length == file.length()
             fileInfo.timestamp == file.lastModified()
         }
@@ -82,10 +85,11 @@ class CachingFileSnapshotterTest extends Specification {
         result.hash == hash
 
         and:
-        1 * cache.get(file) >> new CachingFileSnapshotter.FileInfo(hash, file.length(), 124)
+        1 * cache.get(file) >> new CachingFileSnapshotter.FileInfo(hash, "ALGORITHM", file.length(), 124)
         1 * target.hash(file) >> hash
         1 * cache.put(file, _) >> { File key, CachingFileSnapshotter.FileInfo fileInfo ->
             fileInfo.hash == hash
+            fileInfo.algorithm == "ALGORITHM"
             fileInfo.length == file.length()
             fileInfo.timestamp == file.lastModified()
         }
@@ -100,7 +104,24 @@ class CachingFileSnapshotterTest extends Specification {
         result.hash == hash
 
         and:
-        1 * cache.get(file) >> new CachingFileSnapshotter.FileInfo(hash, file.length(), file.lastModified())
+        1 * cache.get(file) >> new CachingFileSnapshotter.FileInfo(hash, "ALGORITHM", file.length(), file.lastModified())
+        0 * _._
+    }
+
+    def hashesFileWhenAlgorithmHasChanged() {
+        when:
+        def result = hasher.snapshot(file)
+
+        then:
+        result.hash == hash
+
+        and:
+        1 * cache.get(file) >> new CachingFileSnapshotter.FileInfo("old-hash".bytes, "OTHER", file.length(), file.lastModified())
+        1 * target.hash(file) >> hash
+        1 * cache.put(file, _) >> { File key, CachingFileSnapshotter.FileInfo fileInfo ->
+            fileInfo.hash == hash
+            fileInfo.algorithm == "ALGORITHM"
+        }
         0 * _._
     }
 }
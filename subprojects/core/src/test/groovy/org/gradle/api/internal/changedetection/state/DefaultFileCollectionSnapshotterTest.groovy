@@ -17,6 +17,8 @@ package org.gradle.api.internal.changedetection.state
 
 import org.gradle.api.file.FileCollection
 import org.gradle.api.file.FileTree
+import org.gradle.internal.Factory
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.internal.hash.HashUtil
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
@@ -42,6 +44,9 @@ public class DefaultFileCollectionSnapshotterTest extends Specification {
         cacheAccess.useCache(_, _) >> { String name, Runnable action ->
             action.run()
         }
+        cacheAccess.readCache(_, _) >> { String name, Factory action ->
+            action.create()
+        }
     }
 
     def getFilesReturnsOnlyTheFilesWhichExisted() {
@@ -342,6 +347,42 @@ public class DefaultFileCollectionSnapshotterTest extends Specification {
         0 * _
     }
 
+    def snapshotsLargeCollectionsConcurrently() {
+        def concurrentFileSnapshotter = Mock(ConcurrentFileSnapshotter)
+        def executorFactory = new DefaultExecutorFactory()
+        def concurrentSnapshotter = new DefaultFileCollectionSnapshotter(concurrentFileSnapshotter, cacheAccess, executorFactory, 4)
+        def cachedFile = tmpDir.createFile('cached')
+        def dir = tmpDir.createDir('dir')
+        def missing = tmpDir.file('missing')
+        def changedFiles = (1..DefaultFileCollectionSnapshotter.MIN_FILES_FOR_PARALLEL_SNAPSHOT).collect { tmpDir.createFile("file$it").write("content $it") }
+        def cachedSnapshot = Stub(FileSnapshot) {
+            getHash() >> [1, 2, 3] as byte[]
+        }
+
+        when:
+        def snapshot = concurrentSnapshotter.snapshot(files(([cachedFile, dir, missing] + changedFiles) as File[]))
+
+        then:
+        1 * concurrentFileSnapshotter.findUpToDateSnapshot(cachedFile, cachedFile.length(), cachedFile.lastModified()) >> cachedSnapshot
+        changedFiles.size() * concurrentFileSnapshotter.findUpToDateSnapshot(_, _, _) >> null
+        changedFiles.size() * concurrentFileSnapshotter.hash(_, _, _) >> { File file, long length, long timestamp ->
+            Stub(FileSnapshot) {
+                getHash() >> HashUtil.sha1(file).asByteArray()
+            }
+        }
+        changedFiles.size() * concurrentFileSnapshotter.store(_, _)
+        0 * concurrentFileSnapshotter._
+
+        and:
+        snapshot.files.files == ([cachedFile] + changedFiles) as Set
+        snapshot.snapshot.findSnapshot(cachedFile).hash == [1, 2, 3] as byte[]
+        changedFiles.every { snapshot.snapshot.findSnapshot(it).hash == HashUtil.sha1(it).asByteArray() }
+
+        cleanup:
+        concurrentSnapshotter.stop()
+        executorFactory.stop()
+    }
+
     private FileCollection files(File... files) {
         FileTree collection = Mock(FileTree.class)
         _ * collection.asFileTree >> collection
@@ -35,4 +35,28 @@ class DefaultFileSnapshotterSerializerTest extends SerializerSpec {
         out.snapshots['2'] instanceof DefaultFileCollectionSnapshotter.MissingFileSnapshot
         ((DefaultFileCollectionSnapshotter.FileHashSnapshot) out.snapshots['3']).hash == "foo".bytes
     }
+
+    def "reads and writes paths that share a prefix"() {
+        def paths = ["/root/src/main/java/org/A.java", "/root/src/main/java/org/B.java", "/root/src/main/java/org/sub/C.java", "/root/src", "/other", "/root/src/main/java/org/\uD83D\uDE00", "/root/src/main/java/org/\uD83D\uDE01"]
+        def snapshots = [:]
+        paths.each { snapshots[it] = new DefaultFileCollectionSnapshotter.FileHashSnapshot(it.bytes) }
+
+        when:
+        DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl out = serialize(new DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl(snapshots), serializer)
+
+        then:
+        out.snapshots.keySet() == paths as Set
+        paths.every { ((DefaultFileCollectionSnapshotter.FileHashSnapshot) out.snapshots[it]).hash == it.bytes }
+    }
+
+    def "does not write the shared prefix of each path"() {
+        def snapshots = [:]
+        100.times { snapshots["/some/long/directory/path/to/source/files/File${it}.java".toString()] = new DefaultFileCollectionSnapshotter.DirSnapshot() }
+
+        when:
+        def bytes = toBytes(new DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl(snapshots), serializer)
+
+        then:
+        bytes.length < 100 * 20
+    }
 }
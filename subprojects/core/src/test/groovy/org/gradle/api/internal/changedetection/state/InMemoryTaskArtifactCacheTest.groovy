@@ -16,7 +16,9 @@
 
 package org.gradle.api.internal.changedetection.state
 
+import org.gradle.StartParameter
 import org.gradle.cache.internal.MultiProcessSafePersistentIndexedCache
+import org.gradle.profile.BuildProfile
 import spock.lang.Specification
 
 class InMemoryTaskArtifactCacheTest extends Specification {
@@ -133,4 +135,80 @@ class InMemoryTaskArtifactCacheTest extends Specification {
         0 * target._
     }
 
+    def "evicts entries when the heap budget of the cache is used up"() {
+        given:
+        // 10% of 1MB, 5% of which is available for the output file states
+        def cacheFactory = new InMemoryTaskArtifactCache(1024 * 1024)
+        def cache = cacheFactory.decorate("path/outputFileStates.bin", "outputFileStates", target)
+
+        when:
+        (1..1000).each { cache.put("key" + it, it as Long) }
+
+        then:
+        1000 * target.put(_, _)
+
+        when:
+        def result = cache.get("key1")
+
+        then:
+        result == 1L
+
+        and:
+        1 * target.get("key1") >> 1L
+    }
+
+    def "weighs values by their estimated size"() {
+        given:
+        // 10% of 1MB, 30% of which is available for the file snapshots
+        def cacheFactory = new InMemoryTaskArtifactCache(1024 * 1024)
+        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", target)
+        def small = Stub(HasEstimatedSize) {
+            getEstimatedSize() >> 1000L
+        }
+        def large = Stub(HasEstimatedSize) {
+            getEstimatedSize() >> 1024L * 1024
+        }
+
+        when:
+        cache.put("small", small)
+        cache.put("large", large)
+        def smallResult = cache.get("small")
+        def largeResult = cache.get("large")
+
+        then:
+        smallResult == small
+        largeResult == large
+
+        and:
+        0 * target.get("small")
+        1 * target.get("large") >> large
+    }
+
+    def "contributes statistics for each build to the profile"() {
+        given:
+        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", target)
+        _ * target.get(_) >> "result"
+        def profile = new BuildProfile(new StartParameter())
+        def nextProfile = new BuildProfile(new StartParameter())
+
+        when:
+        cache.get("key")
+        cache.get("key")
+        cache.get("key")
+        cacheFactory.contributeTo(profile)
+        cache.get("key")
+        cacheFactory.contributeTo(nextProfile)
+
+        then:
+        def stats = profile.statistics["In-memory cache of path/fileSnapshots.bin"]
+        stats["Entries"] == "1"
+        stats["Hits"] == "2"
+        stats["Misses"] == "1"
+        stats["Evictions"] == "0"
+
+        and:
+        def nextStats = nextProfile.statistics["In-memory cache of path/fileSnapshots.bin"]
+        nextStats["Hits"] == "1"
+        nextStats["Misses"] == "0"
+    }
 }
@@ -0,0 +1,304 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.file.archive
+
+import org.apache.tools.zip.ZipFile
+import org.apache.tools.zip.ZipOutputStream
+import org.gradle.api.file.RelativePath
+import org.gradle.api.internal.DocumentationRegistry
+import org.gradle.api.internal.file.CopyActionProcessingStreamAction
+import org.gradle.api.internal.file.copy.CopyActionProcessingStream
+import org.gradle.api.internal.file.copy.DefaultZipCompressor
+import org.gradle.api.internal.file.copy.FileCopyDetailsInternal
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.operations.DefaultBuildOperationProcessor
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import static org.hamcrest.Matchers.equalTo
+
+class ParallelZipCopyActionTest extends Specification {
+    @Rule
+    public final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    final DefaultBuildOperationProcessor buildOperationProcessor = new DefaultBuildOperationProcessor(new DefaultExecutorFactory(), 4)
+    TestFile outputDir = tmpDir.createDir("output")
+
+    def cleanup() {
+        buildOperationProcessor.stop()
+    }
+
+    def "creates zip file"() {
+        def zipFile = outputDir.file("test.zip")
+
+        when:
+        zipInParallel(zipFile, false, dir("dir"), file("dir/file1", "contents of dir/file1"), file("file2", "contents of file2"))
+
+        then:
+        TestFile expandDir = tmpDir.getTestDirectory().file("expanded")
+        zipFile.unzipTo(expandDir)
+        expandDir.file("dir/file1").assertContents(equalTo("contents of dir/file1"))
+        expandDir.file("file2").assertContents(equalTo("contents of file2"))
+    }
+
+    @Unroll
+    def "creates the same archive as sequential compression when zip64 is #allowZip64"() {
+        def random = new Random(42)
+        def entries = []
+        100.times { i ->
+            if (i % 10 == 0) {
+                entries << dir("dir$i")
+            } else {
+                def content = new StringBuilder()
+                random.nextInt(20000).times { content << (char) (97 + random.nextInt(random.nextBoolean() ? 4 : 26)) }
+                entries << file("dir${i % 7}/file$i", content.toString())
+            }
+        }
+        def sequentialZipFile = tmpDir.file("sequential.zip")
+        def parallelZipFile = outputDir.file("parallel.zip")
+
+        when:
+        new ZipCopyAction(sequentialZipFile, new DefaultZipCompressor(allowZip64, ZipOutputStream.DEFLATED), new DocumentationRegistry()).execute(stream(entries))
+        zipInParallel(parallelZipFile, allowZip64, entries as FileCopyDetailsInternal[])
+
+        then:
+        parallelZipFile.bytes == sequentialZipFile.bytes
+
+        and:
+        outputDir.list() as List == ["parallel.zip"]
+
+        where:
+        allowZip64 << [false, true]
+    }
+
+    def "creates the same empty archive as sequential compression"() {
+        def sequentialZipFile = tmpDir.file("sequential.zip")
+        def parallelZipFile = outputDir.file("parallel.zip")
+
+        when:
+        new ZipCopyAction(sequentialZipFile, new DefaultZipCompressor(false, ZipOutputStream.DEFLATED), new DocumentationRegistry()).execute(stream([]))
+        zipInParallel(parallelZipFile, false)
+
+        then:
+        parallelZipFile.bytes == sequentialZipFile.bytes
+    }
+
+    def "compresses entries larger than the pending content limit as they are read"() {
+        def random = new Random(42)
+        def largeContent = new StringBuilder()
+        20000.times { largeContent << (char) (97 + random.nextInt(26)) }
+        def largeFileOutputs = []
+        def largeFile = Stub(FileCopyDetailsInternal) {
+            getRelativePath() >> RelativePath.parse(true, "dir/large")
+            getLastModified() >> 1000L
+            isDirectory() >> false
+            getMode() >> 0644
+            getSize() >> largeContent.length()
+            copyTo(_ as OutputStream) >> { OutputStream out ->
+                largeFileOutputs << out
+                out << largeContent
+            }
+        }
+        def entries = [dir("dir"), file("dir/file1", "contents of dir/file1"), largeFile, file("file2", "contents of file2")]
+        def sequentialZipFile = tmpDir.file("sequential.zip")
+        def parallelZipFile = outputDir.file("parallel.zip")
+
+        when:
+        new ZipCopyAction(sequentialZipFile, new DefaultZipCompressor(false, ZipOutputStream.DEFLATED), new DocumentationRegistry()).execute(stream(entries))
+        def action = new ParallelZipCopyAction(parallelZipFile, new DefaultZipCompressor(false, ZipOutputStream.DEFLATED), new DocumentationRegistry(), buildOperationProcessor, false, 16 * 1024)
+        action.execute(stream(entries))
+
+        then:
+        largeFileOutputs.size() == 2
+        largeFileOutputs.every { it instanceof ZipOutputStream }
+
+        and:
+        parallelZipFile.bytes == sequentialZipFile.bytes
+        outputDir.list() as List == ["parallel.zip"]
+    }
+
+    def "wraps failure to add element and removes scatter archives"() {
+        def zipFile = outputDir.file("test.zip")
+        Throwable failure = new RuntimeException("broken")
+        def brokenFile = brokenFile("dir/file1", failure)
+
+        when:
+        zipInParallel(zipFile, false, file("file1", "contents"), brokenFile)
+
+        then:
+        def e = thrown(Exception)
+        e.message == String.format("Could not add $brokenFile to ZIP '%s'.", zipFile)
+        e.cause.is(failure)
+
+        and:
+        outputDir.list().length == 0
+    }
+
+    def "reuses unchanged entries of the previous archive"() {
+        def zipFile = outputDir.file("test.zip")
+        def sequentialZipFile = tmpDir.file("sequential.zip")
+        def previousEntries = [dir("dir"), file("dir/file1", "contents of dir/file1"), file("file2", "contents of file2"), file("file3", "contents of file3")]
+        def entries = [dir("dir"), file("dir/file1", "contents of dir/file1"), file("file2", "changed contents of file2"), file("file3", "contents of file3", 5000L), file("file4", "contents of file4")]
+
+        when:
+        zipIncrementally(zipFile, previousEntries)
+        zipIncrementally(zipFile, entries)
+        new ZipCopyAction(sequentialZipFile, new DefaultZipCompressor(false, ZipOutputStream.DEFLATED), new DocumentationRegistry()).execute(stream(entries))
+
+        then:
+        zipFile.bytes == sequentialZipFile.bytes
+
+        and:
+        outputDir.list() as List == ["test.zip"]
+    }
+
+    def "copies the compressed data of unchanged entries from the previous archive"() {
+        def zipFile = outputDir.file("test.zip")
+        def content = "abcd" * 1000
+        def outputStream = new ZipOutputStream(zipFile)
+        outputStream.level = 1
+        ["unchanged", "changed"].each { name ->
+            outputStream.putNextEntry(ZipCopyAction.fileEntry(name, 1000L, 0644))
+            outputStream << content
+            outputStream.closeEntry()
+        }
+        outputStream.close()
+        def previousCompressedSize = compressedSizes(zipFile)["unchanged"]
+
+        when:
+        zipIncrementally(zipFile, [file("unchanged", content), file("changed", content + "x")])
+
+        then:
+        def compressedSizes = compressedSizes(zipFile)
+        compressedSizes["unchanged"] == previousCompressedSize
+        compressedSizes["changed"] < previousCompressedSize
+
+        and:
+        TestFile expandDir = tmpDir.getTestDirectory().file("expanded")
+        zipFile.unzipTo(expandDir)
+        expandDir.file("unchanged").text == content
+        expandDir.file("changed").text == content + "x"
+    }
+
+    def "ignores previous archive that cannot be read"() {
+        def zipFile = outputDir.file("test.zip")
+        def sequentialZipFile = tmpDir.file("sequential.zip")
+        def entries = [file("file1", "contents of file1")]
+        zipFile.text = "not a zip"
+
+        when:
+        zipIncrementally(zipFile, entries)
+        new ZipCopyAction(sequentialZipFile, new DefaultZipCompressor(false, ZipOutputStream.DEFLATED), new DocumentationRegistry()).execute(stream(entries))
+
+        then:
+        zipFile.bytes == sequentialZipFile.bytes
+
+        and:
+        outputDir.list() as List == ["test.zip"]
+    }
+
+    def "ignores previous archive with a damaged central directory"() {
+        def zipFile = outputDir.file("test.zip")
+        def sequentialZipFile = tmpDir.file("sequential.zip")
+        def entries = [file("file1", "contents of file1")]
+        zipIncrementally(zipFile, entries)
+        // Make the name of the first central directory header run past the end of the central directory
+        def bytes = zipFile.bytes
+        def centralDirectoryOffset = ZipCentralDirectory.getInt(bytes, bytes.length - 6) as int
+        bytes[centralDirectoryOffset + 28] = (byte) 0xff
+        bytes[centralDirectoryOffset + 29] = (byte) 0xff
+        zipFile.bytes = bytes
+
+        when:
+        zipIncrementally(zipFile, entries)
+        new ZipCopyAction(sequentialZipFile, new DefaultZipCompressor(false, ZipOutputStream.DEFLATED), new DocumentationRegistry()).execute(stream(entries))
+
+        then:
+        zipFile.bytes == sequentialZipFile.bytes
+
+        and:
+        outputDir.list() as List == ["test.zip"]
+    }
+
+    private void zipInParallel(TestFile zipFile, boolean allowZip64, FileCopyDetailsInternal... files) {
+        def action = new ParallelZipCopyAction(zipFile, new DefaultZipCompressor(allowZip64, ZipOutputStream.DEFLATED), new DocumentationRegistry(), buildOperationProcessor)
+        action.execute(stream(files as List))
+    }
+
+    private void zipIncrementally(TestFile zipFile, List<FileCopyDetailsInternal> files) {
+        def action = new ParallelZipCopyAction(zipFile, new DefaultZipCompressor(false, ZipOutputStream.DEFLATED), new DocumentationRegistry(), buildOperationProcessor, true)
+        action.execute(stream(files))
+    }
+
+    private static Map<String, Long> compressedSizes(File zipFile) {
+        def zip = new ZipFile(zipFile)
+        try {
+            return zip.entries.toList().collectEntries { [it.name, it.compressedSize] }
+        } finally {
+            zip.close()
+        }
+    }
+
+    private static CopyActionProcessingStream stream(List<FileCopyDetailsInternal> files) {
+        return new CopyActionProcessingStream() {
+            public void process(CopyActionProcessingStreamAction action) {
+                for (FileCopyDetailsInternal f : files) {
+                    action.processFile(f)
+                }
+            }
+        }
+    }
+
+    private FileCopyDetailsInternal file(String path, String content, long lastModified = 1000L) {
+        def stub = Stub(FileCopyDetailsInternal)
+        stub.getRelativePath() >> RelativePath.parse(true, path)
+        stub.getLastModified() >> lastModified
+        stub.isDirectory() >> false
+        stub.getMode() >> 0644
+        stub.getSize() >> content.length()
+        stub.copyTo(_ as OutputStream) >> { OutputStream out ->
+            out << content
+        }
+        stub
+    }
+
+    private FileCopyDetailsInternal dir(String path) {
+        def stub = Stub(FileCopyDetailsInternal)
+        stub.getRelativePath() >> RelativePath.parse(false, path)
+        stub.getLastModified() >> 1000L
+        stub.isDirectory() >> true
+        stub.getMode() >> 0755
+        stub
+    }
+
+    private FileCopyDetailsInternal brokenFile(String path, Throwable failure) {
+        def mock = Mock(FileCopyDetailsInternal)
+        mock.getRelativePath() >> RelativePath.parse(true, path)
+        mock.getLastModified() >> 1000L
+        mock.isDirectory() >> false
+        mock.getMode() >> 0644
+        mock.copyTo(_ as OutputStream) >> { OutputStream out ->
+            failure.fillInStackTrace()
+            throw failure
+        }
+        mock
+    }
+}
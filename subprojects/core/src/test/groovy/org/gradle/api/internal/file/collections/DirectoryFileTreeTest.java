@@ -15,11 +15,13 @@
  */
 package org.gradle.api.internal.file.collections;
 
+import org.gradle.api.JavaVersion;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.file.FileVisitor;
 import org.gradle.api.file.RelativePath;
 import org.gradle.api.specs.Spec;
 import org.gradle.api.tasks.util.PatternSet;
+import org.gradle.internal.Factory;
 import org.gradle.test.fixtures.file.TestFile;
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider;
 import org.gradle.testfixtures.internal.NativeServicesTestFixture;
@@ -53,6 +55,8 @@ public class DirectoryFileTreeTest {
     public final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider();
     private JUnit4Mockery context = new JUnit4GroovyMockery();
     private FileVisitor visitor;
+    // The mock files only support the walker based on File.listFiles()
+    private final Factory<DirectoryWalker> walkerFactory = new DirectoryWalkerFactory(JavaVersion.VERSION_1_6, getClass().getClassLoader());
 
     @Before
     public void setUp() {
@@ -65,7 +69,7 @@ public class DirectoryFileTreeTest {
         final MockFile root = new MockFile(context, "root", false);
         root.setExpectations();
 
-        DirectoryFileTree fileTree = new DirectoryFileTree(root.getMock());
+        DirectoryFileTree fileTree = new DirectoryFileTree(root.getMock(), new PatternSet(), walkerFactory);
         root.setExpectations();
 
         fileTree.visit(visitor);
@@ -136,7 +140,7 @@ public class DirectoryFileTreeTest {
             inSequence(visiting);
         }});
 
-        DirectoryFileTree fileTree = new DirectoryFileTree(root.getMock());
+        DirectoryFileTree fileTree = new DirectoryFileTree(root.getMock(), new PatternSet(), walkerFactory);
         fileTree.visit(visitor);
     }
 
@@ -165,7 +169,7 @@ public class DirectoryFileTreeTest {
             inSequence(visiting);
         }});
 
-        DirectoryFileTree fileTree = new DirectoryFileTree(root.getMock()).postfix();
+        DirectoryFileTree fileTree = new DirectoryFileTree(root.getMock(), new PatternSet(), walkerFactory).postfix();
         fileTree.visit(visitor);
     }
 
@@ -191,7 +195,7 @@ public class DirectoryFileTreeTest {
         patterns.include("**/*2");
         PatternSet filter = new PatternSet();
         filter.include("dir1/**");
-        DirectoryFileTree fileTree = new DirectoryFileTree(root.getMock(), patterns).filter(filter);
+        DirectoryFileTree fileTree = new DirectoryFileTree(root.getMock(), patterns, walkerFactory).filter(filter);
         fileTree.visit(visitor);
     }
 
@@ -211,7 +215,7 @@ public class DirectoryFileTreeTest {
             will(stopVisiting());
         }});
 
-        DirectoryFileTree fileTree = new DirectoryFileTree(root.getMock());
+        DirectoryFileTree fileTree = new DirectoryFileTree(root.getMock(), new PatternSet(), walkerFactory);
         fileTree.visit(visitor);
 
         final Sequence visiting = context.sequence("visiting");
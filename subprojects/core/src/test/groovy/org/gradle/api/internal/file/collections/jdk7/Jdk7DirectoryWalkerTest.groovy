@@ -0,0 +1,175 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.file.collections.jdk7
+
+import org.gradle.api.GradleException
+import org.gradle.api.file.FileTreeElement
+import org.gradle.api.file.FileVisitDetails
+import org.gradle.api.file.FileVisitor
+import org.gradle.api.file.RelativePath
+import org.gradle.api.internal.file.collections.DefaultDirectoryWalker
+import org.gradle.api.internal.file.collections.DirectoryWalker
+import org.gradle.api.specs.Spec
+import org.gradle.api.specs.Specs
+import org.gradle.internal.nativeintegration.services.FileSystems
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.UsesNativeServices
+import org.junit.Rule
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.concurrent.atomic.AtomicBoolean
+
+@UsesNativeServices
+class Jdk7DirectoryWalkerTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir
+
+    def setup() {
+        tmpDir.testDirectory.create {
+            file("rootFile1")
+            dir1 {
+                file("dirFile1")
+                file("dirFile2")
+                dir1Dir {
+                    file("dir1Dir1File1")
+                }
+            }
+            dir2 {
+                file("dirFile1")
+                dir2Dir {}
+            }
+            file("rootFile2")
+        }
+    }
+
+    @Unroll
+    def "visits files and directories in the same order as the default walker when walking in parallel is #parallel"() {
+        def walker = new Jdk7DirectoryWalker(FileSystems.default, parallel)
+
+        expect:
+        walk(walker, postfix) == walk(new DefaultDirectoryWalker(FileSystems.default), postfix)
+
+        where:
+        parallel | postfix
+        false    | false
+        false    | true
+        true     | false
+        true     | true
+    }
+
+    def "visits directories after their contents when postfix"() {
+        def walker = new Jdk7DirectoryWalker(FileSystems.default, false)
+
+        when:
+        def visited = walk(walker, true)
+
+        then:
+        visited.indexOf("dir dir1") > visited.indexOf("file dir1/dir1Dir/dir1Dir1File1")
+        visited.indexOf("dir dir1/dir1Dir") > visited.indexOf("file dir1/dir1Dir/dir1Dir1File1")
+        visited.indexOf("dir dir1") > visited.indexOf("dir dir1/dir1Dir")
+    }
+
+    @Unroll
+    def "file details use the attributes read while listing when walking in parallel is #parallel"() {
+        def walker = new Jdk7DirectoryWalker(FileSystems.default, parallel)
+        def file = tmpDir.file("dir1/dirFile1")
+        file.text = "some content"
+        def details = [:]
+
+        when:
+        walker.walkDir(tmpDir.testDirectory, new RelativePath(false), visitor { FileVisitDetails it -> details[it.path] = it }, Specs.satisfyAll(), new AtomicBoolean(), false)
+
+        then:
+        with(details["dir1/dirFile1"]) {
+            !directory
+            size == file.length()
+            lastModified.intdiv(1000) == file.lastModified().intdiv(1000)
+            relativePath == new RelativePath(true, "dir1", "dirFile1")
+        }
+        with(details["dir1"]) {
+            directory
+            relativePath == new RelativePath(false, "dir1")
+        }
+
+        where:
+        parallel << [false, true]
+    }
+
+    @Unroll
+    def "does not walk directories that do not satisfy the spec when walking in parallel is #parallel"() {
+        def walker = new Jdk7DirectoryWalker(FileSystems.default, parallel)
+        def spec = { FileTreeElement element -> !element.path.startsWith("dir1") } as Spec<FileTreeElement>
+
+        expect:
+        walk(walker, false, spec) as Set == ["file rootFile1", "file rootFile2", "dir dir2", "file dir2/dirFile1", "dir dir2/dir2Dir"] as Set
+
+        where:
+        parallel << [false, true]
+    }
+
+    @Unroll
+    def "stops walking when visitor stops visiting and walking in parallel is #parallel"() {
+        def walker = new Jdk7DirectoryWalker(FileSystems.default, parallel)
+        def visited = []
+
+        when:
+        walker.walkDir(tmpDir.testDirectory, new RelativePath(false), visitor { FileVisitDetails it ->
+            visited << it.path
+            if (it.directory) {
+                it.stopVisiting()
+            }
+        }, Specs.satisfyAll(), new AtomicBoolean(), false)
+
+        then:
+        visited.size() == 3
+        visited.containsAll(["rootFile1", "rootFile2"])
+
+        where:
+        parallel << [false, true]
+    }
+
+    @Unroll
+    def "fails when directory cannot be listed and walking in parallel is #parallel"() {
+        def walker = new Jdk7DirectoryWalker(FileSystems.default, parallel)
+        def missing = tmpDir.file("missing")
+
+        when:
+        walker.walkDir(missing, new RelativePath(false), visitor {}, Specs.satisfyAll(), new AtomicBoolean(), false)
+
+        then:
+        def e = thrown(GradleException)
+        e.message == "Could not list contents of '$missing'."
+
+        where:
+        parallel << [false, true]
+    }
+
+    private List<String> walk(DirectoryWalker walker, boolean postfix, Spec<FileTreeElement> spec = Specs.satisfyAll()) {
+        def visited = []
+        def fileVisitor = [
+            visitDir: { FileVisitDetails details -> visited << "dir $details.path".toString() },
+            visitFile: { FileVisitDetails details -> visited << "file $details.path".toString() }
+        ] as FileVisitor
+        walker.walkDir(tmpDir.testDirectory, new RelativePath(false), fileVisitor, spec, new AtomicBoolean(), postfix)
+        return visited
+    }
+
+    private static FileVisitor visitor(Closure action) {
+        return [visitDir: action, visitFile: action] as FileVisitor
+    }
+}
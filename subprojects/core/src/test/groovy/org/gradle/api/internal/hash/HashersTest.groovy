@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.hash
+
+import org.gradle.internal.hash.HashUtil
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
+import spock.lang.Specification
+
+class HashersTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    @Rule
+    SetSystemProperties systemProperties = new SetSystemProperties()
+
+    def "uses MD5 for files by default"() {
+        given:
+        System.clearProperty(Hashers.FILE_HASH_ALGORITHM_PROPERTY)
+
+        expect:
+        def hasher = Hashers.createFileHasher()
+        hasher instanceof DefaultHasher
+        hasher.algorithm == "MD5"
+    }
+
+    def "uses algorithm selected by system property for files"() {
+        given:
+        System.setProperty(Hashers.FILE_HASH_ALGORITHM_PROPERTY, Murmur3Hasher.ALGORITHM)
+
+        expect:
+        Hashers.createFileHasher() instanceof Murmur3Hasher
+    }
+
+    def "creates hasher for algorithm ignoring case"() {
+        expect:
+        Hashers.forAlgorithm("md5") instanceof DefaultHasher
+        Hashers.forAlgorithm("MD5").algorithm == "MD5"
+    }
+
+    def "message digest hasher produces same hash as HashUtil"() {
+        def file = tmpDir.createFile("file")
+        file.bytes = (0..200000).collect { it as byte } as byte[]
+        def emptyFile = tmpDir.createFile("empty")
+
+        expect:
+        def hasher = Hashers.forAlgorithm("sha1")
+        hasher.algorithm == "SHA1"
+        hasher.hash(file) == HashUtil.sha1(file).asByteArray()
+        hasher.hash(emptyFile) == HashUtil.sha1(emptyFile).asByteArray()
+    }
+
+    def "murmur3 hasher produces 128 bit hashes that change with content"() {
+        def file = tmpDir.createFile("file")
+        def hasher = Hashers.forAlgorithm(Murmur3Hasher.ALGORITHM)
+
+        when:
+        file.text = "content"
+        def original = hasher.hash(file)
+        file.text = "new content"
+        def changed = hasher.hash(file)
+
+        then:
+        original.length == 16
+        original != changed
+        hasher.hash(file) == changed
+    }
+}
@@ -340,6 +340,181 @@ class DefaultCacheAccessTest extends ConcurrentSpec {
         thrown(UnsupportedOperationException)
     }
 
+    def "multiple threads can read from cache at the same time"() {
+        given:
+        lockManager.lock(lockFile, mode(Exclusive), "<display-name>", _) >> lock
+        access.open(mode(None))
+
+        when:
+        async {
+            start {
+                access.readCache("read 1", {
+                    instant.read1
+                    thread.blockUntil.read2
+                })
+            }
+            start {
+                access.readCache("read 2", {
+                    instant.read2
+                    thread.blockUntil.read1
+                })
+            }
+        }
+
+        then:
+        !access.owner
+        access.lockWaitTime == 0
+    }
+
+    def "use cache operation waits for readers to finish"() {
+        given:
+        lockManager.lock(lockFile, mode(Exclusive), "<display-name>", _) >> lock
+        access.open(mode(None))
+
+        when:
+        async {
+            start {
+                access.readCache("read", {
+                    instant.reading
+                    thread.block()
+                    instant.readFinished
+                })
+            }
+            start {
+                thread.blockUntil.reading
+                access.useCache("update") {
+                    instant.updating
+                }
+            }
+        }
+
+        then:
+        instant.updating > instant.readFinished
+        access.lockWaitTime > 0
+    }
+
+    def "read operation waits for update to finish"() {
+        given:
+        lockManager.lock(lockFile, mode(Exclusive), "<display-name>", _) >> lock
+        access.open(mode(None))
+
+        when:
+        async {
+            start {
+                access.useCache("update") {
+                    instant.updating
+                    thread.block()
+                    instant.updateFinished
+                }
+            }
+            start {
+                thread.blockUntil.updating
+                access.readCache("read", {
+                    instant.reading
+                })
+            }
+        }
+
+        then:
+        instant.reading > instant.updateFinished
+        access.lockWaitTime > 0
+    }
+
+    def "read operation nested in use cache operation runs as part of the update"() {
+        Factory<String> action = Mock()
+
+        when:
+        access.open(mode(None))
+        access.useCache("some operation") {
+            access.readCache("nested operation", action)
+        }
+
+        then:
+        1 * lockManager.lock(lockFile, mode(Exclusive), "<display-name>", "some operation") >> lock
+        1 * action.create() >> { assert access.owner == Thread.currentThread() }
+
+        and:
+        !access.owner
+    }
+
+    def "cannot use cache from within a read operation"() {
+        given:
+        lockManager.lock(lockFile, mode(Exclusive), "<display-name>", _) >> lock
+        access.open(mode(None))
+
+        when:
+        access.readCache("read", {
+            access.useCache("update", Mock(Runnable))
+        })
+
+        then:
+        IllegalStateException e = thrown()
+        e.message == "Cannot update <display-name> while reading from it."
+
+        and:
+        !access.owner
+    }
+
+    def "file access is available for reading when there is a reader"() {
+        def action = Mock(Factory)
+
+        when:
+        access.open(mode(None))
+        access.readCache("read cache", { access.fileAccess.readFile(action) })
+
+        then:
+        1 * lockManager.lock(lockFile, mode(Exclusive), "<display-name>", "read cache") >> lock
+        1 * lock.readFile(action)
+    }
+
+    def "read operation that updates a file runs again as an update"() {
+        def runnable = Mock(Runnable)
+        def attempts = []
+
+        given:
+        lockManager.lock(lockFile, mode(Exclusive), "<display-name>", _) >> lock
+        access.open(mode(None))
+
+        when:
+        def result = access.readCache("read cache", {
+            attempts << (access.owner == Thread.currentThread())
+            access.fileAccess.writeFile(runnable)
+            return "result"
+        } as Factory)
+
+        then:
+        result == "result"
+        attempts == [false, true]
+        1 * lock.writeFile(runnable)
+
+        and:
+        !access.owner
+    }
+
+    def "nested read operation that updates a file runs again as part of the outermost read operation"() {
+        def runnable = Mock(Runnable)
+        def attempts = 0
+
+        given:
+        lockManager.lock(lockFile, mode(Exclusive), "<display-name>", _) >> lock
+        access.open(mode(None))
+
+        when:
+        access.readCache("outer", {
+            access.readCache("inner", {
+                attempts++
+                access.fileAccess.updateFile(runnable)
+            })
+        })
+
+        then:
+        attempts == 2
+        1 * lock.updateFile(runnable)
+
+        and:
+        !access.owner
+    }
+
     def "long running operation pushes an operation and releases ownership but not lock"() {
         Factory<String> action = Mock()
 
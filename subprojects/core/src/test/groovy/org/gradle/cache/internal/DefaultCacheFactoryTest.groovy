@@ -18,11 +18,15 @@ package org.gradle.cache.internal
 import org.gradle.api.Action
 import org.gradle.cache.CacheValidator
 import org.gradle.cache.internal.locklistener.NoOpFileLockContentionHandler
+import org.gradle.profile.BuildProfile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
 import spock.lang.Specification
 
+import java.util.concurrent.CountDownLatch
+
 import static org.gradle.cache.internal.FileLockManager.LockMode.Exclusive
+import static org.gradle.cache.internal.FileLockManager.LockMode.None
 import static org.gradle.cache.internal.FileLockManager.LockMode.Shared
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode
 
@@ -232,4 +236,36 @@ class DefaultCacheFactoryTest extends Specification {
         cleanup:
         factory.close()
     }
+
+    public void "reports time spent waiting for cache lock since last report"() {
+        given:
+        BuildProfile buildProfile = Mock()
+        def cache = factory.openStore(tmpDir.testDirectory, "<display>", mode(None), null)
+        def started = new CountDownLatch(1)
+        def thread = Thread.start {
+            cache.useCache("update", {
+                started.countDown()
+                Thread.sleep(100)
+            } as Runnable)
+        }
+        started.await()
+        cache.useCache("update", {} as Runnable)
+        thread.join()
+
+        when:
+        factory.contributeTo(buildProfile)
+
+        then:
+        1 * buildProfile.addStatistic("Cache lock wait time", { it.startsWith("<display>") }, _)
+        0 * buildProfile._
+
+        when:
+        factory.contributeTo(buildProfile)
+
+        then:
+        0 * buildProfile._
+
+        cleanup:
+        factory.close()
+    }
 }
@@ -17,6 +17,7 @@ package org.gradle.cache.internal
 
 import org.gradle.internal.Factory
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache
+import org.gradle.cache.internal.btree.CorruptedCacheException
 import spock.lang.Specification
 
 class MultiProcessSafePersistentIndexedCacheTest extends Specification {
@@ -46,7 +47,27 @@ class MultiProcessSafePersistentIndexedCacheTest extends Specification {
 
         and:
         1 * fileAccess.readFile(!null) >> { Factory action -> action.create() }
-        1 * backingCache.get("value") >> "result"
+        1 * backingCache.getWithoutRecovery("value") >> "result"
+        0 * _._
+    }
+
+    def "holds write lock while discarding corrupt cache"() {
+        given:
+        cacheOpened()
+
+        when:
+        def result = cache.get("value")
+
+        then:
+        result == null
+
+        and:
+        1 * fileAccess.readFile(!null) >> { Factory action -> action.create() }
+        1 * backingCache.getWithoutRecovery("value") >> { throw new CorruptedCacheException("broken") }
+
+        then:
+        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * backingCache.get("value")
         0 * _._
     }
 
@@ -278,6 +278,63 @@ public class BTreePersistentIndexedCacheTest {
         cache.close();
     }
 
+    @Test
+    public void writesPendingUpdatesWhenClosed() {
+        cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer, (short) 4, 100, 100);
+        long len = cacheFile.length();
+
+        for (int i = 0; i < 20; i++) {
+            cache.put(String.format("key_%d", i), i);
+        }
+        cache.remove("key_3");
+
+        assertThat(cacheFile.length(), equalTo(len));
+        assertThat(cache.get("key_12"), equalTo(12));
+        assertThat(cache.get("key_3"), nullValue());
+
+        cache.reset();
+
+        assertThat(cacheFile.length(), greaterThan(len));
+        for (int i = 0; i < 20; i++) {
+            assertThat(cache.get(String.format("key_%d", i)), equalTo(i == 3 ? null : i));
+        }
+        verifyAndCloseCache();
+    }
+
+    @Test
+    public void writesPendingUpdatesWhenLimitIsReached() {
+        cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer, (short) 4, 100, 3);
+        long len = cacheFile.length();
+
+        cache.put("key_1", 1);
+        cache.put("key_2", 2);
+        assertThat(cacheFile.length(), equalTo(len));
+
+        cache.put("key_3", 3);
+        assertThat(cacheFile.length(), greaterThan(len));
+
+        verifyAndCloseCache();
+    }
+
+    @Test
+    public void readsEntriesThatSpanMultiplePages() {
+        BTreePersistentIndexedCache<String, String> cache = new BTreePersistentIndexedCache<String, String>(cacheFile, stringSerializer, stringSerializer);
+        StringBuilder value = new StringBuilder();
+        while (value.length() < 3 * FileBackedBlockStore.PAGE_SIZE) {
+            value.append("some value ");
+        }
+        cache.put("key_1", value.toString());
+        cache.put("key_2", "short");
+        cache.put("key_1", value.toString() + "longer");
+
+        cache.reset();
+
+        assertThat(cache.get("key_1"), equalTo(value.toString() + "longer"));
+        assertThat(cache.get("key_2"), equalTo("short"));
+        cache.verify();
+        cache.close();
+    }
+
     @Test
     public void handlesKeysWithSameHashCode() {
         createCache();
@@ -35,6 +35,9 @@ import org.junit.Rule
 import spock.lang.Specification
 import spock.util.concurrent.PollingConditions
 
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
 import static org.gradle.util.TestUtil.createChildProject
 import static org.gradle.util.TestUtil.createRootProject
 
@@ -102,6 +105,44 @@ class DefaultTaskExecutionPlanParallelTaskHandlingTest extends Specification {
         allBlockedThreadsFinish()
     }
 
+    def "workers wait for the finalizer of a running task and its dependencies"() {
+        given:
+        Task finalized = root.task("finalized", type: Parallel)
+        Task first = root.task("first", type: Parallel)
+        Task second = root.task("second", type: Parallel).dependsOn(first)
+        Task other = root.task("other", type: Parallel)
+        Task finalizer = root.task("finalizer", type: Parallel).dependsOn(second, other)
+        finalized.finalizedBy(finalizer)
+        def parallelTasksStarted = new CountDownLatch(2)
+        def executedTasks = Collections.synchronizedList([])
+
+        when:
+        addToGraphAndPopulate(finalized)
+        def workers = (1..3).collect {
+            Thread.start {
+                def taskInfo
+                while ((taskInfo = executionPlan.getTaskToExecute()) != null) {
+                    if (taskInfo.task in [first, other]) {
+                        // Both tasks become ready when the finalized task completes, so each needs a worker that is still waiting
+                        parallelTasksStarted.countDown()
+                        parallelTasksStarted.await(5, TimeUnit.SECONDS)
+                    }
+                    executedTasks << taskInfo.task
+                    executionPlan.taskComplete(taskInfo)
+                }
+            }
+        }
+        workers*.join(10000)
+
+        then:
+        workers.every { !it.alive }
+        parallelTasksStarted.count == 0
+        executedTasks as Set == [finalized, first, second, other, finalizer] as Set
+        executedTasks.first() == finalized
+        executedTasks.indexOf(first) < executedTasks.indexOf(second)
+        executedTasks.last() == finalizer
+    }
+
     def "tasks arent parallelized unless toggle is on"() {
         given:
         executionPlan = new DefaultTaskExecutionPlan(Stub(BuildCancellationToken), false)
@@ -75,6 +75,7 @@ public class DefaultTaskGraphExecuterTest {
             will(returnValue(new ListenerBroadcast<TaskExecutionListener>(TaskExecutionListener.class)));
             one(listenerManager).createAnonymousBroadcaster(InternalTaskExecutionListener.class);
             will(returnValue(new ListenerBroadcast<InternalTaskExecutionListener>(InternalTaskExecutionListener.class)));
+            one(listenerManager).addListener(with(notNullValue(DefaultTaskExecutionPlan.class)));
             allowing(cancellationToken).isCancellationRequested();
         }});
         taskExecuter = new DefaultTaskGraphExecuter(listenerManager, new DefaultTaskPlanExecutor(), cancellationToken);
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.execution.taskgraph
+
+import org.gradle.api.internal.TaskInternal
+import org.gradle.internal.Pair
+import spock.lang.Specification
+
+class OutputPathIndexTest extends Specification {
+    def index = new OutputPathIndex()
+    def a = Stub(TaskInternal)
+    def b = Stub(TaskInternal)
+
+    def "finds no overlap in empty index"() {
+        expect:
+        index.findOverlap(path("build/classes")) == null
+    }
+
+    def "finds overlap with the same path"() {
+        index.add(a, [path("build/classes")])
+
+        expect:
+        index.findOverlap(path("build/classes")) == Pair.of(a, path("build/classes"))
+    }
+
+    def "finds overlap with an ancestor path"() {
+        index.add(a, [path("build")])
+
+        expect:
+        index.findOverlap(path("build/classes/main")) == Pair.of(a, path("build"))
+    }
+
+    def "finds overlap with a descendant path"() {
+        index.add(a, [path("build/classes/main/Foo.class")])
+
+        expect:
+        index.findOverlap(path("build/classes")) == Pair.of(a, path("build/classes"))
+    }
+
+    def "paths that share a name prefix do not overlap"() {
+        index.add(a, [path("build/classes")])
+
+        expect:
+        index.findOverlap(path("build/classes-test")) == null
+        index.findOverlap(path("build/class")) == null
+        index.findOverlap(path("build/resources")) == null
+    }
+
+    def "removed paths no longer overlap"() {
+        index.add(a, [path("build/classes"), path("build/resources")])
+        index.add(b, [path("build/classes/other")])
+
+        when:
+        index.remove(a, [path("build/classes"), path("build/resources")])
+
+        then:
+        index.findOverlap(path("build/resources")) == null
+        index.findOverlap(path("build/classes")) == Pair.of(b, path("build/classes"))
+        index.findOverlap(path("build/classes/other")) == Pair.of(b, path("build/classes/other"))
+
+        when:
+        index.remove(b, [path("build/classes/other")])
+
+        then:
+        index.findOverlap(path("build")) == null
+    }
+
+    def "can clear index"() {
+        index.add(a, [path("build/classes")])
+
+        when:
+        index.clear()
+
+        then:
+        index.findOverlap(path("build")) == null
+    }
+
+    private static String path(String relativePath) {
+        return new File(new File("root").absoluteFile, relativePath).path
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph
+
+import org.gradle.api.execution.internal.InternalTaskExecutionListener
+import org.gradle.api.internal.TaskInternal
+import org.gradle.api.internal.changedetection.state.TaskDurationRepository
+import org.gradle.api.internal.tasks.TaskStateInternal
+import org.gradle.internal.Factory
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.StoppableExecutor
+import spock.lang.Specification
+
+class ParallelTaskPlanExecutorTest extends Specification {
+    final TaskDurationRepository taskDurationRepository = Mock()
+    final TaskExecutionPlan taskExecutionPlan = Mock()
+    final ExecutorFactory executorFactory = Stub() {
+        create(_) >> Stub(StoppableExecutor)
+    }
+    final executor = new ParallelTaskPlanExecutor(1, executorFactory, Stub(Factory) {
+        create() >> taskDurationRepository
+    })
+
+    def "records the durations of the tasks that ran their actions"() {
+        def executed = task(100) { it.setDidWork(true); it.executed() }
+        def upToDate = task(5) { it.upToDate() }
+        def skipped = task(5) { it.skipped("SKIPPED") }
+        def noWork = task(5) { it.executed() }
+        def failed = task(50) { it.setDidWork(true); it.executed(new RuntimeException()) }
+        def notExecuted = Stub(TaskInternal) {
+            getState() >> new TaskStateInternal("not executed")
+        }
+
+        given:
+        taskExecutionPlan.getTasks() >> [executed, upToDate, skipped, noWork, failed, notExecuted]
+
+        when:
+        executor.process(taskExecutionPlan, Stub(InternalTaskExecutionListener))
+
+        then:
+        1 * taskDurationRepository.recordDurations([(executed): 100L])
+    }
+
+    private TaskInternal task(long duration, Closure outcome) {
+        def state = new TaskStateInternal("task")
+        state.startTime = 1000
+        state.endTime = 1000 + duration
+        outcome.call(state)
+        return Stub(TaskInternal) {
+            getState() >> state
+        }
+    }
+}
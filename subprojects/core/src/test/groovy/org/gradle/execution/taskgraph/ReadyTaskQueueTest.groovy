@@ -0,0 +1,212 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph
+
+import org.gradle.api.Task
+import org.gradle.api.internal.TaskInternal
+import spock.lang.Specification
+
+class ReadyTaskQueueTest extends Specification {
+    def queue = new ReadyTaskQueue()
+
+    def "tasks without incomplete dependencies are ready in plan order"() {
+        def a = required("a")
+        def b = required("b")
+        def c = required("c")
+        c.addDependencySuccessor(a)
+
+        when:
+        queue.initialize([b, a, c])
+
+        then:
+        queue.readyTasks as List == [b, a]
+        !queue.empty
+        !queue.allTasksComplete()
+    }
+
+    def "task becomes ready when its dependencies and must run after successors complete"() {
+        def a = required("a")
+        def b = required("b")
+        def c = required("c")
+        c.addDependencySuccessor(a)
+        c.addMustSuccessor(b)
+        queue.initialize([a, b, c])
+
+        when:
+        start(a)
+
+        then:
+        queue.readyTasks as List == [b]
+
+        when:
+        finish(a)
+
+        then:
+        queue.readyTasks as List == [b]
+
+        when:
+        start(b)
+        finish(b)
+
+        then:
+        queue.readyTasks as List == [c]
+
+        when:
+        start(c)
+        finish(c)
+
+        then:
+        queue.readyTasks.empty
+        queue.empty
+        queue.allTasksComplete()
+    }
+
+    def "task is no longer ready when a must not run dependency is enforced"() {
+        def a = taskInfo("a")
+        a.mustNotRun()
+        def b = required("b")
+        b.addDependencySuccessor(a)
+        queue.initialize([a, b])
+
+        expect:
+        queue.readyTasks as List == [b]
+
+        when:
+        def wasComplete = a.complete
+        def wasReady = a.ready
+        a.enforceRun()
+        def newlyReady = queue.stateChanged(a, wasComplete, wasReady)
+
+        then:
+        newlyReady == 1
+        queue.readyTasks as List == [a]
+    }
+
+    def "skipped tasks are complete"() {
+        def a = required("a")
+        def b = required("b")
+        b.addDependencySuccessor(a)
+        queue.initialize([a, b])
+
+        when:
+        def newlyReady = skip(a)
+
+        then:
+        newlyReady == 1
+        queue.readyTasks as List == [b]
+
+        when:
+        skip(b)
+
+        then:
+        queue.empty
+        queue.allTasksComplete()
+    }
+
+    def "not empty while a task is waiting for its dependencies"() {
+        def a = required("a")
+        def b = required("b")
+        b.addDependencySuccessor(a)
+        queue.initialize([a, b])
+
+        when:
+        start(a)
+
+        then:
+        queue.readyTasks.empty
+        !queue.empty
+        !queue.allTasksComplete()
+    }
+
+    def "prioritised queue provides tasks on the longest remaining path first"() {
+        def a = required("a")
+        def b = required("b")
+        def c = required("c")
+        def d = required("d")
+        def e = required("e")
+        d.addDependencySuccessor(b)
+        e.addDependencySuccessor(d)
+        queue.initialize([a, b, c, d, e])
+
+        when:
+        queue.prioritise([(a.task): 50L, (b.task): 10L, (c.task): 50L, (d.task): 30L, (e.task): 20L])
+
+        then:
+        queue.readyTasks as List == [b, a, c]
+    }
+
+    def "tasks without expected duration are assumed to take the average duration"() {
+        def a = required("a")
+        def b = required("b")
+        def c = required("c")
+        queue.initialize([a, b, c])
+
+        when:
+        queue.prioritise([(a.task): 10L, (c.task): 30L])
+
+        then:
+        queue.readyTasks as List == [c, b, a]
+    }
+
+    def "prioritised queue keeps tasks with the same remaining path in plan order"() {
+        def a = required("a")
+        def b = required("b")
+        def c = required("c")
+        queue.initialize([a, b, c])
+
+        when:
+        queue.prioritise([:])
+
+        then:
+        queue.readyTasks as List == [a, b, c]
+    }
+
+    private int start(TaskInfo taskInfo) {
+        def wasComplete = taskInfo.complete
+        def wasReady = taskInfo.ready
+        taskInfo.startExecution()
+        return queue.stateChanged(taskInfo, wasComplete, wasReady)
+    }
+
+    private int finish(TaskInfo taskInfo) {
+        def wasComplete = taskInfo.complete
+        def wasReady = taskInfo.ready
+        taskInfo.finishExecution()
+        return queue.stateChanged(taskInfo, wasComplete, wasReady)
+    }
+
+    private int skip(TaskInfo taskInfo) {
+        def wasComplete = taskInfo.complete
+        def wasReady = taskInfo.ready
+        taskInfo.skipExecution()
+        return queue.stateChanged(taskInfo, wasComplete, wasReady)
+    }
+
+    private TaskInfo required(String name) {
+        def taskInfo = taskInfo(name)
+        taskInfo.require()
+        return taskInfo
+    }
+
+    private TaskInfo taskInfo(String name) {
+        def task = Stub(TaskInternal) {
+            getName() >> name
+            compareTo(_) >> { Task other -> name <=> other.name }
+        }
+        return new TaskInfo(task)
+    }
+}
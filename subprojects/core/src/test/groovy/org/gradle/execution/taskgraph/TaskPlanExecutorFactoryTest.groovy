@@ -18,16 +18,19 @@ package org.gradle.execution.taskgraph;
 
 
 import org.gradle.api.internal.changedetection.state.TaskArtifactStateCacheAccess
+import org.gradle.api.internal.changedetection.state.TaskDurationRepository
+import org.gradle.internal.Factory
 import org.gradle.internal.concurrent.ExecutorFactory
 import spock.lang.Specification
 
 public class TaskPlanExecutorFactoryTest extends Specification {
     final TaskArtifactStateCacheAccess cache = Mock()
     final ExecutorFactory executorFactory = Mock()
+    final Factory<TaskDurationRepository> taskDurationRepositoryFactory = Mock()
 
     def "creates a default executor"() {
         when:
-        def factory = new TaskPlanExecutorFactory(0, executorFactory)
+        def factory = new TaskPlanExecutorFactory(0, executorFactory, taskDurationRepositoryFactory)
 
         then:
         factory.create().class == DefaultTaskPlanExecutor
@@ -35,7 +38,7 @@ public class TaskPlanExecutorFactoryTest extends Specification {
 
     def "creates a parallel executor"() {
         when:
-        def factory = new TaskPlanExecutorFactory(parallelExecuterCount, executorFactory)
+        def factory = new TaskPlanExecutorFactory(parallelExecuterCount, executorFactory, taskDurationRepositoryFactory)
 
         then:
         factory.create().class == ParallelTaskPlanExecutor
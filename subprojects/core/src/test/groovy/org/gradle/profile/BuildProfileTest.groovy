@@ -93,4 +93,14 @@ class BuildProfileTest extends Specification {
         then:
         profile.buildStartedDescription == "Started on: 2010/02/01 - 12:25:00"
     }
+
+    def "groups statistics by category"() {
+        when:
+        profile.addStatistic("cache a", "hits", "1")
+        profile.addStatistic("cache b", "hits", "2")
+        profile.addStatistic("cache a", "misses", "3")
+
+        then:
+        profile.statistics == ["cache a": [hits: "1", misses: "3"], "cache b": [hits: "2"]]
+    }
 }
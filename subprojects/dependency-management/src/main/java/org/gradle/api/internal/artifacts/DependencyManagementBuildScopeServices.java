@@ -41,6 +41,7 @@ import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectDepende
 import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectPublicationRegistry;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.DefaultDependencyResolver;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.ResolutionResultsStoreFactory;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.ResolvedGraphCache;
 import org.gradle.api.internal.artifacts.mvnsettings.*;
 import org.gradle.api.internal.artifacts.repositories.transport.RepositoryTransportFactory;
 import org.gradle.api.internal.file.FileLookup;
@@ -55,6 +56,7 @@ import org.gradle.api.internal.project.ProjectRegistry;
 import org.gradle.cache.CacheRepository;
 import org.gradle.initialization.ProjectAccessListener;
 import org.gradle.internal.component.external.model.ModuleComponentArtifactMetaData;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.internal.resource.cached.ByUrlCachedExternalResourceIndex;
 import org.gradle.internal.resource.cached.ivy.ArtifactAtRepositoryCachedArtifactIndex;
@@ -214,7 +216,11 @@ class DependencyManagementBuildScopeServices {
                                                                 VersionComparator versionComparator,
                                                                 StartParameter startParameter,
                                                                 ComponentIdentifierFactory componentIdentifierFactory,
+                                                                ParallelResolveActionExecutor parallelResolveActionExecutor,
+                                                                ProgressLoggerFactory progressLoggerFactory,
+                                                                ResolvedGraphCache resolvedGraphCache,
                                                                 ServiceRegistry serviceRegistry) {
+        ParallelArtifactDownloader artifactDownloader = new ParallelArtifactDownloader(parallelResolveActionExecutor, progressLoggerFactory);
         DefaultDependencyResolver resolver = new DefaultDependencyResolver(
             serviceRegistry,
             resolveIvyFactory,
@@ -223,7 +229,10 @@ class DependencyManagementBuildScopeServices {
             ivyContextManager,
             resolutionResultsStoreFactory,
             versionComparator,
-            startParameter.isBuildProjectDependencies()
+            startParameter.isBuildProjectDependencies(),
+            parallelResolveActionExecutor.isEnabled() ? parallelResolveActionExecutor : null,
+            artifactDownloader.isEnabled() ? artifactDownloader : null,
+            resolvedGraphCache.isEnabled() ? resolvedGraphCache : null
         );
         return new ErrorHandlingArtifactDependencyResolver(
             new ShortcircuitEmptyConfigsArtifactDependencyResolver(
@@ -234,6 +243,16 @@ class DependencyManagementBuildScopeServices {
                 componentIdentifierFactory));
     }
 
+    ParallelResolveActionExecutor createParallelResolveActionExecutor(ExecutorFactory executorFactory, CacheLockingManager cacheLockingManager,
+                                                                      IvyContextManager ivyContextManager, StartParameter startParameter) {
+        return new ParallelResolveActionExecutor(executorFactory, cacheLockingManager, ivyContextManager, startParameter.getMaxWorkerCount());
+    }
+
+    ResolvedGraphCache createResolvedGraphCache(CacheLockingManager cacheLockingManager, BuildCommencedTimeProvider buildCommencedTimeProvider,
+                                                VersionSelectorScheme versionSelectorScheme, StartParameter startParameter) {
+        return new ResolvedGraphCache(cacheLockingManager, buildCommencedTimeProvider, versionSelectorScheme, startParameter.isRefreshDependencies());
+    }
+
     ResolutionResultsStoreFactory createResolutionResultsStoreFactory(TemporaryFileProvider temporaryFileProvider) {
         return new ResolutionResultsStoreFactory(temporaryFileProvider);
     }
@@ -64,6 +64,10 @@ public class DefaultCacheLockingManager implements CacheLockingManager, Closeabl
         cache.useCache(operationDisplayName, action);
     }
 
+    public <T> T readCache(String operationDisplayName, Factory<? extends T> action) {
+        return cache.readCache(operationDisplayName, action);
+    }
+
     public <T> T longRunningOperation(String operationDisplayName, Factory<? extends T> action) {
         return cache.longRunningOperation(operationDisplayName, action);
     }
@@ -15,6 +15,7 @@
  */
 package org.gradle.api.internal.artifacts.ivyservice;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.artifacts.*;
 import org.gradle.api.internal.artifacts.ResolveContext;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.ResolvedArtifactResults;
@@ -37,14 +38,25 @@ public class DefaultLenientConfiguration implements LenientConfiguration {
     private final ResolvedGraphResults graphResults;
     private final ResolvedArtifactResults artifactResults;
     private final Factory<TransientConfigurationResults> transientConfigurationResultsFactory;
+    private final ParallelArtifactDownloader artifactDownloader;
 
     public DefaultLenientConfiguration(Configuration configuration, CacheLockingManager cacheLockingManager, ResolvedGraphResults graphResults, ResolvedArtifactResults artifactResults,
                                        Factory<TransientConfigurationResults> transientConfigurationResultsLoader) {
+        this(configuration, cacheLockingManager, graphResults, artifactResults, transientConfigurationResultsLoader, null);
+    }
+
+    /**
+     * @param artifactDownloader Used to download the artifacts of the configuration concurrently before their files are collected. May be null, in which
+     * case the artifacts are downloaded one at a time as their files are collected.
+     */
+    public DefaultLenientConfiguration(Configuration configuration, CacheLockingManager cacheLockingManager, ResolvedGraphResults graphResults, ResolvedArtifactResults artifactResults,
+                                       Factory<TransientConfigurationResults> transientConfigurationResultsLoader, @Nullable ParallelArtifactDownloader artifactDownloader) {
         this.configuration = configuration;
         this.cacheLockingManager = cacheLockingManager;
         this.graphResults = graphResults;
         this.artifactResults = artifactResults;
         this.transientConfigurationResultsFactory = transientConfigurationResultsLoader;
+        this.artifactDownloader = artifactDownloader;
     }
 
     public boolean hasError() {
@@ -102,6 +114,7 @@ public class DefaultLenientConfiguration implements LenientConfiguration {
         final Set<ResolvedArtifact> allArtifacts = getAllArtifacts(dependencySpec);
         return cacheLockingManager.useCache("retrieve artifacts from " + configuration, new Factory<Set<ResolvedArtifact>>() {
             public Set<ResolvedArtifact> create() {
+                downloadArtifacts(allArtifacts);
                 return CollectionUtils.filter(allArtifacts, new Spec<ResolvedArtifact>() {
                     public boolean isSatisfiedBy(ResolvedArtifact element) {
                         try {
@@ -120,6 +133,7 @@ public class DefaultLenientConfiguration implements LenientConfiguration {
         final Set<File> files = new LinkedHashSet<File>();
         cacheLockingManager.useCache("resolve files from " + configuration, new Runnable() {
             public void run() {
+                downloadArtifacts(artifacts);
                 for (ResolvedArtifact artifact : artifacts) {
                     File depFile = artifact.getFile();
                     if (depFile != null) {
@@ -131,6 +145,12 @@ public class DefaultLenientConfiguration implements LenientConfiguration {
         return files;
     }
 
+    private void downloadArtifacts(Set<ResolvedArtifact> artifacts) {
+        if (artifactDownloader != null) {
+            artifactDownloader.download(configuration.toString(), artifacts);
+        }
+    }
+
     /**
      * Recursive, includes unsuccessfully resolved artifacts
      *
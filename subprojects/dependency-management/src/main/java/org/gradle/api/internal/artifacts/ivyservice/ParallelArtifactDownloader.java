@@ -0,0 +1,86 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ResolveActionExecutor;
+import org.gradle.logging.ProgressLogger;
+import org.gradle.logging.ProgressLoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Resolves the files of a set of artifacts concurrently, so that they are in the artifact cache by the time the files are collected in order. Only
+ * used when enabled using the {@value #PARALLEL_DOWNLOAD_PROPERTY} system property.
+ *
+ * <p>The downloads run on the threads of the given executor. The connections to each HTTP repository host are pooled, and limited by the
+ * {@code http.maxConnections} system property (5 by default), so that further downloads from the same repository wait for a connection. Each file
+ * is downloaded to a temporary file and then moved into the file store, so the file store only ever contains complete files.</p>
+ */
+public class ParallelArtifactDownloader {
+    public static final String PARALLEL_DOWNLOAD_PROPERTY = "org.gradle.internal.parallelArtifactDownload";
+
+    private final ResolveActionExecutor executor;
+    private final ProgressLoggerFactory progressLoggerFactory;
+
+    public ParallelArtifactDownloader(ResolveActionExecutor executor, ProgressLoggerFactory progressLoggerFactory) {
+        this.executor = executor;
+        this.progressLoggerFactory = progressLoggerFactory;
+    }
+
+    public boolean isEnabled() {
+        return Boolean.getBoolean(PARALLEL_DOWNLOAD_PROPERTY);
+    }
+
+    /**
+     * Resolves the file of each of the given artifacts. Failures are ignored here, and are reported when the file of the artifact is next requested.
+     * Must be called from an action that is using the artifact cache.
+     */
+    public void download(String displayName, Collection<? extends ResolvedArtifact> artifacts) {
+        if (artifacts.size() < 2) {
+            return;
+        }
+        final ProgressLogger progressLogger = progressLoggerFactory.newOperation(ParallelArtifactDownloader.class);
+        progressLogger.start("Download artifacts of " + displayName, "Download artifacts");
+        final int total = artifacts.size();
+        final int[] completed = new int[1];
+        List<Runnable> downloads = new ArrayList<Runnable>(total);
+        for (final ResolvedArtifact artifact : artifacts) {
+            downloads.add(new Runnable() {
+                public void run() {
+                    try {
+                        artifact.getFile();
+                    } catch (RuntimeException e) {
+                        // Reported when the file of the artifact is next requested
+                    } finally {
+                        synchronized (progressLogger) {
+                            completed[0]++;
+                            progressLogger.progress(String.format("%d/%d artifacts", completed[0], total));
+                        }
+                    }
+                }
+            });
+        }
+        try {
+            executor.runAll("download artifacts of " + displayName, downloads);
+        } finally {
+            progressLogger.completed();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.apache.ivy.Ivy;
+import org.gradle.api.Action;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ResolveActionExecutor;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Runs resolve actions on a bounded pool of threads. Only used when enabled using the {@value #PARALLEL_RESOLVE_PROPERTY} system property.
+ *
+ * <p>The calling thread gives up the artifact cache while it waits for the actions. Each action then takes the cache for itself, so the actions only
+ * run concurrently while they are in a long running operation, such as a network request, which releases the cache.</p>
+ */
+public class ParallelResolveActionExecutor implements ResolveActionExecutor, Stoppable {
+    public static final String PARALLEL_RESOLVE_PROPERTY = "org.gradle.internal.parallelMetaDataResolution";
+
+    private final ExecutorFactory executorFactory;
+    private final CacheLockingManager cacheLockingManager;
+    private final IvyContextManager ivyContextManager;
+    private final int maxConcurrency;
+    private final Object lock = new Object();
+    // Created on first use. Guarded by lock
+    private StoppableExecutor executor;
+
+    public ParallelResolveActionExecutor(ExecutorFactory executorFactory, CacheLockingManager cacheLockingManager, IvyContextManager ivyContextManager, int maxConcurrency) {
+        this.executorFactory = executorFactory;
+        this.cacheLockingManager = cacheLockingManager;
+        this.ivyContextManager = ivyContextManager;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public boolean isEnabled() {
+        return maxConcurrency > 1 && Boolean.getBoolean(PARALLEL_RESOLVE_PROPERTY);
+    }
+
+    public void runAll(final String displayName, final List<? extends Runnable> actions) {
+        if (actions.isEmpty()) {
+            return;
+        }
+        final StoppableExecutor executor = getExecutor();
+        final CountDownLatch completed = new CountDownLatch(actions.size());
+        final Throwable[] failure = new Throwable[1];
+        cacheLockingManager.longRunningOperation(displayName, new Runnable() {
+            public void run() {
+                for (final Runnable action : actions) {
+                    executor.execute(new Runnable() {
+                        public void run() {
+                            try {
+                                ivyContextManager.withIvy(new Action<Ivy>() {
+                                    public void execute(Ivy ivy) {
+                                        cacheLockingManager.useCache(displayName, action);
+                                    }
+                                });
+                            } catch (Throwable t) {
+                                synchronized (failure) {
+                                    if (failure[0] == null) {
+                                        failure[0] = t;
+                                    }
+                                }
+                            } finally {
+                                completed.countDown();
+                            }
+                        }
+                    });
+                }
+                try {
+                    completed.await();
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+        });
+        synchronized (failure) {
+            if (failure[0] != null) {
+                throw UncheckedException.throwAsUncheckedException(failure[0]);
+            }
+        }
+    }
+
+    private StoppableExecutor getExecutor() {
+        synchronized (lock) {
+            if (executor == null) {
+                executor = executorFactory.create("Dependency resolver", maxConcurrency);
+            }
+            return executor;
+        }
+    }
+
+    public void stop() {
+        StoppableExecutor executor;
+        synchronized (lock) {
+            executor = this.executor;
+            this.executor = null;
+        }
+        if (executor != null) {
+            executor.stop();
+        }
+    }
+}
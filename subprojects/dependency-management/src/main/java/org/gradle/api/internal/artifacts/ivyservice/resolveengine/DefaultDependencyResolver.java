@@ -18,6 +18,7 @@ package org.gradle.api.internal.artifacts.ivyservice.resolveengine;
 import com.google.common.collect.Lists;
 import org.apache.ivy.Ivy;
 import org.gradle.api.Action;
+import org.gradle.api.Nullable;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.ResolveException;
 import org.gradle.api.artifacts.component.ComponentIdentifier;
@@ -27,6 +28,7 @@ import org.gradle.api.internal.artifacts.DefaultResolverResults;
 import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules;
 import org.gradle.api.internal.artifacts.ResolveContext;
 import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal;
+import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData;
 import org.gradle.api.internal.artifacts.ivyservice.*;
 import org.gradle.api.internal.artifacts.ivyservice.clientmodule.ClientModuleResolver;
 import org.gradle.api.internal.artifacts.ivyservice.dependencysubstitution.DependencySubstitutionResolver;
@@ -36,7 +38,9 @@ import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ResolverProvider;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionComparator;
 import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.dependencies.DependencyDescriptorFactory;
 import org.gradle.api.internal.artifacts.ivyservice.resolutionstrategy.StrictConflictResolution;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.CacheableGraphVisitor;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphBuilder;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ResolveActionExecutor;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts.ConflictHandler;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts.DefaultConflictHandler;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.*;
@@ -45,6 +49,8 @@ import org.gradle.api.internal.artifacts.ivyservice.resolveengine.projectresult.
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ResolutionResultBuilder;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.StreamingResolutionResultBuilder;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.ResolutionResultsStoreFactory;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.ResolvedGraphCache;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.ResolvedGraphRecorder;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.StoreSet;
 import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
 import org.gradle.api.internal.cache.BinaryStore;
@@ -79,11 +85,15 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
     private final ResolutionResultsStoreFactory storeFactory;
     private final VersionComparator versionComparator;
     private final boolean buildProjectDependencies;
+    private final ResolveActionExecutor prefetchExecutor;
+    private final ParallelArtifactDownloader artifactDownloader;
+    private final ResolvedGraphCache graphCache;
 
     public DefaultDependencyResolver(ServiceRegistry serviceRegistry, ResolveIvyFactory ivyFactory, DependencyDescriptorFactory dependencyDescriptorFactory,
                                      CacheLockingManager cacheLockingManager, IvyContextManager ivyContextManager,
                                      ResolutionResultsStoreFactory storeFactory, VersionComparator versionComparator,
-                                     boolean buildProjectDependencies) {
+                                     boolean buildProjectDependencies, @Nullable ResolveActionExecutor prefetchExecutor,
+                                     @Nullable ParallelArtifactDownloader artifactDownloader, @Nullable ResolvedGraphCache graphCache) {
         this.serviceRegistry = serviceRegistry;
         this.ivyFactory = ivyFactory;
         this.dependencyDescriptorFactory = dependencyDescriptorFactory;
@@ -92,6 +102,9 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
         this.storeFactory = storeFactory;
         this.versionComparator = versionComparator;
         this.buildProjectDependencies = buildProjectDependencies;
+        this.prefetchExecutor = prefetchExecutor;
+        this.artifactDownloader = artifactDownloader;
+        this.graphCache = graphCache;
     }
 
     private <T> List<T> allServices(Class<T> serviceType, T... additionals) {
@@ -128,7 +141,7 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
                 conflictResolver = new VersionSelectionReasonResolver(conflictResolver);
                 ConflictHandler conflictHandler = new DefaultConflictHandler(conflictResolver, metadataHandler.getModuleMetadataProcessor().getModuleReplacements());
                 DefaultResolveContextToComponentResolver moduleResolver = new DefaultResolveContextToComponentResolver(new LocalComponentFactoryChain(localComponentFactories));
-                DependencyGraphBuilder builder = new DependencyGraphBuilder(wrappingProvider, moduleResolver, conflictHandler, new DefaultDependencyToConfigurationResolver());
+                DependencyGraphBuilder builder = new DependencyGraphBuilder(wrappingProvider, moduleResolver, conflictHandler, new DefaultDependencyToConfigurationResolver(), prefetchExecutor);
 
                 StoreSet stores = storeFactory.createStoreSet();
 
@@ -142,9 +155,27 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
                 DefaultResolvedConfigurationBuilder oldModelBuilder = new DefaultResolvedConfigurationBuilder(oldTransientModelBuilder);
                 ResolvedLocalComponentsResultBuilder localComponentsResultBuilder = new DefaultResolvedLocalComponentsResultBuilder(buildProjectDependencies);
 
-                // Resolve the dependency graph
+                // Resolve the dependency graph, or replay it from the cache
                 DefaultResolvedArtifactsBuilder artifactsBuilder = new DefaultResolvedArtifactsBuilder();
-                builder.resolve(resolveContext, newModelBuilder, oldModelBuilder, artifactsBuilder, localComponentsResultBuilder);
+                ResolvedGraphCache.Key graphKey = graphCache == null ? null : graphCache.createKey(resolveContext, repositories, metadataHandler);
+                if (graphKey == null) {
+                    builder.resolve(resolveContext, newModelBuilder, oldModelBuilder, artifactsBuilder, localComponentsResultBuilder);
+                } else {
+                    ModuleReplacementsData moduleReplacements = metadataHandler.getModuleMetadataProcessor().getModuleReplacements();
+                    byte[] cachedGraph = graphCache.load(graphKey, resolutionStrategy.getCachePolicy(), moduleReplacements);
+                    if (cachedGraph != null) {
+                        LOGGER.debug("Using cached dependency graph for {}", resolveContext);
+                        ResolvedGraphRecorder.replay(cachedGraph, graphKey.getDeclaredDependencies(), newModelBuilder, oldModelBuilder, artifactsBuilder, wrappingProvider.getArtifactResolver());
+                    } else {
+                        ResolvedGraphRecorder recorder = new ResolvedGraphRecorder(graphKey.getDeclaredDependencies());
+                        CacheableGraphVisitor cacheableGraphVisitor = graphCache.createCacheableGraphVisitor();
+                        builder.resolve(resolveContext, recorder.recording(newModelBuilder), recorder.recording(oldModelBuilder), recorder.recording(artifactsBuilder),
+                            recorder.recording(localComponentsResultBuilder), cacheableGraphVisitor);
+                        if (cacheableGraphVisitor.isCacheable()) {
+                            graphCache.store(graphKey, recorder, moduleReplacements);
+                        }
+                    }
+                }
                 results.resolved(newModelBuilder.complete(), localComponentsResultBuilder.complete());
 
                 ResolvedGraphResults graphResults = oldModelBuilder.complete();
@@ -167,7 +198,7 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
             Factory<TransientConfigurationResults> transientConfigurationResultsFactory = new TransientConfigurationResultsLoader(results.getTransientConfigurationResultsBuilder(), graphResults, artifactResults);
 
             DefaultLenientConfiguration result = new DefaultLenientConfiguration(
-                (Configuration) resolveContext, cacheLockingManager, graphResults, artifactResults, transientConfigurationResultsFactory);
+                (Configuration) resolveContext, cacheLockingManager, graphResults, artifactResults, transientConfigurationResultsFactory, artifactDownloader);
             results.withResolvedConfiguration(new DefaultResolvedConfiguration(result));
         } else {
             results.getResolutionResult().allComponents(new Action<ResolvedComponentResult>() {
@@ -24,7 +24,6 @@ import org.gradle.api.internal.artifacts.ivyservice.dynamicversions.DefaultResol
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.ModuleResolutionFilter;
 import org.gradle.internal.Factory;
 import org.gradle.internal.component.model.ComponentArtifactMetaData;
-import org.gradle.internal.component.model.IvyArtifactName;
 import org.gradle.internal.component.model.ModuleSource;
 import org.gradle.internal.resolve.resolver.ArtifactResolver;
 import org.gradle.internal.resolve.result.DefaultBuildableArtifactResolveResult;
@@ -56,19 +55,36 @@ public abstract class AbstractArtifactSet implements ArtifactSet {
         return id;
     }
 
-    public Set<ResolvedArtifact> getArtifacts() {
+    public ModuleVersionIdentifier getOwnerId() {
+        return moduleVersionIdentifier;
+    }
+
+    public ModuleSource getModuleSource() {
+        return moduleSource;
+    }
+
+    /**
+     * Returns the meta-data of the artifacts in this set, excluding those that are filtered out by the selector.
+     */
+    public Set<ComponentArtifactMetaData> getComponentArtifacts() {
         Set<ComponentArtifactMetaData> componentArtifacts = resolveComponentArtifacts();
-        Set<ResolvedArtifact> resolvedArtifacts = new LinkedHashSet<ResolvedArtifact>(componentArtifacts.size());
+        Set<ComponentArtifactMetaData> selectedArtifacts = new LinkedHashSet<ComponentArtifactMetaData>(componentArtifacts.size());
         for (ComponentArtifactMetaData artifact : componentArtifacts) {
-            IvyArtifactName artifactName = artifact.getName();
-            if (!selector.acceptArtifact(moduleVersionIdentifier.getModule(), artifactName)) {
-                continue;
+            if (selector.acceptArtifact(moduleVersionIdentifier.getModule(), artifact.getName())) {
+                selectedArtifacts.add(artifact);
             }
+        }
+        return selectedArtifacts;
+    }
 
+    public Set<ResolvedArtifact> getArtifacts() {
+        Set<ComponentArtifactMetaData> componentArtifacts = getComponentArtifacts();
+        Set<ResolvedArtifact> resolvedArtifacts = new LinkedHashSet<ResolvedArtifact>(componentArtifacts.size());
+        for (ComponentArtifactMetaData artifact : componentArtifacts) {
             ResolvedArtifact resolvedArtifact = allResolvedArtifacts.get(artifact.getId());
             if (resolvedArtifact == null) {
                 Factory<File> artifactSource = new LazyArtifactSource(artifact, moduleSource, artifactResolver);
-                resolvedArtifact = new DefaultResolvedArtifact(new DefaultResolvedModuleVersion(moduleVersionIdentifier), artifactName, artifact.getId(), artifactSource);
+                resolvedArtifact = new DefaultResolvedArtifact(new DefaultResolvedModuleVersion(moduleVersionIdentifier), artifact.getName(), artifact.getId(), artifactSource);
                 allResolvedArtifacts.put(artifact.getId(), resolvedArtifact);
             }
             resolvedArtifacts.add(resolvedArtifact);
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph;
+
+import org.gradle.api.artifacts.ModuleVersionSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+
+/**
+ * Determines whether a resolved graph can be reused by a later build with the same inputs. This is the case when the graph has no failures, and every
+ * component other than the root is an external module that was selected using fixed versions and is not changing.
+ */
+public class CacheableGraphVisitor implements DependencyGraphVisitor {
+    private final VersionSelectorScheme versionSelectorScheme;
+    private DependencyGraphBuilder.ConfigurationNode root;
+    private boolean cacheable = true;
+
+    public CacheableGraphVisitor(VersionSelectorScheme versionSelectorScheme) {
+        this.versionSelectorScheme = versionSelectorScheme;
+    }
+
+    public boolean isCacheable() {
+        return cacheable;
+    }
+
+    public void start(DependencyGraphBuilder.ConfigurationNode root) {
+        this.root = root;
+    }
+
+    public void visitNode(DependencyGraphBuilder.ConfigurationNode resolvedConfiguration) {
+        if (!cacheable) {
+            return;
+        }
+        if (resolvedConfiguration.moduleRevision != root.moduleRevision) {
+            if (!(resolvedConfiguration.getComponentId() instanceof ModuleComponentIdentifier) || resolvedConfiguration.moduleRevision.getMetaData().isChanging()) {
+                cacheable = false;
+                return;
+            }
+        }
+        for (DependencyGraphBuilder.DependencyEdge dependency : resolvedConfiguration.outgoingEdges) {
+            if (dependency.getFailure() != null || !isFixedVersion(dependency.getRequestedModuleVersion())) {
+                cacheable = false;
+                return;
+            }
+        }
+    }
+
+    private boolean isFixedVersion(ModuleVersionSelector requested) {
+        return requested.getVersion() != null && !versionSelectorScheme.parseSelector(requested.getVersion()).isDynamic();
+    }
+
+    public void visitEdge(DependencyGraphBuilder.ConfigurationNode resolvedConfiguration) {
+    }
+
+    public void finish(DependencyGraphBuilder.ConfigurationNode root) {
+    }
+}
@@ -30,7 +30,7 @@ import java.util.Set;
 /**
  * A set of artifacts that is defined by a dependency declaration.
  */
-class DependencyArtifactSet extends AbstractArtifactSet {
+public class DependencyArtifactSet extends AbstractArtifactSet {
     private final Set<ComponentArtifactMetaData> artifacts;
 
     public DependencyArtifactSet(ModuleVersionIdentifier ownerId, ModuleSource moduleSource, Set<ComponentArtifactMetaData> artifacts,
@@ -17,9 +17,11 @@ package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph;
 
 import com.google.common.base.Joiner;
 import org.gradle.api.Action;
+import org.gradle.api.Nullable;
 import org.gradle.api.artifacts.*;
 import org.gradle.api.artifacts.component.ComponentIdentifier;
 import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
 import org.gradle.api.artifacts.result.ComponentSelectionReason;
 import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
 import org.gradle.api.internal.artifacts.ResolveContext;
@@ -58,17 +60,31 @@ public class DependencyGraphBuilder {
     private final ArtifactResolver artifactResolver;
     private final DependencyToComponentIdResolver idResolver;
     private final ComponentMetaDataResolver metaDataResolver;
+    private final ResolveActionExecutor prefetchExecutor;
 
     public DependencyGraphBuilder(ResolverProvider resolverProvider,
                                   ResolveContextToComponentResolver moduleResolver,
                                   ConflictHandler conflictHandler,
                                   DependencyToConfigurationResolver dependencyToConfigurationResolver) {
+        this(resolverProvider, moduleResolver, conflictHandler, dependencyToConfigurationResolver, null);
+    }
+
+    /**
+     * @param prefetchExecutor Used to resolve the targets of the outgoing edges of each configuration concurrently. May be null, in which case each
+     * target is resolved when the traversal reaches it.
+     */
+    public DependencyGraphBuilder(ResolverProvider resolverProvider,
+                                  ResolveContextToComponentResolver moduleResolver,
+                                  ConflictHandler conflictHandler,
+                                  DependencyToConfigurationResolver dependencyToConfigurationResolver,
+                                  @Nullable ResolveActionExecutor prefetchExecutor) {
         this.idResolver = resolverProvider.getComponentIdResolver();
         this.metaDataResolver = resolverProvider.getComponentResolver();
         this.artifactResolver = resolverProvider.getArtifactResolver();
         this.moduleResolver = moduleResolver;
         this.conflictHandler = conflictHandler;
         this.dependencyToConfigurationResolver = dependencyToConfigurationResolver;
+        this.prefetchExecutor = prefetchExecutor;
     }
 
     public void resolve(ResolveContext resolveContext,
@@ -76,12 +92,28 @@ public class DependencyGraphBuilder {
                         ResolvedConfigurationBuilder oldModelBuilder,
                         ResolvedArtifactsBuilder artifactsBuilder,
                         ResolvedLocalComponentsResultBuilder projectModelBuilder) throws ResolveException {
+        resolveDependencyGraph(resolveContext, createModelVisitor(newModelBuilder, oldModelBuilder, artifactsBuilder, projectModelBuilder));
+    }
+
+    /**
+     * Resolves the graph as above, and also determines whether the resulting graph can be reused by a later build.
+     */
+    public void resolve(ResolveContext resolveContext,
+                        ResolutionResultBuilder newModelBuilder,
+                        ResolvedConfigurationBuilder oldModelBuilder,
+                        ResolvedArtifactsBuilder artifactsBuilder,
+                        ResolvedLocalComponentsResultBuilder projectModelBuilder,
+                        CacheableGraphVisitor cacheableGraphVisitor) throws ResolveException {
+        DependencyGraphVisitor modelVisitor = createModelVisitor(newModelBuilder, oldModelBuilder, artifactsBuilder, projectModelBuilder);
+        resolveDependencyGraph(resolveContext, new CompositeDependencyGraphVisitor(cacheableGraphVisitor, modelVisitor));
+    }
+
+    private DependencyGraphVisitor createModelVisitor(ResolutionResultBuilder newModelBuilder, ResolvedConfigurationBuilder oldModelBuilder,
+                                                      ResolvedArtifactsBuilder artifactsBuilder, ResolvedLocalComponentsResultBuilder projectModelBuilder) {
         DependencyGraphVisitor oldModelVisitor = new ResolvedConfigurationDependencyGraphVisitor(oldModelBuilder, artifactsBuilder, artifactResolver);
         DependencyGraphVisitor newModelVisitor = new ResolutionResultDependencyGraphVisitor(newModelBuilder);
         DependencyGraphVisitor projectModelVisitor = new ResolvedLocalComponentsResultGraphVisitor(projectModelBuilder);
-        DependencyGraphVisitor modelVisitor = new CompositeDependencyGraphVisitor(oldModelVisitor, newModelVisitor, projectModelVisitor);
-
-        resolveDependencyGraph(resolveContext, modelVisitor);
+        return new CompositeDependencyGraphVisitor(oldModelVisitor, newModelVisitor, projectModelVisitor);
     }
 
     private void resolveDependencyGraph(ResolveContext resolveContext, DependencyGraphVisitor modelVisitor) {
@@ -111,6 +143,9 @@ public class DependencyGraphBuilder {
                 // Calculate the outgoing edges of this configuration
                 dependencies.clear();
                 node.visitOutgoingDependencies(dependencies);
+                if (prefetchExecutor != null) {
+                    prefetch(resolveState, dependencies);
+                }
 
                 for (DependencyEdge dependency : dependencies) {
                     LOGGER.debug("Visiting dependency {}", dependency);
@@ -121,11 +156,10 @@ public class DependencyGraphBuilder {
                         // Failed to resolve.
                         continue;
                     }
-                    ModuleIdentifier moduleId = moduleRevision.id.getModule();
 
                     // Check for a new conflict
                     if (moduleRevision.state == ModuleState.New) {
-                        ModuleResolveState module = resolveState.getModule(moduleId);
+                        ModuleResolveState module = moduleRevision.module;
 
                         // A new module revision. Check for conflict
                         PotentialConflict c = conflictHandler.registerModule(module);
@@ -173,6 +207,58 @@ public class DependencyGraphBuilder {
         }
     }
 
+    /**
+     * Resolves the targets of the given edges concurrently, ahead of the traversal. Only the resolvers are called here, and the traversal takes the
+     * results in its usual order, so the graph is the same as when each target is resolved as it is reached. Failures are also kept until the
+     * traversal reaches the edge.
+     *
+     * <p>First the selectors of the edges are resolved to component ids, and then the meta-data of those components which are new to the graph.
+     * The meta-data of a component may be resolved even if the component is later evicted by conflict resolution. Project dependencies are left
+     * to the traversal, as resolving them uses the project model.</p>
+     */
+    private void prefetch(ResolveState resolveState, List<DependencyEdge> dependencies) {
+        Set<ModuleVersionSelectorResolveState> selectors = new LinkedHashSet<ModuleVersionSelectorResolveState>();
+        for (DependencyEdge dependency : dependencies) {
+            if (dependency.selector.canPrefetch()) {
+                selectors.add(dependency.selector);
+            }
+        }
+        if (selectors.size() < 2) {
+            return;
+        }
+
+        List<Runnable> idResolves = new ArrayList<Runnable>();
+        for (final ModuleVersionSelectorResolveState selector : selectors) {
+            idResolves.add(new Runnable() {
+                public void run() {
+                    selector.prefetchId();
+                }
+            });
+        }
+        prefetchExecutor.runAll(String.format("resolve %d dependencies", idResolves.size()), idResolves);
+
+        // The first selector in traversal order to choose a new component is the one the traversal uses to resolve its meta-data
+        Set<ModuleVersionIdentifier> newComponents = new HashSet<ModuleVersionIdentifier>();
+        List<Runnable> metaDataResolves = new ArrayList<Runnable>();
+        for (final ModuleVersionSelectorResolveState selector : selectors) {
+            ComponentIdResolveResult idResolveResult = selector.prefetchedIdResolveResult;
+            if (idResolveResult == null || idResolveResult.getFailure() != null || idResolveResult.getMetaData() != null) {
+                continue;
+            }
+            ModuleVersionIdentifier id = idResolveResult.getModuleVersionId();
+            if (resolveState.findRevision(id) == null && newComponents.add(id)) {
+                metaDataResolves.add(new Runnable() {
+                    public void run() {
+                        selector.prefetchMetaData();
+                    }
+                });
+            }
+        }
+        if (metaDataResolves.size() > 1) {
+            prefetchExecutor.runAll(String.format("resolve meta-data of %d components", metaDataResolves.size()), metaDataResolves);
+        }
+    }
+
     /**
      * Populates the result from the graph traversal state.
      */
@@ -321,16 +407,21 @@ public class DependencyGraphBuilder {
 
     /**
      * Global resolution state.
+     *
+     * <p>Module identifiers are interned, so that the graph holds a single identifier for each module and can look up its state by identity without
+     * allocating an identifier for each dependency. Configuration nodes are numbered in the order they are added to the graph, and are
+     * found through their module version.</p>
      */
     private static class ResolveState {
-        private final Map<ModuleIdentifier, ModuleResolveState> modules = new LinkedHashMap<ModuleIdentifier, ModuleResolveState>();
-        private final Map<ResolvedConfigurationIdentifier, ConfigurationNode> nodes = new LinkedHashMap<ResolvedConfigurationIdentifier, ConfigurationNode>();
+        private final Map<String, Map<String, ModuleIdentifier>> moduleIds = new HashMap<String, Map<String, ModuleIdentifier>>();
+        private final Map<ModuleIdentifier, ModuleResolveState> modules = new IdentityHashMap<ModuleIdentifier, ModuleResolveState>();
+        private final List<ConfigurationNode> nodes = new ArrayList<ConfigurationNode>();
         private final Map<ModuleVersionSelector, ModuleVersionSelectorResolveState> selectors = new LinkedHashMap<ModuleVersionSelector, ModuleVersionSelectorResolveState>();
         private final RootConfigurationNode root;
         private final DependencyToComponentIdResolver idResolver;
         private final ComponentMetaDataResolver metaDataResolver;
         private final DependencyToConfigurationResolver dependencyToConfigurationResolver;
-        private final Set<ConfigurationNode> queued = new HashSet<ConfigurationNode>();
+        private final BitSet queued = new BitSet();
         private final LinkedList<ConfigurationNode> queue = new LinkedList<ConfigurationNode>();
 
         public ResolveState(ComponentResolveResult rootResult, String rootConfigurationName, DependencyToComponentIdResolver idResolver,
@@ -340,12 +431,34 @@ public class DependencyGraphBuilder {
             this.dependencyToConfigurationResolver = dependencyToConfigurationResolver;
             ModuleVersionResolveState rootVersion = getRevision(rootResult.getId());
             rootVersion.setMetaData(rootResult.getMetaData());
-            root = new RootConfigurationNode(rootVersion, new ResolvedConfigurationIdentifier(rootVersion.id, rootConfigurationName), this);
-            nodes.put(root.id, root);
+            root = new RootConfigurationNode(nodes.size(), rootVersion, new ResolvedConfigurationIdentifier(rootVersion.id, rootConfigurationName), this);
+            nodes.add(root);
             root.moduleRevision.module.select(root.moduleRevision);
         }
 
+        /**
+         * Returns the interned identifier for the given module.
+         */
+        public ModuleIdentifier getModuleId(String group, String name) {
+            Map<String, ModuleIdentifier> idsByName = moduleIds.get(group);
+            if (idsByName == null) {
+                idsByName = new HashMap<String, ModuleIdentifier>();
+                moduleIds.put(group, idsByName);
+            }
+            ModuleIdentifier id = idsByName.get(name);
+            if (id == null) {
+                id = DefaultModuleIdentifier.newId(group, name);
+                idsByName.put(name, id);
+            }
+            return id;
+        }
+
         public ModuleResolveState getModule(ModuleIdentifier id) {
+            return getModule(id.getGroup(), id.getName());
+        }
+
+        public ModuleResolveState getModule(String group, String name) {
+            ModuleIdentifier id = getModuleId(group, name);
             ModuleResolveState module = modules.get(id);
             if (module == null) {
                 module = new ModuleResolveState(id, this, metaDataResolver);
@@ -355,19 +468,27 @@ public class DependencyGraphBuilder {
         }
 
         public ModuleVersionResolveState getRevision(ModuleVersionIdentifier id) {
-            return getModule(id.getModule()).getVersion(id);
+            return getModule(id.getGroup(), id.getName()).getVersion(id);
+        }
+
+        /**
+         * Returns the given revision, or null if it is not yet part of the graph.
+         */
+        @Nullable
+        public ModuleVersionResolveState findRevision(ModuleVersionIdentifier id) {
+            ModuleResolveState module = modules.get(getModuleId(id.getGroup(), id.getName()));
+            return module == null ? null : module.versions.get(id.getVersion());
         }
 
         public Collection<ConfigurationNode> getConfigurationNodes() {
-            return nodes.values();
+            return nodes;
         }
 
         public ConfigurationNode getConfigurationNode(ModuleVersionResolveState module, String configurationName) {
-            ResolvedConfigurationIdentifier id = new ResolvedConfigurationIdentifier(module.id, configurationName);
-            ConfigurationNode configuration = nodes.get(id);
+            ConfigurationNode configuration = module.findConfiguration(configurationName);
             if (configuration == null) {
-                configuration = new ConfigurationNode(id, module, this);
-                nodes.put(id, configuration);
+                configuration = new ConfigurationNode(nodes.size(), new ResolvedConfigurationIdentifier(module.id, configurationName), module, this);
+                nodes.add(configuration);
             }
             return configuration;
         }
@@ -388,7 +509,7 @@ public class DependencyGraphBuilder {
 
         public ConfigurationNode pop() {
             ConfigurationNode next = queue.removeFirst();
-            queued.remove(next);
+            queued.clear(next.index);
             return next;
         }
 
@@ -398,7 +519,8 @@ public class DependencyGraphBuilder {
         public void onMoreSelected(ConfigurationNode configuration) {
             // Add to the end of the queue, so that we traverse the graph in breadth-wise order to pick up as many conflicts as
             // possible before attempting to resolve them
-            if (queued.add(configuration)) {
+            if (!queued.get(configuration.index)) {
+                queued.set(configuration.index);
                 queue.addLast(configuration);
             }
         }
@@ -408,7 +530,8 @@ public class DependencyGraphBuilder {
          */
         public void onFewerSelected(ConfigurationNode configuration) {
             // Add to the front of the queue, to flush out configurations that are no longer required.
-            if (queued.add(configuration)) {
+            if (!queued.get(configuration.index)) {
+                queued.set(configuration.index);
                 queue.addFirst(configuration);
             }
         }
@@ -428,7 +551,8 @@ public class DependencyGraphBuilder {
         final ComponentMetaDataResolver metaDataResolver;
         final ModuleIdentifier id;
         final Set<DependencyEdge> unattachedDependencies = new LinkedHashSet<DependencyEdge>();
-        final Map<ModuleVersionIdentifier, ModuleVersionResolveState> versions = new LinkedHashMap<ModuleVersionIdentifier, ModuleVersionResolveState>();
+        // Keyed by version, as the versions all belong to this module
+        final Map<String, ModuleVersionResolveState> versions = new LinkedHashMap<String, ModuleVersionResolveState>();
         final Set<ModuleVersionSelectorResolveState> selectors = new HashSet<ModuleVersionSelectorResolveState>();
         final ResolveState resolveState;
         ModuleVersionResolveState selected;
@@ -493,10 +617,10 @@ public class DependencyGraphBuilder {
         }
 
         public ModuleVersionResolveState getVersion(ModuleVersionIdentifier id) {
-            ModuleVersionResolveState moduleRevision = versions.get(id);
+            ModuleVersionResolveState moduleRevision = versions.get(id.getVersion());
             if (moduleRevision == null) {
                 moduleRevision = new ModuleVersionResolveState(this, id, metaDataResolver);
-                versions.put(id, moduleRevision);
+                versions.put(id.getVersion(), moduleRevision);
             }
 
             return moduleRevision;
@@ -571,8 +695,11 @@ public class DependencyGraphBuilder {
                 return;
             }
 
-            DefaultBuildableComponentResolveResult result = new DefaultBuildableComponentResolveResult();
-            resolver.resolve(idResolveResult.getId(), DefaultComponentOverrideMetadata.forDependency(firstReference.dependencyMetaData), result);
+            BuildableComponentResolveResult result = firstReference.takePrefetchedMetaData();
+            if (result == null) {
+                result = new DefaultBuildableComponentResolveResult();
+                resolver.resolve(idResolveResult.getId(), DefaultComponentOverrideMetadata.forDependency(firstReference.dependencyMetaData), result);
+            }
             if (result.getFailure() != null) {
                 failure = result.getFailure();
                 return;
@@ -596,6 +723,20 @@ public class DependencyGraphBuilder {
             configurations.add(configurationNode);
         }
 
+        /**
+         * Returns the node for the given configuration of this module version, or null if it is not yet part of the graph.
+         */
+        @Nullable
+        public ConfigurationNode findConfiguration(String configurationName) {
+            // A module version usually has very few configurations in the graph
+            for (ConfigurationNode configuration : configurations) {
+                if (configuration.id.getConfiguration().equals(configurationName)) {
+                    return configuration;
+                }
+            }
+            return null;
+        }
+
         public ComponentSelectionReason getSelectionReason() {
             return selectionReason;
         }
@@ -623,6 +764,8 @@ public class DependencyGraphBuilder {
      * Represents a node in the dependency graph.
      */
     static class ConfigurationNode {
+        // The position of this node in the graph, in the order the nodes were added
+        final int index;
         public final ModuleVersionResolveState moduleRevision;
         public final Set<DependencyEdge> incomingEdges = new LinkedHashSet<DependencyEdge>();
         public final Set<DependencyEdge> outgoingEdges = new LinkedHashSet<DependencyEdge>();
@@ -632,7 +775,8 @@ public class DependencyGraphBuilder {
         private final ResolveState resolveState;
         private ModuleResolutionFilter previousTraversal;
 
-        private ConfigurationNode(ResolvedConfigurationIdentifier id, ModuleVersionResolveState moduleRevision, ResolveState resolveState) {
+        private ConfigurationNode(int index, ResolvedConfigurationIdentifier id, ModuleVersionResolveState moduleRevision, ResolveState resolveState) {
+            this.index = index;
             this.id = id;
             this.moduleRevision = moduleRevision;
             this.resolveState = resolveState;
@@ -706,7 +850,7 @@ public class DependencyGraphBuilder {
             }
 
             for (DependencyMetaData dependency : metaData.getDependencies()) {
-                ModuleIdentifier targetModuleId = DefaultModuleIdentifier.newId(dependency.getRequested().getGroup(), dependency.getRequested().getName());
+                ModuleIdentifier targetModuleId = resolveState.getModuleId(dependency.getRequested().getGroup(), dependency.getRequested().getName());
                 if (isExcluded(resolutionFilter, targetModuleId)) {
                     continue;
                 }
@@ -792,8 +936,8 @@ public class DependencyGraphBuilder {
     }
 
     private static class RootConfigurationNode extends ConfigurationNode {
-        private RootConfigurationNode(ModuleVersionResolveState moduleRevision, ResolvedConfigurationIdentifier id, ResolveState resolveState) {
-            super(id, moduleRevision, resolveState);
+        private RootConfigurationNode(int index, ModuleVersionResolveState moduleRevision, ResolvedConfigurationIdentifier id, ResolveState resolveState) {
+            super(index, id, moduleRevision, resolveState);
         }
 
         @Override
@@ -817,12 +961,17 @@ public class DependencyGraphBuilder {
         ModuleResolveState targetModule;
         ModuleVersionResolveState targetModuleRevision;
         BuildableComponentIdResolveResult idResolveResult;
+        // Results resolved ahead of the traversal, and any unexpected failure while doing so, kept until the traversal needs them
+        BuildableComponentIdResolveResult prefetchedIdResolveResult;
+        RuntimeException prefetchedIdFailure;
+        BuildableComponentResolveResult prefetchedMetaData;
+        RuntimeException prefetchedMetaDataFailure;
 
         private ModuleVersionSelectorResolveState(DependencyMetaData dependencyMetaData, DependencyToComponentIdResolver resolver, ResolveState resolveState) {
             this.dependencyMetaData = dependencyMetaData;
             this.resolver = resolver;
             this.resolveState = resolveState;
-            targetModule = resolveState.getModule(new DefaultModuleIdentifier(dependencyMetaData.getRequested().getGroup(), dependencyMetaData.getRequested().getName()));
+            targetModule = resolveState.getModule(dependencyMetaData.getRequested().getGroup(), dependencyMetaData.getRequested().getName());
         }
 
         @Override
@@ -857,8 +1006,18 @@ public class DependencyGraphBuilder {
                 return null;
             }
 
-            idResolveResult = new DefaultBuildableComponentIdResolveResult();
-            resolver.resolve(dependencyMetaData, idResolveResult);
+            if (prefetchedIdFailure != null) {
+                RuntimeException prefetchFailure = prefetchedIdFailure;
+                prefetchedIdFailure = null;
+                throw prefetchFailure;
+            }
+            if (prefetchedIdResolveResult != null) {
+                idResolveResult = prefetchedIdResolveResult;
+                prefetchedIdResolveResult = null;
+            } else {
+                idResolveResult = new DefaultBuildableComponentIdResolveResult();
+                resolver.resolve(dependencyMetaData, idResolveResult);
+            }
             if (idResolveResult.getFailure() != null) {
                 failure = idResolveResult.getFailure();
                 return null;
@@ -877,6 +1036,56 @@ public class DependencyGraphBuilder {
             this.targetModuleRevision = moduleRevision;
             this.targetModule = moduleRevision.module;
         }
+
+        /**
+         * Returns true when this selector is a module dependency that the traversal has yet to resolve.
+         */
+        boolean canPrefetch() {
+            return targetModuleRevision == null && failure == null && prefetchedIdResolveResult == null && prefetchedIdFailure == null
+                && dependencyMetaData.getSelector() instanceof ModuleComponentSelector;
+        }
+
+        /**
+         * Resolves the component id of this selector ahead of the traversal. Does not change the graph, so may be called from any thread.
+         */
+        void prefetchId() {
+            BuildableComponentIdResolveResult result = new DefaultBuildableComponentIdResolveResult();
+            try {
+                resolver.resolve(dependencyMetaData, result);
+                prefetchedIdResolveResult = result;
+            } catch (RuntimeException e) {
+                prefetchedIdFailure = e;
+            }
+        }
+
+        /**
+         * Resolves the meta-data of the component chosen by {@link #prefetchId()}, in the same way as {@link ModuleVersionResolveState#resolve()}
+         * does when this selector is the first reference to the component. Does not change the graph, so may be called from any thread.
+         */
+        void prefetchMetaData() {
+            BuildableComponentResolveResult result = new DefaultBuildableComponentResolveResult();
+            try {
+                resolveState.metaDataResolver.resolve(prefetchedIdResolveResult.getId(), DefaultComponentOverrideMetadata.forDependency(dependencyMetaData), result);
+                prefetchedMetaData = result;
+            } catch (RuntimeException e) {
+                prefetchedMetaDataFailure = e;
+            }
+        }
+
+        /**
+         * Returns the meta-data resolved by {@link #prefetchMetaData()}, or null if there is none.
+         */
+        @Nullable
+        BuildableComponentResolveResult takePrefetchedMetaData() {
+            if (prefetchedMetaDataFailure != null) {
+                RuntimeException prefetchFailure = prefetchedMetaDataFailure;
+                prefetchedMetaDataFailure = null;
+                throw prefetchFailure;
+            }
+            BuildableComponentResolveResult result = prefetchedMetaData;
+            prefetchedMetaData = null;
+            return result;
+        }
     }
 
     private static class DirectDependencyForcingResolver implements ModuleConflictResolver {
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph;
+
+import java.util.List;
+
+/**
+ * Runs batches of actions that call the dependency resolvers, possibly concurrently.
+ */
+public interface ResolveActionExecutor {
+    /**
+     * Runs the given actions and blocks until all of them have completed. Must be called from an action that is using the artifact cache.
+     * Each action is run with the artifact cache locked and an Ivy context set up, as the resolvers expect.
+     */
+    void runAll(String displayName, List<? extends Runnable> actions);
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.store;
+
+import org.gradle.api.Nullable;
+import org.gradle.api.artifacts.*;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
+import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules;
+import org.gradle.api.internal.artifacts.ResolveContext;
+import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal;
+import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal;
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy;
+import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData;
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.CacheableGraphVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ComponentIdentifierSerializer;
+import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.hash.HashUtil;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.OutputStreamBackedEncoder;
+import org.gradle.internal.serialize.Serializer;
+import org.gradle.util.BuildCommencedTimeProvider;
+import org.gradle.util.GradleVersion;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.gradle.internal.UncheckedException.throwAsUncheckedException;
+import static org.gradle.internal.serialize.BaseSerializerFactory.STRING_SERIALIZER;
+
+/**
+ * A persistent cache of resolved dependency graphs, so that a configuration whose inputs have not changed since a previous build can replay the graph
+ * recorded by that build instead of resolving it again. Only used when enabled using the {@value #GRAPH_CACHE_PROPERTY} system property, and not
+ * used when dependencies are refreshed.
+ *
+ * <p>A graph is cached only when it is made of external modules that were selected using fixed versions and are not changing, as the meta-data for
+ * such modules is never refreshed. The key covers the declared dependencies of the configuration hierarchy, the resolution strategy and the
+ * repositories. Configurations with project, client module or changing dependencies, and configurations affected by rules that cannot be compared
+ * between builds, are not cached.</p>
+ *
+ * <p>An entry is not used once the repositories would be checked again for a module that was missing from them, following the cache policy of the
+ * configuration, as the module may have been published to a repository that is searched before the one that provided it.</p>
+ */
+public class ResolvedGraphCache {
+    public static final String GRAPH_CACHE_PROPERTY = "org.gradle.internal.resolvedGraphCache";
+    private static final int FORMAT_VERSION = 1;
+
+    private final CacheLockingManager cacheLockingManager;
+    private final BuildCommencedTimeProvider timeProvider;
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final boolean refreshDependencies;
+    private PersistentIndexedCache<String, ResolvedGraphCacheEntry> cache;
+
+    public ResolvedGraphCache(CacheLockingManager cacheLockingManager, BuildCommencedTimeProvider timeProvider, VersionSelectorScheme versionSelectorScheme,
+                              boolean refreshDependencies) {
+        this.cacheLockingManager = cacheLockingManager;
+        this.timeProvider = timeProvider;
+        this.versionSelectorScheme = versionSelectorScheme;
+        this.refreshDependencies = refreshDependencies;
+    }
+
+    public boolean isEnabled() {
+        return !refreshDependencies && Boolean.getBoolean(GRAPH_CACHE_PROPERTY);
+    }
+
+    private PersistentIndexedCache<String, ResolvedGraphCacheEntry> getCache() {
+        if (cache == null) {
+            cache = cacheLockingManager.createCache("resolved-graphs", STRING_SERIALIZER, new ResolvedGraphCacheEntrySerializer());
+        }
+        return cache;
+    }
+
+    public CacheableGraphVisitor createCacheableGraphVisitor() {
+        return new CacheableGraphVisitor(versionSelectorScheme);
+    }
+
+    /**
+     * Calculates the key of the graph of the given configuration. Returns null when the graph of the configuration cannot be cached.
+     */
+    @Nullable
+    public Key createKey(ResolveContext resolveContext, List<? extends ResolutionAwareRepository> repositories, GlobalDependencyResolutionRules metadataHandler) {
+        if (!(resolveContext instanceof ConfigurationInternal)) {
+            return null;
+        }
+        ConfigurationInternal configuration = (ConfigurationInternal) resolveContext;
+        ResolutionStrategyInternal resolutionStrategy = configuration.getResolutionStrategy();
+        if (resolutionStrategy.getDependencySubstitution().hasRules()
+            || !resolutionStrategy.getComponentSelection().getRules().isEmpty()
+            || metadataHandler.getComponentMetadataProcessor().hasRules()) {
+            return null;
+        }
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        OutputStreamBackedEncoder encoder = new OutputStreamBackedEncoder(outputStream);
+        List<ModuleDependency> declaredDependencies = new ArrayList<ModuleDependency>();
+        try {
+            encoder.writeSmallInt(FORMAT_VERSION);
+            encoder.writeString(GradleVersion.current().getVersion());
+            encoder.writeString(configuration.getPath());
+            Module module = configuration.getModule();
+            encoder.writeNullableString(module.getGroup());
+            encoder.writeNullableString(module.getName());
+            encoder.writeNullableString(module.getVersion());
+            encoder.writeNullableString(module.getStatus());
+
+            for (Configuration candidate : configuration.getHierarchy()) {
+                encoder.writeString(candidate.getName());
+                encoder.writeBoolean(candidate.isTransitive());
+                writeExcludeRules(encoder, candidate.getExcludeRules());
+                for (Dependency dependency : candidate.getDependencies()) {
+                    if (!(dependency instanceof ModuleDependency)) {
+                        // Resolved outside of the graph
+                        continue;
+                    }
+                    if (!(dependency instanceof ExternalModuleDependency) || dependency instanceof ClientModule || ((ExternalModuleDependency) dependency).isChanging()) {
+                        return null;
+                    }
+                    writeDependency(encoder, (ExternalModuleDependency) dependency);
+                    declaredDependencies.add((ModuleDependency) dependency);
+                }
+            }
+
+            encoder.writeString(resolutionStrategy.getConflictResolution().getClass().getName());
+            Set<ModuleVersionSelector> forcedModules = resolutionStrategy.getForcedModules();
+            encoder.writeSmallInt(forcedModules.size());
+            for (ModuleVersionSelector forcedModule : forcedModules) {
+                encoder.writeNullableString(forcedModule.getGroup());
+                encoder.writeString(forcedModule.getName());
+                encoder.writeNullableString(forcedModule.getVersion());
+            }
+
+            encoder.writeSmallInt(repositories.size());
+            for (ResolutionAwareRepository repository : repositories) {
+                encoder.writeString(repository.createResolver().getId());
+            }
+            encoder.flush();
+        } catch (IOException e) {
+            throw throwAsUncheckedException(e);
+        }
+        return new Key(HashUtil.sha1(outputStream.toByteArray()).asHexString(), declaredDependencies);
+    }
+
+    private static void writeDependency(Encoder encoder, ExternalModuleDependency dependency) throws IOException {
+        encoder.writeNullableString(dependency.getGroup());
+        encoder.writeString(dependency.getName());
+        encoder.writeNullableString(dependency.getVersion());
+        encoder.writeNullableString(dependency.getConfiguration());
+        encoder.writeBoolean(dependency.isTransitive());
+        encoder.writeBoolean(dependency.isForce());
+        Set<DependencyArtifact> artifacts = dependency.getArtifacts();
+        encoder.writeSmallInt(artifacts.size());
+        for (DependencyArtifact artifact : artifacts) {
+            encoder.writeString(artifact.getName());
+            encoder.writeNullableString(artifact.getType());
+            encoder.writeNullableString(artifact.getExtension());
+            encoder.writeNullableString(artifact.getClassifier());
+            encoder.writeNullableString(artifact.getUrl());
+        }
+        writeExcludeRules(encoder, dependency.getExcludeRules());
+    }
+
+    private static void writeExcludeRules(Encoder encoder, Set<ExcludeRule> excludeRules) throws IOException {
+        encoder.writeSmallInt(excludeRules.size());
+        for (ExcludeRule excludeRule : excludeRules) {
+            encoder.writeNullableString(excludeRule.getGroup());
+            encoder.writeNullableString(excludeRule.getModule());
+        }
+    }
+
+    /**
+     * Returns the recorded events of the graph with the given key, or null when there is no usable graph for the key.
+     */
+    @Nullable
+    public byte[] load(Key key, CachePolicy cachePolicy, ModuleReplacementsData moduleReplacements) {
+        ResolvedGraphCacheEntry entry = getCache().get(key.hash);
+        if (entry == null) {
+            return null;
+        }
+        long age = timeProvider.getCurrentTime() - entry.createTimestamp;
+        for (ModuleComponentIdentifier component : entry.components) {
+            if (cachePolicy.mustRefreshMissingModule(component, age) || isReplaced(component, moduleReplacements)) {
+                return null;
+            }
+        }
+        return entry.events;
+    }
+
+    /**
+     * Stores the graph recorded by the given recorder, if it can be replayed.
+     */
+    public void store(Key key, ResolvedGraphRecorder recorder, ModuleReplacementsData moduleReplacements) {
+        if (!recorder.isReplayable()) {
+            return;
+        }
+        List<ModuleComponentIdentifier> components = new ArrayList<ModuleComponentIdentifier>(recorder.getComponents());
+        for (ModuleComponentIdentifier component : components) {
+            if (isReplaced(component, moduleReplacements)) {
+                return;
+            }
+        }
+        getCache().put(key.hash, new ResolvedGraphCacheEntry(timeProvider.getCurrentTime(), components, recorder.getEvents()));
+    }
+
+    private static boolean isReplaced(ModuleComponentIdentifier component, ModuleReplacementsData moduleReplacements) {
+        return moduleReplacements.getReplacementFor(DefaultModuleIdentifier.newId(component.getGroup(), component.getModule())) != null;
+    }
+
+    public static class Key {
+        private final String hash;
+        private final List<ModuleDependency> declaredDependencies;
+
+        private Key(String hash, List<ModuleDependency> declaredDependencies) {
+            this.hash = hash;
+            this.declaredDependencies = declaredDependencies;
+        }
+
+        /**
+         * The module dependencies declared by the configuration hierarchy, in the order the key was calculated from.
+         */
+        public List<ModuleDependency> getDeclaredDependencies() {
+            return declaredDependencies;
+        }
+    }
+
+    private static class ResolvedGraphCacheEntry {
+        private final long createTimestamp;
+        private final List<ModuleComponentIdentifier> components;
+        private final byte[] events;
+
+        ResolvedGraphCacheEntry(long createTimestamp, List<ModuleComponentIdentifier> components, byte[] events) {
+            this.createTimestamp = createTimestamp;
+            this.components = components;
+            this.events = events;
+        }
+    }
+
+    private static class ResolvedGraphCacheEntrySerializer implements Serializer<ResolvedGraphCacheEntry> {
+        private final ComponentIdentifierSerializer componentIdentifierSerializer = new ComponentIdentifierSerializer();
+
+        public void write(Encoder encoder, ResolvedGraphCacheEntry value) throws Exception {
+            encoder.writeLong(value.createTimestamp);
+            encoder.writeSmallInt(value.components.size());
+            for (ModuleComponentIdentifier component : value.components) {
+                componentIdentifierSerializer.write(encoder, component);
+            }
+            encoder.writeBinary(value.events);
+        }
+
+        public ResolvedGraphCacheEntry read(Decoder decoder) throws Exception {
+            long createTimestamp = decoder.readLong();
+            int count = decoder.readSmallInt();
+            List<ModuleComponentIdentifier> components = new ArrayList<ModuleComponentIdentifier>(count);
+            for (int i = 0; i < count; i++) {
+                components.add((ModuleComponentIdentifier) componentIdentifierSerializer.read(decoder));
+            }
+            byte[] events = decoder.readBinary();
+            return new ResolvedGraphCacheEntry(createTimestamp, components, events);
+        }
+    }
+}
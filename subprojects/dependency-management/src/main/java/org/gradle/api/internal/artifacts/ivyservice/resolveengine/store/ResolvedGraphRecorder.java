@@ -0,0 +1,430 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.store;
+
+import com.google.common.collect.Maps;
+import org.gradle.api.artifacts.ModuleDependency;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.artifacts.UnresolvedDependency;
+import org.gradle.api.artifacts.component.ComponentArtifactIdentifier;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ProjectComponentIdentifier;
+import org.gradle.api.artifacts.result.ResolutionResult;
+import org.gradle.api.internal.artifacts.ModuleVersionIdentifierSerializer;
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier;
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifierSerializer;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.AbstractArtifactSet;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ArtifactSet;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyArtifactSet;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.ResolvedArtifactResults;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.ResolvedArtifactsBuilder;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.ResolvedConfigurationBuilder;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.ResolvedGraphResults;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.projectresult.ResolvedLocalComponentsResult;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.projectresult.ResolvedLocalComponentsResultBuilder;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ComponentIdentifierSerializer;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.InternalDependencyResult;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.InternalDependencyResultSerializer;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ModuleVersionSelection;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ModuleVersionSelectionSerializer;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ResolutionResultBuilder;
+import org.gradle.api.internal.artifacts.metadata.ModuleVersionArtifactIdentifierSerializer;
+import org.gradle.api.tasks.TaskDependency;
+import org.gradle.internal.component.external.model.DefaultModuleComponentArtifactMetaData;
+import org.gradle.internal.component.model.ComponentArtifactMetaData;
+import org.gradle.internal.component.model.ModuleSource;
+import org.gradle.internal.resolve.ModuleVersionResolveException;
+import org.gradle.internal.resolve.resolver.ArtifactResolver;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.DefaultSerializer;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.InputStreamBackedDecoder;
+import org.gradle.internal.serialize.OutputStreamBackedEncoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+import static org.gradle.internal.UncheckedException.throwAsUncheckedException;
+
+/**
+ * Records the events that the dependency graph builder sends to the result builders, so that they can be replayed into the result builders of a later
+ * build instead of resolving the graph again.
+ *
+ * <p>Only graphs made of external modules can be replayed. A graph with unresolved dependencies or local components, or with an artifact that is not
+ * a module artifact, is still passed on to the result builders, but {@link #isReplayable()} returns false for it.</p>
+ */
+public class ResolvedGraphRecorder {
+    private static final byte ROOT = 1;
+    private static final byte MODULE = 2;
+    private static final byte DEPENDENCY = 3;
+    private static final byte NEW_DEP = 4;
+    private static final byte FIRST_LVL = 5;
+    private static final byte PARENT_CHILD = 6;
+    private static final byte PARENT_ARTIFACT = 7;
+    private static final byte ARTIFACTS = 8;
+    private static final byte ROOT_DONE = 9;
+    private static final byte END = 10;
+
+    private final List<? extends ModuleDependency> declaredDependencies;
+    private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    private final OutputStreamBackedEncoder encoder = new OutputStreamBackedEncoder(outputStream);
+    private final Serializers serializers = new Serializers();
+    private final Set<Long> recordedArtifactSets = new HashSet<Long>();
+    private final Set<ModuleComponentIdentifier> components = new LinkedHashSet<ModuleComponentIdentifier>();
+    private boolean replayable = true;
+
+    /**
+     * @param declaredDependencies the module dependencies declared by the configuration, in a stable order. The first level dependencies are recorded as
+     * an index into this list.
+     */
+    public ResolvedGraphRecorder(List<? extends ModuleDependency> declaredDependencies) {
+        this.declaredDependencies = declaredDependencies;
+    }
+
+    public boolean isReplayable() {
+        return replayable;
+    }
+
+    /**
+     * Returns the module components of the recorded graph, excluding the root.
+     */
+    public Set<ModuleComponentIdentifier> getComponents() {
+        return components;
+    }
+
+    /**
+     * Returns the recorded events. Should only be called once the graph has been resolved and {@link #isReplayable()} returns true.
+     */
+    public byte[] getEvents() {
+        write(new Event() {
+            public void write(Encoder encoder) throws IOException {
+                encoder.writeByte(END);
+            }
+        });
+        try {
+            encoder.flush();
+        } catch (IOException e) {
+            throw throwAsUncheckedException(e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    public ResolutionResultBuilder recording(final ResolutionResultBuilder delegate) {
+        return new ResolutionResultBuilder() {
+            public ResolutionResultBuilder start(final ModuleVersionIdentifier root, final ComponentIdentifier componentIdentifier) {
+                delegate.start(root, componentIdentifier);
+                write(new Event() {
+                    public void write(Encoder encoder) throws IOException {
+                        encoder.writeByte(ROOT);
+                        serializers.moduleVersionIdentifierSerializer.write(encoder, root);
+                        serializers.componentIdentifierSerializer.write(encoder, componentIdentifier);
+                    }
+                });
+                return this;
+            }
+
+            public void resolvedModuleVersion(final ModuleVersionSelection moduleVersion) {
+                delegate.resolvedModuleVersion(moduleVersion);
+                if (moduleVersion.getComponentId() instanceof ModuleComponentIdentifier) {
+                    components.add((ModuleComponentIdentifier) moduleVersion.getComponentId());
+                }
+                write(new Event() {
+                    public void write(Encoder encoder) throws IOException {
+                        encoder.writeByte(MODULE);
+                        serializers.moduleVersionSelectionSerializer.write(encoder, moduleVersion);
+                    }
+                });
+            }
+
+            public void resolvedConfiguration(final ModuleVersionIdentifier id, final Collection<? extends InternalDependencyResult> dependencies) {
+                delegate.resolvedConfiguration(id, dependencies);
+                for (InternalDependencyResult dependency : dependencies) {
+                    if (dependency.getFailure() != null) {
+                        replayable = false;
+                        return;
+                    }
+                }
+                write(new Event() {
+                    public void write(Encoder encoder) throws IOException {
+                        encoder.writeByte(DEPENDENCY);
+                        serializers.moduleVersionIdentifierSerializer.write(encoder, id);
+                        encoder.writeSmallInt(dependencies.size());
+                        for (InternalDependencyResult dependency : dependencies) {
+                            serializers.internalDependencyResultSerializer.write(encoder, dependency);
+                        }
+                    }
+                });
+            }
+
+            public ResolutionResult complete() {
+                return delegate.complete();
+            }
+        };
+    }
+
+    public ResolvedConfigurationBuilder recording(final ResolvedConfigurationBuilder delegate) {
+        return new ResolvedConfigurationBuilder() {
+            public void addFirstLevelDependency(ModuleDependency moduleDependency, final ResolvedConfigurationIdentifier dependency) {
+                delegate.addFirstLevelDependency(moduleDependency, dependency);
+                final int index = indexOf(moduleDependency);
+                if (index < 0) {
+                    replayable = false;
+                    return;
+                }
+                write(new Event() {
+                    public void write(Encoder encoder) throws IOException {
+                        encoder.writeByte(FIRST_LVL);
+                        encoder.writeSmallInt(index);
+                        serializers.resolvedConfigurationIdentifierSerializer.write(encoder, dependency);
+                    }
+                });
+            }
+
+            public void addUnresolvedDependency(UnresolvedDependency unresolvedDependency) {
+                delegate.addUnresolvedDependency(unresolvedDependency);
+                replayable = false;
+            }
+
+            public void addChild(final ResolvedConfigurationIdentifier parent, final ResolvedConfigurationIdentifier child) {
+                delegate.addChild(parent, child);
+                write(new Event() {
+                    public void write(Encoder encoder) throws IOException {
+                        encoder.writeByte(PARENT_CHILD);
+                        serializers.resolvedConfigurationIdentifierSerializer.write(encoder, parent);
+                        serializers.resolvedConfigurationIdentifierSerializer.write(encoder, child);
+                    }
+                });
+            }
+
+            public void addArtifacts(final ResolvedConfigurationIdentifier child, final ResolvedConfigurationIdentifier parent, final long artifactsId) {
+                delegate.addArtifacts(child, parent, artifactsId);
+                write(new Event() {
+                    public void write(Encoder encoder) throws IOException {
+                        encoder.writeByte(PARENT_ARTIFACT);
+                        serializers.resolvedConfigurationIdentifierSerializer.write(encoder, child);
+                        serializers.resolvedConfigurationIdentifierSerializer.write(encoder, parent);
+                        encoder.writeLong(artifactsId);
+                    }
+                });
+            }
+
+            public void newResolvedDependency(final ResolvedConfigurationIdentifier id) {
+                delegate.newResolvedDependency(id);
+                write(new Event() {
+                    public void write(Encoder encoder) throws IOException {
+                        encoder.writeByte(NEW_DEP);
+                        serializers.resolvedConfigurationIdentifierSerializer.write(encoder, id);
+                    }
+                });
+            }
+
+            public void done(final ResolvedConfigurationIdentifier root) {
+                delegate.done(root);
+                write(new Event() {
+                    public void write(Encoder encoder) throws IOException {
+                        encoder.writeByte(ROOT_DONE);
+                        serializers.resolvedConfigurationIdentifierSerializer.write(encoder, root);
+                    }
+                });
+            }
+
+            public ResolvedGraphResults complete() {
+                return delegate.complete();
+            }
+        };
+    }
+
+    public ResolvedArtifactsBuilder recording(final ResolvedArtifactsBuilder delegate) {
+        return new ResolvedArtifactsBuilder() {
+            public void addArtifacts(final long id, ArtifactSet artifacts) {
+                delegate.addArtifacts(id, artifacts);
+                final boolean firstUse = recordedArtifactSets.add(id);
+                if (firstUse && !canRecord(artifacts)) {
+                    replayable = false;
+                    return;
+                }
+                final AbstractArtifactSet artifactSet = (AbstractArtifactSet) artifacts;
+                write(new Event() {
+                    public void write(Encoder encoder) throws Exception {
+                        encoder.writeByte(ARTIFACTS);
+                        encoder.writeLong(id);
+                        encoder.writeBoolean(firstUse);
+                        if (firstUse) {
+                            serializers.moduleVersionIdentifierSerializer.write(encoder, artifactSet.getOwnerId());
+                            serializers.moduleSourceSerializer.write(encoder, artifactSet.getModuleSource());
+                            Set<ComponentArtifactMetaData> componentArtifacts = artifactSet.getComponentArtifacts();
+                            encoder.writeSmallInt(componentArtifacts.size());
+                            for (ComponentArtifactMetaData artifact : componentArtifacts) {
+                                serializers.artifactIdentifierSerializer.write(encoder, ((DefaultModuleComponentArtifactMetaData) artifact).getId());
+                            }
+                        }
+                    }
+                });
+            }
+
+            public ResolvedArtifactResults resolve() {
+                return delegate.resolve();
+            }
+        };
+    }
+
+    public ResolvedLocalComponentsResultBuilder recording(final ResolvedLocalComponentsResultBuilder delegate) {
+        return new ResolvedLocalComponentsResultBuilder() {
+            public void localComponentResolved(ComponentIdentifier componentIdentifier, TaskDependency buildDependency) {
+                delegate.localComponentResolved(componentIdentifier, buildDependency);
+                replayable = false;
+            }
+
+            public void projectConfigurationResolved(ProjectComponentIdentifier componentId, String configurationName) {
+                delegate.projectConfigurationResolved(componentId, configurationName);
+                replayable = false;
+            }
+
+            public ResolvedLocalComponentsResult complete() {
+                return delegate.complete();
+            }
+        };
+    }
+
+    private static boolean canRecord(ArtifactSet artifacts) {
+        if (!(artifacts instanceof AbstractArtifactSet)) {
+            return false;
+        }
+        for (ComponentArtifactMetaData artifact : ((AbstractArtifactSet) artifacts).getComponentArtifacts()) {
+            if (!(artifact instanceof DefaultModuleComponentArtifactMetaData)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int indexOf(ModuleDependency moduleDependency) {
+        for (int i = 0; i < declaredDependencies.size(); i++) {
+            if (declaredDependencies.get(i) == moduleDependency) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void write(Event event) {
+        if (!replayable) {
+            return;
+        }
+        try {
+            event.write(encoder);
+        } catch (Exception e) {
+            throw throwAsUncheckedException(e);
+        }
+    }
+
+    /**
+     * Replays the given recorded events into the given result builders. The artifacts of the replayed graph are resolved using the given resolver.
+     */
+    public static void replay(byte[] events, List<? extends ModuleDependency> declaredDependencies, ResolutionResultBuilder newModelBuilder,
+                              ResolvedConfigurationBuilder oldModelBuilder, ResolvedArtifactsBuilder artifactsBuilder, ArtifactResolver artifactResolver) {
+        Serializers serializers = new Serializers();
+        Map<ComponentSelector, ModuleVersionResolveException> noFailures = Collections.emptyMap();
+        Map<Long, ArtifactSet> artifactSets = new HashMap<Long, ArtifactSet>();
+        Map<ComponentArtifactIdentifier, ResolvedArtifact> allResolvedArtifacts = Maps.newHashMap();
+        Decoder decoder = new InputStreamBackedDecoder(new ByteArrayInputStream(events));
+        int valuesRead = 0;
+        byte type = -1;
+        try {
+            while (true) {
+                type = decoder.readByte();
+                valuesRead++;
+                switch (type) {
+                    case ROOT:
+                        ModuleVersionIdentifier rootId = serializers.moduleVersionIdentifierSerializer.read(decoder);
+                        newModelBuilder.start(rootId, serializers.componentIdentifierSerializer.read(decoder));
+                        break;
+                    case MODULE:
+                        newModelBuilder.resolvedModuleVersion(serializers.moduleVersionSelectionSerializer.read(decoder));
+                        break;
+                    case DEPENDENCY:
+                        ModuleVersionIdentifier from = serializers.moduleVersionIdentifierSerializer.read(decoder);
+                        int size = decoder.readSmallInt();
+                        List<InternalDependencyResult> dependencies = new ArrayList<InternalDependencyResult>(size);
+                        for (int i = 0; i < size; i++) {
+                            dependencies.add(serializers.internalDependencyResultSerializer.read(decoder, noFailures));
+                        }
+                        newModelBuilder.resolvedConfiguration(from, dependencies);
+                        break;
+                    case NEW_DEP:
+                        oldModelBuilder.newResolvedDependency(serializers.resolvedConfigurationIdentifierSerializer.read(decoder));
+                        break;
+                    case FIRST_LVL:
+                        ModuleDependency moduleDependency = declaredDependencies.get(decoder.readSmallInt());
+                        oldModelBuilder.addFirstLevelDependency(moduleDependency, serializers.resolvedConfigurationIdentifierSerializer.read(decoder));
+                        break;
+                    case PARENT_CHILD:
+                        ResolvedConfigurationIdentifier parent = serializers.resolvedConfigurationIdentifierSerializer.read(decoder);
+                        oldModelBuilder.addChild(parent, serializers.resolvedConfigurationIdentifierSerializer.read(decoder));
+                        break;
+                    case PARENT_ARTIFACT:
+                        ResolvedConfigurationIdentifier child = serializers.resolvedConfigurationIdentifierSerializer.read(decoder);
+                        ResolvedConfigurationIdentifier artifactParent = serializers.resolvedConfigurationIdentifierSerializer.read(decoder);
+                        oldModelBuilder.addArtifacts(child, artifactParent, decoder.readLong());
+                        break;
+                    case ARTIFACTS:
+                        long id = decoder.readLong();
+                        if (decoder.readBoolean()) {
+                            ModuleVersionIdentifier ownerId = serializers.moduleVersionIdentifierSerializer.read(decoder);
+                            ModuleSource moduleSource = serializers.moduleSourceSerializer.read(decoder);
+                            int count = decoder.readSmallInt();
+                            Set<ComponentArtifactMetaData> artifacts = new LinkedHashSet<ComponentArtifactMetaData>(count);
+                            for (int i = 0; i < count; i++) {
+                                artifacts.add(new DefaultModuleComponentArtifactMetaData(serializers.artifactIdentifierSerializer.read(decoder)));
+                            }
+                            artifactSets.put(id, new DependencyArtifactSet(ownerId, moduleSource, artifacts, artifactResolver, allResolvedArtifacts, id));
+                        }
+                        artifactsBuilder.addArtifacts(id, artifactSets.get(id));
+                        break;
+                    case ROOT_DONE:
+                        oldModelBuilder.done(serializers.resolvedConfigurationIdentifierSerializer.read(decoder));
+                        break;
+                    case END:
+                        return;
+                    default:
+                        throw new IOException("Unknown value type read from stream: " + type);
+                }
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Problems replaying the resolved graph. Read " + valuesRead + " values, last was: " + type, e);
+        }
+    }
+
+    private interface Event {
+        void write(Encoder encoder) throws Exception;
+    }
+
+    private static class Serializers {
+        final ModuleVersionIdentifierSerializer moduleVersionIdentifierSerializer = new ModuleVersionIdentifierSerializer();
+        final ComponentIdentifierSerializer componentIdentifierSerializer = new ComponentIdentifierSerializer();
+        final ModuleVersionSelectionSerializer moduleVersionSelectionSerializer = new ModuleVersionSelectionSerializer();
+        final InternalDependencyResultSerializer internalDependencyResultSerializer = new InternalDependencyResultSerializer();
+        final ResolvedConfigurationIdentifierSerializer resolvedConfigurationIdentifierSerializer = new ResolvedConfigurationIdentifierSerializer();
+        final ModuleVersionArtifactIdentifierSerializer artifactIdentifierSerializer = new ModuleVersionArtifactIdentifierSerializer();
+        final DefaultSerializer<ModuleSource> moduleSourceSerializer = new DefaultSerializer<ModuleSource>(ModuleSource.class.getClassLoader());
+    }
+}
@@ -47,7 +47,15 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 
+/**
+ * Downloads external resources into a cache, reusing the cached or locally available copy of a resource when it is unchanged.
+ *
+ * <p>An expired cached copy is normally revalidated by fetching the meta-data of the resource and comparing it with the cached meta-data. When enabled using the
+ * {@value #CONDITIONAL_REQUESTS_PROPERTY} system property, the resource is instead requested only if it has changed since it was cached, using the
+ * cached entity tag or modification date. This needs one request whether or not the resource has changed.</p>
+ */
 public class DefaultCacheAwareExternalResourceAccessor implements CacheAwareExternalResourceAccessor {
+    public static final String CONDITIONAL_REQUESTS_PROPERTY = "org.gradle.internal.conditionalResourceRequests";
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultCacheAwareExternalResourceAccessor.class);
 
@@ -80,6 +88,11 @@ public class DefaultCacheAwareExternalResourceAccessor implements CacheAwareExte
             return new DefaultLocallyAvailableExternalResource(location, new DefaultLocallyAvailableResource(cached.getCachedFile()), cached.getExternalResourceMetaData());
         }
 
+        // Get the resource only if it has changed
+        if (cached != null && Boolean.getBoolean(CONDITIONAL_REQUESTS_PROPERTY) && canRevalidate(cached.getExternalResourceMetaData())) {
+            return getResourceIfChanged(location, fileStore, cached);
+        }
+
         // Get the metadata first to see if it's there
         final ExternalResourceMetaData remoteMetaData = delegate.getResourceMetaData(location);
         if (remoteMetaData == null) {
@@ -131,6 +144,42 @@ public class DefaultCacheAwareExternalResourceAccessor implements CacheAwareExte
         return copyToCache(location, fileStore, delegate.withProgressLogging().getResource(location));
     }
 
+    private static boolean canRevalidate(@Nullable ExternalResourceMetaData metaData) {
+        // Only when the meta-data of an unchanged resource is known to compare as unchanged
+        return metaData != null && (metaData.getEtag() != null || (metaData.getLastModified() != null && metaData.getContentLength() > 0));
+    }
+
+    private LocallyAvailableExternalResource getResourceIfChanged(final URI location, ResourceFileStore fileStore, final CachedExternalResource cached) {
+        final ExternalResourceMetaData cachedMetaData = cached.getExternalResourceMetaData();
+        ExternalResource resource = delegate.withProgressLogging().getResource(location, cachedMetaData);
+        if (resource == null) {
+            return null;
+        }
+
+        final ExternalResourceMetaData remoteMetaData = resource.getMetaData();
+        boolean isUnchanged = ExternalResourceMetaDataCompare.isDefinitelyUnchanged(
+                cachedMetaData,
+                new Factory<ExternalResourceMetaData>() {
+                    public ExternalResourceMetaData create() {
+                        return remoteMetaData;
+                    }
+                }
+        );
+        if (!isUnchanged) {
+            return copyToCache(location, fileStore, resource);
+        }
+
+        resource.close();
+        LOGGER.info("Cached resource {} is up-to-date (lastModified: {}).", location, cached.getExternalLastModified());
+        // Record that the cached copy is current, so that it is not revalidated again by this build
+        return cacheLockingManager.useCache(String.format("Store %s", location), new Factory<LocallyAvailableExternalResource>() {
+            public LocallyAvailableExternalResource create() {
+                cachedExternalResourceIndex.store(location.toString(), cached.getCachedFile(), cachedMetaData);
+                return new DefaultLocallyAvailableExternalResource(location, new DefaultLocallyAvailableResource(cached.getCachedFile()), cachedMetaData);
+            }
+        });
+    }
+
     private HashValue getResourceSha1(URI location) {
         try {
             URI sha1Location = new URI(location.toASCIIString() + ".sha1");
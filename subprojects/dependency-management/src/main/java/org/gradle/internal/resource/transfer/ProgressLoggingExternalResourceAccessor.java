@@ -33,7 +33,19 @@ public class ProgressLoggingExternalResourceAccessor extends AbstractProgressLog
     }
 
     public ExternalResourceReadResponse openResource(URI location) {
-        ExternalResourceReadResponse resource = delegate.openResource(location);
+        return withProgressLogging(location, delegate.openResource(location));
+    }
+
+    public ExternalResourceReadResponse openResource(URI location, ExternalResourceMetaData cachedMetaData) {
+        ExternalResourceReadResponse resource = delegate.openResource(location, cachedMetaData);
+        if (resource != null && resource.getMetaData() == cachedMetaData) {
+            // Unchanged, so there is nothing to download
+            return resource;
+        }
+        return withProgressLogging(location, resource);
+    }
+
+    private ExternalResourceReadResponse withProgressLogging(URI location, ExternalResourceReadResponse resource) {
         if (resource != null) {
             return new ProgressLoggingExternalResource(location, resource);
         } else {
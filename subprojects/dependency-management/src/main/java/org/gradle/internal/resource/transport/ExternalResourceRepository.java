@@ -41,6 +41,16 @@ public interface ExternalResourceRepository {
     @Nullable
     ExternalResource getResource(URI source) throws ResourceException;
 
+    /**
+     * Attempts to fetch the given resource, unless it is known to be unchanged since the given meta-data was obtained for it.
+     * In that case, the resource has no content and has the given meta-data.
+     *
+     * @return null if the resource is not found.
+     * @throws ResourceException On failure to fetch resource.
+     */
+    @Nullable
+    ExternalResource getResource(URI source, ExternalResourceMetaData cachedMetaData) throws ResourceException;
+
     /**
      * Transfer a resource to the repository
      *
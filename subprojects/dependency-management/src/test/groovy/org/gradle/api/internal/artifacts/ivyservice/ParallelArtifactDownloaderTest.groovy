@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice
+
+import org.gradle.api.artifacts.ResolvedArtifact
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ResolveActionExecutor
+import org.gradle.logging.ProgressLogger
+import org.gradle.logging.ProgressLoggerFactory
+import spock.lang.Specification
+
+class ParallelArtifactDownloaderTest extends Specification {
+    def executor = Mock(ResolveActionExecutor)
+    def progressLogger = Mock(ProgressLogger)
+    def progressLoggerFactory = Stub(ProgressLoggerFactory) {
+        newOperation(_) >> progressLogger
+    }
+    def downloader = new ParallelArtifactDownloader(executor, progressLoggerFactory)
+
+    def "resolves the file of each artifact together"() {
+        def artifact1 = Mock(ResolvedArtifact)
+        def artifact2 = Mock(ResolvedArtifact)
+
+        when:
+        downloader.download("configuration ':compile'", [artifact1, artifact2])
+
+        then:
+        1 * progressLogger.start("Download artifacts of configuration ':compile'", _)
+        1 * executor.runAll(_, { it.size() == 2 }) >> { String displayName, List<Runnable> actions -> actions*.run() }
+        1 * artifact1.getFile()
+        1 * artifact2.getFile()
+        1 * progressLogger.progress("1/2 artifacts")
+        1 * progressLogger.progress("2/2 artifacts")
+        1 * progressLogger.completed()
+    }
+
+    def "leaves failures to be reported when the file is next requested"() {
+        def artifact1 = Mock(ResolvedArtifact)
+        def artifact2 = Mock(ResolvedArtifact)
+
+        when:
+        downloader.download("configuration ':compile'", [artifact1, artifact2])
+
+        then:
+        1 * executor.runAll(_, _) >> { String displayName, List<Runnable> actions -> actions*.run() }
+        1 * artifact1.getFile() >> { throw new RuntimeException("broken") }
+        1 * artifact2.getFile()
+        1 * progressLogger.completed()
+        noExceptionThrown()
+    }
+
+    def "does nothing when there is only one artifact"() {
+        when:
+        downloader.download("configuration ':compile'", [Mock(ResolvedArtifact)])
+
+        then:
+        0 * executor._
+        0 * progressLogger._
+    }
+}
@@ -31,6 +31,7 @@ import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager
 import org.gradle.api.internal.artifacts.ivyservice.DefaultLenientConfiguration
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ResolverProvider
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphBuilder
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ResolveActionExecutor
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts.DefaultConflictHandler
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.DefaultResolvedArtifactsBuilder
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.DefaultResolvedConfigurationBuilder
@@ -934,6 +935,73 @@ class DependencyGraphBuilderTest extends Specification {
         modules(result) == ids(forced, b)
     }
 
+    def "resolves the outgoing dependencies of each configuration together when prefetching"() {
+        given:
+        def prefetchExecutor = Mock(ResolveActionExecutor)
+        builder = new DependencyGraphBuilder(resolverProvider, moduleResolver, new DefaultConflictHandler(conflictResolver, moduleReplacements), dependencyToConfigurationResolver, prefetchExecutor)
+        def a = revision("a")
+        def b = revision("b")
+        def c = revision("c")
+        def d = revision("d")
+        traverses root, a
+        traverses root, b
+        traverses a, c
+        traverses a, d
+        doesNotResolve b, c
+
+        when:
+        def result = resolve()
+        result.rethrowFailure()
+
+        then:
+        // The ids and then the meta-data of the dependencies of root and of a
+        4 * prefetchExecutor.runAll(_, { it.size() == 2 }) >> { String displayName, List<Runnable> actions -> actions*.run() }
+        0 * prefetchExecutor._
+
+        and:
+        modules(result) == ids(a, b, c, d)
+    }
+
+    def "reports failures of dependencies resolved ahead of the traversal"() {
+        given:
+        prefetching()
+        def a = revision('a')
+        def b = revision('b')
+        traverses root, a
+        traversesMissing root, b
+        brokenSelector root, 'unknown'
+
+        when:
+        def result = resolve()
+
+        then:
+        result.unresolvedModuleDependencies*.selector as Set == [new DefaultModuleVersionSelector('group', 'b', '1.0'), new DefaultModuleVersionSelector('group', 'unknown', '1.0')] as Set
+    }
+
+    def "rethrows unexpected failure of a dependency resolved ahead of the traversal"() {
+        given:
+        prefetching()
+        def a = revision('a')
+        def failure = new RuntimeException("broken")
+        traverses root, a
+        def dependencyMetaData = dependsOn(root, newId("group", "b", "1.0"))
+        1 * idResolver.resolve(dependencyMetaData, _) >> { throw failure }
+
+        when:
+        resolve()
+
+        then:
+        RuntimeException e = thrown()
+        e == failure
+    }
+
+    def prefetching() {
+        def prefetchExecutor = Stub(ResolveActionExecutor) {
+            runAll(_, _) >> { String displayName, List<Runnable> actions -> actions*.run() }
+        }
+        builder = new DependencyGraphBuilder(resolverProvider, moduleResolver, new DefaultConflictHandler(conflictResolver, moduleReplacements), dependencyToConfigurationResolver, prefetchExecutor)
+    }
+
     def revision(String name, String revision = '1.0') {
         // TODO Shouldn't really be using the local component implementation here
         def id = newId("group", name, revision)
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.store
+
+import org.gradle.api.artifacts.ModuleDependency
+import org.gradle.api.artifacts.UnresolvedDependency
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyArtifactSet
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.ResolvedArtifactsBuilder
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.ResolvedConfigurationBuilder
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.DefaultInternalDependencyResult
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.DefaultModuleVersionSelection
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ResolutionResultBuilder
+import org.gradle.internal.component.external.model.DefaultModuleComponentArtifactMetaData
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.external.model.DefaultModuleComponentSelector
+import org.gradle.internal.component.model.DefaultIvyArtifactName
+import org.gradle.internal.resolve.resolver.ArtifactResolver
+import spock.lang.Specification
+
+import static org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier.newId
+import static org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.VersionSelectionReasons.REQUESTED
+
+class ResolvedGraphRecorderTest extends Specification {
+    def dependency1 = Mock(ModuleDependency)
+    def dependency2 = Mock(ModuleDependency)
+    def recorder = new ResolvedGraphRecorder([dependency1, dependency2])
+    def newModelBuilder = Mock(ResolutionResultBuilder)
+    def oldModelBuilder = Mock(ResolvedConfigurationBuilder)
+    def artifactsBuilder = Mock(ResolvedArtifactsBuilder)
+    def artifactResolver = Mock(ArtifactResolver)
+
+    def rootId = new ResolvedConfigurationIdentifier(newId("org", "root", "1.0"), "compile")
+    def depId = new ResolvedConfigurationIdentifier(newId("org", "dep", "2.0"), "default")
+    def depComponent = DefaultModuleComponentIdentifier.newId("org", "dep", "2.0")
+
+    def "passes events on and replays them into other builders"() {
+        def artifact = new DefaultModuleComponentArtifactMetaData(depComponent, new DefaultIvyArtifactName("dep", "jar", "jar"))
+        def artifactSet = new DependencyArtifactSet(newId("org", "dep", "2.0"), null, [artifact] as Set, artifactResolver, [:], 12)
+
+        when:
+        record(artifactSet)
+
+        then:
+        1 * newModelBuilder.start(newId("org", "root", "1.0"), _)
+        1 * oldModelBuilder.addFirstLevelDependency(dependency2, depId)
+        1 * artifactsBuilder.addArtifacts(12, artifactSet)
+        recorder.replayable
+        recorder.components == [depComponent] as Set
+
+        when:
+        ResolvedGraphRecorder.replay(recorder.events, [dependency1, dependency2], newModelBuilder, oldModelBuilder, artifactsBuilder, artifactResolver)
+
+        then:
+        1 * newModelBuilder.start(newId("org", "root", "1.0"), DefaultModuleComponentIdentifier.newId("org", "root", "1.0"))
+
+        then:
+        1 * newModelBuilder.resolvedModuleVersion({ it.id == newId("org", "dep", "2.0") && it.componentId == depComponent })
+
+        then:
+        1 * newModelBuilder.resolvedConfiguration(newId("org", "root", "1.0"), { it.size() == 1 && it[0].selected == newId("org", "dep", "2.0") })
+
+        then:
+        1 * oldModelBuilder.newResolvedDependency(rootId)
+        1 * oldModelBuilder.newResolvedDependency(depId)
+
+        then:
+        1 * oldModelBuilder.addChild(rootId, depId)
+        1 * oldModelBuilder.addArtifacts(depId, rootId, 12)
+        1 * artifactsBuilder.addArtifacts(12, { it.id == 12 && it.componentArtifacts*.id == [artifact.id] })
+        1 * oldModelBuilder.addFirstLevelDependency(dependency2, depId)
+
+        then:
+        1 * oldModelBuilder.done(rootId)
+        0 * _
+    }
+
+    def "cannot replay graph with unresolved dependencies"() {
+        when:
+        recorder.recording(oldModelBuilder).addUnresolvedDependency(Stub(UnresolvedDependency))
+
+        then:
+        !recorder.replayable
+    }
+
+    def "cannot replay graph with a first level dependency that is not declared"() {
+        when:
+        recorder.recording(oldModelBuilder).addFirstLevelDependency(Mock(ModuleDependency), depId)
+
+        then:
+        !recorder.replayable
+    }
+
+    private void record(DependencyArtifactSet artifactSet) {
+        def newModel = recorder.recording(newModelBuilder)
+        def oldModel = recorder.recording(oldModelBuilder)
+        def artifacts = recorder.recording(artifactsBuilder)
+
+        newModel.start(newId("org", "root", "1.0"), DefaultModuleComponentIdentifier.newId("org", "root", "1.0"))
+        newModel.resolvedModuleVersion(new DefaultModuleVersionSelection(newId("org", "dep", "2.0"), REQUESTED, depComponent))
+        newModel.resolvedConfiguration(newId("org", "root", "1.0"), [
+            new DefaultInternalDependencyResult(DefaultModuleComponentSelector.newSelector("org", "dep", "2.0"), newId("org", "dep", "2.0"), REQUESTED, null)
+        ])
+        oldModel.newResolvedDependency(rootId)
+        oldModel.newResolvedDependency(depId)
+        oldModel.addChild(rootId, depId)
+        oldModel.addArtifacts(depId, rootId, 12)
+        artifacts.addArtifacts(12, artifactSet)
+        oldModel.addFirstLevelDependency(dependency2, depId)
+        oldModel.done(rootId)
+    }
+}
@@ -30,11 +30,13 @@ import org.gradle.internal.resource.metadata.ExternalResourceMetaData
 import org.gradle.internal.resource.transport.ExternalResourceRepository
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.gradle.util.BuildCommencedTimeProvider
+import org.gradle.util.SetSystemProperties
 import org.junit.Rule
 import spock.lang.Specification
 
 class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
     @Rule TestNameTestDirectoryProvider tempDir = new TestNameTestDirectoryProvider()
+    @Rule SetSystemProperties systemProperties = new SetSystemProperties()
     final repository = Mock(ExternalResourceRepository)
     final progressLoggingRepo = Mock(ExternalResourceRepository)
     final index = Mock(CachedExternalResourceIndex)
@@ -142,6 +144,85 @@ class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
         0 * _._
     }
 
+    def "reuses expired cached resource when the remote repository reports it is unchanged"() {
+        given:
+        System.setProperty(DefaultCacheAwareExternalResourceAccessor.CONDITIONAL_REQUESTS_PROPERTY, "true")
+        def uri = new URI("scheme:thing")
+        def fileStore = Mock(CacheAwareExternalResourceAccessor.ResourceFileStore)
+        def cached = Mock(CachedExternalResource)
+        def cachedMetaData = Mock(ExternalResourceMetaData)
+        def remoteResource = Mock(ExternalResource)
+
+        when:
+        def result = cache.getResource(uri, fileStore, null)
+
+        then:
+        result.localResource.file == cachedFile
+        result.metaData == cachedMetaData
+
+        and:
+        1 * index.lookup("scheme:thing") >> cached
+        timeProvider.currentTime >> 24000L
+        cached.cachedAt >> 23999L
+        cached.cachedFile >> cachedFile
+        cached.externalResourceMetaData >> cachedMetaData
+        cached.externalLastModified >> null
+        cachedMetaData.etag >> "abc"
+        cachedMetaData.lastModified >> null
+        cachedMetaData.contentLength >> -1
+        1 * repository.withProgressLogging() >> progressLoggingRepo
+        1 * progressLoggingRepo.getResource(uri, cachedMetaData) >> remoteResource
+        remoteResource.metaData >> cachedMetaData
+        1 * remoteResource.close()
+        1 * cacheLockingManager.useCache(_, _) >> { String description, org.gradle.internal.Factory factory ->
+            return factory.create()
+        }
+        1 * index.store("scheme:thing", cachedFile, cachedMetaData)
+        0 * _._
+    }
+
+    def "downloads expired cached resource when the remote repository reports it has changed"() {
+        given:
+        System.setProperty(DefaultCacheAwareExternalResourceAccessor.CONDITIONAL_REQUESTS_PROPERTY, "true")
+        def uri = new URI("scheme:thing")
+        def fileStore = Mock(CacheAwareExternalResourceAccessor.ResourceFileStore)
+        def cached = Mock(CachedExternalResource)
+        def cachedMetaData = Mock(ExternalResourceMetaData)
+        def remoteMetaData = Mock(ExternalResourceMetaData)
+        def remoteResource = Mock(ExternalResource)
+        def localResource = new DefaultLocallyAvailableResource(cachedFile)
+
+        when:
+        def result = cache.getResource(uri, fileStore, null)
+
+        then:
+        result.localResource.file == cachedFile
+        result.metaData == remoteMetaData
+
+        and:
+        1 * index.lookup("scheme:thing") >> cached
+        timeProvider.currentTime >> 24000L
+        cached.cachedAt >> 23999L
+        cached.externalResourceMetaData >> cachedMetaData
+        cachedMetaData.etag >> "abc"
+        cachedMetaData.lastModified >> null
+        cachedMetaData.contentLength >> -1
+        remoteMetaData.etag >> "def"
+        1 * repository.withProgressLogging() >> progressLoggingRepo
+        1 * progressLoggingRepo.getResource(uri, cachedMetaData) >> remoteResource
+        remoteResource.metaData >> remoteMetaData
+        1 * remoteResource.withContent(_) >> { ExternalResource.ContentAction a ->
+            a.execute(new ByteArrayInputStream(), remoteMetaData)
+        }
+        1 * remoteResource.close()
+        1 * cacheLockingManager.useCache(_, _) >> { String description, org.gradle.internal.Factory factory ->
+            return factory.create()
+        }
+        1 * fileStore.moveIntoCache(tempFile) >> localResource
+        1 * index.store("scheme:thing", cachedFile, remoteMetaData)
+        0 * _._
+    }
+
     def "will use sha1 from metadata for finding candidates if available"() {
         given:
         def localCandidates = Mock(LocallyAvailableResourceCandidates)
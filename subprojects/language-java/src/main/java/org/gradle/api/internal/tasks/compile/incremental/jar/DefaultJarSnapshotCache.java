@@ -16,22 +16,26 @@
 
 package org.gradle.api.internal.tasks.compile.incremental.jar;
 
+import com.google.common.util.concurrent.Striped;
 import org.gradle.api.internal.cache.MinimalPersistentCache;
 import org.gradle.cache.CacheRepository;
 import org.gradle.internal.Factory;
+import org.gradle.internal.hash.HashValue;
 import org.gradle.internal.serialize.BaseSerializerFactory;
 
 import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.locks.Lock;
 
 /**
- * Cross-process, global cache of jar snapshots. Required to make incremental java compilation fast.
- * Jar snapshots are cached globally, so if one project caches the groovy jar, it can be used by some other project.
+ * Caches jar snapshots by jar content hash, in a cache that is shared by all builds. A jar that is used by several projects is snapshotted once.
  */
 public class DefaultJarSnapshotCache implements JarSnapshotCache {
 
     private final MinimalPersistentCache<byte[], JarSnapshotData> cache;
+    // The compile tasks of a parallel build often need the snapshot of the same jar at the same time
+    private final Striped<Lock> snapshotLocks = Striped.lock(256);
 
     public DefaultJarSnapshotCache(CacheRepository cacheRepository) {
         cache = new MinimalPersistentCache<byte[], JarSnapshotData>(cacheRepository, "jar snapshots", BaseSerializerFactory.BYTE_ARRAY_SERIALIZER, new JarSnapshotDataSerializer());
@@ -51,11 +55,18 @@ public class DefaultJarSnapshotCache implements JarSnapshotCache {
     }
 
     public JarSnapshot get(byte[] key, final Factory<JarSnapshot> factory) {
-        return new JarSnapshot(cache.get(key, new Factory<JarSnapshotData>() {
-            public JarSnapshotData create() {
-                return factory.create().getData();
-            }
-        }));
+        // Only one thread creates the snapshot of a given jar. Other threads wait for it, then find the snapshot in the cache
+        Lock lock = snapshotLocks.get(new HashValue(key));
+        lock.lock();
+        try {
+            return new JarSnapshot(cache.get(key, new Factory<JarSnapshotData>() {
+                public JarSnapshotData create() {
+                    return factory.create().getData();
+                }
+            }));
+        } finally {
+            lock.unlock();
+        }
     }
 
     public void stop() {
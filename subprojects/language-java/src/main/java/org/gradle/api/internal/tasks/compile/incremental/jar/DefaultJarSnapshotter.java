@@ -15,44 +15,94 @@
  */
 package org.gradle.api.internal.tasks.compile.incremental.jar;
 
-import org.gradle.api.file.FileTree;
-import org.gradle.api.file.FileVisitDetails;
-import org.gradle.api.file.FileVisitor;
-import org.gradle.api.internal.hash.Hasher;
-import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassDependenciesAnalyzer;
-import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassFilesAnalyzer;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.internal.hash.DefaultHasher;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassAnalysis;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.DefaultClassDependenciesAnalyzer;
+import org.gradle.api.internal.tasks.compile.incremental.deps.ClassDependentsAccumulator;
+import org.gradle.api.internal.tasks.compile.incremental.deps.ClassSetAnalysisData;
+import org.gradle.internal.UncheckedException;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
+/**
+ * Creates the snapshot of a jar by reading the class files straight from the zip stream, without extracting them. Each class file is read
+ * into memory once, and is both hashed and analyzed from there.
+ *
+ * <p>Class files in a jar are analyzed directly rather than through the class analysis cache: the snapshot of the whole jar is already
+ * cached by jar content hash, and looking up every class in the persistent cache would cost more than the analysis itself.</p>
+ */
 class DefaultJarSnapshotter {
+    // Class hashes are only ever compared with the class hashes of other jar snapshots
+    private static final String CLASS_HASH_ALGORITHM = DefaultHasher.ALGORITHM;
 
-    private final Hasher hasher;
-    private final ClassDependenciesAnalyzer analyzer;
+    private final DefaultClassDependenciesAnalyzer analyzer;
 
-    public DefaultJarSnapshotter(Hasher hasher, ClassDependenciesAnalyzer analyzer) {
-        this.hasher = hasher;
+    public DefaultJarSnapshotter(DefaultClassDependenciesAnalyzer analyzer) {
         this.analyzer = analyzer;
     }
 
     public JarSnapshot createSnapshot(byte[] hash, JarArchive jarArchive) {
-        return createSnapshot(hash, jarArchive.contents, new ClassFilesAnalyzer(analyzer));
+        return createSnapshot(hash, jarArchive.file);
     }
 
-    JarSnapshot createSnapshot(byte[] hash, FileTree classes, final ClassFilesAnalyzer analyzer) {
-        final Map<String, byte[]> hashes = new HashMap<String, byte[]>();
-        classes.visit(new FileVisitor() {
-            public void visitDir(FileVisitDetails dirDetails) {
+    JarSnapshot createSnapshot(byte[] hash, File jarFile) {
+        Map<String, byte[]> hashes = new HashMap<String, byte[]>();
+        ClassDependentsAccumulator accumulator = new ClassDependentsAccumulator("");
+        if (jarFile.isFile()) {
+            try {
+                visitClasses(jarFile, hashes, accumulator);
+            } catch (IOException e) {
+                throw new UncheckedIOException(String.format("Could not create snapshot of jar %s.", jarFile), e);
             }
+        }
+        return new JarSnapshot(new JarSnapshotData(hash, hashes, new ClassSetAnalysisData(accumulator.getDependentsMap())));
+    }
 
-            public void visitFile(FileVisitDetails fileDetails) {
-                analyzer.visitFile(fileDetails);
-                String className = fileDetails.getPath().replaceAll("/", ".").replaceAll("\\.class$", "");
-                byte[] classHash = hasher.hash(fileDetails.getFile());
-                hashes.put(className, classHash);
+    private void visitClasses(File jarFile, Map<String, byte[]> hashes, ClassDependentsAccumulator accumulator) throws IOException {
+        MessageDigest digest = createDigest();
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        ZipInputStream zipStream = new ZipInputStream(new FileInputStream(jarFile));
+        try {
+            ZipEntry entry;
+            while ((entry = zipStream.getNextEntry()) != null) {
+                String path = entry.getName();
+                if (entry.isDirectory() || !path.endsWith(".class")) {
+                    continue;
+                }
+                content.reset();
+                int count;
+                while ((count = zipStream.read(buffer)) >= 0) {
+                    content.write(buffer, 0, count);
+                }
+                byte[] classBytes = content.toByteArray();
+
+                String className = path.replaceAll("/", ".").replaceAll("\\.class$", "");
+                hashes.put(className, digest.digest(classBytes));
+                ClassAnalysis analysis = analyzer.getClassAnalysis(className, new ByteArrayInputStream(classBytes));
+                accumulator.addClass(className, analysis.isDependencyToAll(), analysis.getClassDependencies());
             }
-        });
+        } finally {
+            zipStream.close();
+        }
+    }
 
-        return new JarSnapshot(new JarSnapshotData(hash, hashes, analyzer.getAnalysis()));
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(CLASS_HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
     }
-}
\ No newline at end of file
+}
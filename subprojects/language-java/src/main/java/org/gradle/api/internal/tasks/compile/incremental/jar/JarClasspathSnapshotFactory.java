@@ -16,28 +16,43 @@
 
 package org.gradle.api.internal.tasks.compile.incremental.jar;
 
+import org.gradle.internal.operations.BuildOperation;
+import org.gradle.internal.operations.BuildOperationProcessor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.BuildOperationWorker;
+
 import java.io.File;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 
 public class JarClasspathSnapshotFactory {
 
     private final JarSnapshotter jarSnapshotter;
+    private final BuildOperationProcessor buildOperationProcessor;
 
-    public JarClasspathSnapshotFactory(JarSnapshotter jarSnapshotter) {
+    public JarClasspathSnapshotFactory(JarSnapshotter jarSnapshotter, BuildOperationProcessor buildOperationProcessor) {
         this.jarSnapshotter = jarSnapshotter;
+        this.buildOperationProcessor = buildOperationProcessor;
     }
 
     JarClasspathSnapshot createSnapshot(Iterable<JarArchive> jarArchives) {
+        // Snapshot the jars in parallel, then combine the snapshots in classpath order
+        List<SnapshotJarOperation> operations = new ArrayList<SnapshotJarOperation>();
+        BuildOperationQueue<SnapshotJarOperation> queue = buildOperationProcessor.newQueue(new SnapshotJarWorker(), null);
+        for (JarArchive jar : jarArchives) {
+            SnapshotJarOperation operation = new SnapshotJarOperation(jar);
+            operations.add(operation);
+            queue.add(operation);
+        }
+        queue.waitForCompletion();
+
         Map<File, JarSnapshot> jarSnapshots = new HashMap<File, JarSnapshot>();
         Map<File, byte[]> jarHashes = new HashMap<File, byte[]>();
         Set<String> allClasses = new HashSet<String>();
         Set<String> duplicateClasses = new HashSet<String>();
 
-        for (JarArchive jar : jarArchives) {
-            JarSnapshot snapshot = jarSnapshotter.createSnapshot(jar);
+        for (SnapshotJarOperation operation : operations) {
+            JarArchive jar = operation.jar;
+            JarSnapshot snapshot = operation.snapshot;
             jarSnapshots.put(jar.file, snapshot);
             jarHashes.put(jar.file, snapshot.getHash());
             for (String c : snapshot.getClasses()) {
@@ -49,4 +64,27 @@ public class JarClasspathSnapshotFactory {
         JarClasspathSnapshotData jarClasspathSnapshotData = new JarClasspathSnapshotData(jarHashes, duplicateClasses);
         return new JarClasspathSnapshot(jarSnapshots, jarClasspathSnapshotData);
     }
+
+    private static class SnapshotJarOperation implements BuildOperation {
+        final JarArchive jar;
+        JarSnapshot snapshot;
+
+        SnapshotJarOperation(JarArchive jar) {
+            this.jar = jar;
+        }
+
+        public String getDescription() {
+            return "Snapshot jar " + jar.file;
+        }
+    }
+
+    private class SnapshotJarWorker implements BuildOperationWorker<SnapshotJarOperation> {
+        public String getDisplayName() {
+            return "jar snapshotter";
+        }
+
+        public void execute(SnapshotJarOperation operation) {
+            operation.snapshot = jarSnapshotter.createSnapshot(operation.jar);
+        }
+    }
 }
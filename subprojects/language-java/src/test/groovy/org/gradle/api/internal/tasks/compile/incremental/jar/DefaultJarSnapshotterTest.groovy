@@ -18,50 +18,80 @@
 
 package org.gradle.api.internal.tasks.compile.incremental.jar
 
-import org.gradle.api.internal.file.collections.DirectoryFileTree
-import org.gradle.api.internal.file.collections.FileTreeAdapter
-import org.gradle.api.internal.hash.Hasher
-import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassDependenciesAnalyzer
-import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassFilesAnalyzer
-import org.gradle.api.internal.tasks.compile.incremental.deps.ClassSetAnalysisData
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassAnalysis
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.DefaultClassDependenciesAnalyzer
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
-import org.gradle.util.UsesNativeServices
 import org.junit.Rule
 import spock.lang.Specification
 import spock.lang.Subject
 
-@UsesNativeServices
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
 class DefaultJarSnapshotterTest extends Specification {
 
     @Rule TestNameTestDirectoryProvider temp = new TestNameTestDirectoryProvider()
-    def hasher = Mock(Hasher)
+    def analyzer = Mock(DefaultClassDependenciesAnalyzer)
 
-    @Subject snapshotter = new DefaultJarSnapshotter(hasher, Mock(ClassDependenciesAnalyzer))
+    @Subject snapshotter = new DefaultJarSnapshotter(analyzer)
 
     def "creates snapshot for an empty jar"() {
+        def jar = jar("a.jar", [:])
+
+        expect:
+        def snapshot = snapshotter.createSnapshot(new byte[0], jar)
+        snapshot.hashes.isEmpty()
+        snapshot.analysis
+    }
+
+    def "creates snapshot for a missing jar"() {
         expect:
-        def snapshot = snapshotter.createSnapshot(new byte[0], new JarArchive(new File("a.jar"), new FileTreeAdapter(new DirectoryFileTree(new File("missing")))))
+        def snapshot = snapshotter.createSnapshot(new byte[0], new File("missing.jar"))
         snapshot.hashes.isEmpty()
         snapshot.analysis
     }
 
-    def "creates snapshot of a jar with classes"() {
-        def f1 = temp.createFile("foo/Foo.class")
-        def f2 = temp.createFile("foo/com/Foo2.class")
-        def analyzer = Mock(ClassFilesAnalyzer)
+    def "creates snapshot of a jar with classes without extracting it"() {
+        def jar = jar("a.jar", ["Foo.class": "foo", "com/Foo2.class": "foo2", "com/Other.class": "foo", "META-INF/MANIFEST.MF": "manifest"])
 
         when:
-        def snapshot = snapshotter.createSnapshot(new byte[0], new FileTreeAdapter(new DirectoryFileTree(temp.file("foo"))), analyzer)
+        def snapshot = snapshotter.createSnapshot(new byte[0], jar)
 
         then:
-        2 * analyzer.visitFile(_)
-        1 * hasher.hash(f1)
-        1 * hasher.hash(f2)
-        1 * analyzer.getAnalysis() >> Stub(ClassSetAnalysisData)
+        1 * analyzer.getClassAnalysis("Foo", { it.text == "foo" }) >> new ClassAnalysis(["com.Foo2"] as Set, false)
+        1 * analyzer.getClassAnalysis("com.Foo2", { it.text == "foo2" }) >> new ClassAnalysis([] as Set, false)
+        1 * analyzer.getClassAnalysis("com.Other", _) >> new ClassAnalysis([] as Set, true)
         0 * _._
 
         and:
-        snapshot.hashes.keySet() == ["Foo", "com.Foo2"] as Set
-        snapshot.analysis
+        snapshot.hashes.keySet() == ["Foo", "com.Foo2", "com.Other"] as Set
+        snapshot.hashes["Foo"] == snapshot.hashes["com.Other"]
+        snapshot.hashes["Foo"] != snapshot.hashes["com.Foo2"]
+        snapshot.analysis.getRelevantDependents("com.Foo2").dependentClasses == ["Foo"] as Set
+        snapshot.analysis.isDependencyToAll("com.Other")
+    }
+
+    def "snapshot of a jar is independent of the location of the jar"() {
+        def jar1 = jar("a.jar", ["Foo.class": "foo"])
+        def jar2 = jar("b.jar", ["Foo.class": "foo"])
+        analyzer.getClassAnalysis(_, _) >> new ClassAnalysis([] as Set, false)
+
+        expect:
+        snapshotter.createSnapshot(new byte[0], jar1).hashes["Foo"] == snapshotter.createSnapshot(new byte[0], jar2).hashes["Foo"]
+    }
+
+    private File jar(String name, Map<String, String> entries) {
+        def file = temp.file(name)
+        def zipStream = new ZipOutputStream(new FileOutputStream(file))
+        try {
+            entries.each { path, content ->
+                zipStream.putNextEntry(new ZipEntry(path))
+                zipStream.write(content.bytes)
+                zipStream.closeEntry()
+            }
+        } finally {
+            zipStream.close()
+        }
+        return file
     }
 }
@@ -17,13 +17,21 @@
 package org.gradle.api.internal.tasks.compile.incremental.jar
 
 import org.gradle.api.file.FileTree
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.operations.DefaultBuildOperationProcessor
+import org.gradle.internal.operations.MultipleBuildOperationFailures
 import spock.lang.Specification
 import spock.lang.Subject
 
 class JarClasspathSnapshotFactoryTest extends Specification {
 
     def snapshotter = Mock(JarSnapshotter)
-    @Subject factory = new JarClasspathSnapshotFactory(snapshotter)
+    def buildOperationProcessor = new DefaultBuildOperationProcessor(new DefaultExecutorFactory(), 4)
+    @Subject factory = new JarClasspathSnapshotFactory(snapshotter, buildOperationProcessor)
+
+    def cleanup() {
+        buildOperationProcessor.stop()
+    }
 
     def "creates classpath snapshot with correct duplicate classes"() {
         def jar1 = Stub(JarArchive); def jar2 = Stub(JarArchive); def jar3 = Stub(JarArchive)
@@ -62,4 +70,19 @@ class JarClasspathSnapshotFactoryTest extends Specification {
         s.data.jarHashes[new File("f1")] == new byte[1]
         s.data.jarHashes[new File("f2")] == new byte[2]
     }
+
+    def "reports failure to snapshot a jar"() {
+        def jar1 = new JarArchive(new File("f1"), Stub(FileTree))
+        def failure = new RuntimeException("broken")
+
+        when:
+        factory.createSnapshot([jar1])
+
+        then:
+        1 * snapshotter.createSnapshot(jar1) >> { throw failure }
+
+        and:
+        def e = thrown(MultipleBuildOperationFailures)
+        e.causes == [failure]
+    }
 }
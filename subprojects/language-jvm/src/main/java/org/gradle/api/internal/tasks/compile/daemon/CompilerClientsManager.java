@@ -17,57 +17,149 @@ package org.gradle.api.internal.tasks.compile.daemon;
 
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.concurrent.CompositeStoppable;
 
 import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 
+/**
+ * A pool of compiler daemons, bounded by the total maximum heap size of the daemons.
+ *
+ * <p>A compilation runs in the idle daemon with the smallest heap that is compatible with the requested fork options. A daemon with larger
+ * settings is used rather than starting a new one. When a new daemon would exceed the total heap limit, the least recently used idle daemons are
+ * stopped. When there are no idle daemons left to stop, the compilation waits for a busy daemon to be released.</p>
+ *
+ * <p>The total heap limit defaults to half the physical memory of the machine, and can be set using the {@value #MAX_TOTAL_HEAP_PROPERTY} system
+ * property, for example {@code -Dorg.gradle.compiler.daemon.maxTotalHeap=4g}.</p>
+ */
 public class CompilerClientsManager {
 
+    public static final String MAX_TOTAL_HEAP_PROPERTY = "org.gradle.compiler.daemon.maxTotalHeap";
+
     private static final Logger LOGGER = Logging.getLogger(CompilerDaemonManager.class);
+    // Used when neither the physical memory nor the heap size of a daemon is known
+    private static final long DEFAULT_DAEMON_HEAP_MB = 1024;
 
     private final Object lock = new Object();
     private final List<CompilerDaemonClient> allClients = new ArrayList<CompilerDaemonClient>();
-    private final List<CompilerDaemonClient> idleClients = new ArrayList<CompilerDaemonClient>();
+    // Least recently used first
+    private final LinkedList<CompilerDaemonClient> idleClients = new LinkedList<CompilerDaemonClient>();
 
-    private CompilerDaemonStarter compilerDaemonStarter;
+    private final CompilerDaemonStarter compilerDaemonStarter;
+    private final long maxTotalHeapMb;
+    private final long defaultDaemonHeapMb;
+
+    // The following are guarded by lock
+    // Includes the daemons being started
+    private long totalHeapMb;
+    private int reservedClients;
+    private long peakTotalHeapMb;
+    private int startedCount;
+    private int reusedCount;
+    private int evictedCount;
 
     public CompilerClientsManager(CompilerDaemonStarter compilerDaemonStarter) {
-        this.compilerDaemonStarter = compilerDaemonStarter;
+        this(compilerDaemonStarter, getMaxTotalHeapMb(), getDefaultDaemonHeapMb());
     }
 
-    public CompilerDaemonClient reserveIdleClient(DaemonForkOptions forkOptions) {
-        return reserveIdleClient(forkOptions, idleClients);
+    CompilerClientsManager(CompilerDaemonStarter compilerDaemonStarter, long maxTotalHeapMb, long defaultDaemonHeapMb) {
+        this.compilerDaemonStarter = compilerDaemonStarter;
+        this.maxTotalHeapMb = maxTotalHeapMb;
+        this.defaultDaemonHeapMb = defaultDaemonHeapMb;
     }
 
-    CompilerDaemonClient reserveIdleClient(DaemonForkOptions forkOptions, List<CompilerDaemonClient> clients) {
-        synchronized (lock) {
-            Iterator<CompilerDaemonClient> it = clients.iterator();
-            while(it.hasNext()) {
-                CompilerDaemonClient candidate = it.next();
-                if(candidate.isCompatibleWith(forkOptions)) {
-                    it.remove();
-                    return candidate;
+    /**
+     * Reserves a daemon compatible with the given fork options, reusing an idle daemon or starting a new one. Blocks while there is no room in
+     * the pool for a new daemon. The daemon must be released when done with.
+     */
+    public CompilerDaemonClient reserveClient(File workingDir, DaemonForkOptions forkOptions) {
+        long requiredHeapMb = heapSizeMb(forkOptions.getMaxHeapSizeMb());
+        List<CompilerDaemonClient> evicted = new ArrayList<CompilerDaemonClient>();
+        try {
+            synchronized (lock) {
+                while (true) {
+                    CompilerDaemonClient idleClient = reserveIdleClient(forkOptions, idleClients);
+                    if (idleClient != null) {
+                        reservedClients++;
+                        reusedCount++;
+                        return idleClient;
+                    }
+                    while (totalHeapMb + requiredHeapMb > maxTotalHeapMb && !idleClients.isEmpty()) {
+                        CompilerDaemonClient leastRecentlyUsed = idleClients.removeFirst();
+                        allClients.remove(leastRecentlyUsed);
+                        totalHeapMb -= heapSizeMb(leastRecentlyUsed.getMaxHeapSizeMb());
+                        evictedCount++;
+                        evicted.add(leastRecentlyUsed);
+                    }
+                    // Start a daemon that is larger than the limit by itself, rather than failing
+                    if (totalHeapMb + requiredHeapMb <= maxTotalHeapMb || reservedClients == 0) {
+                        break;
+                    }
+                    LOGGER.debug("Waiting for a compiler daemon to be released, as the compiler daemons use {} MB of heap out of {} MB.", totalHeapMb, maxTotalHeapMb);
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        throw UncheckedException.throwAsUncheckedException(e);
+                    }
                 }
+                reservedClients++;
+                totalHeapMb += requiredHeapMb;
+                peakTotalHeapMb = Math.max(peakTotalHeapMb, totalHeapMb);
+            }
+        } finally {
+            if (!evicted.isEmpty()) {
+                LOGGER.debug("Stopping {} idle compiler daemon(s) to make room for a new daemon.", evicted.size());
+                CompositeStoppable.stoppable(evicted).stop();
             }
-            return null;
         }
-    }
 
-    public CompilerDaemonClient reserveNewClient(File workingDir, DaemonForkOptions forkOptions) {
         //allow the daemon to be started concurrently
-        CompilerDaemonClient client = compilerDaemonStarter.startDaemon(workingDir, forkOptions);
+        CompilerDaemonClient client;
+        try {
+            client = compilerDaemonStarter.startDaemon(workingDir, forkOptions);
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                reservedClients--;
+                totalHeapMb -= requiredHeapMb;
+                lock.notifyAll();
+            }
+            throw e;
+        }
         synchronized (lock) {
             allClients.add(client);
+            startedCount++;
         }
         return client;
     }
 
+    CompilerDaemonClient reserveIdleClient(DaemonForkOptions forkOptions, List<CompilerDaemonClient> clients) {
+        synchronized (lock) {
+            // Use the smallest compatible daemon, and the most recently used one of those
+            CompilerDaemonClient bestFit = null;
+            for (CompilerDaemonClient candidate : clients) {
+                if (candidate.isCompatibleWith(forkOptions)
+                        && (bestFit == null || heapSizeMb(candidate.getMaxHeapSizeMb()) <= heapSizeMb(bestFit.getMaxHeapSizeMb()))) {
+                    bestFit = candidate;
+                }
+            }
+            if (bestFit != null) {
+                clients.remove(bestFit);
+            }
+            return bestFit;
+        }
+    }
+
     public void release(CompilerDaemonClient client) {
         synchronized (lock) {
-            idleClients.add(client);
+            idleClients.addLast(client);
+            reservedClients--;
+            lock.notifyAll();
         }
     }
 
@@ -76,7 +168,44 @@ public class CompilerClientsManager {
             LOGGER.debug("Stopping {} compiler daemon(s).", allClients.size());
             CompositeStoppable.stoppable(allClients).stop();
             LOGGER.info("Stopped {} compiler daemon(s).", allClients.size());
+            if (startedCount > 0) {
+                LOGGER.info("Compiler daemon pool: {} daemon(s) started, {} compilation(s) in an existing daemon, {} idle daemon(s) stopped early, peak total heap {} MB.",
+                        startedCount, reusedCount, evictedCount, peakTotalHeapMb);
+            }
             allClients.clear();
+            idleClients.clear();
+            totalHeapMb = 0;
+        }
+    }
+
+    private long heapSizeMb(int maxHeapSizeMb) {
+        return maxHeapSizeMb < 0 ? defaultDaemonHeapMb : maxHeapSizeMb;
+    }
+
+    private static long getMaxTotalHeapMb() {
+        String maxTotalHeap = System.getProperty(MAX_TOTAL_HEAP_PROPERTY);
+        if (maxTotalHeap != null) {
+            return DaemonForkOptions.getHeapSizeMb(maxTotalHeap);
+        }
+        long physicalMemoryMb = getPhysicalMemoryMb();
+        return physicalMemoryMb > 0 ? physicalMemoryMb / 2 : Long.MAX_VALUE;
+    }
+
+    private static long getDefaultDaemonHeapMb() {
+        // The default maximum heap of a JVM is a quarter of the physical memory
+        long physicalMemoryMb = getPhysicalMemoryMb();
+        return physicalMemoryMb > 0 ? physicalMemoryMb / 4 : DEFAULT_DAEMON_HEAP_MB;
+    }
+
+    private static long getPhysicalMemoryMb() {
+        // Not part of the java.lang.management API, but provided by most JVMs
+        OperatingSystemMXBean operatingSystem = ManagementFactory.getOperatingSystemMXBean();
+        try {
+            Method method = operatingSystem.getClass().getMethod("getTotalPhysicalMemorySize");
+            method.setAccessible(true);
+            return ((Number) method.invoke(operatingSystem)).longValue() / (1024 * 1024);
+        } catch (Exception e) {
+            return -1;
         }
     }
-}
\ No newline at end of file
+}
@@ -47,6 +47,13 @@ class CompilerDaemonClient implements CompilerDaemon, CompilerDaemonClientProtoc
         }
     }
 
+    /**
+     * Returns the maximum heap size of the daemon in megabytes, or -1 when not specified.
+     */
+    public int getMaxHeapSizeMb() {
+        return forkOptions.getMaxHeapSizeMb();
+    }
+
     public boolean isCompatibleWith(DaemonForkOptions required) {
         return forkOptions.isCompatibleWith(required);
     }
@@ -53,6 +53,13 @@ public class DaemonForkOptions {
         return maxHeapSize;
     }
 
+    /**
+     * Returns the maximum heap size in megabytes, or -1 when not specified.
+     */
+    public int getMaxHeapSizeMb() {
+        return getHeapSizeMb(maxHeapSize);
+    }
+
     public Iterable<String> getJvmArgs() {
         return jvmArgs;
     }
@@ -86,7 +93,7 @@ public class DaemonForkOptions {
         return new DaemonForkOptions(mergedMinHeapSize, mergedMaxHeapSize, mergedJvmArgs, mergedClasspath, mergedAllowedPackages);
     }
 
-    private int getHeapSizeMb(String heapSize) {
+    static int getHeapSizeMb(String heapSize) {
         if (heapSize == null) {
             return -1; // unspecified
         }
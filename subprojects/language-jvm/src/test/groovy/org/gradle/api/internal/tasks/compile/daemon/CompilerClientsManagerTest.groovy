@@ -16,21 +16,21 @@
 
 package org.gradle.api.internal.tasks.compile.daemon
 
-import org.gradle.util.ConcurrentSpecification
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
 import spock.lang.Subject
 
-class CompilerClientsManagerTest extends ConcurrentSpecification {
+class CompilerClientsManagerTest extends ConcurrentSpec {
 
     def workingDir = new File("some-dir")
 
-    def options = Stub(DaemonForkOptions)
+    def options = Stub(DaemonForkOptions) { getMaxHeapSizeMb() >> 256 }
     def starter = Stub(CompilerDaemonStarter)
 
-    @Subject manager = new CompilerClientsManager(starter)
+    @Subject manager = new CompilerClientsManager(starter, 1024, 512)
 
     def "does not reserve idle client when no clients"() {
         expect:
-        manager.reserveIdleClient(options) == null
+        manager.reserveIdleClient(options, []) == null
     }
 
     def "does not reserve idle client when no matching client found"() {
@@ -52,12 +52,23 @@ class CompilerClientsManagerTest extends ConcurrentSpecification {
         input == [noMatch] //match removed from input
     }
 
+    def "reserves smallest compatible idle client"() {
+        def large = Stub(CompilerDaemonClient) { isCompatibleWith(_) >> true; getMaxHeapSizeMb() >> 1024 }
+        def small = Stub(CompilerDaemonClient) { isCompatibleWith(_) >> true; getMaxHeapSizeMb() >> 256 }
+        def unspecified = Stub(CompilerDaemonClient) { isCompatibleWith(_) >> true; getMaxHeapSizeMb() >> -1 }
+        def input = [large, small, unspecified]
+
+        expect:
+        manager.reserveIdleClient(options, input) == small
+        input == [large, unspecified]
+    }
+
     def "reserves new client"() {
         def newClient = Stub(CompilerDaemonClient)
         starter.startDaemon(workingDir, options) >> newClient
 
         when:
-        def client = manager.reserveNewClient(workingDir, options)
+        def client = manager.reserveClient(workingDir, options)
 
         then:
         newClient == client
@@ -69,8 +80,8 @@ class CompilerClientsManagerTest extends ConcurrentSpecification {
         starter.startDaemon(workingDir, options) >>> [client1, client2]
 
         when:
-        manager.reserveNewClient(workingDir, options)
-        manager.reserveNewClient(workingDir, options)
+        manager.reserveClient(workingDir, options)
+        manager.reserveClient(workingDir, options)
         manager.stop()
 
         then:
@@ -80,18 +91,69 @@ class CompilerClientsManagerTest extends ConcurrentSpecification {
 
     def "clients can be released for further use"() {
         def client = Mock(CompilerDaemonClient) { isCompatibleWith(_) >> true }
-        starter.startDaemon(workingDir, options) >> client
+        def other = Stub(CompilerDaemonClient)
+        starter.startDaemon(workingDir, options) >>> [client, other]
+
+        when:
+        def first = manager.reserveClient(workingDir, options)
+        manager.release(first)
+
+        then:
+        manager.reserveClient(workingDir, options) == client
+    }
+
+    def "stops least recently used idle clients to make room for a new client"() {
+        def largeOptions = Stub(DaemonForkOptions) { getMaxHeapSizeMb() >> 768 }
+        def client1 = Mock(CompilerDaemonClient) { getMaxHeapSizeMb() >> 256 }
+        def client2 = Mock(CompilerDaemonClient) { getMaxHeapSizeMb() >> 256 }
+        def client3 = Mock(CompilerDaemonClient) { getMaxHeapSizeMb() >> 768 }
+        starter.startDaemon(workingDir, options) >>> [client1, client2]
+        starter.startDaemon(workingDir, largeOptions) >> client3
+
+        given:
+        def reserved1 = manager.reserveClient(workingDir, options)
+        def reserved2 = manager.reserveClient(workingDir, options)
+        manager.release(reserved1)
+        manager.release(reserved2)
 
         when:
-        manager.reserveNewClient(workingDir, options)
+        def client = manager.reserveClient(workingDir, largeOptions)
 
         then:
-        manager.reserveIdleClient(options) == null
+        client == client3
+        1 * client1.stop()
+        0 * client2.stop()
+    }
+
+    def "waits for a busy client to be released when there is no room for a new client"() {
+        def largeOptions = Stub(DaemonForkOptions) { getMaxHeapSizeMb() >> 768 }
+        def client1 = Stub(CompilerDaemonClient) { getMaxHeapSizeMb() >> 512 }
+        def client2 = Stub(CompilerDaemonClient) { getMaxHeapSizeMb() >> 768 }
+        starter.startDaemon(workingDir, options) >> client1
+        starter.startDaemon(workingDir, largeOptions) >> client2
+        def busy = manager.reserveClient(workingDir, options)
 
         when:
-        manager.release(client)
+        async {
+            start {
+                manager.reserveClient(workingDir, largeOptions)
+                instant.reserved
+            }
+            thread.block()
+            instant.released
+            manager.release(busy)
+        }
 
         then:
-        manager.reserveIdleClient(options) == client
+        instant.reserved > instant.released
+    }
+
+    def "starts a client that is larger than the limit when no other clients are in use"() {
+        def hugeOptions = Stub(DaemonForkOptions) { getMaxHeapSizeMb() >> 2048 }
+        def client = Stub(CompilerDaemonClient)
+        starter.startDaemon(workingDir, hugeOptions) >> client
+
+        expect:
+        manager.reserveClient(workingDir, hugeOptions) == client
     }
 }
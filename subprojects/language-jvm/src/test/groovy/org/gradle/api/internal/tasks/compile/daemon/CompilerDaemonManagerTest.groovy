@@ -41,30 +41,12 @@ class CompilerDaemonManagerTest extends Specification {
         0 * clientsManager._
     }
 
-    def "new client is created when daemon is executed and no idle clients found"() {
+    def "client is reserved when daemon is executed"() {
         when:
         manager.getDaemon(workingDir, options).execute(compiler, compileSpec)
 
         then:
-        1 * clientsManager.reserveIdleClient(options) >> null
-
-        then:
-        1 * clientsManager.reserveNewClient(workingDir, options) >> client
-
-        then:
-        1 * client.execute(compiler, compileSpec)
-
-        then:
-        1 * clientsManager.release(client)
-        0 * _._
-    }
-
-    def "idle client is reused when daemon is executed"() {
-        when:
-        manager.getDaemon(workingDir, options).execute(compiler, compileSpec)
-
-        then:
-        1 * clientsManager.reserveIdleClient(options) >> client
+        1 * clientsManager.reserveClient(workingDir, options) >> client
 
         then:
         1 * client.execute(compiler, compileSpec)
@@ -79,7 +61,7 @@ class CompilerDaemonManagerTest extends Specification {
         manager.getDaemon(workingDir, options).execute(compiler, compileSpec)
 
         then:
-        1 * clientsManager.reserveIdleClient(options) >> client
+        1 * clientsManager.reserveClient(workingDir, options) >> client
 
         then:
         1 * client.execute(compiler, compileSpec) >> { throw new RuntimeException("Boo!") }
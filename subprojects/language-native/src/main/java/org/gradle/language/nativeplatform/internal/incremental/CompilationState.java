@@ -15,11 +15,17 @@
  */
 package org.gradle.language.nativeplatform.internal.incremental;
 
+import org.gradle.api.internal.changedetection.state.HasEstimatedSize;
+
 import java.io.File;
 import java.io.Serializable;
 import java.util.*;
 
-public class CompilationState implements Serializable {
+public class CompilationState implements Serializable, HasEstimatedSize {
+    // A file with its list or map entry
+    private static final int ESTIMATED_FILE_SIZE = 250;
+    // A resolved include with its set entry
+    private static final int ESTIMATED_INCLUDE_SIZE = 300;
     List<File> sourceInputs = new ArrayList<File>();
     Map<File, CompilationFileState> fileStates = new HashMap<File, CompilationFileState>();
 
@@ -38,4 +44,12 @@ public class CompilationState implements Serializable {
     public void setState(File file, CompilationFileState compilationFileState) {
         fileStates.put(file, compilationFileState);
     }
+
+    public long getEstimatedSize() {
+        long size = 64 + (long) sourceInputs.size() * ESTIMATED_FILE_SIZE;
+        for (CompilationFileState fileState : fileStates.values()) {
+            size += ESTIMATED_FILE_SIZE + (long) fileState.getResolvedIncludes().size() * ESTIMATED_INCLUDE_SIZE;
+        }
+        return size;
+    }
 }
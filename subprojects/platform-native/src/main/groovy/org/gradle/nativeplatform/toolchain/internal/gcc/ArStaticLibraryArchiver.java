@@ -19,6 +19,7 @@ package org.gradle.nativeplatform.toolchain.internal.gcc;
 import org.gradle.api.GradleException;
 import org.gradle.api.internal.tasks.SimpleWorkResult;
 import org.gradle.api.tasks.WorkResult;
+import org.gradle.internal.operations.BuildOperationPriority;
 import org.gradle.internal.operations.BuildOperationProcessor;
 import org.gradle.internal.operations.BuildOperationQueue;
 import org.gradle.language.base.internal.compile.Compiler;
@@ -50,7 +51,7 @@ class ArStaticLibraryArchiver implements Compiler<StaticLibraryArchiverSpec> {
     public WorkResult execute(StaticLibraryArchiverSpec spec) {
         deletePreviousOutput(spec);
 
-        BuildOperationQueue<CommandLineToolInvocation> queue = buildOperationProcessor.newQueue(commandLineToolInvocationWorker, spec.getOperationLogger().getLogLocation());
+        BuildOperationQueue<CommandLineToolInvocation> queue = buildOperationProcessor.newQueue(commandLineToolInvocationWorker, spec.getOperationLogger().getLogLocation(), BuildOperationPriority.HIGH);
         List<String> args = argsTransformer.transform(spec);
         invocationContext.getArgAction().execute(args);
         CommandLineToolInvocation invocation = invocationContext.createInvocation(
@@ -16,6 +16,7 @@
 
 package org.gradle.nativeplatform.toolchain.internal.gcc
 import org.gradle.internal.Actions
+import org.gradle.internal.operations.BuildOperationPriority
 import org.gradle.internal.operations.BuildOperationProcessor
 import org.gradle.internal.operations.BuildOperationQueue
 import org.gradle.internal.operations.logging.BuildOperationLogger
@@ -79,7 +80,7 @@ class GccLinkerTest extends Specification {
 
         then:
         1 * operationLogger.getLogLocation() >> LOG_LOCATION
-        1 * buildOperationProcessor.newQueue(commandLineTool, LOG_LOCATION) >> queue
+        1 * buildOperationProcessor.newQueue(commandLineTool, LOG_LOCATION, BuildOperationPriority.HIGH) >> queue
         1 * invocationContext.getArgAction() >> Actions.doNothing()
         1 * invocationContext.createInvocation("linking lib", expectedArgs, operationLogger) >> invocation
         1 * queue.add(invocation)
@@ -128,7 +129,7 @@ class GccLinkerTest extends Specification {
 
         then:
         1 * operationLogger.getLogLocation() >> LOG_LOCATION
-        1 * buildOperationProcessor.newQueue(commandLineTool, LOG_LOCATION) >> queue
+        1 * buildOperationProcessor.newQueue(commandLineTool, LOG_LOCATION, BuildOperationPriority.HIGH) >> queue
         1 * invocationContext.getArgAction() >> Actions.doNothing()
         1 * invocationContext.createInvocation("linking lib", expectedArgs, operationLogger) >> invocation
         1 * queue.add(invocation)
@@ -166,7 +167,7 @@ class GccLinkerTest extends Specification {
 
         then:
         1 * operationLogger.getLogLocation() >> LOG_LOCATION
-        1 * buildOperationProcessor.newQueue(commandLineTool, LOG_LOCATION) >> queue
+        1 * buildOperationProcessor.newQueue(commandLineTool, LOG_LOCATION, BuildOperationPriority.HIGH) >> queue
         1 * invocationContext.getArgAction() >> Actions.doNothing()
         1 * invocationContext.createInvocation("linking lib", expectedArgs, operationLogger) >> invocation
         1 * queue.add(invocation)
@@ -205,7 +206,7 @@ class GccLinkerTest extends Specification {
 
         then:
         1 * operationLogger.getLogLocation() >> LOG_LOCATION
-        1 * buildOperationProcessor.newQueue(commandLineTool, LOG_LOCATION) >> queue
+        1 * buildOperationProcessor.newQueue(commandLineTool, LOG_LOCATION, BuildOperationPriority.HIGH) >> queue
         1 * invocationContext.getArgAction() >> Actions.doNothing()
         1 * invocationContext.createInvocation("linking lib", expectedArgs, operationLogger) >> invocation
         1 * queue.add(invocation)
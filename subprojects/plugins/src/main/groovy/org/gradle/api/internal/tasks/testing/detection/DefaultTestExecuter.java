@@ -16,15 +16,18 @@
 
 package org.gradle.api.internal.tasks.testing.detection;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.file.FileTree;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestFramework;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.api.internal.tasks.testing.processors.LongestFirstTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.MaxNParallelTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.RestartEveryNTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.TestMainAction;
 import org.gradle.api.internal.tasks.testing.worker.ForkingTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.worker.TestWorkerPool;
 import org.gradle.api.tasks.testing.Test;
 import org.gradle.internal.Factory;
 import org.gradle.internal.TrueTimeProvider;
@@ -32,25 +35,42 @@ import org.gradle.internal.progress.OperationIdGenerator;
 import org.gradle.messaging.actor.ActorFactory;
 import org.gradle.process.internal.WorkerProcessBuilder;
 
+import java.util.Collections;
+import java.util.Map;
+
 /**
  * The default test class scanner factory.
  */
 public class DefaultTestExecuter implements TestExecuter {
     private final Factory<WorkerProcessBuilder> workerFactory;
     private final ActorFactory actorFactor;
+    private final Map<String, Long> previousDurations;
+    private final TestWorkerPool workerPool;
 
     public DefaultTestExecuter(Factory<WorkerProcessBuilder> workerFactory, ActorFactory actorFactor) {
+        this(workerFactory, actorFactor, Collections.<String, Long>emptyMap(), null);
+    }
+
+    /**
+     * @param previousDurations The duration of each test class in previous executions, used to start the longest running test classes first.
+     * @param workerPool The pool to take idle test workers from, or null to always start new test workers.
+     */
+    public DefaultTestExecuter(Factory<WorkerProcessBuilder> workerFactory, ActorFactory actorFactor, Map<String, Long> previousDurations, @Nullable TestWorkerPool workerPool) {
         this.workerFactory = workerFactory;
         this.actorFactor = actorFactor;
+        this.previousDurations = previousDurations;
+        this.workerPool = workerPool;
     }
 
     public void execute(final Test testTask, TestResultProcessor testResultProcessor) {
         final TestFramework testFramework = testTask.getTestFramework();
         final WorkerTestClassProcessorFactory testInstanceFactory = testFramework.getProcessorFactory();
+        // Reusing workers would defeat the purpose of forking a new worker every so many test classes
+        final TestWorkerPool reusableWorkers = workerPool != null && workerPool.isEnabled() && testTask.getForkEvery() == 0 ? workerPool : null;
         final Factory<TestClassProcessor> forkingProcessorFactory = new Factory<TestClassProcessor>() {
             public TestClassProcessor create() {
                 return new ForkingTestClassProcessor(workerFactory, testInstanceFactory, testTask,
-                    testTask.getClasspath(), testFramework.getWorkerConfigurationAction());
+                    testTask.getClasspath(), testFramework.getWorkerConfigurationAction(), reusableWorkers);
             }
         };
         Factory<TestClassProcessor> reforkingProcessorFactory = new Factory<TestClassProcessor>() {
@@ -61,6 +81,9 @@ public class DefaultTestExecuter implements TestExecuter {
 
         TestClassProcessor processor = new MaxNParallelTestClassProcessor(testTask.getMaxParallelForks(),
             reforkingProcessorFactory, actorFactor);
+        if (testTask.getMaxParallelForks() > 1 && !previousDurations.isEmpty()) {
+            processor = new LongestFirstTestClassProcessor(processor, previousDurations);
+        }
 
         final FileTree testClassFiles = testTask.getCandidateClassFiles();
 
@@ -93,6 +93,8 @@ public class JUnitTestFramework implements TestFramework {
                 workerProcessBuilder.sharedPackages("junit.framework");
                 workerProcessBuilder.sharedPackages("junit.extensions");
                 workerProcessBuilder.sharedPackages("org.junit");
+                // The JUnit API refers to Hamcrest matchers, so the tests must use the same Hamcrest classes as JUnit
+                workerProcessBuilder.sharedPackages("org.hamcrest");
             }
         };
     }
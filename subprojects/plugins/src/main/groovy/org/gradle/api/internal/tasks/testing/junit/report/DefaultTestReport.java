@@ -23,6 +23,10 @@ import org.gradle.api.internal.tasks.testing.junit.result.TestMethodResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestResultsProvider;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.internal.operations.BuildOperation;
+import org.gradle.internal.operations.BuildOperationProcessor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.BuildOperationWorker;
 import org.gradle.reporting.HtmlReportBuilder;
 import org.gradle.reporting.HtmlReportRenderer;
 import org.gradle.reporting.ReportRenderer;
@@ -36,6 +40,11 @@ import static org.gradle.api.tasks.testing.TestResult.ResultType.SKIPPED;
 
 public class DefaultTestReport implements TestReporter {
     private final static Logger LOG = Logging.getLogger(DefaultTestReport.class);
+    private final BuildOperationProcessor buildOperationProcessor;
+
+    public DefaultTestReport(BuildOperationProcessor buildOperationProcessor) {
+        this.buildOperationProcessor = buildOperationProcessor;
+    }
 
     public void generateReport(TestResultsProvider resultsProvider, File reportDir) {
         LOG.info("Generating HTML test report...");
@@ -74,20 +83,52 @@ public class DefaultTestReport implements TestReporter {
             htmlRenderer.render(model, new ReportRenderer<AllTestResults, HtmlReportBuilder>() {
                 @Override
                 public void render(AllTestResults model, HtmlReportBuilder output) throws IOException {
-                    PackagePageRenderer packagePageRenderer = new PackagePageRenderer();
-                    ClassPageRenderer classPageRenderer = new ClassPageRenderer(resultsProvider);
-
-                    output.renderHtmlPage("index.html", model, new OverviewPageRenderer());
+                    // Page renderers hold the model of the page they are rendering, so each page gets its own renderer
+                    BuildOperationQueue<HtmlReportFileGenerator<?>> queue = buildOperationProcessor.newQueue(new HtmlReportFileGeneratorWorker(), null);
+                    queue.add(new HtmlReportFileGenerator<AllTestResults>("index.html", model, new OverviewPageRenderer(), output));
                     for (PackageTestResults packageResults : model.getPackages()) {
-                        output.renderHtmlPage(packageResults.getBaseUrl(), packageResults, packagePageRenderer);
+                        queue.add(new HtmlReportFileGenerator<PackageTestResults>(packageResults.getBaseUrl(), packageResults, new PackagePageRenderer(), output));
                         for (ClassTestResults classResults : packageResults.getClasses()) {
-                            output.renderHtmlPage(classResults.getBaseUrl(), classResults, classPageRenderer);
+                            queue.add(new HtmlReportFileGenerator<ClassTestResults>(classResults.getBaseUrl(), classResults, new ClassPageRenderer(resultsProvider), output));
                         }
                     }
+                    queue.waitForCompletion();
                 }
             }, reportDir);
         } catch (Exception e) {
             throw new GradleException(String.format("Could not generate test report to '%s'.", reportDir), e);
         }
     }
+
+    private static class HtmlReportFileGenerator<T extends CompositeTestResults> implements BuildOperation {
+        private final String fileUrl;
+        private final T results;
+        private final PageRenderer<T> renderer;
+        private final HtmlReportBuilder output;
+
+        HtmlReportFileGenerator(String fileUrl, T results, PageRenderer<T> renderer, HtmlReportBuilder output) {
+            this.fileUrl = fileUrl;
+            this.results = results;
+            this.renderer = renderer;
+            this.output = output;
+        }
+
+        public String getDescription() {
+            return "Generate HTML test report page " + fileUrl;
+        }
+
+        public void render() {
+            output.renderHtmlPage(fileUrl, results, renderer);
+        }
+    }
+
+    private static class HtmlReportFileGeneratorWorker implements BuildOperationWorker<HtmlReportFileGenerator<?>> {
+        public String getDisplayName() {
+            return "HTML test report generator";
+        }
+
+        public void execute(HtmlReportFileGenerator<?> operation) {
+            operation.render();
+        }
+    }
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit.result;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.FlushableEncoder;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+
+import java.io.*;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The duration of each test class from previous executions of a test task, stored next to the binary test results.
+ */
+public class TestDurationHistory {
+    private static final Logger LOGGER = Logging.getLogger(TestDurationHistory.class);
+    private static final int HISTORY_VERSION = 1;
+
+    private final File historyFile;
+
+    public TestDurationHistory(File resultsDir) {
+        this.historyFile = new File(resultsDir, "durations.bin");
+    }
+
+    /**
+     * Returns the duration in milliseconds of each test class, keyed by class name. Returns an empty map when there is no usable history.
+     */
+    public Map<String, Long> read() {
+        Map<String, Long> durations = new HashMap<String, Long>();
+        if (!historyFile.isFile()) {
+            return durations;
+        }
+        try {
+            InputStream inputStream = new FileInputStream(historyFile);
+            try {
+                Decoder decoder = new KryoBackedDecoder(inputStream);
+                if (decoder.readSmallInt() != HISTORY_VERSION) {
+                    return durations;
+                }
+                int count = decoder.readSmallInt();
+                for (int i = 0; i < count; i++) {
+                    String className = decoder.readString();
+                    durations.put(className, decoder.readSmallLong());
+                }
+            } finally {
+                inputStream.close();
+            }
+        } catch (Exception e) {
+            // The history is only used to order the test classes, so carry on without it
+            LOGGER.debug("Could not read test duration history from {}.", historyFile, e);
+            durations.clear();
+        }
+        return durations;
+    }
+
+    /**
+     * Writes the durations of the test classes which have a result, and the previous durations of the other test classes that are still candidates.
+     * Test classes which have been deleted or renamed are dropped from the history.
+     *
+     * @param candidateClassNames The names of the candidate test classes of this execution.
+     */
+    public void write(Map<String, Long> previousDurations, Collection<TestClassResult> results, Set<String> candidateClassNames) {
+        Map<String, Long> durations = new HashMap<String, Long>();
+        for (Map.Entry<String, Long> entry : previousDurations.entrySet()) {
+            if (candidateClassNames.contains(entry.getKey())) {
+                durations.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (TestClassResult result : results) {
+            if (result.getStartTime() > 0) {
+                durations.put(result.getClassName(), result.getDuration());
+            }
+        }
+        try {
+            OutputStream outputStream = new FileOutputStream(historyFile);
+            try {
+                FlushableEncoder encoder = new KryoBackedEncoder(outputStream);
+                encoder.writeSmallInt(HISTORY_VERSION);
+                encoder.writeSmallInt(durations.size());
+                for (Map.Entry<String, Long> entry : durations.entrySet()) {
+                    encoder.writeString(entry.getKey());
+                    encoder.writeSmallLong(Math.max(0, entry.getValue()));
+                }
+                encoder.flush();
+            } finally {
+                outputStream.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
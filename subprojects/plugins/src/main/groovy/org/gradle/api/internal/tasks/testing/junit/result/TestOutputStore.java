@@ -21,17 +21,23 @@ import com.esotericsoftware.kryo.io.Output;
 import com.google.common.collect.ImmutableMap;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.api.tasks.testing.TestOutputEvent;
-import org.gradle.internal.io.RandomAccessFileInputStream;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
 import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
 public class TestOutputStore {
+    private static final int COPY_BUFFER_SIZE = 8192;
 
     private final File resultsDir;
     private final Charset messageStorageCharset;
@@ -216,9 +222,14 @@ public class TestOutputStore {
         }
     }
 
+    /**
+     * Reads the output of the tests. Can be used by multiple threads concurrently, and copies the output to the given writers without holding
+     * complete messages in memory.
+     */
     public class Reader implements Closeable {
         private final Index index;
         private final RandomAccessFile dataFile;
+        private final FileChannel dataChannel;
 
         public Reader() {
             File indexFile = getIndexFile();
@@ -266,6 +277,7 @@ public class TestOutputStore {
                 } catch (FileNotFoundException e) {
                     throw new UncheckedIOException(e);
                 }
+                dataChannel = dataFile.getChannel();
             } else { // no outputs file
                 if (indexFile.exists()) {
                     throw new IllegalStateException(String.format("Test outputs data file '%s' does not exist but the index file '%s' does", outputsFile, indexFile));
@@ -273,6 +285,7 @@ public class TestOutputStore {
 
                 index = null;
                 dataFile = null;
+                dataChannel = null;
             }
         }
 
@@ -333,9 +346,9 @@ public class TestOutputStore {
             boolean ignoreTestLevel = !allClassOutput && testId == 0;
 
             try {
-                dataFile.seek(region.start);
                 long maxPos = region.stop - region.start;
-                KryoBackedDecoder decoder = new KryoBackedDecoder(new RandomAccessFileInputStream(dataFile));
+                KryoBackedDecoder decoder = new KryoBackedDecoder(new ChannelRegionInputStream(dataChannel, region.start));
+                MessageCopier copier = new MessageCopier(decoder, writer);
                 while (decoder.getReadPosition() <= maxPos) {
                     boolean readStdout = decoder.readBoolean();
                     long readClassId = decoder.readSmallLong();
@@ -360,17 +373,7 @@ public class TestOutputStore {
                     }
 
                     if (testId == 0 || testId == readTestId) {
-                        byte[] stringBytes = new byte[readLength];
-                        decoder.readBytes(stringBytes);
-                        String message;
-                        try {
-                            message = new String(stringBytes, messageStorageCharset.name());
-                        } catch (UnsupportedEncodingException e) {
-                            // shouldn't happen
-                            throw UncheckedException.throwAsUncheckedException(e);
-                        }
-
-                        writer.write(message);
+                        copier.copy(readLength);
                     } else {
                         decoder.skipBytes(readLength);
                     }
@@ -381,6 +384,98 @@ public class TestOutputStore {
         }
     }
 
+    /**
+     * Decodes messages in fixed size chunks, writing the characters to the target writer as they are decoded.
+     */
+    private class MessageCopier {
+        private final KryoBackedDecoder decoder;
+        private final java.io.Writer writer;
+        private final CharsetDecoder charsetDecoder;
+        private final ByteBuffer bytes = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+        private final CharBuffer chars = CharBuffer.allocate(COPY_BUFFER_SIZE);
+
+        MessageCopier(KryoBackedDecoder decoder, java.io.Writer writer) {
+            this.decoder = decoder;
+            this.writer = writer;
+            // Same replacement behaviour as decoding the whole message into a String
+            this.charsetDecoder = messageStorageCharset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+
+        void copy(int length) throws IOException {
+            charsetDecoder.reset();
+            bytes.clear();
+            int remaining = length;
+            while (true) {
+                int count = Math.min(remaining, bytes.remaining());
+                if (count > 0) {
+                    decoder.readBytes(bytes.array(), bytes.position(), count);
+                    bytes.position(bytes.position() + count);
+                    remaining -= count;
+                }
+
+                bytes.flip();
+                CoderResult result = charsetDecoder.decode(bytes, chars, remaining == 0);
+                bytes.compact();
+                writeChars();
+                if (remaining == 0 && result.isUnderflow()) {
+                    break;
+                }
+            }
+            while (charsetDecoder.flush(chars).isOverflow()) {
+                writeChars();
+            }
+            writeChars();
+        }
+
+        private void writeChars() throws IOException {
+            chars.flip();
+            writer.write(chars.array(), 0, chars.limit());
+            chars.clear();
+        }
+    }
+
+    /**
+     * Reads a file from the given position onwards, without changing the position of the channel. This allows the channel to be shared by
+     * multiple concurrent readers.
+     */
+    private static class ChannelRegionInputStream extends InputStream {
+        private final FileChannel channel;
+        private long position;
+
+        ChannelRegionInputStream(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] buffer = new byte[1];
+            int count = read(buffer, 0, 1);
+            return count < 0 ? -1 : buffer[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            int count = channel.read(ByteBuffer.wrap(bytes, offset, length), position);
+            if (count > 0) {
+                position += count;
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = Math.max(0, Math.min(n, channel.size() - position));
+            position += skipped;
+            return skipped;
+        }
+    }
+
     // IMPORTANT: return must be closed when done with.
     public Reader reader() {
         return new Reader();
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors;
+
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the test classes and passes them on to the given processor when stopped, longest running first according to the given durations of
+ * previous executions. Test classes without a previous duration are passed on first, as they may take any amount of time.
+ *
+ * <p>When the test classes are given to a set of parallel processors as they become free, this means that the slowest test classes no longer end
+ * up at the tail of the test execution.</p>
+ */
+public class LongestFirstTestClassProcessor implements TestClassProcessor {
+    private final TestClassProcessor processor;
+    private final Map<String, Long> previousDurations;
+    private final List<TestClassRunInfo> testClasses = new ArrayList<TestClassRunInfo>();
+
+    public LongestFirstTestClassProcessor(TestClassProcessor processor, Map<String, Long> previousDurations) {
+        this.processor = processor;
+        this.previousDurations = previousDurations;
+    }
+
+    public void startProcessing(TestResultProcessor resultProcessor) {
+        processor.startProcessing(resultProcessor);
+    }
+
+    public void processTestClass(TestClassRunInfo testClass) {
+        testClasses.add(testClass);
+    }
+
+    public void stop() {
+        try {
+            // Stable sort, so test classes with the same duration keep the order in which they were found
+            Collections.sort(testClasses, new Comparator<TestClassRunInfo>() {
+                public int compare(TestClassRunInfo left, TestClassRunInfo right) {
+                    return durationOf(right).compareTo(durationOf(left));
+                }
+            });
+            for (TestClassRunInfo testClass : testClasses) {
+                processor.processTestClass(testClass);
+            }
+        } finally {
+            testClasses.clear();
+            processor.stop();
+        }
+    }
+
+    private Long durationOf(TestClassRunInfo testClass) {
+        Long duration = previousDurations.get(testClass.getTestClassName());
+        return duration == null ? Long.MAX_VALUE : duration;
+    }
+}
@@ -27,21 +27,26 @@ import org.gradle.messaging.actor.ActorFactory;
 import org.gradle.messaging.dispatch.DispatchException;
 
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
 
 /**
- * Manages a set of parallel TestClassProcessors. Uses a simple round-robin algorithm to assign test classes to
- * processors.
+ * Manages a set of parallel TestClassProcessors. Test classes are queued, and each processor takes the next test class from the queue once it
+ * has finished with its current test class. This way, a processor that is given some slow test classes does not hold up the remaining test classes.
  */
 public class MaxNParallelTestClassProcessor implements TestClassProcessor {
     private final int maxProcessors;
     private final Factory<TestClassProcessor> factory;
     private final ActorFactory actorFactory;
     private TestResultProcessor resultProcessor;
-    private int pos;
     private List<TestClassProcessor> processors = new ArrayList<TestClassProcessor>();
     private List<Actor> actors = new ArrayList<Actor>();
     private Actor resultProcessorActor;
+    private final Object lock = new Object();
+    // Guarded by lock
+    private final LinkedList<TestClassRunInfo> queuedTestClasses = new LinkedList<TestClassRunInfo>();
+    // Guarded by lock
+    private final LinkedList<TestClassProcessor> idleProcessors = new LinkedList<TestClassProcessor>();
 
     public MaxNParallelTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory) {
         this.maxProcessors = maxProcessors;
@@ -56,20 +61,43 @@ public class MaxNParallelTestClassProcessor implements TestClassProcessor {
 
     public void processTestClass(TestClassRunInfo testClass) {
         TestClassProcessor processor;
-        if (processors.size() < maxProcessors) {
-            processor = factory.create();
-            Actor actor = actorFactory.createActor(processor);
-            processor = actor.getProxy(TestClassProcessor.class);
-            actors.add(actor);
-            processors.add(processor);
-            processor.startProcessing(resultProcessor);
-        } else {
-            processor = processors.get(pos);
-            pos = (pos + 1) % processors.size();
+        synchronized (lock) {
+            if (!idleProcessors.isEmpty()) {
+                processor = idleProcessors.removeFirst();
+            } else if (processors.size() < maxProcessors) {
+                processor = startProcessor();
+            } else {
+                queuedTestClasses.add(testClass);
+                return;
+            }
         }
         processor.processTestClass(testClass);
     }
 
+    private TestClassProcessor startProcessor() {
+        QueueTakingTestClassProcessor queueTakingProcessor = new QueueTakingTestClassProcessor(factory.create());
+        Actor actor = actorFactory.createActor(queueTakingProcessor);
+        TestClassProcessor processor = actor.getProxy(TestClassProcessor.class);
+        queueTakingProcessor.proxy = processor;
+        actors.add(actor);
+        processors.add(processor);
+        processor.startProcessing(resultProcessor);
+        return processor;
+    }
+
+    /**
+     * Returns the next queued test class for the given processor, or marks the processor as idle when there is none.
+     */
+    private TestClassRunInfo takeNextTestClass(TestClassProcessor processor) {
+        synchronized (lock) {
+            TestClassRunInfo testClass = queuedTestClasses.poll();
+            if (testClass == null) {
+                idleProcessors.add(processor);
+            }
+            return testClass;
+        }
+    }
+
     public void stop() {
         try {
             CompositeStoppable.stoppable(processors).add(actors).add(resultProcessorActor).stop();
@@ -77,4 +105,33 @@ public class MaxNParallelTestClassProcessor implements TestClassProcessor {
             throw UncheckedException.throwAsUncheckedException(e.getCause());
         }
     }
+
+    /**
+     * Runs on the thread of a processor's actor. Keeps taking test classes from the queue until it is empty. A processor that fails, for example because
+     * its worker process has exited, takes no more test classes and is not made idle, so the remaining test classes go to the other processors.
+     */
+    private class QueueTakingTestClassProcessor implements TestClassProcessor {
+        private final TestClassProcessor processor;
+        private TestClassProcessor proxy;
+
+        public QueueTakingTestClassProcessor(TestClassProcessor processor) {
+            this.processor = processor;
+        }
+
+        public void startProcessing(TestResultProcessor resultProcessor) {
+            processor.startProcessing(resultProcessor);
+        }
+
+        public void processTestClass(TestClassRunInfo testClass) {
+            TestClassRunInfo next = testClass;
+            while (next != null) {
+                processor.processTestClass(next);
+                next = takeNextTestClass(proxy);
+            }
+        }
+
+        public void stop() {
+            processor.stop();
+        }
+    }
 }
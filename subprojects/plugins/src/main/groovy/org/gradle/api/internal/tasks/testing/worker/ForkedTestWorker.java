@@ -0,0 +1,270 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.internal.tasks.testing.*;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.messaging.remote.ObjectConnection;
+import org.gradle.process.ExecResult;
+import org.gradle.process.internal.ExecHandle;
+import org.gradle.process.internal.ExecHandleListener;
+import org.gradle.process.internal.WorkerProcess;
+import org.gradle.process.internal.WorkerProcessBuilder;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The client side of a test worker process. The worker can process several batches of test classes, each reporting its results to a different
+ * {@link TestResultProcessor}.
+ */
+class ForkedTestWorker implements Stoppable {
+    private final Lock lock = new ReentrantLock();
+    private final Condition condition = lock.newCondition();
+    private WorkerProcess workerProcess;
+    private RemoteTestClassProcessor remoteProcessor;
+    // Guarded by lock
+    private int pendingTestClasses;
+    // Guarded by lock
+    private boolean exited;
+    // Guarded by lock
+    private boolean stopped;
+    // Guarded by lock
+    private TestResultProcessor resultProcessor;
+    // Guarded by lock
+    private Object workerSuiteId;
+    // Guarded by lock
+    private boolean processing;
+    // Guarded by lock
+    private boolean processingStopped;
+    // Guarded by lock
+    private boolean reusable;
+    final RemoteTestClassProcessorListener workerListener = new RemoteTestClassProcessorListener() {
+        public void testClassProcessed() {
+            lock.lock();
+            try {
+                pendingTestClasses--;
+                condition.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void processingStopped(boolean reusable) {
+            lock.lock();
+            try {
+                processingStopped = true;
+                ForkedTestWorker.this.reusable = reusable;
+                condition.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    };
+
+    /**
+     * Starts a worker process using the given builder, which should already have been configured to run a {@link TestWorker}.
+     */
+    void start(WorkerProcessBuilder builder) {
+        builder.getJavaCommand().listener(new ExecHandleListener() {
+            public void executionStarted(ExecHandle execHandle) {
+            }
+
+            public void executionFinished(ExecHandle execHandle, ExecResult execResult) {
+                onExit();
+            }
+        });
+        workerProcess = builder.build();
+        workerProcess.start();
+
+        ObjectConnection connection = workerProcess.getConnection();
+        connection.useParameterSerializer(new TestEventSerializer());
+        connection.addIncoming(TestResultProcessor.class, new SessionResultProcessor());
+        connection.addIncoming(RemoteTestClassProcessorListener.class, workerListener);
+        remoteProcessor = connection.addOutgoing(RemoteTestClassProcessor.class);
+        connection.connect();
+    }
+
+    /**
+     * Starts processing test classes, reporting the results to the given processor.
+     */
+    void startProcessing(TestResultProcessor resultProcessor) {
+        lock.lock();
+        try {
+            this.resultProcessor = resultProcessor;
+            workerSuiteId = null;
+            processing = true;
+            processingStopped = false;
+        } finally {
+            lock.unlock();
+        }
+        remoteProcessor.startProcessing();
+    }
+
+    /**
+     * Gives the worker a test class and blocks until the worker has finished with it.
+     *
+     * @throws org.gradle.api.GradleException when the worker process exits without finishing the test class, so that the caller stops giving the worker
+     * test classes.
+     */
+    void processTestClass(TestClassRunInfo testClass) {
+        lock.lock();
+        try {
+            pendingTestClasses++;
+        } finally {
+            lock.unlock();
+        }
+        remoteProcessor.processTestClass(testClass);
+
+        lock.lock();
+        try {
+            while (pendingTestClasses > 0 && !exited) {
+                condition.await();
+            }
+            if (pendingTestClasses == 0) {
+                return;
+            }
+            stopped = true;
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            lock.unlock();
+        }
+
+        // Fails with the exit value of the worker, when it is not 0
+        workerProcess.waitForStop();
+        throw new GradleException(String.format("Test worker exited before it finished test class '%s'.", testClass.getTestClassName()));
+    }
+
+    /**
+     * Stops processing test classes, leaving the worker running. Blocks until all results have been received and the worker has reset itself.
+     *
+     * @return true if the worker can be used again.
+     */
+    boolean stopProcessing() {
+        lock.lock();
+        try {
+            if (exited) {
+                return false;
+            }
+        } finally {
+            lock.unlock();
+        }
+        remoteProcessor.stopProcessing();
+        lock.lock();
+        try {
+            // Results and notifications are received on separate channels, in no particular order
+            while ((processing || !processingStopped) && !exited) {
+                condition.await();
+            }
+            resultProcessor = null;
+            return !exited && reusable;
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isRunning() {
+        lock.lock();
+        try {
+            return !exited;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops processing test classes and waits for the worker process to exit.
+     */
+    public void stop() {
+        lock.lock();
+        try {
+            if (stopped) {
+                return;
+            }
+            stopped = true;
+        } finally {
+            lock.unlock();
+        }
+        remoteProcessor.stop();
+        workerProcess.waitForStop();
+    }
+
+    private void onExit() {
+        lock.lock();
+        try {
+            exited = true;
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forwards results to the current result processor. The worker's root suite is the last to complete when the worker stops processing, so
+     * its completion marks the end of the results for the current batch of test classes.
+     */
+    private class SessionResultProcessor implements TestResultProcessor {
+        private TestResultProcessor getResultProcessor() {
+            lock.lock();
+            try {
+                return resultProcessor;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void started(TestDescriptorInternal test, TestStartEvent event) {
+            if (test instanceof WorkerTestClassProcessor.WorkerTestSuiteDescriptor) {
+                lock.lock();
+                try {
+                    workerSuiteId = test.getId();
+                } finally {
+                    lock.unlock();
+                }
+            }
+            getResultProcessor().started(test, event);
+        }
+
+        public void completed(Object testId, TestCompleteEvent event) {
+            getResultProcessor().completed(testId, event);
+            lock.lock();
+            try {
+                if (testId.equals(workerSuiteId)) {
+                    processing = false;
+                    condition.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void output(Object testId, TestOutputEvent event) {
+            getResultProcessor().output(testId, event);
+        }
+
+        public void failure(Object testId, Throwable result) {
+            getResultProcessor().failure(testId, result);
+        }
+    }
+}
@@ -17,34 +17,49 @@
 package org.gradle.api.internal.tasks.testing.worker;
 
 import org.gradle.api.Action;
+import org.gradle.api.Nullable;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
 import org.gradle.internal.Factory;
-import org.gradle.messaging.remote.ObjectConnection;
+import org.gradle.internal.classpath.DefaultClassPath;
 import org.gradle.process.JavaForkOptions;
-import org.gradle.process.internal.WorkerProcess;
 import org.gradle.process.internal.WorkerProcessBuilder;
 
 import java.io.File;
+import java.util.ArrayList;
 
+/**
+ * Runs test classes in a worker process. Blocks in {@link #processTestClass} until the worker has finished with the test class, so that the caller can
+ * choose which worker to give each test class to.
+ *
+ * <p>When given a {@link TestWorkerPool}, takes a compatible idle worker from the pool instead of starting a new one, and returns the worker to the
+ * pool when stopped. A worker that may be used again loads the test classes of each run in a new class loader.</p>
+ */
 public class ForkingTestClassProcessor implements TestClassProcessor {
     private final Factory<WorkerProcessBuilder> workerFactory;
     private final WorkerTestClassProcessorFactory processorFactory;
     private final JavaForkOptions options;
     private final Iterable<File> classPath;
     private final Action<WorkerProcessBuilder> buildConfigAction;
-    private RemoteTestClassProcessor remoteProcessor;
-    private WorkerProcess workerProcess;
+    private final TestWorkerPool workerPool;
+    private ForkedTestWorker worker;
+    private Object workerKey;
     private TestResultProcessor resultProcessor;
 
     public ForkingTestClassProcessor(Factory<WorkerProcessBuilder> workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction) {
+        this(workerFactory, processorFactory, options, classPath, buildConfigAction, null);
+    }
+
+    public ForkingTestClassProcessor(Factory<WorkerProcessBuilder> workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction,
+                                     @Nullable TestWorkerPool workerPool) {
         this.workerFactory = workerFactory;
         this.processorFactory = processorFactory;
         this.options = options;
         this.classPath = classPath;
         this.buildConfigAction = buildConfigAction;
+        this.workerPool = workerPool;
     }
 
     public void startProcessing(TestResultProcessor resultProcessor) {
@@ -52,38 +67,46 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
     }
 
     public void processTestClass(TestClassRunInfo testClass) {
-        if (remoteProcessor == null) {
-            remoteProcessor = forkProcess();
+        if (worker == null) {
+            worker = forkWorker();
+            worker.startProcessing(resultProcessor);
         }
 
-        remoteProcessor.processTestClass(testClass);
+        worker.processTestClass(testClass);
     }
 
-    RemoteTestClassProcessor forkProcess() {
+    ForkedTestWorker forkWorker() {
         WorkerProcessBuilder builder = workerFactory.create();
         builder.setBaseName("Gradle Test Executor");
         builder.applicationClasspath(classPath);
         builder.setLoadApplicationInSystemClassLoader(true);
-        builder.worker(new TestWorker(processorFactory));
         options.copyTo(builder.getJavaCommand());
         buildConfigAction.execute(builder);
 
-        workerProcess = builder.build();
-        workerProcess.start();
+        if (workerPool == null || builder.getJavaCommand().getDebug()) {
+            builder.worker(new TestWorker(processorFactory));
+        } else {
+            builder.worker(new TestWorker(processorFactory, new DefaultClassPath(classPath).getAsURLs(), new ArrayList<String>(builder.getSharedPackages())));
+            workerKey = workerPool.keyFor(builder);
+            ForkedTestWorker idleWorker = workerPool.reserve(workerKey);
+            if (idleWorker != null) {
+                return idleWorker;
+            }
+        }
 
-        ObjectConnection connection = workerProcess.getConnection();
-        connection.useParameterSerializer(new TestEventSerializer());
-        connection.addIncoming(TestResultProcessor.class, resultProcessor);
-        RemoteTestClassProcessor remoteProcessor = connection.addOutgoing(RemoteTestClassProcessor.class);
-        connection.connect();
-        remoteProcessor.startProcessing();
-        return remoteProcessor;
+        ForkedTestWorker worker = new ForkedTestWorker();
+        worker.start(builder);
+        return worker;
     }
 
     public void stop() {
-        if (remoteProcessor != null) {
-            remoteProcessor.stop();
-            workerProcess.waitForStop();
+        if (worker == null) {
+            return;
+        }
+        if (workerKey != null && worker.stopProcessing()) {
+            workerPool.release(workerKey, worker);
+        } else {
+            worker.stop();
         }
     }
 }
@@ -32,6 +32,12 @@ public interface RemoteTestClassProcessor {
      */
     void processTestClass(TestClassRunInfo testClass);
 
+    /**
+     * Stops processing the test classes given since {@link #startProcessing()}, but leaves the worker running so that processing can be started again.
+     * Does not block.
+     */
+    void stopProcessing();
+
     /**
      * Does not block.
      */
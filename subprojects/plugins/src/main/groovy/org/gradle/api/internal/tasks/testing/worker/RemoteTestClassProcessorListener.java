@@ -0,0 +1,34 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+/**
+ * Receives notifications from a {@link RemoteTestClassProcessor} running in a test worker process.
+ */
+public interface RemoteTestClassProcessorListener {
+    /**
+     * Called when the worker has finished processing a test class given to it by {@link RemoteTestClassProcessor#processTestClass}. Does not block.
+     */
+    void testClassProcessed();
+
+    /**
+     * Called when the worker has finished {@link RemoteTestClassProcessor#stopProcessing}. Does not block.
+     *
+     * @param reusable false when the worker could not undo the changes that the tests made to it, and so should not be given more test classes.
+     */
+    void processingStopped(boolean reusable);
+}
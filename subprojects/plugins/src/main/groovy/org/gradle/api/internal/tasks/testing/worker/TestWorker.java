@@ -17,6 +17,7 @@
 package org.gradle.api.internal.tasks.testing.worker;
 
 import org.gradle.api.Action;
+import org.gradle.api.Nullable;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
@@ -24,6 +25,8 @@ import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
 import org.gradle.internal.TimeProvider;
 import org.gradle.internal.TrueTimeProvider;
 import org.gradle.internal.UncheckedException;
+import org.gradle.internal.classloader.FilteringClassLoader;
+import org.gradle.internal.concurrent.CompositeStoppable;
 import org.gradle.internal.concurrent.DefaultExecutorFactory;
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.id.CompositeIdGenerator;
@@ -40,18 +43,41 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
 import java.util.concurrent.CountDownLatch;
 
 public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClassProcessor, Serializable {
     private static final Logger LOGGER = LoggerFactory.getLogger(TestWorker.class);
     public static final String WORKER_ID_SYS_PROPERTY = "org.gradle.test.worker";
     private final WorkerTestClassProcessorFactory factory;
+    private final List<URL> isolatedClasspath;
+    private final List<String> sharedPackages;
     private CountDownLatch completed;
+    private WorkerProcessContext workerProcessContext;
+    private ServiceRegistry testServices;
+    private Properties originalSystemProperties;
     private TestClassProcessor processor;
     private TestResultProcessor resultProcessor;
+    private RemoteTestClassProcessorListener listener;
+    private URLClassLoader testClassLoader;
 
     public TestWorker(WorkerTestClassProcessorFactory factory) {
+        this(factory, null, Collections.<String>emptyList());
+    }
+
+    /**
+     * @param isolatedClasspath when not null, the test classes of each run are loaded from this classpath in a new class loader, which is
+     * discarded when the run stops processing, so that no static state leaks from one run into the next. Classes in the JVM and in the given
+     * shared packages are still loaded from the application class loader.
+     */
+    public TestWorker(WorkerTestClassProcessorFactory factory, @Nullable List<URL> isolatedClasspath, List<String> sharedPackages) {
         this.factory = factory;
+        this.isolatedClasspath = isolatedClasspath;
+        this.sharedPackages = sharedPackages;
     }
 
     public void execute(final WorkerProcessContext workerProcessContext) {
@@ -60,6 +86,7 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
         completed = new CountDownLatch(1);
 
         System.setProperty(WORKER_ID_SYS_PROPERTY, workerProcessContext.getWorkerId().toString());
+        originalSystemProperties = (Properties) System.getProperties().clone();
 
         DefaultServiceRegistry testServices = new TestFrameworkServiceRegistry(workerProcessContext);
         startReceivingTests(workerProcessContext, testServices);
@@ -72,34 +99,58 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
             }
         } finally {
             LOGGER.info("{} finished executing tests.", workerProcessContext.getDisplayName());
-            // Clean out any security manager the tests might have installed
-            System.setSecurityManager(null);
+            try {
+                // Clean out any security manager the tests might have installed
+                System.setSecurityManager(null);
+            } catch (SecurityException e) {
+                LOGGER.debug("Could not remove the security manager installed by the tests.", e);
+            }
             testServices.close();
         }
     }
 
     private void startReceivingTests(WorkerProcessContext workerProcessContext, ServiceRegistry testServices) {
-        TestClassProcessor targetProcessor = factory.create(testServices);
-        IdGenerator<Object> idGenerator = testServices.get(IdGenerator.class);
-
-        targetProcessor = new WorkerTestClassProcessor(targetProcessor, idGenerator.generateId(),
-                workerProcessContext.getDisplayName(), testServices.get(TimeProvider.class));
-        ContextClassLoaderProxy<TestClassProcessor> proxy = new ContextClassLoaderProxy<TestClassProcessor>(
-                TestClassProcessor.class, targetProcessor, workerProcessContext.getApplicationClassLoader());
-        processor = proxy.getSource();
+        this.workerProcessContext = workerProcessContext;
+        this.testServices = testServices;
 
         ObjectConnection serverConnection = workerProcessContext.getServerConnection();
         serverConnection.useParameterSerializer(new TestEventSerializer());
         this.resultProcessor = serverConnection.addOutgoing(TestResultProcessor.class);
+        this.listener = serverConnection.addOutgoing(RemoteTestClassProcessorListener.class);
         serverConnection.addIncoming(RemoteTestClassProcessor.class, this);
         serverConnection.connect();
     }
 
     public void startProcessing() {
         Thread.currentThread().setName("Test worker");
+        processor = createProcessor();
         processor.startProcessing(resultProcessor);
     }
 
+    private TestClassProcessor createProcessor() {
+        TestClassProcessor targetProcessor = factory.create(testServices);
+        IdGenerator<Object> idGenerator = testServices.get(IdGenerator.class);
+
+        targetProcessor = new WorkerTestClassProcessor(targetProcessor, idGenerator.generateId(),
+                workerProcessContext.getDisplayName(), testServices.get(TimeProvider.class));
+        ContextClassLoaderProxy<TestClassProcessor> proxy = new ContextClassLoaderProxy<TestClassProcessor>(
+                TestClassProcessor.class, targetProcessor, createTestClassLoader());
+        return proxy.getSource();
+    }
+
+    private ClassLoader createTestClassLoader() {
+        ClassLoader applicationClassLoader = workerProcessContext.getApplicationClassLoader();
+        if (isolatedClasspath == null) {
+            return applicationClassLoader;
+        }
+        FilteringClassLoader sharedClasses = new FilteringClassLoader(applicationClassLoader);
+        for (String sharedPackage : sharedPackages) {
+            sharedClasses.allowPackage(sharedPackage);
+        }
+        testClassLoader = new URLClassLoader(isolatedClasspath.toArray(new URL[0]), sharedClasses);
+        return testClassLoader;
+    }
+
     public void processTestClass(final TestClassRunInfo testClass) {
         Thread.currentThread().setName("Test worker");
         try {
@@ -107,13 +158,47 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
         } finally {
             // Clean the interrupted status
             Thread.interrupted();
+            listener.testClassProcessed();
         }
     }
 
-    public void stop() {
+    public void stopProcessing() {
         Thread.currentThread().setName("Test worker");
         try {
             processor.stop();
+        } finally {
+            processor = null;
+            listener.processingStopped(resetJvm());
+            URLClassLoader classLoader = testClassLoader;
+            testClassLoader = null;
+            CompositeStoppable.stoppable(classLoader).stop();
+        }
+    }
+
+    /**
+     * Undoes the changes to the JVM that the tests are most likely to have made, before the worker is used again.
+     *
+     * @return false when the changes could not be undone.
+     */
+    private boolean resetJvm() {
+        try {
+            System.setSecurityManager(null);
+        } catch (SecurityException e) {
+            LOGGER.info("{} cannot remove the security manager installed by the tests, so will not be used again.", workerProcessContext.getDisplayName());
+            return false;
+        }
+        Properties systemProperties = new Properties();
+        systemProperties.putAll(originalSystemProperties);
+        System.setProperties(systemProperties);
+        return true;
+    }
+
+    public void stop() {
+        Thread.currentThread().setName("Test worker");
+        try {
+            if (processor != null) {
+                processor.stop();
+            }
         } finally {
             completed.countDown();
         }
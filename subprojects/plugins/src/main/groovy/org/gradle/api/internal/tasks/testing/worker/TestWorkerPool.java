@@ -0,0 +1,150 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.initialization.loadercache.ClassPathSnapshotter;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.classpath.DefaultClassPath;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.process.internal.JavaExecHandleBuilder;
+import org.gradle.process.internal.WorkerProcessBuilder;
+import org.gradle.util.GUtil;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Keeps idle test worker processes alive across builds, so that later test executions can skip the start-up of a new worker. Only used when
+ * enabled using the {@value #REUSE_WORKERS_PROPERTY} system property in a long running process, such as the daemon.
+ *
+ * <p>A worker is only reused for a test execution that would start an identical worker process: same JVM, JVM arguments, environment, working
+ * directory, test framework configuration and test runtime classpath contents. The classes that a worker has loaded are therefore the same classes
+ * that a new worker would load. Each use loads the test classes in a new class loader, so that static state does not leak from one use into the next.
+ * Between uses, the worker resets the system properties and removes any security manager installed by the tests. A worker that cannot remove the
+ * security manager is stopped instead of being returned to the pool.</p>
+ */
+public class TestWorkerPool implements Stoppable {
+    public static final String REUSE_WORKERS_PROPERTY = "org.gradle.test.reuseWorkers";
+    private static final Logger LOGGER = Logging.getLogger(TestWorkerPool.class);
+
+    private final ClassPathSnapshotter classPathSnapshotter;
+    private final boolean longLivingProcess;
+    private final int maxIdleWorkers;
+    private final Object lock = new Object();
+    // Least recently used first. Guarded by lock
+    private final LinkedList<IdleWorker> idleWorkers = new LinkedList<IdleWorker>();
+    // Guarded by lock
+    private boolean stopped;
+
+    public TestWorkerPool(ClassPathSnapshotter classPathSnapshotter, boolean longLivingProcess) {
+        this(classPathSnapshotter, longLivingProcess, Runtime.getRuntime().availableProcessors());
+    }
+
+    TestWorkerPool(ClassPathSnapshotter classPathSnapshotter, boolean longLivingProcess, int maxIdleWorkers) {
+        this.classPathSnapshotter = classPathSnapshotter;
+        this.longLivingProcess = longLivingProcess;
+        this.maxIdleWorkers = maxIdleWorkers;
+    }
+
+    public boolean isEnabled() {
+        return longLivingProcess && Boolean.getBoolean(REUSE_WORKERS_PROPERTY);
+    }
+
+    /**
+     * Returns a key that identifies the worker process that the given builder would start.
+     */
+    Object keyFor(WorkerProcessBuilder builder) {
+        JavaExecHandleBuilder javaCommand = builder.getJavaCommand();
+        return Arrays.asList(
+            javaCommand.getExecutable(),
+            javaCommand.getAllJvmArgs(),
+            javaCommand.getEnvironment(),
+            javaCommand.getWorkingDir(),
+            builder.getLogLevel(),
+            builder.getSharedPackages(),
+            builder.isLoadApplicationInSystemClassLoader(),
+            classPathSnapshotter.snapshot(new DefaultClassPath(builder.getApplicationClasspath())),
+            ByteBuffer.wrap(GUtil.serialize(builder.getWorker())));
+    }
+
+    /**
+     * Takes an idle worker with the given key out of the pool, or returns null when there is none.
+     */
+    ForkedTestWorker reserve(Object key) {
+        synchronized (lock) {
+            Iterator<IdleWorker> iterator = idleWorkers.iterator();
+            while (iterator.hasNext()) {
+                IdleWorker candidate = iterator.next();
+                if (!candidate.worker.isRunning()) {
+                    iterator.remove();
+                } else if (candidate.key.equals(key)) {
+                    iterator.remove();
+                    LOGGER.debug("Reusing idle test worker.");
+                    return candidate.worker;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Returns a worker to the pool, stopping the least recently used idle workers when there are too many.
+     */
+    void release(Object key, ForkedTestWorker worker) {
+        List<ForkedTestWorker> evicted = new ArrayList<ForkedTestWorker>();
+        synchronized (lock) {
+            if (stopped) {
+                evicted.add(worker);
+            } else {
+                idleWorkers.add(new IdleWorker(key, worker));
+                while (idleWorkers.size() > maxIdleWorkers) {
+                    evicted.add(idleWorkers.removeFirst().worker);
+                }
+            }
+        }
+        CompositeStoppable.stoppable(evicted).stop();
+    }
+
+    public void stop() {
+        List<ForkedTestWorker> workers = new ArrayList<ForkedTestWorker>();
+        synchronized (lock) {
+            stopped = true;
+            for (IdleWorker idleWorker : idleWorkers) {
+                workers.add(idleWorker.worker);
+            }
+            idleWorkers.clear();
+        }
+        LOGGER.debug("Stopping {} idle test worker(s).", workers.size());
+        CompositeStoppable.stoppable(workers).stop();
+    }
+
+    private static class IdleWorker {
+        final Object key;
+        final ForkedTestWorker worker;
+
+        IdleWorker(Object key, ForkedTestWorker worker) {
+            this.key = key;
+            this.worker = worker;
+        }
+    }
+}
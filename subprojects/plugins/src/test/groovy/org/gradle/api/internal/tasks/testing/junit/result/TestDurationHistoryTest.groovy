@@ -0,0 +1,65 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.testing.junit.result
+
+import org.gradle.api.tasks.testing.TestResult
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class TestDurationHistoryTest extends Specification {
+    @Rule
+    private TestNameTestDirectoryProvider tmp = new TestNameTestDirectoryProvider()
+
+    def "has no durations when nothing has been written"() {
+        expect:
+        new TestDurationHistory(tmp.createDir("results")).read().isEmpty()
+    }
+
+    def "writes durations of test classes merged with previous durations of candidate test classes"() {
+        def dir = tmp.createDir("results")
+        def class1 = new TestClassResult(1, 'Class1', 1000)
+        class1.add(new TestMethodResult(1, "method1", TestResult.ResultType.SUCCESS, 100, 1100))
+        class1.add(new TestMethodResult(2, "method2", TestResult.ResultType.SUCCESS, 200, 1300))
+        def class2 = new TestClassResult(2, 'Class2', 0)
+
+        when:
+        new TestDurationHistory(dir).write([Class1: 10L, Class3: 30L], [class1, class2], ['Class1', 'Class2', 'Class3'] as Set)
+
+        then:
+        new TestDurationHistory(dir).read() == [Class1: 300L, Class3: 30L]
+    }
+
+    def "drops previous durations of test classes which are no longer candidates"() {
+        def dir = tmp.createDir("results")
+        def class1 = new TestClassResult(1, 'Class1', 1000)
+        class1.add(new TestMethodResult(1, "method1", TestResult.ResultType.SUCCESS, 100, 1100))
+
+        when:
+        new TestDurationHistory(dir).write([Class2: 20L, Deleted: 30L], [class1], ['Class1', 'Class2'] as Set)
+
+        then:
+        new TestDurationHistory(dir).read() == [Class1: 100L, Class2: 20L]
+    }
+
+    def "ignores history which cannot be read"() {
+        def dir = tmp.createDir("results")
+        dir.file("durations.bin").text = "broken"
+
+        expect:
+        new TestDurationHistory(dir).read().isEmpty()
+    }
+}
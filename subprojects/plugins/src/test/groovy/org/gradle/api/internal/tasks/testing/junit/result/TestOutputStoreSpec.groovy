@@ -145,6 +145,52 @@ class TestOutputStoreSpec extends WorkspaceTest {
         reader.close()
     }
 
+    def "copies messages larger than the copy buffer"() {
+        def message = ("a\u00e9\u20ac\ud83d\ude00" * 10000) + "end"
+
+        when:
+        def writer = output.writer()
+        writer.onOutput(1, 1, output(StdOut, "[out-1]"))
+        writer.onOutput(1, 1, output(StdOut, message))
+        writer.onOutput(1, 1, output(StdOut, "[out-2]"))
+        writer.close()
+        def reader = output.reader()
+
+        then:
+        collectAllOutput(reader, 1, StdOut) == "[out-1]" + message + "[out-2]"
+
+        cleanup:
+        reader.close()
+    }
+
+    def "can read output from multiple threads"() {
+        when:
+        def writer = output.writer()
+        10.times { classId ->
+            100.times { testId ->
+                writer.onOutput(classId, testId + 1, output(StdOut, "[$classId-$testId]"))
+            }
+        }
+        writer.close()
+        def reader = output.reader()
+        def results = Collections.synchronizedMap([:])
+        def threads = (0..<10).collect { classId ->
+            Thread.start {
+                results[classId] = collectAllOutput(reader, classId, StdOut)
+            }
+        }
+        threads*.join()
+
+        then:
+        results.size() == 10
+        10.times { classId ->
+            assert results[classId] == (0..<100).collect { "[$classId-$it]" }.join("")
+        }
+
+        cleanup:
+        reader.close()
+    }
+
     def "can open empty reader"() {
         // neither file
         expect:
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.testing.processors
+
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import spock.lang.Specification
+
+class LongestFirstTestClassProcessorTest extends Specification {
+    final TestClassProcessor target = Mock()
+    final TestResultProcessor resultProcessor = Mock()
+
+    def "passes test classes on when stopped, longest first"() {
+        def processor = new LongestFirstTestClassProcessor(target, [Short: 10L, Long: 1000L, Medium: 100L])
+        def shortTest = test("Short")
+        def longTest = test("Long")
+        def mediumTest = test("Medium")
+
+        when:
+        processor.startProcessing(resultProcessor)
+        processor.processTestClass(shortTest)
+        processor.processTestClass(longTest)
+        processor.processTestClass(mediumTest)
+
+        then:
+        1 * target.startProcessing(resultProcessor)
+        0 * target._
+
+        when:
+        processor.stop()
+
+        then:
+        1 * target.processTestClass(longTest)
+
+        then:
+        1 * target.processTestClass(mediumTest)
+
+        then:
+        1 * target.processTestClass(shortTest)
+
+        then:
+        1 * target.stop()
+        0 * target._
+    }
+
+    def "passes test classes without previous duration on first, in the order they were found"() {
+        def processor = new LongestFirstTestClassProcessor(target, [Known: 1000L])
+        def knownTest = test("Known")
+        def newTest1 = test("New1")
+        def newTest2 = test("New2")
+
+        when:
+        processor.processTestClass(newTest1)
+        processor.processTestClass(knownTest)
+        processor.processTestClass(newTest2)
+        processor.stop()
+
+        then:
+        1 * target.processTestClass(newTest1)
+
+        then:
+        1 * target.processTestClass(newTest2)
+
+        then:
+        1 * target.processTestClass(knownTest)
+
+        then:
+        1 * target.stop()
+    }
+
+    private TestClassRunInfo test(String name) {
+        return Stub(TestClassRunInfo) {
+            getTestClassName() >> name
+        }
+    }
+}
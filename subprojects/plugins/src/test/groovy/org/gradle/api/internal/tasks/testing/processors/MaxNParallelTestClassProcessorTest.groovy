@@ -71,7 +71,7 @@ class MaxNParallelTestClassProcessorTest extends Specification {
 
         then:
         1 * factory.create() >> processor1
-        1 * actorFactory.createActor(processor1) >> actor1
+        1 * actorFactory.createActor({ it.processor == processor1 }) >> actor1
         1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
         1 * asyncProcessor1.startProcessing(asyncResultProcessor)
         1 * asyncProcessor1.processTestClass(test)
@@ -101,7 +101,7 @@ class MaxNParallelTestClassProcessorTest extends Specification {
 
         then:
         1 * factory.create() >> processor1
-        1 * actorFactory.createActor(processor1) >> actor1
+        1 * actorFactory.createActor({ it.processor == processor1 }) >> actor1
         1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
         1 * asyncProcessor1.startProcessing(asyncResultProcessor)
         1 * asyncProcessor1.processTestClass(test)
@@ -111,7 +111,7 @@ class MaxNParallelTestClassProcessorTest extends Specification {
 
         then:
         1 * factory.create() >> processor2
-        1 * actorFactory.createActor(processor2) >> actor2
+        1 * actorFactory.createActor({ it.processor == processor2 }) >> actor2
         1 * actor2.getProxy(TestClassProcessor) >> asyncProcessor2
         1 * asyncProcessor2.startProcessing(asyncResultProcessor)
         1 * asyncProcessor2.processTestClass(test)
@@ -124,47 +124,129 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         1 * asyncProcessor2.stop()
     }
 
-    def roundRobinsTestClassesToProcessors() {
-        TestClassRunInfo test = Mock()
+    def queuesTestClassesUntilAProcessorHasFinishedItsTestClass() {
+        TestClassRunInfo test1 = Mock()
+        TestClassRunInfo test2 = Mock()
+        TestClassRunInfo test3 = Mock()
+        TestClassRunInfo test4 = Mock()
         TestClassProcessor processor1 = Mock()
         TestClassProcessor processor2 = Mock()
         TestClassProcessor asyncProcessor1 = Mock()
         TestClassProcessor asyncProcessor2 = Mock()
         Actor actor1 = Mock()
         Actor actor2 = Mock()
+        TestClassProcessor worker1
+        TestClassProcessor worker2
 
         startProcessor()
 
         when:
-        processor.processTestClass(test)
+        processor.processTestClass(test1)
+        processor.processTestClass(test2)
+        processor.processTestClass(test3)
+        processor.processTestClass(test4)
 
         then:
-        1 * factory.create() >> processor1
-        1 * actorFactory.createActor(processor1) >> actor1
+        2 * factory.create() >>> [processor1, processor2]
+        1 * actorFactory.createActor({ it.processor == processor1 }) >> { worker1 = it[0]; actor1 }
+        1 * actorFactory.createActor({ it.processor == processor2 }) >> { worker2 = it[0]; actor2 }
         1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
-        1 * asyncProcessor1.startProcessing(asyncResultProcessor)
-        1 * asyncProcessor1.processTestClass(test)
+        1 * actor2.getProxy(TestClassProcessor) >> asyncProcessor2
+        1 * asyncProcessor1.processTestClass(test1)
+        1 * asyncProcessor2.processTestClass(test2)
+        0 * asyncProcessor1.processTestClass(_)
+        0 * asyncProcessor2.processTestClass(_)
 
         when:
-        processor.processTestClass(test)
+        worker2.processTestClass(test2)
 
         then:
-        1 * factory.create() >> processor2
-        1 * actorFactory.createActor(processor2) >> actor2
-        1 * actor2.getProxy(TestClassProcessor) >> asyncProcessor2
-        1 * asyncProcessor2.startProcessing(asyncResultProcessor)
-        1 * asyncProcessor2.processTestClass(test)
+        1 * processor2.processTestClass(test2)
+
+        then:
+        1 * processor2.processTestClass(test3)
+
+        then:
+        1 * processor2.processTestClass(test4)
+        0 * processor1._
+    }
+
+    def givesTestClassToIdleProcessor() {
+        TestClassRunInfo test1 = Mock()
+        TestClassRunInfo test2 = Mock()
+        TestClassRunInfo test3 = Mock()
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor processor2 = Mock()
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestClassProcessor asyncProcessor2 = Mock()
+        Actor actor1 = Mock()
+        Actor actor2 = Mock()
+        TestClassProcessor worker2
+
+        startProcessor()
+        factory.create() >>> [processor1, processor2]
+        actorFactory.createActor({ it.processor == processor1 }) >> actor1
+        actorFactory.createActor({ it.processor == processor2 }) >> { worker2 = it[0]; actor2 }
+        actor1.getProxy(TestClassProcessor) >> asyncProcessor1
+        actor2.getProxy(TestClassProcessor) >> asyncProcessor2
+        processor.processTestClass(test1)
+        processor.processTestClass(test2)
+        worker2.processTestClass(test2)
 
         when:
-        processor.processTestClass(test)
+        processor.processTestClass(test3)
 
         then:
-        1 * asyncProcessor1.processTestClass(test)
+        1 * asyncProcessor2.processTestClass(test3)
+        0 * asyncProcessor1.processTestClass(_)
+    }
+
+    def failedProcessorTakesNoMoreTestClasses() {
+        TestClassRunInfo test1 = Mock()
+        TestClassRunInfo test2 = Mock()
+        TestClassRunInfo test3 = Mock()
+        TestClassRunInfo test4 = Mock()
+        TestClassRunInfo test5 = Mock()
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor processor2 = Mock()
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestClassProcessor asyncProcessor2 = Mock()
+        Actor actor1 = Mock()
+        Actor actor2 = Mock()
+        TestClassProcessor worker1
+        TestClassProcessor worker2
+        def failure = new RuntimeException("worker exited")
+
+        startProcessor()
+        factory.create() >>> [processor1, processor2]
+        actorFactory.createActor({ it.processor == processor1 }) >> { worker1 = it[0]; actor1 }
+        actorFactory.createActor({ it.processor == processor2 }) >> { worker2 = it[0]; actor2 }
+        actor1.getProxy(TestClassProcessor) >> asyncProcessor1
+        actor2.getProxy(TestClassProcessor) >> asyncProcessor2
+        processor.processTestClass(test1)
+        processor.processTestClass(test2)
+        processor.processTestClass(test3)
+        processor.processTestClass(test4)
 
         when:
-        processor.processTestClass(test)
+        worker1.processTestClass(test1)
 
         then:
-        1 * asyncProcessor2.processTestClass(test)
+        1 * processor1.processTestClass(test1) >> { throw failure }
+        0 * processor1.processTestClass(_)
+        def e = thrown(RuntimeException)
+        e == failure
+
+        when:
+        worker2.processTestClass(test2)
+        processor.processTestClass(test5)
+
+        then:
+        1 * processor2.processTestClass(test2)
+        1 * processor2.processTestClass(test3)
+        1 * processor2.processTestClass(test4)
+        1 * asyncProcessor2.processTestClass(test5)
+        0 * processor1._
+        0 * asyncProcessor1._
     }
 }
@@ -18,29 +18,104 @@ package org.gradle.api.internal.tasks.testing.worker
 
 import org.gradle.api.Action
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory
 import org.gradle.internal.Factory
 import org.gradle.process.JavaForkOptions
+import org.gradle.process.internal.JavaExecHandleBuilder
+import org.gradle.process.internal.WorkerProcessBuilder
 import spock.lang.Specification
 import spock.lang.Subject
 
 class ForkingTestClassProcessorTest extends Specification {
+    final TestResultProcessor resultProcessor = Mock()
+    final ForkedTestWorker worker = Mock()
+    final TestWorkerPool workerPool = Mock()
+    final WorkerProcessBuilder builder = Stub() {
+        getJavaCommand() >> Stub(JavaExecHandleBuilder)
+    }
 
     @Subject processor = Spy(ForkingTestClassProcessor, constructorArgs: [Mock(Factory), Mock(WorkerTestClassProcessorFactory), Mock(JavaForkOptions), [new File("classpath.jar")], Mock(Action)])
 
     def "starts worker process on first test"() {
         def test1 = Mock(TestClassRunInfo)
         def test2 = Mock(TestClassRunInfo)
-        def remoteProcessor = Mock(RemoteTestClassProcessor)
 
         when:
+        processor.startProcessing(resultProcessor)
         processor.processTestClass(test1)
         processor.processTestClass(test2)
 
         then:
-        1 * processor.forkProcess() >> remoteProcessor
-        1 * remoteProcessor.processTestClass(test1)
-        1 * remoteProcessor.processTestClass(test2)
-        0 * remoteProcessor._
+        1 * processor.forkWorker() >> worker
+        1 * worker.startProcessing(resultProcessor)
+        1 * worker.processTestClass(test1)
+        1 * worker.processTestClass(test2)
+        0 * worker._
+    }
+
+    def "stops worker process when stopped"() {
+        given:
+        processor.forkWorker() >> worker
+        processor.processTestClass(Mock(TestClassRunInfo))
+
+        when:
+        processor.stop()
+
+        then:
+        1 * worker.stop()
+        0 * worker._
+    }
+
+    def "does nothing when stopped before any test is given"() {
+        when:
+        processor.stop()
+
+        then:
+        0 * processor.forkWorker()
+        0 * worker._
+    }
+
+    def "uses idle worker from pool and returns it to the pool when stopped"() {
+        def pooledProcessor = pooledProcessor()
+
+        when:
+        pooledProcessor.startProcessing(resultProcessor)
+        pooledProcessor.processTestClass(Mock(TestClassRunInfo))
+        pooledProcessor.stop()
+
+        then:
+        1 * workerPool.keyFor(builder) >> "key"
+        1 * workerPool.reserve("key") >> worker
+        1 * worker.startProcessing(resultProcessor)
+        1 * worker.processTestClass(_)
+        1 * worker.stopProcessing() >> true
+        1 * workerPool.release("key", worker)
+        0 * worker._
+        0 * workerPool._
+    }
+
+    def "stops pooled worker when it cannot be used again"() {
+        def pooledProcessor = pooledProcessor()
+
+        given:
+        workerPool.keyFor(builder) >> "key"
+        workerPool.reserve("key") >> worker
+        pooledProcessor.processTestClass(Mock(TestClassRunInfo))
+
+        when:
+        pooledProcessor.stop()
+
+        then:
+        1 * worker.stopProcessing() >> false
+        1 * worker.stop()
+        0 * workerPool._
+    }
+
+    def pooledProcessor() {
+        def workerFactory = Stub(Factory) {
+            create() >> builder
+        }
+        return new ForkingTestClassProcessor(workerFactory, Mock(WorkerTestClassProcessorFactory), Mock(JavaForkOptions), [new File("classpath.jar")], Mock(Action), workerPool)
     }
 }
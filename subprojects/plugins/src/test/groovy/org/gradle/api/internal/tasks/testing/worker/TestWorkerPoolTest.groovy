@@ -0,0 +1,119 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker
+
+import org.gradle.api.internal.initialization.loadercache.ClassPathSnapshotter
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
+import spock.lang.Specification
+
+class TestWorkerPoolTest extends Specification {
+    @Rule SetSystemProperties systemProperties = new SetSystemProperties()
+    final ClassPathSnapshotter classPathSnapshotter = Mock()
+    final TestWorkerPool pool = new TestWorkerPool(classPathSnapshotter, true, 2)
+
+    def "is enabled using system property in long living process"() {
+        expect:
+        !pool.enabled
+        !new TestWorkerPool(classPathSnapshotter, false).enabled
+
+        when:
+        System.setProperty(TestWorkerPool.REUSE_WORKERS_PROPERTY, "true")
+
+        then:
+        pool.enabled
+        !new TestWorkerPool(classPathSnapshotter, false).enabled
+    }
+
+    def "reuses idle worker with matching key"() {
+        def worker1 = worker()
+        def worker2 = worker()
+
+        when:
+        pool.release("key1", worker1)
+        pool.release("key2", worker2)
+
+        then:
+        pool.reserve("key2") == worker2
+        pool.reserve("key2") == null
+        pool.reserve("key3") == null
+        pool.reserve("key1") == worker1
+    }
+
+    def "discards idle worker that is no longer running"() {
+        def worker = Mock(ForkedTestWorker)
+
+        given:
+        pool.release("key", worker)
+
+        when:
+        def result = pool.reserve("key")
+
+        then:
+        1 * worker.isRunning() >> false
+        result == null
+    }
+
+    def "stops least recently used idle worker when there are too many"() {
+        def worker1 = worker()
+        def worker2 = worker()
+        def worker3 = worker()
+
+        given:
+        pool.release("key", worker1)
+        pool.release("key", worker2)
+
+        when:
+        pool.release("key", worker3)
+
+        then:
+        1 * worker1.stop()
+        0 * worker2.stop()
+        0 * worker3.stop()
+
+        and:
+        pool.reserve("key") == worker2
+        pool.reserve("key") == worker3
+    }
+
+    def "stops idle workers when stopped"() {
+        def worker1 = worker()
+        def worker2 = worker()
+
+        given:
+        pool.release("key", worker1)
+
+        when:
+        pool.stop()
+
+        then:
+        1 * worker1.stop()
+
+        when:
+        pool.release("key", worker2)
+
+        then:
+        1 * worker2.stop()
+        pool.reserve("key") == null
+    }
+
+    private ForkedTestWorker worker() {
+        def worker = Mock(ForkedTestWorker)
+        _ * worker.isRunning() >> true
+        return worker
+    }
+}
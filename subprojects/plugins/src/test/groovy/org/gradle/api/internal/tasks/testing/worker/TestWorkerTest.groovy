@@ -17,6 +17,7 @@
 
 package org.gradle.api.internal.tasks.testing.worker
 
+import groovy.transform.CompileStatic
 import org.gradle.api.internal.tasks.testing.TestResultProcessor
 import org.gradle.api.internal.tasks.testing.TestClassProcessor
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo
@@ -34,6 +35,8 @@ import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory
 import org.junit.Rule
 import org.gradle.util.SetSystemProperties
 
+import java.security.Permission
+
 @RunWith(JMock.class)
 public class TestWorkerTest extends MultithreadedTestCase {
     @Rule public final SetSystemProperties properties = new SetSystemProperties()
@@ -44,6 +47,7 @@ public class TestWorkerTest extends MultithreadedTestCase {
     private final TestClassProcessor processor = context.mock(TestClassProcessor.class)
     private final TestClassRunInfo test = context.mock(TestClassRunInfo.class)
     private final TestResultProcessor resultProcessor = context.mock(TestResultProcessor.class)
+    private final RemoteTestClassProcessorListener listener = context.mock(RemoteTestClassProcessorListener.class)
     private final TestWorker worker = new TestWorker(factory)
 
     @Before
@@ -70,6 +74,9 @@ public class TestWorkerTest extends MultithreadedTestCase {
             one(connection).addOutgoing(TestResultProcessor.class)
             will(returnValue(resultProcessor))
 
+            one(connection).addOutgoing(RemoteTestClassProcessorListener.class)
+            will(returnValue(listener))
+
             one(connection).addIncoming(RemoteTestClassProcessor.class, worker)
             will {
                 start {
@@ -87,6 +94,7 @@ public class TestWorkerTest extends MultithreadedTestCase {
 
             one(processor).startProcessing(withParam(notNullValue()))
             one(processor).processTestClass(test)
+            one(listener).testClassProcessed()
             one(processor).stop()
         }
 
@@ -98,4 +106,161 @@ public class TestWorkerTest extends MultithreadedTestCase {
 
         assertThat(System.properties['org.gradle.test.worker'], equalTo('<worker-id>'))
     }
+
+    @Test
+    public void createsNewTestProcessorWhenProcessingIsStartedAgain() {
+        context.checking {
+            exactly(2).of(factory).create(withParam(notNullValue()))
+            will(returnValue(processor))
+
+            one(connection).addOutgoing(TestResultProcessor.class)
+            will(returnValue(resultProcessor))
+
+            one(connection).addOutgoing(RemoteTestClassProcessorListener.class)
+            will(returnValue(listener))
+
+            one(connection).addIncoming(RemoteTestClassProcessor.class, worker)
+            will {
+                start {
+                    worker.startProcessing()
+                    worker.processTestClass(test)
+                    System.setProperty("some.property", "value")
+                    worker.stopProcessing()
+                    assertThat(System.properties['some.property'], nullValue())
+                    worker.startProcessing()
+                    syncAt(1)
+                    worker.stop()
+                }
+            }
+
+            one(connection).useParameterSerializer(withParam(instanceOf(TestEventSerializer)))
+            one(connection).connect()
+
+            ignoring(resultProcessor)
+
+            exactly(2).of(processor).startProcessing(withParam(notNullValue()))
+            one(processor).processTestClass(test)
+            one(listener).testClassProcessed()
+            exactly(2).of(processor).stop()
+            one(listener).processingStopped(true)
+        }
+
+        run {
+            expectBlocksUntil(1) {
+                worker.execute(workerContext)
+            }
+        }
+    }
+
+    @Test
+    public void loadsTestClassesInNewClassLoaderEachTimeProcessingIsStarted() {
+        def classpath = [new File("classes").toURI().toURL()]
+        def isolatedWorker = new TestWorker(factory, classpath, ["org.junit"])
+        def classLoaders = []
+
+        context.checking {
+            exactly(2).of(factory).create(withParam(notNullValue()))
+            will(returnValue(processor))
+
+            one(connection).addOutgoing(TestResultProcessor.class)
+            will(returnValue(resultProcessor))
+
+            one(connection).addOutgoing(RemoteTestClassProcessorListener.class)
+            will(returnValue(listener))
+
+            one(connection).addIncoming(RemoteTestClassProcessor.class, isolatedWorker)
+            will {
+                start {
+                    isolatedWorker.startProcessing()
+                    isolatedWorker.stopProcessing()
+                    isolatedWorker.startProcessing()
+                    syncAt(1)
+                    isolatedWorker.stop()
+                }
+            }
+
+            one(connection).useParameterSerializer(withParam(instanceOf(TestEventSerializer)))
+            one(connection).connect()
+
+            ignoring(resultProcessor)
+
+            exactly(2).of(processor).startProcessing(withParam(notNullValue()))
+            will {
+                classLoaders << Thread.currentThread().contextClassLoader
+            }
+            exactly(2).of(processor).stop()
+            one(listener).processingStopped(true)
+        }
+
+        run {
+            expectBlocksUntil(1) {
+                isolatedWorker.execute(workerContext)
+            }
+        }
+
+        assertThat(classLoaders.size(), equalTo(2))
+        assertThat(classLoaders[0], instanceOf(URLClassLoader))
+        assertThat(classLoaders[0].URLs as List, equalTo(classpath))
+        assertThat(classLoaders[1], instanceOf(URLClassLoader))
+        assertThat(classLoaders[1], not(sameInstance(classLoaders[0])))
+    }
+
+    @Test
+    public void reportsThatWorkerCannotBeUsedAgainWhenSecurityManagerCannotBeRemoved() {
+        def securityManager = new LockedSecurityManager()
+
+        context.checking {
+            one(factory).create(withParam(notNullValue()))
+            will(returnValue(processor))
+
+            one(connection).addOutgoing(TestResultProcessor.class)
+            will(returnValue(resultProcessor))
+
+            one(connection).addOutgoing(RemoteTestClassProcessorListener.class)
+            will(returnValue(listener))
+
+            one(connection).addIncoming(RemoteTestClassProcessor.class, worker)
+            will {
+                start {
+                    worker.startProcessing()
+                    System.setSecurityManager(securityManager)
+                    try {
+                        worker.stopProcessing()
+                    } finally {
+                        securityManager.locked = false
+                        System.setSecurityManager(null)
+                    }
+                    syncAt(1)
+                    worker.stop()
+                }
+            }
+
+            one(connection).useParameterSerializer(withParam(instanceOf(TestEventSerializer)))
+            one(connection).connect()
+
+            ignoring(resultProcessor)
+
+            one(processor).startProcessing(withParam(notNullValue()))
+            one(processor).stop()
+            one(listener).processingStopped(false)
+        }
+
+        run {
+            expectBlocksUntil(1) {
+                worker.execute(workerContext)
+            }
+        }
+    }
+
+    @CompileStatic
+    private static class LockedSecurityManager extends SecurityManager {
+        volatile boolean locked = true
+
+        @Override
+        void checkPermission(Permission perm) {
+            if (locked && perm instanceof RuntimePermission && perm.name == "setSecurityManager") {
+                throw new SecurityException("Cannot remove this security manager.")
+            }
+        }
+    }
 }
@@ -16,34 +16,51 @@
 
 package org.gradle.internal.resource.transport.http;
 
-import org.apache.http.HttpResponse;
+import org.apache.http.*;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.impl.client.*;
+import org.apache.http.impl.cookie.DateUtils;
 import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.ExecutionContext;
+import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.EntityUtils;
+import org.gradle.api.Nullable;
 import org.gradle.api.UncheckedIOException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Provides some convenience and unified logging.
  */
-public class HttpClientHelper {
+public class HttpClientHelper implements Closeable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpClientHelper.class);
     private final HttpClient client;
-    private final BasicHttpContext httpContext = new BasicHttpContext();
+    // A context holds the state of a single request, such as the redirect locations, so each thread that performs requests has its own
+    private final ThreadLocal<HttpContext> httpContext = new ThreadLocal<HttpContext>() {
+        @Override
+        protected HttpContext initialValue() {
+            return new BasicHttpContext();
+        }
+    };
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong reusedConnectionCount = new AtomicLong();
+    private final AtomicLong notModifiedCount = new AtomicLong();
 
     public HttpClientHelper(HttpSettings settings) {
         alwaysUseKeepAliveConnections();
 
         DefaultHttpClient client = new SystemDefaultHttpClient();
         new HttpClientConfigurer(settings).configure(client);
+        client.addRequestInterceptor(new ConnectionReuseCounter());
         this.client = new DecompressingHttpClient(client);
     }
 
@@ -70,6 +87,27 @@ public class HttpClientHelper {
         return processResponse(source, "GET", performRawGet(source));
     }
 
+    /**
+     * Performs a GET that only returns the content of the resource when it does not match the given entity tag, or has been modified since the given date.
+     * Returns a 'Not Modified' response when the resource is unchanged, or null when the resource is missing.
+     */
+    public HttpResponse performConditionalGet(String source, @Nullable String etag, @Nullable Date lastModified) {
+        HttpGet request = new HttpGet(source);
+        if (etag != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        }
+        if (lastModified != null) {
+            request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, DateUtils.formatDate(lastModified));
+        }
+        HttpResponse response = performRequest(request);
+        if (wasNotModified(response)) {
+            notModifiedCount.incrementAndGet();
+            LOGGER.debug("Resource not modified. [HTTP GET: {}]", source);
+            return response;
+        }
+        return processResponse(source, "GET", response);
+    }
+
     public HttpResponse performRequest(HttpRequestBase request) {
         String method = request.getMethod();
 
@@ -98,6 +136,11 @@ public class HttpClientHelper {
         return statusCode == 404;
     }
 
+    public boolean wasNotModified(HttpResponse response) {
+        int statusCode = response.getStatusLine().getStatusCode();
+        return statusCode == 304;
+    }
+
     public boolean wasSuccessful(HttpResponse response) {
         int statusCode = response.getStatusLine().getStatusCode();
         return statusCode >= 200 && statusCode < 300;
@@ -105,6 +148,7 @@ public class HttpClientHelper {
 
     public HttpResponse performHttpRequest(HttpRequestBase request) throws IOException {
         // Without this, HTTP Client prohibits multiple redirects to the same location within the same context
+        HttpContext httpContext = this.httpContext.get();
         httpContext.removeAttribute(DefaultRedirectStrategy.REDIRECT_LOCATIONS);
 
         LOGGER.debug("Performing HTTP {}: {}", request.getMethod(), request.getURI());
@@ -125,5 +169,22 @@ public class HttpClientHelper {
         return response;
     }
 
+    public String getStatistics() {
+        return String.format("%s requests, %s over a reused connection, %s not modified", requestCount.get(), reusedConnectionCount.get(), notModifiedCount.get());
+    }
 
+    public void close() {
+        LOGGER.debug("Closing HTTP client: {}", getStatistics());
+        client.getConnectionManager().shutdown();
+    }
+
+    private class ConnectionReuseCounter implements HttpRequestInterceptor {
+        public void process(HttpRequest request, HttpContext context) {
+            requestCount.incrementAndGet();
+            HttpConnection connection = (HttpConnection) context.getAttribute(ExecutionContext.HTTP_CONNECTION);
+            if (connection != null && connection.getMetrics().getRequestCount() > 0) {
+                reusedConnectionCount.incrementAndGet();
+            }
+        }
+    }
 }
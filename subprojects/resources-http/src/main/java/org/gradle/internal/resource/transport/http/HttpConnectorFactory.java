@@ -17,15 +17,30 @@
 package org.gradle.internal.resource.transport.http;
 
 import com.google.common.collect.Sets;
+import org.gradle.internal.concurrent.CompositeStoppable;
 import org.gradle.internal.resource.PasswordCredentials;
 import org.gradle.internal.resource.connector.ResourceConnectorFactory;
 import org.gradle.internal.resource.connector.ResourceConnectorSpecification;
 import org.gradle.internal.resource.transfer.DefaultExternalResourceConnector;
 import org.gradle.internal.resource.transfer.ExternalResourceConnector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.util.Set;
+import java.io.Closeable;
+import java.util.*;
+
+/**
+ * Creates the connectors for HTTP repositories. When enabled using the {@value #REUSE_CLIENTS_PROPERTY} system property, the HTTP client for a given set
+ * of credentials is kept for the lifetime of this factory, so that its pooled connections to each host are reused by later builds in the same process.
+ * A client is only reused while the networking system properties it was configured from are unchanged.
+ */
+public class HttpConnectorFactory implements ResourceConnectorFactory, Closeable {
+    public static final String REUSE_CLIENTS_PROPERTY = "org.gradle.internal.http.reuseClients";
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpConnectorFactory.class);
+    private static final List<String> NETWORK_PROPERTY_PREFIXES = Arrays.asList("http.", "https.", "javax.net.ssl.", "socksProxy", "java.net.");
+
+    private final Map<String, HttpClientHelper> clients = new HashMap<String, HttpClientHelper>();
 
-public class HttpConnectorFactory implements ResourceConnectorFactory {
     @Override
     public Set<String> getSupportedProtocols() {
         return Sets.newHashSet("http", "https");
@@ -33,10 +48,54 @@ public class HttpConnectorFactory implements ResourceConnectorFactory {
 
     @Override
     public ExternalResourceConnector createResourceConnector(ResourceConnectorSpecification connectionDetails) {
-        HttpClientHelper http = new HttpClientHelper(new DefaultHttpSettings(connectionDetails.getCredentials(PasswordCredentials.class)));
+        HttpClientHelper http = getClient(connectionDetails.getCredentials(PasswordCredentials.class));
         HttpResourceAccessor accessor = new HttpResourceAccessor(http);
         HttpResourceLister lister = new HttpResourceLister(accessor);
         HttpResourceUploader uploader = new HttpResourceUploader(http);
         return new DefaultExternalResourceConnector(accessor, lister, uploader);
     }
+
+    private HttpClientHelper getClient(PasswordCredentials credentials) {
+        if (!Boolean.getBoolean(REUSE_CLIENTS_PROPERTY)) {
+            return new HttpClientHelper(new DefaultHttpSettings(credentials));
+        }
+        String key = getClientKey(credentials);
+        synchronized (clients) {
+            HttpClientHelper http = clients.get(key);
+            if (http == null) {
+                http = new HttpClientHelper(new DefaultHttpSettings(credentials));
+                clients.put(key, http);
+            } else {
+                LOGGER.debug("Reusing HTTP client: {}", http.getStatistics());
+            }
+            return http;
+        }
+    }
+
+    private static String getClientKey(PasswordCredentials credentials) {
+        StringBuilder key = new StringBuilder();
+        if (credentials != null) {
+            key.append(credentials.getUsername()).append(':').append(credentials.getPassword());
+        }
+        Properties systemProperties = System.getProperties();
+        for (String name : new TreeSet<String>(systemProperties.stringPropertyNames())) {
+            for (String prefix : NETWORK_PROPERTY_PREFIXES) {
+                if (name.startsWith(prefix)) {
+                    key.append('\n').append(name).append('=').append(systemProperties.getProperty(name));
+                    break;
+                }
+            }
+        }
+        return key.toString();
+    }
+
+    public void close() {
+        synchronized (clients) {
+            for (HttpClientHelper http : clients.values()) {
+                LOGGER.info("HTTP client statistics: {}", http.getStatistics());
+            }
+            CompositeStoppable.stoppable(clients.values()).stop();
+            clients.clear();
+        }
+    }
 }
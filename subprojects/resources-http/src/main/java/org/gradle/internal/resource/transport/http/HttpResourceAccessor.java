@@ -36,7 +36,13 @@ public class HttpResourceAccessor implements ExternalResourceAccessor {
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpResourceAccessor.class);
     private final HttpClientHelper http;
 
-    private final List<HttpResponseResource> openResources = new ArrayList<HttpResponseResource>();
+    // The resources opened by each thread, so that a thread only closes the resources it abandoned
+    private final ThreadLocal<List<HttpResponseResource>> openResources = new ThreadLocal<List<HttpResponseResource>>() {
+        @Override
+        protected List<HttpResponseResource> initialValue() {
+            return new ArrayList<HttpResponseResource>();
+        }
+    };
 
     public HttpResourceAccessor(HttpClientHelper http) {
         this.http = http;
@@ -57,6 +63,26 @@ public class HttpResourceAccessor implements ExternalResourceAccessor {
         return null;
     }
 
+    @Nullable
+    public HttpResponseResource openResource(final URI uri, ExternalResourceMetaData cachedMetaData) {
+        if (cachedMetaData.getEtag() == null && cachedMetaData.getLastModified() == null) {
+            return openResource(uri);
+        }
+        abortOpenResources();
+        String location = uri.toString();
+        LOGGER.debug("Constructing external resource, unless unchanged: {}", location);
+
+        HttpResponse response = http.performConditionalGet(location, cachedMetaData.getEtag(), cachedMetaData.getLastModified());
+        if (response == null) {
+            return null;
+        }
+        if (http.wasNotModified(response)) {
+            return new HttpResponseResource("GET", uri, response, cachedMetaData);
+        }
+        HttpResponseResource resource = wrapResponse(uri, response);
+        return recordOpenGetResource(resource);
+    }
+
     /**
      * Same as #getResource except that it always gives access to the response body,
      * irrespective of the returned HTTP status code. Never returns {@code null}.
@@ -87,11 +113,12 @@ public class HttpResourceAccessor implements ExternalResourceAccessor {
     }
 
     private HttpResponseResource recordOpenGetResource(HttpResponseResource httpResource) {
-        openResources.add(httpResource);
+        openResources.get().add(httpResource);
         return httpResource;
     }
 
     private void abortOpenResources() {
+        List<HttpResponseResource> openResources = this.openResources.get();
         for (Closeable openResource : openResources) {
             LOGGER.warn("Forcing close on abandoned resource: " + openResource);
             try {
@@ -108,7 +135,7 @@ public class HttpResourceAccessor implements ExternalResourceAccessor {
             @Override
             public void close() throws IOException {
                 super.close();
-                HttpResourceAccessor.this.openResources.remove(this);
+                HttpResourceAccessor.this.openResources.get().remove(this);
             }
         };
     }
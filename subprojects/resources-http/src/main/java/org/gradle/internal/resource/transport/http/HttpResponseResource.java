@@ -16,6 +16,7 @@
 package org.gradle.internal.resource.transport.http;
 
 import org.apache.http.Header;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
 import org.apache.http.impl.cookie.DateUtils;
@@ -27,6 +28,7 @@ import org.gradle.internal.resource.transfer.ExternalResourceReadResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
@@ -49,6 +51,16 @@ public class HttpResponseResource implements ExternalResourceReadResponse {
         this.metaData = new DefaultExternalResourceMetaData(source, getLastModified(), getContentLength(), getContentType(), etag, getSha1(response, etag));
     }
 
+    /**
+     * Creates a resource for a response that does not describe the resource itself, such as a 'Not Modified' response, using the given meta-data instead.
+     */
+    public HttpResponseResource(String method, URI source, HttpResponse response, ExternalResourceMetaData metaData) {
+        this.method = method;
+        this.source = source;
+        this.response = response;
+        this.metaData = metaData;
+    }
+
     public URI getURI() {
         return source;
     }
@@ -116,7 +128,8 @@ public class HttpResponseResource implements ExternalResourceReadResponse {
         }
         LOGGER.debug("Attempting to download resource {}.", source);
         this.wasOpened = true;
-        return response.getEntity().getContent();
+        HttpEntity entity = response.getEntity();
+        return entity == null ? new ByteArrayInputStream(new byte[0]) : entity.getContent();
     }
 
     @Override
@@ -16,8 +16,10 @@
 
 package org.gradle.internal.resource.transport.http
 import org.apache.http.HttpResponse
+import org.apache.http.HttpVersion
 import org.apache.http.client.methods.HttpGet
 import org.apache.http.client.methods.HttpRequestBase
+import org.apache.http.message.BasicHttpResponse
 import org.gradle.internal.resource.PasswordCredentials
 import org.gradle.util.SetSystemProperties
 import org.junit.Rule
@@ -42,6 +44,26 @@ class HttpClientHelperTest extends Specification {
         e.cause.message == "ouch"
     }
 
+    def "sends validators with a conditional GET and returns a 'Not Modified' response"() {
+        HttpRequestBase request = null
+        def client = new HttpClientHelper(httpSettings) {
+            @Override
+            protected HttpResponse executeGetOrHead(HttpRequestBase method) {
+                request = method
+                return new BasicHttpResponse(HttpVersion.HTTP_1_1, 304, "Not Modified")
+            }
+        }
+
+        when:
+        def response = client.performConditionalGet("http://gradle.org/thing", '"abc"', new Date(0))
+
+        then:
+        client.wasNotModified(response)
+        request.getFirstHeader("If-None-Match").value == '"abc"'
+        request.getFirstHeader("If-Modified-Since").value == "Thu, 01 Jan 1970 00:00:00 GMT"
+        client.statistics == "0 requests, 0 over a reused connection, 1 not modified"
+    }
+
     def "always sets http.keepAlive system property to 'true'"() {
         given:
         System.setProperty("http.keepAlive", "false")
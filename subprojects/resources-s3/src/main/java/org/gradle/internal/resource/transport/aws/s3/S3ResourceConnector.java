@@ -54,6 +54,10 @@ public class S3ResourceConnector implements ExternalResourceConnector {
         return new S3Resource(s3Object, location);
     }
 
+    public ExternalResourceReadResponse openResource(URI location, ExternalResourceMetaData cachedMetaData) {
+        return openResource(location);
+    }
+
     public ExternalResourceMetaData getMetaData(URI location) {
         LOGGER.debug("Attempting to get resource metadata: {}", location);
         S3Object s3Object = s3Client.getMetaData(location);
@@ -70,4 +70,8 @@ public class SftpResourceAccessor implements ExternalResourceAccessor {
         ExternalResourceMetaData metaData = getMetaData(location);
         return metaData != null ? new SftpResource(sftpClientFactory, metaData, location, credentials) : null;
     }
+
+    public ExternalResourceReadResponse openResource(URI location, ExternalResourceMetaData cachedMetaData) {
+        return openResource(location);
+    }
 }
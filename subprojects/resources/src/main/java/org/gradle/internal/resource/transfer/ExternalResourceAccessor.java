@@ -39,6 +39,20 @@ public interface ExternalResourceAccessor {
     @Nullable
     ExternalResourceReadResponse openResource(URI location) throws ResourceException;
 
+    /**
+     * Read the resource at the given location, unless the resource is known to be unchanged since the given metadata was obtained for it.
+     *
+     * If the resource is unchanged, this method should return a response without content, whose metadata is the given metadata.
+     * Implementations that cannot cheaply tell whether the resource has changed should read the resource as for {@link #openResource(URI)}.
+     *
+     * @param location The address of the resource to obtain
+     * @param cachedMetaData The metadata previously obtained for the resource
+     * @return The resource if it exists, otherwise null. Caller is responsible for closing the result.
+     * @throws ResourceException If the resource may exist, but not could be obtained for some reason.
+     */
+    @Nullable
+    ExternalResourceReadResponse openResource(URI location, ExternalResourceMetaData cachedMetaData) throws ResourceException;
+
     /**
      * Obtains only the metadata about the resource.
      *